@@ -11,6 +11,7 @@ module org.treefx {
     requires org.controlsfx.controls;
     requires java.sql;
     requires java.desktop;
+    requires jdk.jfr;
 
     opens org.treefx.app to javafx.fxml;
     exports org.treefx.app;
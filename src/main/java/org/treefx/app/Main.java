@@ -1,10 +1,12 @@
 package org.treefx.app;
 
 import javafx.application.Application;
+import javafx.collections.ListChangeListener;
 import javafx.geometry.Point2D;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ListCell;
+import javafx.scene.control.TextField;
 import javafx.scene.input.MouseButton;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
@@ -13,15 +15,24 @@ import javafx.stage.Stage;
 import javafx.scene.control.ListView;
 import org.treefx.component.TreeEditor;
 import org.treefx.component.TreeNavigation;
+import org.treefx.model.CachedTreeStore;
 import org.treefx.model.ConnectionDB;
+import org.treefx.model.ConnectionDBAsync;
+import org.treefx.model.LocalTreeStore;
+import org.treefx.model.NameIndex;
 import org.treefx.model.NodeInfo;
+import org.treefx.model.TreeStore;
 import org.treefx.model.ziptree.ZipTreeStrict;
 import org.treefx.utils.ReadCredentials;
+import org.treefx.utils.adt.Maybe;
+import org.treefx.utils.adt.Movement;
 import org.treefx.utils.adt.T;
 
+import java.nio.file.Path;
 import java.util.LinkedList;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Clase principal de la aplicación TreeFX.
@@ -31,20 +42,91 @@ import java.util.function.Consumer;
 public class Main extends Application {
     /**
      * Representa la conexión con la base de datos utilizada por la aplicación.
-     * Proporciona métodos para interactuar con los nodos del árbol almacenados en la base de datos.
+     * Proporciona métodos para interactuar con los nodos del árbol almacenados en la base de datos,
+     * sin bloquear el hilo de JavaFX.
      */
-    private ConnectionDB connection;
+    private ConnectionDBAsync connection;
 
     /**
-     * Crea una lista interactiva que muestra elementos con un identificador y un nombre.
-     * Cada elemento puede ser seleccionado o eliminado, manejando los eventos
-     * asociados mediante funciones proporcionadas.
+     * Niveles que se leen por adelantado al presentar un árbol de forma perezosa.
+     * Se configura con la propiedad del sistema {@code treefx.prefetchDepth}.
+     */
+    private static final int PREFETCH_DEPTH = Integer.getInteger("treefx.prefetchDepth", 2);
+    /**
+     * Raíces que se piden de cada vez al desplazar la lista de la vista inicial.
+     */
+    private static final int ROOTS_PAGE_SIZE = 50;
+    /**
+     * Filas que mide como mucho la lista de la vista inicial.
+     */
+    private static final int ROOTS_VISIBLE = 10;
+    /**
+     * Nodos encontrados que se muestran como mucho bajo la lista de la vista inicial.
+     */
+    private static final int HITS_VISIBLE = 5;
+
+    /**
+     * Almacenamiento de los árboles: {@code mysql} (por defecto) o {@code local}.
+     * Se configura con la propiedad del sistema {@code treefx.store}.
+     */
+    private static final String STORE = System.getProperty("treefx.store", "mysql");
+    /**
+     * Directorio del almacenamiento local, propiedad {@code treefx.store.dir}.
+     */
+    private static final String STORE_DIR = System.getProperty("treefx.store.dir", Path.of(System.getProperty("user.home"), ".treefx").toString());
+    /**
+     * Servidor MySQL, propiedades {@code treefx.db.host}, {@code treefx.db.port} y {@code treefx.db.name}.
+     */
+    private static final String DB_HOST = System.getProperty("treefx.db.host", "localhost");
+    private static final String DB_PORT = System.getProperty("treefx.db.port", "3306");
+    private static final String DB_NAME = System.getProperty("treefx.db.name", "treefx");
+    /**
+     * Directorio de las copias binarias de los árboles de la base de datos, propiedad {@code treefx.snapshot.dir}.
+     */
+    private static final String SNAPSHOT_DIR = System.getProperty("treefx.snapshot.dir", Path.of(System.getProperty("user.home"), ".treefx", "snapshots").toString());
+    /**
+     * Diario de las operaciones del editor, propiedad {@code treefx.journal}; con el valor {@code none} no se usa.
+     */
+    private static final String JOURNAL = System.getProperty("treefx.journal",
+            Path.of(System.getProperty("user.home"), ".treefx", STORE.equals("local") ? "journal-local.log" : "journal-" + DB_NAME + ".log").toString());
+    /**
+     * Bytes de la caché en memoria delante de la base de datos, propiedad {@code treefx.cache.bytes};
+     * con 0 no se usa.
+     */
+    private static final long CACHE_BYTES = Long.getLong("treefx.cache.bytes", CachedTreeStore.BUDGET);
+
+    /**
+     * Estado de la paginación del catálogo de raíces de {@link #createList(Consumer, Consumer, Consumer)}.
+     */
+    private static final class RootsCatalog {
+        /**
+         * Prefijo buscado; las páginas que llegan de una búsqueda anterior se descartan.
+         */
+        private String prefix = "";
+        private int search = 0;
+        private boolean loading = false;
+        private boolean more = true;
+    }
+
+    /**
+     * Crea una lista interactiva que muestra elementos con un identificador y un nombre, con un campo
+     * para buscarlos por el principio del nombre. Cada elemento puede ser seleccionado, presentado o
+     * eliminado, manejando los eventos asociados mediante funciones proporcionadas.
+     * <p>
+     * Los elementos se piden por páginas de {@value #ROOTS_PAGE_SIZE} a medida que la lista se desplaza
+     * hacia el final, y la lista nunca mide más de {@value #ROOTS_VISIBLE} filas, así que la vista
+     * cuesta lo mismo sea cual sea el número de árboles.
+     * </p>
+     * <p>
+     * Debajo se muestran los nodos de los árboles ya abiertos cuyo nombre contiene las palabras buscadas.
+     * </p>
      *
-     * @param toEditor Una función que toma el identificador de un elemento al hacer clic sobre él.
-     * @param xs       Una lista de elementos que la lista visualiza, donde cada elemento es un par de identificador y nombre.
-     * @return Un componente de tipo {@code ListView} que contiene los elementos proporcionados.
+     * @param toEditor     Una función que toma el identificador de un elemento al hacer clic sobre él.
+     * @param toNavigation Una función que toma el identificador de un elemento al hacer clic central sobre él.
+     * @param toHit        Una función que toma el nodo encontrado al hacer clic sobre él.
+     * @return Un contenedor con el campo de búsqueda, un {@code ListView} con los elementos y otro con los nodos encontrados.
      */
-    public ListView<T<Integer, String>> createList(Consumer<Integer> toEditor, LinkedList<T<Integer, String>> xs) {
+    public VBox createList(Consumer<Integer> toEditor, Consumer<Integer> toNavigation, Consumer<NameIndex.Hit> toHit) {
         var listView = new ListView<T<Integer, String>>();
         listView.setFixedCellSize(40);
         listView.setFocusTraversable(false);
@@ -53,9 +135,27 @@ public class Main extends Application {
                 -fx-font-size: 16px;
                 -fx-cursor: hand;
                 """);
-        listView.getItems().addAll(xs);
         listView.setMaxWidth(400);
-        listView.setPrefHeight(xs.size() * 40 + 2);
+        listView.setPrefHeight(2);
+        var items = listView.getItems();
+        items.addListener((ListChangeListener<T<Integer, String>>) change ->
+                listView.setPrefHeight(Math.min(items.size(), ROOTS_VISIBLE) * 40 + 2));
+
+        var catalog = new RootsCatalog();
+        Runnable loadMore = () -> {
+            if (catalog.loading || !catalog.more) return;
+            catalog.loading = true;
+            int search = catalog.search;
+            Maybe<T<Integer, String>> after = items.isEmpty() ? new Maybe.Nothing<>() : new Maybe.Just<>(items.getLast());
+            this.connection.getRootsPage(catalog.prefix, after, ROOTS_PAGE_SIZE).whenCompleteAsync((page, e) -> {
+                if (search != catalog.search) return;
+                // También si la página falla, para que la siguiente vez que se llegue al final se vuelva a pedir
+                catalog.loading = false;
+                if (e != null) return;
+                catalog.more = page.size() == ROOTS_PAGE_SIZE;
+                items.addAll(page);
+            }, ConnectionDBAsync.FX);
+        };
 
         listView.setCellFactory((ListView<T<Integer, String>> lv) -> new ListCell<>() {
             @Override
@@ -67,6 +167,8 @@ public class Main extends Application {
                     setStyle("-fx-background-color: white; -fx-font-size: 16px; -fx-text-fill: black; -fx-border-width: 1px; -fx-border-color: black;");
                 }
                 setText(empty ? null : item.snd());
+                // Solo existen celdas para las filas visibles: al mostrar una de las últimas, se pide la siguiente página.
+                if (!empty && getIndex() >= items.size() - ROOTS_VISIBLE) loadMore.run();
             }
         });
 
@@ -76,15 +178,59 @@ public class Main extends Application {
             if (selectedItem != null) {
                 if (event.getButton() == MouseButton.SECONDARY) {
                     connection.removeRoot(selectedItem.fst());
-                    listView.getItems().remove(selectedItem);
-                    listView.setPrefHeight((xs.size() - 1) * 40 + 2);
+                    items.remove(selectedItem);
+                } else if (event.getButton() == MouseButton.MIDDLE) {
+                    toNavigation.accept(selectedItem.fst());
                 } else {
                     toEditor.accept(selectedItem.fst());
                 }
             }
         });
-        
-        return listView;
+
+        var hitsView = new ListView<NameIndex.Hit>();
+        hitsView.setFixedCellSize(40);
+        hitsView.setFocusTraversable(false);
+        hitsView.setStyle(listView.getStyle());
+        hitsView.setMaxWidth(400);
+        hitsView.setVisible(false);
+        hitsView.managedProperty().bind(hitsView.visibleProperty());
+        hitsView.setCellFactory((ListView<NameIndex.Hit> lv) -> new ListCell<>() {
+            @Override
+            protected void updateItem(NameIndex.Hit hit, boolean empty) {
+                super.updateItem(hit, empty);
+                setStyle("-fx-background-color: white; -fx-font-size: 16px; -fx-text-fill: black; -fx-border-width: 1px; -fx-border-color: black;");
+                setText(empty ? null : hit.name());
+            }
+        });
+        hitsView.setOnMouseClicked(event -> {
+            var selectedHit = hitsView.getSelectionModel().getSelectedItem();
+            if (selectedHit != null) toHit.accept(selectedHit);
+        });
+
+        var searchField = new TextField();
+        searchField.setPromptText("Buscar...");
+        searchField.setStyle("-fx-background-color: white; -fx-border-color: black; -fx-font-size: 16px;");
+        searchField.setMaxWidth(400);
+        searchField.textProperty().addListener((observable, oldText, newText) -> {
+            catalog.prefix = newText.trim();
+            catalog.search++;
+            catalog.loading = false;
+            catalog.more = true;
+            items.clear();
+            loadMore.run();
+
+            var hits = this.connection.searchNodes(newText, HITS_VISIBLE);
+            hitsView.getItems().setAll(hits);
+            hitsView.setPrefHeight(hits.size() * 40 + 2);
+            hitsView.setVisible(!hits.isEmpty());
+        });
+
+        loadMore.run();
+
+        var container = new VBox(0, searchField, listView, hitsView);
+        container.setMaxWidth(400);
+        container.setAlignment(javafx.geometry.Pos.CENTER);
+        return container;
     }
 
     
@@ -134,15 +280,21 @@ public class Main extends Application {
      *             para la creación de nuevos árboles.
      */
     public void home(BorderPane root) {
-        LinkedList<T<Integer, String>> xs = this.connection.getAllRoots();
-
-        var listView = createList(id -> {
-            var zipTree = this.connection.getZipTree(id);
-            startTree(zipTree, root);
-        }, xs);
+        BiConsumer<Integer, LinkedList<Movement>> toNavigation = (id, path) ->
+            this.connection.getZipTreeLazy(id, PREFETCH_DEPTH).thenAcceptAsync(zipTree -> {
+                // Se encola antes de que la vista lea el nodo actual, así que ya muestra el nodo buscado
+                this.connection.navigator().execute(() -> zipTree.moveTo(path));
+                root.setCenter(new TreeNavigation(() ->
+                    this.connection.getZipTree(id).thenAcceptAsync(strictTree -> startTree(strictTree, root), ConnectionDBAsync.FX)
+                , zipTree, this.connection.navigator()));
+            }, ConnectionDBAsync.FX);
+        var listView = createList(
+            id -> this.connection.getZipTree(id).thenAcceptAsync(zipTree -> startTree(zipTree, root), ConnectionDBAsync.FX),
+            id -> toNavigation.accept(id, new LinkedList<>()),
+            hit -> toNavigation.accept(hit.rootId(), hit.path()));
         var createNewTree = createNewTree(name -> {
-            int rootID = this.connection.insertRoot(name);
-            var newNode = new NodeInfo(rootID, "", "", new Point2D(100, 100), new LinkedList<>());
+            var newNode = new NodeInfo(-1, "", "", new Point2D(100, 100), new LinkedList<>());
+            this.connection.insertRoot(name, newNode);
 
             startTree(new ZipTreeStrict<>(newNode), root);
         });
@@ -169,7 +321,10 @@ public class Main extends Application {
                     root.setCenter(new TreeNavigation(() ->
                         root.setCenter(new TreeEditor(this, connection, zipTree)), zipTree)
                     );
-                } else home(root);
+                } else {
+                    connection.saveSnapshot(zipTree);
+                    home(root);
+                }
             }
         };
 
@@ -208,6 +363,21 @@ public class Main extends Application {
         }
     }
 
+    /**
+     * Elige el almacenamiento de los árboles según la propiedad {@code treefx.store}: el almacenamiento
+     * local en {@code treefx.store.dir}, que no necesita credenciales, o la base de datos MySQL, con las
+     * credenciales de {@link #handleCredentials(BiConsumer)}.
+     *
+     * @param startWithStore una función que recibe la forma de abrir el almacenamiento elegido.
+     */
+    public void handleStore(Consumer<Supplier<TreeStore>> startWithStore) {
+        if (STORE.equals("local")) startWithStore.accept(() -> new LocalTreeStore(Path.of(STORE_DIR)));
+        else handleCredentials((user, password) -> startWithStore.accept(() -> {
+            TreeStore db = new ConnectionDB(DB_HOST, DB_PORT, user, password, DB_NAME);
+            return CACHE_BYTES > 0 ? new CachedTreeStore(db, CACHE_BYTES) : db;
+        }));
+    }
+
     /**
      * Punto principal de entrada para la aplicación JavaFX.
      * Este método se encarga de inicializar la ventana principal y configurar la interfaz gráfica de usuario.
@@ -218,8 +388,7 @@ public class Main extends Application {
      */
     @Override
     public void start(Stage primaryStage) {
-        handleCredentials((user, password) -> {
-            this.connection = new ConnectionDB("localhost", "3306", user, password, "treefx");
+        handleStore(store -> {
             BorderPane root = new BorderPane();
             try {
                 Scene scene = new Scene(root,1280,720);
@@ -230,21 +399,28 @@ public class Main extends Application {
                 e.printStackTrace();
             }
 
-            if (!this.connection.success()) {
-                Alert alert = new Alert(Alert.AlertType.WARNING);
-                alert.setTitle("Error de Conexión");
-                alert.setHeaderText("⚠️ No se pudo establecer conexión con la base de datos");
-                alert.setContentText("Posibles causas:\n• Servidor no disponible\n• Credenciales incorrectas");
-                alert.showAndWait();
-            }
+            Maybe<Path> snapshots = STORE.equals("local") ? new Maybe.Nothing<>() : new Maybe.Just<>(Path.of(SNAPSHOT_DIR));
+            Maybe<Path> journal = JOURNAL.equals("none") ? new Maybe.Nothing<>() : new Maybe.Just<>(Path.of(JOURNAL));
+            ConnectionDBAsync.open(store, snapshots, journal).thenAcceptAsync(connection -> {
+                this.connection = connection;
+
+                if (!this.connection.success()) {
+                    Alert alert = new Alert(Alert.AlertType.WARNING);
+                    alert.setTitle("Error de Conexión");
+                    alert.setHeaderText("⚠️ No se pudo establecer conexión con la base de datos");
+                    alert.setContentText("Posibles causas:\n• Servidor no disponible\n• Credenciales incorrectas\n• Almacenamiento local abierto por otra instancia");
+                    alert.showAndWait();
+                }
 
-            home(root);
+                home(root);
+            }, ConnectionDBAsync.FX);
         });
     }
 
     /**
      * Método llamado automáticamente al cerrar la aplicación JavaFX.
-     * Se utiliza para liberar recursos, como cerrar conexiones a la base de datos.
+     * Se utiliza para liberar recursos, como cerrar conexiones a la base de datos,
+     * esperando antes a que terminen las escrituras pendientes.
      */
     @Override
     public void stop() { if (this.connection != null) this.connection.close(); }
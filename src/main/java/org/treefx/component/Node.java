@@ -9,6 +9,7 @@ import javafx.fxml.FXMLLoader;
 import javafx.geometry.Point2D;
 import javafx.scene.input.Dragboard;
 import javafx.scene.input.TransferMode;
+import javafx.scene.layout.Pane;
 import javafx.scene.layout.VBox;
 import javafx.scene.shape.Line;
 import org.treefx.model.NodeInfo;
@@ -56,6 +57,15 @@ public class Node extends VBox {
         return nodeCtx;
     }
 
+    /**
+     * Obtiene el nodo padre de este nodo.
+     *
+     * @return El nodo padre, o {@code Nothing} si es la raíz.
+     */
+    public Maybe<Node> getFather() {
+        return mNodeFather;
+    }
+
     /**
      * Constructor de la clase Node.
      *
@@ -189,6 +199,32 @@ public class Node extends VBox {
         this.setStyle(cssLayout);
     }
 
+    /**
+     * Quita el nodo y su línea de la interfaz, sin perderlos, para deshacer su inserción.
+     *
+     * @param tree El contenedor de los nodos del editor.
+     */
+    public void detach(Pane tree) {
+        tree.getChildren().remove(this);
+        switch (this.mline) {
+            case Maybe.Nothing() -> {}
+            case Maybe.Just(Line line) -> this.editor.getChildren().remove(line);
+        }
+    }
+
+    /**
+     * Vuelve a poner en la interfaz un nodo quitado con {@link #detach(Pane)}, con su línea.
+     *
+     * @param tree El contenedor de los nodos del editor.
+     */
+    public void attach(Pane tree) {
+        tree.getChildren().add(this);
+        switch (this.mline) {
+            case Maybe.Nothing() -> {}
+            case Maybe.Just(Line line) -> this.editor.getChildren().add(line);
+        }
+    }
+
     /**
      * Renderiza el nodo en la interfaz gráfica en las coordenadas locales especificadas.
      *
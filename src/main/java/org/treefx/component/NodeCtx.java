@@ -8,7 +8,7 @@ import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.layout.VBox;
-import org.treefx.model.ConnectionDB;
+import org.treefx.model.ConnectionDBAsync;
 import javafx.geometry.Point2D;
 import org.treefx.model.MovementInSpace;
 import org.treefx.utils.UI;
@@ -28,7 +28,7 @@ import java.util.function.Consumer;
 public class NodeCtx extends VBox {
     private final Consumer<Boolean> toHomeOrNav;
     private final TreeEditor editor;
-    private final ConnectionDB connection;
+    private final ConnectionDBAsync connection;
 
     @FXML private ImageView node_img;
     @FXML private AnchorPane container_img;
@@ -60,12 +60,7 @@ public class NodeCtx extends VBox {
         String name = this.node_name.getText();
         String imgURL = this.node_imgURL.getText();
 
-        var nodeInfo = this.node.getNodeCtx().getValue();
-        this.connection.updateNodeInfo(nodeInfo.getId(), name, imgURL);
-        nodeInfo.setName(name);
-        nodeInfo.setImgURL(imgURL);
-        node.loadNodeInfo();
-        this.loadNodeInfo();
+        this.editor.renameNode(this.node, name, imgURL);
     }
 
     /**
@@ -76,7 +71,7 @@ public class NodeCtx extends VBox {
      * @param connection  La conexión a la base de datos para actualizar información de nodos.
      * @param node        El nodo que será gestionado por esta instancia de la clase.
      */
-    public NodeCtx(Consumer<Boolean> toHomeOrNav, TreeEditor editor, ConnectionDB connection, Node node) {
+    public NodeCtx(Consumer<Boolean> toHomeOrNav, TreeEditor editor, ConnectionDBAsync connection, Node node) {
         this.toHomeOrNav = toHomeOrNav;
         this.editor = editor;
         this.connection = connection;
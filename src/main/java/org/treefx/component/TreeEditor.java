@@ -4,12 +4,16 @@ import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.geometry.Point2D;
 import javafx.scene.control.SplitPane;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
 import javafx.scene.input.MouseButton;
 import javafx.scene.input.TransferMode;
 import javafx.scene.layout.AnchorPane;
-import org.treefx.model.ConnectionDB;
+import org.treefx.model.ConnectionDBAsync;
 import org.treefx.model.MovementInSpace;
 import org.treefx.model.NodeInfo;
+import org.treefx.model.UndoHistory;
 import org.treefx.model.ziptree.TreeCtxStrict;
 import org.treefx.model.ziptree.ZipTreeStrict;
 import org.treefx.utils.adt.Maybe;
@@ -25,14 +29,23 @@ import java.util.function.Consumer;
  * La clase {@code TreeEditor} proporciona una interfaz gráfica para editar estructuras
  * tipo árbol utilizando JavaFX. Se integra con una base de datos para almacenar
  * información de nodos y movimientos, y permite operaciones como inserción, cambio
- * de foco, gestión de eventos de ratón y detección de arrastres.
+ * de foco, gestión de eventos de ratón y detección de arrastres. Los cambios se muestran
+ * de inmediato y se escriben en la base de datos en segundo plano.
+ * </p>
+ * <p>
+ * Las inserciones de nodos, los arrastres, los botones de movimiento y los cambios de nombre se pueden
+ * deshacer ({@code Ctrl+Z}) y rehacer ({@code Ctrl+Y}). El historial ({@link UndoHistory}) guarda cada
+ * edición como una operación pequeña con lo necesario para aplicarla en los dos sentidos, no copias del
+ * árbol. Deshacer aplica la operación inversa en el modelo y la escribe como cualquier otro cambio: las
+ * posiciones y los nombres se acumulan en la siguiente escritura por lotes, y los nodos y movimientos
+ * quitados se borran en orden detrás de las escrituras que los crearon.
  * </p>
  *
  * <h3>Características principales:</h3>
  * <ul>
  *     <li>Gestión de nodos mediante un modelo de árbol zipper ({@link ZipTreeStrict}).</li>
  *     <li>Actualización dinámica del entorno gráfico basado en eventos JavaFX.</li>
- *     <li>Soporte para la conexión a una base de datos a través de {@link ConnectionDB}.</li>
+ *     <li>Soporte para la conexión a una base de datos a través de {@link ConnectionDBAsync}.</li>
  * </ul>
  *
  * <p>
@@ -43,7 +56,7 @@ import java.util.function.Consumer;
  *
  * <h3>Constructores:</h3>
  * <ul>
- *     <li>{@link #TreeEditor(Consumer, ConnectionDB, ZipTreeStrict)}</li>
+ *     <li>{@link #TreeEditor(Consumer, ConnectionDBAsync, ZipTreeStrict)}</li>
  * </ul>
  *
  * <h3>Métodos relevantes:</h3>
@@ -53,15 +66,29 @@ import java.util.function.Consumer;
  *     <li>{@link #changeFocus(Node)}: Cambia el foco al nodo proporcionado.</li>
  *     <li>{@link #changeCoFocus(Node)}: Cambia el foco coactual a otro nodo.</li>
  *     <li>{@link #dragDetection(Node)}: Configura la lógica de detección de arrastre para un nodo.</li>
+ *     <li>{@link #undo()} y {@link #redo()}: Deshacen y rehacen la última edición.</li>
  * </ul>
  *
  * @see ZipTreeStrict
- * @see ConnectionDB
+ * @see ConnectionDBAsync
  * @see Node
  */
 public class TreeEditor extends AnchorPane {
+    private static final KeyCombination UNDO = new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN);
+    private static final KeyCombination REDO = new KeyCodeCombination(KeyCode.Y, KeyCombination.SHORTCUT_DOWN);
+
+    /**
+     * Edición que se puede deshacer, con los valores de antes y de después.
+     */
+    private sealed interface Edit {
+        record Insert(Node node) implements Edit {}
+        record Move(Node node, Point2D from, Point2D to) implements Edit {}
+        record AddMovement(Node node, MovementInSpace movementInSpace) implements Edit {}
+        record Rename(Node node, String fromName, String fromImgURL, String toName, String toImgURL) implements Edit {}
+    }
+
     private final Consumer<Boolean> toHomeOrNav;
-    private final ConnectionDB connection;
+    private final ConnectionDBAsync connection;
 
     @FXML private SplitPane container;
     @FXML private AnchorPane tree;
@@ -70,6 +97,7 @@ public class TreeEditor extends AnchorPane {
     private NodeCtx nodeCtx;
     private Node currentNode;
     private Maybe<Node> mCoCurrentNode;
+    private final UndoHistory<Edit> history = new UndoHistory<>(UndoHistory.CAPACITY);
 
     private void loadFxml() {
         FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("TreeEditor.fxml"));
@@ -79,7 +107,7 @@ public class TreeEditor extends AnchorPane {
         try { fxmlLoader.load(); } catch (IOException e) { throw new RuntimeException(e); }
     }
 
-    public TreeEditor(Consumer<Boolean> toHomeOrNav, ConnectionDB connection, ZipTreeStrict<NodeInfo> zipTree) {
+    public TreeEditor(Consumer<Boolean> toHomeOrNav, ConnectionDBAsync connection, ZipTreeStrict<NodeInfo> zipTree) {
         this.toHomeOrNav = toHomeOrNav;
         this.connection = connection;
         this.mCoCurrentNode = new Maybe.Nothing<>();
@@ -117,6 +145,27 @@ public class TreeEditor extends AnchorPane {
         this.currentNode.setFocus();
         this.nodeCtx = new NodeCtx(this.toHomeOrNav, this, this.connection, this.currentNode);
         this.container.getItems().add(this.nodeCtx);
+
+        // Los atajos se registran en la escena mientras el editor está en ella.
+        this.sceneProperty().addListener((observable, oldScene, newScene) -> {
+            if (oldScene != null) {
+                oldScene.getAccelerators().remove(UNDO);
+                oldScene.getAccelerators().remove(REDO);
+            }
+            if (newScene != null) {
+                newScene.getAccelerators().put(UNDO, this::undo);
+                newScene.getAccelerators().put(REDO, this::redo);
+            }
+        });
+    }
+
+    /**
+     * Obtiene el árbol que se está editando.
+     *
+     * @return El árbol del editor.
+     */
+    public ZipTreeStrict<NodeInfo> getZipTree() {
+        return this.zipTree;
     }
 
     /**
@@ -125,8 +174,9 @@ public class TreeEditor extends AnchorPane {
      * @param pos La posición en coordenadas (x, y) donde se insertará el nodo.
      */
     public void insertNode(Point2D pos) {
-        int newId = this.connection.insertChild(pos, this.zipTree.getCtx().getValue().getId());
-        this.zipTree.insertChild(new NodeInfo(newId, "", "", pos, new LinkedList<>()));
+        var newNodeInfo = new NodeInfo(-1, "", "", pos, new LinkedList<>());
+        this.connection.insertChild(pos, this.zipTree.getCtx().getValue(), newNodeInfo);
+        this.zipTree.insertChild(newNodeInfo);
 
         var children = this.zipTree.getCtx().getChildren();
         this.zipTree.setCtx(children.getLast().getCurrent().snd());
@@ -139,6 +189,7 @@ public class TreeEditor extends AnchorPane {
 
         this.currentNode.handleLine();
         this.nodeCtx.setNode(this.currentNode);
+        this.history.record(new Edit.Insert(this.currentNode));
     }
 
     /**
@@ -153,8 +204,8 @@ public class TreeEditor extends AnchorPane {
             case Maybe.Just(Node coCurrentNode) -> {
                 LinkedList<Movement> moves = this.zipTree.getRelativePosition(coCurrentNode.getNodeCtx());
                 MovementInSpace movementInSpace = new MovementInSpace(pos, moves);
-                connection.insertMovementInSpace(currentNode.getNodeCtx().getCurrent().getCurrent().fst().getId(), movementInSpace);
-                this.zipTree.extract().addPos(movementInSpace);
+                connection.insertMovementInSpace(this.zipTree, currentNode.getNodeCtx(), movementInSpace);
+                this.history.record(new Edit.AddMovement(this.currentNode, movementInSpace));
                 return true;
             }
         }
@@ -217,9 +268,8 @@ public class TreeEditor extends AnchorPane {
             this.currentNode = node;
             Point2D p = tree.sceneToLocal(e.getSceneX(), e.getSceneY());
 
-            var nodeInfo = node.getNodeCtx().getValue();
-            connection.updateNodeInfo(nodeInfo.getId(), p);
-            nodeInfo.setPos(p);
+            this.history.record(new Edit.Move(node, node.getNodeCtx().getValue().getPos(), p));
+            connection.updateNodeInfo(this.zipTree, node.getNodeCtx(), p);
 
             node.renderNode(p);
             this.nodeCtx.setNode(this.currentNode);
@@ -227,4 +277,107 @@ public class TreeEditor extends AnchorPane {
             e.consume();
         });
     }
-}
\ No newline at end of file
+
+    /**
+     * Cambia el nombre y la imagen de un nodo.
+     *
+     * @param node   El nodo.
+     * @param name   El nuevo nombre.
+     * @param imgURL La nueva URL de la imagen.
+     */
+    public void renameNode(Node node, String name, String imgURL) {
+        var nodeInfo = node.getNodeCtx().getValue();
+        if (!name.equals(nodeInfo.getName()) || !imgURL.equals(nodeInfo.getImgURL()))
+            this.history.record(new Edit.Rename(node, nodeInfo.getName(), nodeInfo.getImgURL(), name, imgURL));
+        rename(node, name, imgURL);
+    }
+
+    private void rename(Node node, String name, String imgURL) {
+        this.connection.updateNodeInfo(this.zipTree, node.getNodeCtx(), name, imgURL);
+        node.loadNodeInfo();
+        if (node == this.currentNode) this.nodeCtx.setNode(node);
+    }
+
+    /**
+     * Deshace la última edición, si la hay.
+     *
+     * @return {@code true} si se deshizo una edición.
+     */
+    public boolean undo() {
+        switch (this.history.undo()) {
+            case Maybe.Nothing() -> { return false; }
+            case Maybe.Just(Edit edit) -> {
+                switch (edit) {
+                    case Edit.Insert(Node node) -> removeNode(node);
+                    case Edit.Move(Node node, Point2D from, Point2D ignored) -> move(node, from);
+                    case Edit.AddMovement(Node node, MovementInSpace movementInSpace) -> {
+                        this.connection.removeMovementInSpace(node.getNodeCtx().getValue(), movementInSpace);
+                        if (node == this.currentNode) this.nodeCtx.setNode(node);
+                    }
+                    case Edit.Rename(Node node, String fromName, String fromImgURL, String ignored, String ignored2) ->
+                        rename(node, fromName, fromImgURL);
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Rehace la última edición deshecha, si la hay.
+     *
+     * @return {@code true} si se rehízo una edición.
+     */
+    public boolean redo() {
+        switch (this.history.redo()) {
+            case Maybe.Nothing() -> { return false; }
+            case Maybe.Just(Edit edit) -> {
+                switch (edit) {
+                    case Edit.Insert(Node node) -> restoreNode(node);
+                    case Edit.Move(Node node, Point2D ignored, Point2D to) -> move(node, to);
+                    case Edit.AddMovement(Node node, MovementInSpace movementInSpace) -> {
+                        this.connection.insertMovementInSpace(this.zipTree, node.getNodeCtx(), movementInSpace);
+                        if (node == this.currentNode) this.nodeCtx.setNode(node);
+                    }
+                    case Edit.Rename(Node node, String ignored, String ignored2, String toName, String toImgURL) ->
+                        rename(node, toName, toImgURL);
+                }
+                return true;
+            }
+        }
+    }
+
+    private void move(Node node, Point2D pos) {
+        this.connection.updateNodeInfo(this.zipTree, node.getNodeCtx(), pos);
+        node.renderNode(pos);
+    }
+
+    /**
+     * Quita un nodo recién insertado del árbol, de la interfaz y del almacenamiento. Las ediciones
+     * posteriores ya se han deshecho, así que el nodo no tiene hijos. Si tenía el foco, pasa a su padre.
+     */
+    private void removeNode(Node node) {
+        var father = node.getFather().fromJust();
+        if (node == this.currentNode) changeFocus(father);
+        if (this.mCoCurrentNode instanceof Maybe.Just(Node coCurrentNode) && coCurrentNode == node)
+            this.mCoCurrentNode = new Maybe.Nothing<>();
+
+        this.zipTree.detachChild(node.getNodeCtx());
+        node.detach(this.tree);
+        this.connection.removeSubtree(node.getNodeCtx().getValue());
+    }
+
+    /**
+     * Vuelve a insertar un nodo quitado con {@link #removeNode(Node)}, como último hijo de su padre, y
+     * le da el foco. El almacenamiento le asigna un ID nuevo.
+     */
+    private void restoreNode(Node node) {
+        var nodeCtx = node.getNodeCtx();
+        var nodeInfo = nodeCtx.getValue();
+        var fatherInfo = nodeCtx.getFather().fromJust().getValue();
+        this.connection.insertChild(nodeInfo.getPos(), fatherInfo, nodeInfo);
+
+        this.zipTree.attachChild(nodeCtx);
+        node.attach(this.tree);
+        changeFocus(node);
+    }
+}
@@ -9,9 +9,10 @@ import javafx.scene.image.ImageView;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.VBox;
+import org.treefx.model.ConnectionDBAsync;
 import org.treefx.model.MovementInSpace;
 import org.treefx.model.NodeInfo;
-import org.treefx.model.ziptree.ZipTreeStrict;
+import org.treefx.model.ziptree.ZipTree;
 import org.treefx.utils.UI;
 import org.treefx.utils.adt.Movement;
 import org.treefx.utils.adt.T;
@@ -19,6 +20,9 @@ import javafx.geometry.Point2D;
 
 import java.io.IOException;
 import java.util.LinkedList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 /**
  * Clase que proporciona navegación de nodos en un árbol visual interactivo.
@@ -42,17 +46,49 @@ public class TreeNavigation extends VBox {
     private Button leftButton;
     private Button rightButton;
 
-    private final ZipTreeStrict<NodeInfo> zipTree;
+    private final ZipTree<NodeInfo> zipTree;
+    /**
+     * Ejecutor de los movimientos sobre el árbol. El árbol solo se toca desde él; la vista se
+     * actualiza después en el hilo de JavaFX con el {@link Step} resultante.
+     */
+    private final Executor navigator;
 
     /**
-     * Constructor de la clase {@code TreeNavigation}.
+     * Nodo actual y movimientos posibles desde él, calculados en el ejecutor de los movimientos.
+     *
+     * @param node    la información del nodo actual.
+     * @param hasTop  si tiene padre.
+     * @param hasDown si tiene hijos.
+     * @param hasPrev si tiene un hermano anterior.
+     * @param hasNext si tiene un hermano siguiente.
+     */
+    private record Step(NodeInfo node, boolean hasTop, boolean hasDown, boolean hasPrev, boolean hasNext) {}
+
+    /**
+     * Constructor de la clase {@code TreeNavigation} para un árbol completo en memoria, que se
+     * recorre directamente en el hilo de JavaFX.
      *
      * @param toEditor Una acción que se ejecuta al presionar el botón del editor.
      * @param zipTree  Estructura de datos que contiene la información del árbol.
      */
-    public TreeNavigation(Runnable toEditor, ZipTreeStrict<NodeInfo> zipTree) {
+    public TreeNavigation(Runnable toEditor, ZipTree<NodeInfo> zipTree) {
+        this(toEditor, zipTree, Runnable::run);
+    }
+
+    /**
+     * Constructor de la clase {@code TreeNavigation}.
+     *
+     * @param toEditor  Una acción que se ejecuta al presionar el botón del editor.
+     * @param zipTree   Estructura de datos que contiene la información del árbol, ya sea completa
+     *                  en memoria o perezosa, leída de la base de datos a medida que se visita.
+     * @param navigator El ejecutor de los movimientos. Con un árbol perezoso debe ser
+     *                  {@link ConnectionDBAsync#navigator()}, para que las lecturas que provoca
+     *                  un movimiento no bloqueen el hilo de JavaFX.
+     */
+    public TreeNavigation(Runnable toEditor, ZipTree<NodeInfo> zipTree, Executor navigator) {
         this.toEditor = toEditor;
         this.zipTree = zipTree;
+        this.navigator = navigator;
         this.btns = new LinkedList<>();
 
         FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("TreeNavigation.fxml"));
@@ -67,31 +103,57 @@ public class TreeNavigation extends VBox {
      */
     @FXML
     public void initialize() {
-        renderCurrentNode();
         buildMovementButtons();
-        renderMovementButtons();
         this.node_editor.setOnAction(e -> this.toEditor.run());
+        move(zipTree -> { });
+    }
+
+    /**
+     * Aplica un movimiento al árbol en el ejecutor de los movimientos y, cuando termina, muestra
+     * el nodo al que se ha llegado. Mientras tanto los botones de movimiento quedan deshabilitados.
+     *
+     * @param movement el movimiento a aplicar.
+     */
+    private void move(Consumer<ZipTree<NodeInfo>> movement) {
+        setMovementButtonsDisabled();
+        CompletableFuture.supplyAsync(() -> {
+            movement.accept(this.zipTree);
+            return new Step(this.zipTree.extract(), this.zipTree.hasTop(), this.zipTree.hasDown(), this.zipTree.hasPrev(), this.zipTree.hasNext());
+        }, this.navigator).thenAcceptAsync(step -> {
+            renderCurrentNode(step.node());
+            renderMovementButtons(step);
+        }, ConnectionDBAsync.FX).whenComplete((ignored, e) -> { if (e != null) System.err.println(e); });
+    }
+
+    private void setMovementButtonsDisabled() {
+        this.upButton.setDisable(true);
+        this.downButton.setDisable(true);
+        this.leftButton.setDisable(true);
+        this.rightButton.setDisable(true);
     }
 
     /**
      * Renderiza y habilita o deshabilita los botones que permiten mover entre nodos,
      * dependiendo de las opciones de navegación disponibles en el nodo actual.
+     *
+     * @param step el nodo actual y sus movimientos posibles.
      */
-    public void renderMovementButtons() {
-        this.upButton.setDisable(this.zipTree.getCtx().getFather().isNothing());
+    private void renderMovementButtons(Step step) {
+        this.upButton.setDisable(!step.hasTop());
 
-        this.downButton.setDisable(this.zipTree.getCtx().getChildren().size() == 0);
+        this.downButton.setDisable(!step.hasDown());
 
-        this.leftButton.setDisable(!this.zipTree.getCtx().getBrothers().hasPrev());
+        this.leftButton.setDisable(!step.hasPrev());
 
-        this.rightButton.setDisable(!this.zipTree.getCtx().getBrothers().hasNext());
+        this.rightButton.setDisable(!step.hasNext());
     }
 
     /**
      * Renderiza el nodo actual junto con los botones asociados a los nodos hijos.
+     *
+     * @param currentNode la información del nodo actual.
      */
-    public void renderCurrentNode() {
-        NodeInfo currentNode = this.zipTree.extract();
+    private void renderCurrentNode(NodeInfo currentNode) {
         for (T<Point2D, Button> button : btns) buttons_space.getChildren().remove(button.snd());
 
         String imageLoad = getClass().getResource("image-edit.png").toExternalForm();
@@ -130,7 +192,7 @@ public class TreeNavigation extends VBox {
             }
         });
 
-        node_name.setText(zipTree.extract().getName());
+        node_name.setText(currentNode.getName());
     }
 
     /**
@@ -158,45 +220,35 @@ public class TreeNavigation extends VBox {
      * @param nodeCtx Lista de movimientos necesarios para llegar al nodo destino.
      */
     private void moveTo(LinkedList<Movement> nodeCtx) {
-        this.zipTree.moveTo(nodeCtx);
-        renderCurrentNode();
-        renderMovementButtons();
+        move(zipTree -> zipTree.moveTo(nodeCtx));
     }
 
     /**
      * Navega al nodo padre del nodo actual y actualiza la vista.
      */
     private void moveUp() {
-        this.zipTree.toFather();
-        renderCurrentNode();
-        renderMovementButtons();
+        move(ZipTree::top);
     }
 
     /**
      * Navega al nodo hijo del nodo actual y actualiza la vista.
      */
     private void moveDown() {
-        this.zipTree.down();
-        renderCurrentNode();
-        renderMovementButtons();
+        move(ZipTree::down);
     }
 
     /**
      * Navega al nodo hermano izquierdo del nodo actual (anterior) y actualiza la vista.
      */
     private void moveLeft() {
-        this.zipTree.prev();
-        renderCurrentNode();
-        renderMovementButtons();
+        move(ZipTree::prev);
     }
 
     /**
      * Navega al nodo hermano derecho del nodo actual (siguiente) y actualiza la vista.
      */
     private void moveRight() {
-        this.zipTree.next();
-        renderCurrentNode();
-        renderMovementButtons();
+        move(ZipTree::next);
     }
 
     /**
@@ -0,0 +1,466 @@
+package org.treefx.model;
+
+import javafx.geometry.Point2D;
+import org.treefx.model.ziplist.NodeLinkList;
+import org.treefx.model.ziptree.TreeCtxStrict;
+import org.treefx.model.ziptree.ZipTreeLazy;
+import org.treefx.model.ziptree.ZipTreeStrict;
+import org.treefx.utils.adt.Maybe;
+import org.treefx.utils.adt.T;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * Caché en memoria delante de otro {@link TreeStore}, normalmente {@link ConnectionDB}.
+ * <p>
+ * Guarda la información de los nodos y sus movimientos espaciales por ID de nodo, y los árboles
+ * completos por ID de raíz. Las lecturas que no están en la caché se leen del almacenamiento y se
+ * guardan; cuando el tamaño estimado de lo guardado supera el presupuesto de bytes, se descartan las
+ * entradas usadas hace más tiempo.
+ * </p>
+ * <p>
+ * Las escrituras pasan al almacenamiento y después invalidan las entradas afectadas: las del propio
+ * nodo y la del árbol que lo contiene, si está en la caché. Como la interfaz modifica los
+ * {@link NodeInfo} y los {@link ZipTreeStrict} que recibe, la caché guarda sus propias copias y
+ * devuelve siempre una copia nueva.
+ * </p>
+ * <p>
+ * Las páginas de hijos del árbol perezoso, las exportaciones y las importaciones no pasan por la
+ * caché: van directamente al almacenamiento.
+ * </p>
+ */
+public class CachedTreeStore implements TreeStore {
+    /**
+     * Presupuesto en bytes que se usa por defecto.
+     */
+    public static final long BUDGET = 32L << 20;
+
+    /**
+     * Bytes estimados de un {@link NodeInfo} sin contar sus cadenas ni sus movimientos.
+     */
+    private static final long NODE_BYTES = 128;
+    /**
+     * Bytes estimados de un {@link MovementInSpace} sin contar su ruta.
+     */
+    private static final long MOVEMENT_BYTES = 112;
+    /**
+     * Bytes estimados de cada paso de una ruta.
+     */
+    private static final long STEP_BYTES = 40;
+    /**
+     * Bytes estimados de la estructura de un nodo dentro de un {@link ZipTreeStrict}.
+     */
+    private static final long TREE_NODE_BYTES = 160;
+
+    private sealed interface Key {
+        record Node(int id) implements Key {}
+        record Moves(int id) implements Key {}
+        record Tree(int rootId) implements Key {}
+    }
+
+    /**
+     * Valor guardado, con su tamaño estimado y, si es un árbol, los IDs de sus nodos.
+     */
+    private record Entry(Object value, long bytes, int[] nodeIds) {}
+
+    private final TreeStore store;
+    private final long budget;
+    private final LinkedHashMap<Key, Entry> entries;
+    /**
+     * Raíz del árbol en caché que contiene cada nodo.
+     */
+    private final HashMap<Integer, Integer> rootOf;
+    /**
+     * Número de escrituras hechas; una lectura que empezó antes de una escritura no se guarda.
+     */
+    private long writes;
+
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * Crea la caché delante de un almacenamiento ya abierto.
+     *
+     * @param store  el almacenamiento.
+     * @param budget el número máximo de bytes estimados que se guardan.
+     */
+    public CachedTreeStore(TreeStore store, long budget) {
+        this.store = store;
+        this.budget = budget;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.rootOf = new HashMap<>();
+    }
+
+    @Override
+    public boolean success() {
+        return store.success();
+    }
+
+    @Override
+    public LinkedList<T<Integer, String>> getAllRoots() {
+        return store.getAllRoots();
+    }
+
+    @Override
+    public LinkedList<T<Integer, String>> getRootsPage(String prefix, Maybe<T<Integer, String>> after, int limit) {
+        return store.getRootsPage(prefix, after, limit);
+    }
+
+    @Override
+    public int insertRoot(String name) {
+        return store.insertRoot(name);
+    }
+
+    /**
+     * Elimina la raíz y descarta su árbol y toda la información de nodos sueltos de la caché, porque
+     * los nodos del árbol no se conocen si el árbol no estaba en ella.
+     */
+    @Override
+    public int removeRoot(int root_id) {
+        int result = store.removeRoot(root_id);
+        synchronized (this) {
+            writes++;
+            invalidateTree(root_id);
+            forgetLooseNodes();
+        }
+        return result;
+    }
+
+    @Override
+    public int insertChild(Point2D position, int parentId) {
+        int id = store.insertChild(position, parentId);
+        synchronized (this) {
+            writes++;
+            invalidateTreeOf(parentId);
+        }
+        return id;
+    }
+
+    /**
+     * Elimina el subárbol e invalida el árbol que lo contenía y la información de nodos sueltos, igual
+     * que {@link #removeRoot(int)}, porque los descendientes del nodo no se conocen.
+     */
+    @Override
+    public int removeSubtree(int id) {
+        int result = store.removeSubtree(id);
+        synchronized (this) {
+            writes++;
+            invalidateTreeOf(id);
+            forgetLooseNodes();
+        }
+        return result;
+    }
+
+    @Override
+    public boolean updateNodeInfo(int id, Point2D position) {
+        boolean written = store.updateNodeInfo(id, position);
+        invalidateNode(id);
+        return written;
+    }
+
+    @Override
+    public boolean updateNodeInfo(int id, String name, String imageURL) {
+        boolean written = store.updateNodeInfo(id, name, imageURL);
+        invalidateNode(id);
+        return written;
+    }
+
+    @Override
+    public boolean updateNodeInfos(Collection<NodeUpdate> updates) {
+        boolean written = store.updateNodeInfos(updates);
+        for (NodeUpdate update : updates) invalidateNode(update.id());
+        return written;
+    }
+
+    @Override
+    public boolean insertMovementInSpace(int node_id, MovementInSpace movementInSpace) {
+        boolean written = store.insertMovementInSpace(node_id, movementInSpace);
+        invalidateNode(node_id);
+        return written;
+    }
+
+    @Override
+    public boolean removeMovementInSpace(int node_id, MovementInSpace movementInSpace) {
+        boolean written = store.removeMovementInSpace(node_id, movementInSpace);
+        invalidateNode(node_id);
+        return written;
+    }
+
+    @Override
+    public NodeInfo getNodeInfo(int id) {
+        var key = new Key.Node(id);
+        if (lookup(key) instanceof Maybe.Just(Object nodeInfo)) return copy((NodeInfo) nodeInfo);
+
+        long before = getWrites();
+        var nodeInfo = store.getNodeInfo(id);
+        if (nodeInfo != null) put(key, before, copy(nodeInfo), sizeOf(nodeInfo), new int[0]);
+        return nodeInfo;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public LinkedList<MovementInSpace> getChildrenMoves(int id) {
+        var key = new Key.Moves(id);
+        if (lookup(key) instanceof Maybe.Just(Object moves)) return copy((LinkedList<MovementInSpace>) moves);
+
+        long before = getWrites();
+        var moves = store.getChildrenMoves(id);
+        put(key, before, copy(moves), sizeOf(moves), new int[0]);
+        return moves;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ZipTreeStrict<NodeInfo> getZipTree(int id) {
+        var key = new Key.Tree(id);
+        if (lookup(key) instanceof Maybe.Just(Object zipTree)) return copy((ZipTreeStrict<NodeInfo>) zipTree);
+
+        long before = getWrites();
+        var zipTree = store.getZipTree(id);
+        if (zipTree == null) return null;
+
+        var nodes = nodesOf(zipTree);
+        var nodeIds = new int[nodes.size()];
+        long size = 0;
+        for (int ix = 0; ix < nodeIds.length; ix++) {
+            var nodeInfo = nodes.get(ix).getValue();
+            nodeIds[ix] = nodeInfo.getId();
+            size += TREE_NODE_BYTES + sizeOf(nodeInfo);
+        }
+        put(key, before, copy(zipTree), size, nodeIds);
+        return zipTree;
+    }
+
+    /**
+     * Indica si el árbol está en la caché, para leerlo de ella antes que de cualquier copia en disco.
+     */
+    @Override
+    public synchronized boolean hasZipTreeInMemory(int id) {
+        return entries.containsKey(new Key.Tree(id));
+    }
+
+    @Override
+    public long exportTree(int id, TreeExport export) {
+        return store.exportTree(id, export);
+    }
+
+    @Override
+    public int importTree(String name, Iterator<TreeImport.Node> nodes) {
+        return store.importTree(name, nodes);
+    }
+
+    @Override
+    public HashMap<Integer, LinkedList<NodeInfo>> getChildrenPages(Collection<Integer> parentIds, int afterId, int limit) {
+        return store.getChildrenPages(parentIds, afterId, limit);
+    }
+
+    @Override
+    public long getTreeVersion(int rootId) {
+        return store.getTreeVersion(rootId);
+    }
+
+    @Override
+    public ZipTreeLazy<Integer, NodeInfo> getZipTreeLazy(int id, int prefetchDepth) {
+        return store.getZipTreeLazy(id, prefetchDepth);
+    }
+
+    @Override
+    public void close() {
+        store.close();
+    }
+
+    private synchronized long getWrites() {
+        return writes;
+    }
+
+    private synchronized Maybe<Object> lookup(Key key) {
+        var entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return new Maybe.Nothing<>();
+        }
+        hits++;
+        return new Maybe.Just<>(entry.value());
+    }
+
+    /**
+     * Guarda un valor leído del almacenamiento, salvo que haya habido una escritura desde que se empezó
+     * a leer, y descarta las entradas más antiguas hasta volver al presupuesto.
+     */
+    private synchronized void put(Key key, long writesBefore, Object value, long size, int[] nodeIds) {
+        if (writes != writesBefore || size > budget) return;
+
+        var old = entries.put(key, new Entry(value, size, nodeIds));
+        if (old != null) bytes -= old.bytes();
+        bytes += size;
+        if (key instanceof Key.Tree(int rootId)) for (int nodeId : nodeIds) rootOf.put(nodeId, rootId);
+
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (bytes > budget && eldest.hasNext()) {
+            var e = eldest.next();
+            if (e.getKey().equals(key)) continue;
+            eldest.remove();
+            bytes -= e.getValue().bytes();
+            evictions++;
+            if (e.getKey() instanceof Key.Tree(int rootId)) forgetTree(rootId, e.getValue());
+        }
+    }
+
+    private synchronized void invalidateNode(int id) {
+        writes++;
+        remove(new Key.Node(id));
+        remove(new Key.Moves(id));
+        invalidateTreeOf(id);
+    }
+
+    /**
+     * Descarta la información de nodos sueltos y sus movimientos, y deja los árboles.
+     */
+    private void forgetLooseNodes() {
+        entries.entrySet().removeIf(e -> {
+            if (e.getKey() instanceof Key.Tree) return false;
+            bytes -= e.getValue().bytes();
+            invalidations++;
+            return true;
+        });
+    }
+
+    private void invalidateTreeOf(int nodeId) {
+        var rootId = rootOf.get(nodeId);
+        if (rootId != null) invalidateTree(rootId);
+    }
+
+    private void invalidateTree(int rootId) {
+        var entry = remove(new Key.Tree(rootId));
+        if (entry != null) forgetTree(rootId, entry);
+    }
+
+    private Entry remove(Key key) {
+        var entry = entries.remove(key);
+        if (entry != null) {
+            bytes -= entry.bytes();
+            invalidations++;
+        }
+        return entry;
+    }
+
+    private void forgetTree(int rootId, Entry entry) {
+        for (int nodeId : entry.nodeIds()) rootOf.remove(nodeId, rootId);
+    }
+
+    /**
+     * Contextos de todos los nodos de un árbol en orden de anchura, sin mover ningún cursor.
+     */
+    private static ArrayList<TreeCtxStrict<NodeInfo>> nodesOf(ZipTreeStrict<NodeInfo> zipTree) {
+        var nodes = new ArrayList<TreeCtxStrict<NodeInfo>>();
+        nodes.add(zipTree.getRoot());
+        for (int ix = 0; ix < nodes.size(); ix++) {
+            var child = nodes.get(ix).getChildren().getHead();
+            while (child != null) {
+                nodes.add(child.getCurrent().snd());
+                child = child.getAfter() instanceof Maybe.Just(NodeLinkList<T<NodeInfo, TreeCtxStrict<NodeInfo>>> after) ? after : null;
+            }
+        }
+        return nodes;
+    }
+
+    private static ZipTreeStrict<NodeInfo> copy(ZipTreeStrict<NodeInfo> zipTree) {
+        var nodes = nodesOf(zipTree);
+        var copy = new ZipTreeStrict<>(copy(nodes.getFirst().getValue()));
+        var copies = new IdentityHashMap<TreeCtxStrict<NodeInfo>, TreeCtxStrict<NodeInfo>>();
+        copies.put(nodes.getFirst(), copy.getCtx());
+
+        for (var nodeCtx : nodes.subList(1, nodes.size())) {
+            var fatherCtx = copies.get(nodeCtx.getFather().fromJust());
+            copy.setCtx(fatherCtx);
+            copy.insertChild(copy(nodeCtx.getValue()));
+            copies.put(nodeCtx, fatherCtx.getChildren().getLast().getCurrent().snd());
+        }
+        copy.toRoot();
+        return copy;
+    }
+
+    private static NodeInfo copy(NodeInfo nodeInfo) {
+        return new NodeInfo(nodeInfo.getId(), nodeInfo.getName(), nodeInfo.getImgURL(), nodeInfo.getPos(), copy(nodeInfo.getChildren()));
+    }
+
+    private static LinkedList<MovementInSpace> copy(LinkedList<MovementInSpace> moves) {
+        var copy = new LinkedList<MovementInSpace>();
+        for (var movementInSpace : moves)
+            copy.add(new MovementInSpace(movementInSpace.getPos(), new LinkedList<>(movementInSpace.getMovements())));
+        return copy;
+    }
+
+    private static long sizeOf(String s) {
+        return s == null ? 0 : 40 + s.length();
+    }
+
+    private static long sizeOf(LinkedList<MovementInSpace> moves) {
+        long size = 32;
+        for (var movementInSpace : moves) size += MOVEMENT_BYTES + STEP_BYTES * movementInSpace.getMovements().size();
+        return size;
+    }
+
+    private static long sizeOf(NodeInfo nodeInfo) {
+        return NODE_BYTES + sizeOf(nodeInfo.getName()) + sizeOf(nodeInfo.getImgURL()) + sizeOf(nodeInfo.getChildren());
+    }
+
+    /**
+     * Número de lecturas servidas desde la caché.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Número de lecturas que tuvieron que ir al almacenamiento.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Número de entradas descartadas por superar el presupuesto.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Número de entradas descartadas por una escritura.
+     */
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * Bytes estimados de todo lo guardado.
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Número de entradas guardadas.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        long reads = hits + misses;
+        return "CachedTreeStore[entries=%d, bytes=%d/%d, hits=%d, misses=%d, hitRate=%.1f%%, evictions=%d, invalidations=%d]"
+                .formatted(entries.size(), bytes, budget, hits, misses, reads == 0 ? 0 : 100.0 * hits / reads, evictions, invalidations);
+    }
+}
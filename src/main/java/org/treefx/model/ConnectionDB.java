@@ -8,17 +8,79 @@ import org.treefx.utils.adt.Movement;
 import org.treefx.utils.adt.T;
 import javafx.geometry.Point2D;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Maneja la conexión con la base de datos y proporciona métodos para interactuar con las tablas y datos.
+ * Maneja la conexión con la base de datos MySQL y proporciona métodos para interactuar con las tablas y datos.
+ * <p>
+ * Las conexiones salen de un {@link ConnectionPool}: cada método toma una prestada mientras dura y
+ * reutiliza las sentencias ya preparadas en ella, así que varios hilos pueden usar la misma instancia
+ * a la vez.
+ * </p>
  */
-public class ConnectionDB {
-    private Maybe<Connection> mconnection;
+public class ConnectionDB implements TreeStore {
+    private Maybe<ConnectionPool> mpool;
+    /**
+     * Número de consultas enviadas al servidor desde que se abrió la conexión.
+     */
+    private final AtomicLong roundTrips = new AtomicLong();
+    /**
+     * Tiempos, filas y sentencias de cada operación y de cada consulta, con el registro de consultas lentas.
+     */
+    private final QueryMetrics metrics = new QueryMetrics();
+    /**
+     * Tamaño en bytes de un punto en formato WKB.
+     */
+    private static final int WKB_POINT_SIZE = 21;
+    /**
+     * Tamaño máximo en bytes de la columna {@code node_positions.movements}.
+     */
+    public static final int MOVEMENTS_MAX_BYTES = 4096;
+    /**
+     * Nodos que se insertan en cada lote de {@link #importTree(String, Iterator)}.
+     */
+    private static final int IMPORT_BATCH = 1000;
+    /**
+     * IDs máximos de cada lista {@code IN (?, …)}; es potencia de dos y queda muy por debajo del
+     * límite de 65.535 parámetros por sentencia de MySQL.
+     */
+    private static final int IN_CHUNK = 512;
 
+    @Override
     public boolean success() {
-        return mconnection.isJust();
+        return mpool.isJust();
+    }
+
+    /**
+     * Obtiene el número de viajes de ida y vuelta al servidor realizados por esta conexión.
+     *
+     * @return el número de consultas ejecutadas.
+     */
+    public long getRoundTrips() {
+        return roundTrips.get();
+    }
+
+    /**
+     * Obtiene las medidas de las operaciones y consultas realizadas por esta conexión.
+     *
+     * @return las medidas, que siguen actualizándose.
+     */
+    public QueryMetrics getQueryMetrics() {
+        return metrics;
     }
 
     /**
@@ -38,21 +100,66 @@ public class ConnectionDB {
         return new Point2D(x, y);
     }
 
+    /**
+     * Convierte un punto en formato WKB (Well-Known Binary), como el que devuelve {@code ST_AsBinary},
+     * a un objeto Point2D, sin pasar por texto.
+     * <p>
+     * Formato: un byte con el orden de bytes (1 = little endian), un entero de 4 bytes con el tipo
+     * de geometría (1 = punto) y dos {@code double} con las coordenadas x e y.
+     * </p>
+     *
+     * @param positionWKB la representación WKB del punto.
+     * @return un objeto Point2D correspondiente a las coordenadas del punto.
+     * @throws IllegalArgumentException si no es un punto WKB de 21 bytes.
+     */
+    public static Point2D toPoint2D(byte[] positionWKB) {
+        if (positionWKB.length != WKB_POINT_SIZE)
+            throw new IllegalArgumentException("Punto WKB de " + positionWKB.length + " bytes, se esperaban " + WKB_POINT_SIZE);
+        if (positionWKB[0] != 0 && positionWKB[0] != 1)
+            throw new IllegalArgumentException("Orden de bytes WKB desconocido: " + positionWKB[0]);
+
+        var buffer = ByteBuffer.wrap(positionWKB)
+                .order(positionWKB[0] == 1 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+        int type = buffer.getInt(1);
+        if (type != 1) throw new IllegalArgumentException("Geometría WKB de tipo " + type + ", se esperaba un punto (1)");
+        return new Point2D(buffer.getDouble(5), buffer.getDouble(13));
+    }
+
+    /**
+     * Convierte un objeto Point2D a un punto en formato WKB (Well-Known Binary), para enlazarlo
+     * con {@code ST_GeomFromWKB(?)}.
+     *
+     * @param position el punto.
+     * @return la representación WKB del punto, en little endian.
+     * @see #toPoint2D(byte[])
+     */
+    public static byte[] toWKB(Point2D position) {
+        return ByteBuffer.allocate(WKB_POINT_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .put((byte) 1)
+                .putInt(1)
+                .putDouble(position.getX())
+                .putDouble(position.getY())
+                .array();
+    }
+
     /**
      * Obtiene todos los nodos raíz de la base de datos.
      *
      * @return una lista enlazada con las raíces, cada una representada por su ID y nombre.
      */
+    @Override
     public LinkedList<T<Integer, String>> getAllRoots() {
         var roots = new LinkedList<T<Integer, String>>();
 
-        switch (mconnection) {
+        switch (mpool) {
             case Maybe.Nothing() -> System.out.println("Conexion no establecida");
-            case Maybe.Just(Connection connection) -> {
-                try (var statement = connection.createStatement();
-                     var resultSet = statement.executeQuery("SELECT node_id, name FROM roots")
+            case Maybe.Just(ConnectionPool pool) -> {
+                try (var connection = pool.acquire();
+                     var resultSet = connection.prepareStatement("SELECT node_id, name FROM roots").executeQuery()
                     )
                 {
+                    roundTrips.incrementAndGet();
                     while (resultSet.next())
                         roots.add(new T.MkT<>(resultSet.getInt("node_id"), resultSet.getString("name")));
                 } catch (SQLException e) {
@@ -64,26 +171,87 @@ public class ConnectionDB {
         return roots;
     }
 
+    /**
+     * Obtiene una página de raíces con una consulta por rango sobre el índice {@code (name, node_id)}
+     * de {@code roots}, sin ordenar ni recorrer las páginas anteriores. Mayúsculas y minúsculas se
+     * comparan según la intercalación de la columna.
+     *
+     * @param prefix el principio del nombre, o la cadena vacía para todas las raíces.
+     * @param after  la última raíz de la página anterior, o {@code Nothing} para la primera página.
+     * @param limit  el número máximo de raíces de la página.
+     * @return las raíces de la página, cada una representada por su ID y nombre, en orden.
+     */
+    @Override
+    public LinkedList<T<Integer, String>> getRootsPage(String prefix, Maybe<T<Integer, String>> after, int limit) {
+        var roots = new LinkedList<T<Integer, String>>();
+
+        switch (mpool) {
+            case Maybe.Nothing() -> System.out.println("Conexion no establecida");
+            case Maybe.Just(ConnectionPool pool) -> {
+                try (var connection = pool.acquire())
+                {
+                    String pattern = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+                    var pstmt = switch (after) {
+                        case Maybe.Nothing() -> {
+                            var stmt = connection.prepareStatement("""
+                                SELECT node_id, name FROM roots
+                                WHERE name LIKE ?
+                                ORDER BY name, node_id
+                                LIMIT ?
+                                """);
+                            stmt.setString(1, pattern);
+                            stmt.setInt(2, limit);
+                            yield stmt;
+                        }
+                        case Maybe.Just(T<Integer, String> last) -> {
+                            var stmt = connection.prepareStatement("""
+                                SELECT node_id, name FROM roots
+                                WHERE name LIKE ? AND (name > ? OR (name = ? AND node_id > ?))
+                                ORDER BY name, node_id
+                                LIMIT ?
+                                """);
+                            stmt.setString(1, pattern);
+                            stmt.setString(2, last.snd());
+                            stmt.setString(3, last.snd());
+                            stmt.setInt(4, last.fst());
+                            stmt.setInt(5, limit);
+                            yield stmt;
+                        }
+                    };
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        roundTrips.incrementAndGet();
+                        while (rs.next()) roots.add(new T.MkT<>(rs.getInt("node_id"), rs.getString("name")));
+                    }
+                } catch (SQLException e) { System.err.println(e); }
+            }
+        }
+
+        return roots;
+    }
+
     /**
      * Inserta un nodo raíz en la base de datos.
      *
      * @param name el nombre del nodo raíz que se desea insertar.
      * @return el ID del nodo raíz recién insertado, o -1 si ocurre un error.
      */
+    @Override
     public int insertRoot(String name) {
         int id = -1;
 
-        switch (mconnection) {
+        switch (mpool) {
             case Maybe.Nothing() -> System.out.println("Conexion no establecida");
-            case Maybe.Just(Connection connection) -> {
-                try (var callableStatement = connection.prepareCall("{call InsertRootNode(?, ?, GeomFromText(?), ?, ?)}"))
+            case Maybe.Just(ConnectionPool pool) -> {
+                try (var connection = pool.acquire())
                 {
+                    var callableStatement = connection.prepareCall("{call InsertRootNode(?, ?, ST_GeomFromWKB(?), ?, ?)}");
                     callableStatement.setString("node_name", "");
                     callableStatement.setString("node_imgURL", "");
-                    callableStatement.setString("node_position", "Point("+ "100 100" +")");
+                    callableStatement.setBytes("node_position", toWKB(new Point2D(100, 100)));
                     callableStatement.setString("root_name", name);
                     callableStatement.registerOutParameter("new_root_id", java.sql.Types.INTEGER);
                     callableStatement.execute();
+                    roundTrips.incrementAndGet();
 
                     id = callableStatement.getInt("new_root_id");
                 } catch (SQLException e) { System.err.println(e); }
@@ -97,18 +265,22 @@ public class ConnectionDB {
      * Elimina un nodo raíz de la base de datos.
      *
      * @param root_id el ID del nodo raíz que se desea eliminar.
-     * @return -1 si ocurre un error.
+     * @return 0, o -1 si ocurre un error.
      */
+    @Override
     public int removeRoot(int root_id) {
         int id = -1;
 
-        switch (mconnection) {
+        switch (mpool) {
             case Maybe.Nothing() -> System.out.println("Conexion no establecida");
-            case Maybe.Just(Connection connection) -> {
-                try (var pstmt = connection.prepareStatement("DELETE FROM roots WHERE node_id = ?"))
+            case Maybe.Just(ConnectionPool pool) -> {
+                try (var connection = pool.acquire())
                 {
+                    var pstmt = connection.prepareStatement("DELETE FROM roots WHERE node_id = ?");
                     pstmt.setInt(1, root_id);
                     pstmt.executeUpdate();
+                    roundTrips.incrementAndGet();
+                    id = 0;
                 } catch (SQLException e) { System.err.println("error: " + e); }
             }
         }
@@ -123,20 +295,24 @@ public class ConnectionDB {
      * @param parentId el ID del nodo padre.
      * @return el ID del nodo hijo recién insertado, o -1 si ocurre un error.
      */
+    @Override
     public int insertChild(Point2D position, int parentId) {
         int id = -1;
 
-        switch (mconnection) {
+        switch (mpool) {
             case Maybe.Nothing() -> System.out.println("Conexion no establecida");
-            case Maybe.Just(Connection connection) -> {
-                try (var callableStatement = connection.prepareCall("{call InsertChildNode(?, ?, GeomFromText(?), ?, ?)}"))
+            case Maybe.Just(ConnectionPool pool) -> {
+                try (var connection = pool.acquire())
                 {
+                    var callableStatement = connection.prepareCall("{call InsertChildNode(?, ?, ST_GeomFromWKB(?), ?, ?)}");
                     callableStatement.setString("node_name", "");
                     callableStatement.setString("node_imgURL", "");
-                    callableStatement.setString("node_position", "Point("+ position.getX() + " " + position.getY() +")");
+                    callableStatement.setBytes("node_position", toWKB(position));
                     callableStatement.setInt("parent_id", parentId);
                     callableStatement.registerOutParameter("new_node_id", java.sql.Types.INTEGER);
                     callableStatement.execute();
+                    roundTrips.incrementAndGet();
+                    bumpTreeVersion(connection, List.of(parentId));
 
                     id = callableStatement.getInt("new_node_id");
                 } catch (SQLException e) { System.err.println(e); }
@@ -151,19 +327,29 @@ public class ConnectionDB {
      *
      * @param id       el ID del nodo que se desea actualizar.
      * @param position la nueva posición del nodo en formato Point2D.
+     * @return {@code false} si ocurre un error.
      */
-    public void updateNodeInfo(int id, Point2D position) {
-        switch (mconnection) {
+    @Override
+    public boolean updateNodeInfo(int id, Point2D position) {
+        boolean written = false;
+
+        switch (mpool) {
             case Maybe.Nothing() -> System.out.println("Conexion no establecida");
-            case Maybe.Just(Connection connection) -> {
-                try (var pstmt = connection.prepareStatement("UPDATE node SET position = GeomFromText(?) WHERE id = ?"))
+            case Maybe.Just(ConnectionPool pool) -> {
+                try (var connection = pool.acquire())
                 {
-                    pstmt.setString(1, "Point("+ position.getX() + " " + position.getY() +")");
+                    var pstmt = connection.prepareStatement("UPDATE node SET position = ST_GeomFromWKB(?) WHERE id = ?");
+                    pstmt.setBytes(1, toWKB(position));
                     pstmt.setInt(2, id);
                     pstmt.executeUpdate();
+                    roundTrips.incrementAndGet();
+                    bumpTreeVersion(connection, List.of(id));
+                    written = true;
                 } catch (SQLException e) { System.err.println(e); }
             }
         }
+
+        return written;
     }
 
     /**
@@ -172,26 +358,116 @@ public class ConnectionDB {
      * @param id       el ID del nodo que se desea actualizar.
      * @param name     el nuevo nombre del nodo.
      * @param imageURL la nueva URL de la imagen del nodo.
+     * @return {@code false} si ocurre un error.
      */
-    public void updateNodeInfo(int id, String name, String imageURL) {
-        switch (mconnection) {
+    @Override
+    public boolean updateNodeInfo(int id, String name, String imageURL) {
+        boolean written = false;
+
+        switch (mpool) {
             case Maybe.Nothing() -> System.out.println("Conexion no establecida");
-            case Maybe.Just(Connection connection) -> {
-                try (var pstmt = connection.prepareStatement("""
+            case Maybe.Just(ConnectionPool pool) -> {
+                try (var connection = pool.acquire())
+                {
+                    var pstmt = connection.prepareStatement("""
                 UPDATE node
                 SET
                     name = ?,
                     imgURL = ?
                 WHERE id = ?
-                """))
-                {
+                """);
                     pstmt.setString(1, name);
                     pstmt.setString(2, imageURL);
                     pstmt.setInt(3, id);
                     pstmt.executeUpdate();
+                    roundTrips.incrementAndGet();
+                    bumpTreeVersion(connection, List.of(id));
+                    written = true;
+                } catch (SQLException e) { System.err.println(e); }
+            }
+        }
+
+        return written;
+    }
+
+    /**
+     * Escribe varias actualizaciones de nodos en una sola transacción, con un lote de sentencias
+     * para las posiciones, otro para los nombres e imágenes y otro para los movimientos nuevos. Con
+     * {@code rewriteBatchedStatements} el lote de movimientos se envía como un único INSERT de varias filas.
+     *
+     * @param updates las actualizaciones, como mucho una por nodo.
+     * @return {@code false} si ocurre un error, en cuyo caso no se escribe ninguna.
+     */
+    @Override
+    public boolean updateNodeInfos(Collection<NodeUpdate> updates) {
+        if (updates.isEmpty()) return true;
+        boolean written = false;
+
+        switch (mpool) {
+            case Maybe.Nothing() -> System.out.println("Conexion no establecida");
+            case Maybe.Just(ConnectionPool pool) -> {
+                try (var connection = pool.acquire())
+                {
+                    var positionStmt = connection.prepareStatement("UPDATE node SET position = ST_GeomFromWKB(?) WHERE id = ?");
+                    var nameStmt = connection.prepareStatement("""
+                    UPDATE node
+                    SET
+                        name = ?,
+                        imgURL = ?
+                    WHERE id = ?
+                    """);
+                    var movesStmt = connection.prepareStatement("""
+                    INSERT INTO node_positions (position, node_id, movements)
+                    VALUES (ST_GeomFromWKB(?), ?, ?)
+                    """);
+                    int positions = 0, names = 0, moves = 0;
+
+                    var jdbc = connection.getConnection();
+                    jdbc.setAutoCommit(false);
+                    try {
+                        for (NodeUpdate update : updates) {
+                            if (update.position() instanceof Maybe.Just(Point2D position)) {
+                                positionStmt.setBytes(1, toWKB(position));
+                                positionStmt.setInt(2, update.id());
+                                positionStmt.addBatch();
+                                positions++;
+                            }
+                            if (update.nameAndImage() instanceof Maybe.Just(T.MkT(String name, String imageURL))) {
+                                nameStmt.setString(1, name);
+                                nameStmt.setString(2, imageURL);
+                                nameStmt.setInt(3, update.id());
+                                nameStmt.addBatch();
+                                names++;
+                            }
+                            for (MovementInSpace movementInSpace : update.movements()) {
+                                movesStmt.setBytes(1, toWKB(movementInSpace.getPos()));
+                                movesStmt.setInt(2, update.id());
+                                movesStmt.setBytes(3, encodeMovements(movementInSpace.getMovements()));
+                                movesStmt.addBatch();
+                                moves++;
+                            }
+                        }
+
+                        if (positions > 0) { positionStmt.executeBatch(); roundTrips.incrementAndGet(); }
+                        if (names > 0) { nameStmt.executeBatch(); roundTrips.incrementAndGet(); }
+                        if (moves > 0) { movesStmt.executeBatch(); roundTrips.incrementAndGet(); }
+                        bumpTreeVersion(connection, updates.stream().map(NodeUpdate::id).toList());
+                        jdbc.commit();
+                        written = true;
+                    } catch (SQLException | RuntimeException e) {
+                        jdbc.rollback();
+                        throw e;
+                    } finally {
+                        positionStmt.clearBatch();
+                        nameStmt.clearBatch();
+                        movesStmt.clearBatch();
+                        jdbc.setAutoCommit(true);
+                    }
                 } catch (SQLException e) { System.err.println(e); }
             }
         }
+
+        return written;
     }
 
     /**
@@ -200,29 +476,31 @@ public class ConnectionDB {
      * @param id el ID del nodo cuyo información se desea obtener.
      * @return un objeto NodeInfo conteniendo los datos del nodo, o null si no se encuentra.
      */
+    @Override
     public NodeInfo getNodeInfo(int id) {
         NodeInfo nodeInfo = null;
 
-        switch (mconnection) {
+        switch (mpool) {
             case Maybe.Nothing() -> System.out.println("Conexion no establecida");
-            case Maybe.Just(Connection connection) -> {
-                try (var pstmt = connection.prepareStatement("""
-                    SELECT id, name, imgURL, AsText(position) AS position FROM node
-                    WHERE id = ?
-                    """))
+            case Maybe.Just(ConnectionPool pool) -> {
+                try (var connection = pool.acquire())
                 {
+                    var pstmt = connection.prepareStatement("""
+                    SELECT id, name, imgURL, ST_AsBinary(position) AS position FROM node
+                    WHERE id = ?
+                    """);
                     pstmt.setInt(1, id);
-                    ResultSet rs = pstmt.executeQuery();
-                    if (rs.next()) {
-                        String name = rs.getString("name");
-                        String imgURL = rs.getString("imgURL");
-                        String positionRAW = rs.getString("position");
-
-                        nodeInfo = new NodeInfo(id, name, imgURL, toPoint2D(positionRAW), getChildrenMoves(id));
-                    } else System.out.println("node no encontrado con id: " + id + " en la tabla node");
-                } catch (Exception e) { System.err.println(e); }
-
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        roundTrips.incrementAndGet();
+                        if (rs.next()) {
+                            String name = rs.getString("name");
+                            String imgURL = rs.getString("imgURL");
+                            byte[] positionWKB = rs.getBytes("position");
 
+                            nodeInfo = new NodeInfo(id, name, imgURL, toPoint2D(positionWKB), getChildrenMoves(id));
+                        } else System.out.println("node no encontrado con id: " + id + " en la tabla node");
+                    }
+                } catch (Exception e) { System.err.println(e); }
             }
         }
 
@@ -234,31 +512,112 @@ public class ConnectionDB {
      *
      * @param node_id         el ID del nodo al cual se le agregan movimientos espaciales.
      * @param movementInSpace un objeto que contiene los movimientos espaciales y la posición.
+     * @return {@code false} si ocurre un error.
      */
-    public void insertMovementInSpace(int node_id, MovementInSpace movementInSpace) {
+    @Override
+    public boolean insertMovementInSpace(int node_id, MovementInSpace movementInSpace) {
         var movements = movementInSpace.getMovements();
         var pos = movementInSpace.getPos();
+        boolean written = false;
 
-        switch (mconnection) {
+        switch (mpool) {
             case Maybe.Nothing() -> System.out.println("Conexion no establecida");
-            case Maybe.Just(Connection connection) -> {
-                try (var pstmt = connection.prepareStatement("""
-                    INSERT INTO node_positions (position, node_id, movements)
-                    VALUES (GeomFromText(?), ?, ?)
-                    """))
+            case Maybe.Just(ConnectionPool pool) -> {
+                try (var connection = pool.acquire())
                 {
-                    pstmt.setString(1, "Point("+ pos.getX() + " " + pos.getY() +")");
+                    var pstmt = connection.prepareStatement("""
+                    INSERT INTO node_positions (position, node_id, movements)
+                    VALUES (ST_GeomFromWKB(?), ?, ?)
+                    """);
+                    pstmt.setBytes(1, toWKB(pos));
                     pstmt.setInt(2, node_id);
-
-                    String movementsRAW = "";
-                    for (Movement movement : movements) movementsRAW += Movement.show(movement) + " ";
-                    if (!movementsRAW.isEmpty()) movementsRAW.trim();
-
-                    pstmt.setString(3, movementsRAW);
+                    pstmt.setBytes(3, encodeMovements(movements));
                     pstmt.executeUpdate();
+                    roundTrips.incrementAndGet();
+                    bumpTreeVersion(connection, List.of(node_id));
+                    written = true;
                 } catch (SQLException e) { throw new RuntimeException(e); }
             }
         }
+
+        return written;
+    }
+
+    /**
+     * Quita de un nodo el último movimiento espacial con la misma posición y la misma ruta: busca su fila
+     * entre las del nodo, de la más reciente a la más antigua, y la borra por su clave.
+     *
+     * @param node_id         el ID del nodo.
+     * @param movementInSpace la posición y la ruta del movimiento.
+     * @return {@code false} si ocurre un error; no encontrar el movimiento no es un error.
+     */
+    @Override
+    public boolean removeMovementInSpace(int node_id, MovementInSpace movementInSpace) {
+        byte[] movementsBIN = Movement.encode(movementInSpace.getMovements());
+        boolean written = false;
+
+        switch (mpool) {
+            case Maybe.Nothing() -> System.out.println("Conexion no establecida");
+            case Maybe.Just(ConnectionPool pool) -> {
+                try (var connection = pool.acquire())
+                {
+                    var pstmt = connection.prepareStatement(
+                        "SELECT id, ST_AsBinary(position) AS position, movements FROM node_positions WHERE node_id = ? ORDER BY id DESC");
+                    pstmt.setInt(1, node_id);
+                    int rowId = -1;
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        roundTrips.incrementAndGet();
+                        while (rowId < 0 && rs.next()) {
+                            if (toPoint2D(rs.getBytes("position")).equals(movementInSpace.getPos())
+                                    && Arrays.equals(rs.getBytes("movements"), movementsBIN))
+                                rowId = rs.getInt("id");
+                        }
+                    }
+                    if (rowId < 0) return true;
+
+                    var delete = connection.prepareStatement("DELETE FROM node_positions WHERE node_id = ? AND id = ?");
+                    delete.setInt(1, node_id);
+                    delete.setInt(2, rowId);
+                    delete.executeUpdate();
+                    roundTrips.incrementAndGet();
+                    bumpTreeVersion(connection, List.of(node_id));
+                    written = true;
+                } catch (SQLException e) { System.err.println(e); }
+            }
+        }
+
+        return written;
+    }
+
+    /**
+     * Codifica una ruta para la columna {@code movements}.
+     *
+     * @param movements la ruta.
+     * @return la ruta codificada.
+     * @throws RuntimeException si la ruta no cabe en la columna.
+     */
+    private static byte[] encodeMovements(LinkedList<Movement> movements) {
+        byte[] movementsBIN = Movement.encode(movements);
+        if (movementsBIN.length > MOVEMENTS_MAX_BYTES)
+            throw new RuntimeException("Ruta de " + movements.size() + " movimientos demasiado larga: " + movementsBIN.length + " bytes");
+        return movementsBIN;
+    }
+
+    /**
+     * Convierte la representación textual de una ruta ("Up Down(3) ...") en una lista de movimientos.
+     * Solo se usa para migrar las filas guardadas antes de la codificación binaria.
+     *
+     * @param movementsRAW los movimientos separados por espacios, puede ser {@code null}.
+     * @return la lista de movimientos leídos.
+     */
+    private LinkedList<Movement> readMovements(String movementsRAW) {
+        LinkedList<Movement> movements = new LinkedList<>();
+        if (movementsRAW == null) return movements;
+
+        for (String movementStr : movementsRAW.split(" ")) {
+            if (!movementStr.isEmpty()) movements.add(Movement.read(movementStr));
+        }
+        return movements;
     }
 
     /**
@@ -267,33 +626,29 @@ public class ConnectionDB {
      * @param id el ID del nodo hijo para el cual se obtienen los movimientos.
      * @return una lista enlazada de los movimientos espaciales.
      */
+    @Override
     public LinkedList<MovementInSpace> getChildrenMoves(int id) {
         LinkedList<MovementInSpace> movementsInSpace = new LinkedList<>();
 
-        switch (mconnection) {
+        switch (mpool) {
             case Maybe.Nothing() -> System.out.println("Conexion no establecida");
-            case Maybe.Just(Connection connection) -> {
-                try (var pstmt = connection.prepareStatement(
-                        "SELECT AsText(position) as position, movements, node_id FROM node_positions WHERE node_id = ?"))
+            case Maybe.Just(ConnectionPool pool) -> {
+                try (var connection = pool.acquire())
                 {
+                    var pstmt = connection.prepareStatement(
+                        "SELECT ST_AsBinary(position) AS position, movements, node_id FROM node_positions WHERE node_id = ?");
                     pstmt.setInt(1, id);
-                    ResultSet rs = pstmt.executeQuery();
-
-                    while (rs.next()) {
-                        String positionRAW = rs.getString("position");
-                        String movementsRAW = rs.getString("movements");
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        roundTrips.incrementAndGet();
 
-                        String[] movementsStr = movementsRAW.split(" ");
-                        LinkedList<Movement> movements = new LinkedList<>();
+                        while (rs.next()) {
+                            byte[] positionWKB = rs.getBytes("position");
+                            byte[] movementsBIN = rs.getBytes("movements");
 
-                        for (String movementStr : movementsStr) {
-                            movements.add(Movement.read(movementStr));
+                            MovementInSpace movementInSpace = new MovementInSpace(toPoint2D(positionWKB), Movement.decode(movementsBIN));
+                            movementsInSpace.add(movementInSpace);
                         }
-
-                        MovementInSpace movementInSpace = new MovementInSpace(toPoint2D(positionRAW), movements);
-                        movementsInSpace.add(movementInSpace);
                     }
-
                 } catch (Exception e) { System.err.println(e); }
             }
         }
@@ -308,31 +663,34 @@ public class ConnectionDB {
      * @return el árbol ZipTree completamente rellenado.
      */
     public ZipTreeStrict<NodeInfo> getZipTreeGO(ZipTreeStrict<NodeInfo> zipTree, int id) {
-        switch (mconnection) {
+        switch (mpool) {
             case Maybe.Nothing() -> System.out.println("Conexion no establecida");
-            case Maybe.Just(Connection connection) -> {
-                try (var pstmt = connection.prepareStatement("""
+            case Maybe.Just(ConnectionPool pool) -> {
+                try (var connection = pool.acquire())
+                {
+                    var pstmt = connection.prepareStatement("""
                                 SELECT
                                     child.id AS child_id,
                                     child.name AS child_name,
                                     child.imgURL AS child_imgURL,
-                                    AsText(child.position) AS child_position
+                                    ST_AsBinary(child.position) AS child_position
                                 FROM node_hierarchy AS hierarchy
                                 INNER JOIN node AS child ON hierarchy.child_node_id = child.id
                                 WHERE hierarchy.parent_node_id = ?
                                 ORDER BY child.id;
-                                """))
-                {
+                                """);
                     pstmt.setInt(1, id);
-                    ResultSet rs = pstmt.executeQuery();
-                    while (rs.next()) {
-                        int childId = rs.getInt("child_id");
-                        String childName = rs.getString("child_name");
-                        String childImgURL = rs.getString("child_imgURL");
-                        String childPositionRAW = rs.getString("child_position");
-
-                        NodeInfo newChild = new NodeInfo(childId, childName, childImgURL, toPoint2D(childPositionRAW), getChildrenMoves(childId));
-                        zipTree.insertChild(newChild);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        roundTrips.incrementAndGet();
+                        while (rs.next()) {
+                            int childId = rs.getInt("child_id");
+                            String childName = rs.getString("child_name");
+                            String childImgURL = rs.getString("child_imgURL");
+                            byte[] childPositionWKB = rs.getBytes("child_position");
+
+                            NodeInfo newChild = new NodeInfo(childId, childName, childImgURL, toPoint2D(childPositionWKB), getChildrenMoves(childId));
+                            zipTree.insertChild(newChild);
+                        }
                     }
                 } catch (SQLException e) { System.err.println(e); }
 
@@ -355,21 +713,964 @@ public class ConnectionDB {
      * @param id el ID del nodo raíz del árbol ZipTree.
      * @return el árbol ZipTree generado.
      */
+    @Override
     public ZipTreeStrict<NodeInfo> getZipTree(int id) {
+        return this.getZipTreeBulk(id);
+    }
+
+    /**
+     * Obtiene un árbol ZipTree nodo a nodo, con una consulta por nodo y otra por sus movimientos.
+     * Se conserva como referencia para comparar con {@link #getZipTreeBulk(int)}.
+     *
+     * @param id el ID del nodo raíz del árbol ZipTree.
+     * @return el árbol ZipTree generado.
+     */
+    public ZipTreeStrict<NodeInfo> getZipTreeRecursive(int id) {
         ZipTreeStrict<NodeInfo> zipTree = new ZipTreeStrict<>(this.getNodeInfo(id));
         return this.getZipTreeGO(zipTree, id);
     }
 
     /**
-     * Cierra la conexión con la base de datos si está establecida.
+     * Obtiene todos los movimientos espaciales de los nodos del subárbol con raíz en {@code id}
+     * en una sola consulta, agrupados por el ID del nodo.
+     *
+     * @param connection la conexión prestada.
+     * @param id         el ID del nodo raíz del subárbol.
+     * @return un mapa del ID de cada nodo a sus movimientos espaciales.
+     * @throws SQLException si falla la consulta.
      */
-    public void close() {
-        switch (mconnection) {
+    private HashMap<Integer, LinkedList<MovementInSpace>> getSubtreeMoves(ConnectionPool.Lease connection, int id) throws SQLException {
+        var movesById = new HashMap<Integer, LinkedList<MovementInSpace>>();
+
+        var pstmt = connection.prepareStatement("""
+                SELECT positions.node_id, ST_AsBinary(positions.position) AS position, positions.movements
+                FROM node_closure AS subtree
+                INNER JOIN node_positions AS positions ON positions.node_id = subtree.descendant_id
+                WHERE subtree.ancestor_id = ?
+                """);
+        pstmt.setInt(1, id);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            roundTrips.incrementAndGet();
+
+            while (rs.next()) {
+                var movementInSpace = new MovementInSpace(toPoint2D(rs.getBytes("position")), Movement.decode(rs.getBytes("movements")));
+                movesById.computeIfAbsent(rs.getInt("node_id"), k -> new LinkedList<>()).add(movementInSpace);
+            }
+        }
+
+        return movesById;
+    }
+
+    /**
+     * Obtiene un árbol ZipTree completo con dos consultas: una sobre {@code node_closure} y {@code node}
+     * para todos los nodos del subárbol, y otra sobre {@code node_positions} para todos sus movimientos.
+     * El árbol se construye en memoria en tiempo lineal.
+     * <p>
+     * Las filas llegan ordenadas por profundidad, de modo que el padre de cada nodo ya está en el
+     * árbol cuando se inserta, y por ID dentro del mismo padre, igual que en {@link #getZipTreeGO}.
+     * Ese es el orden de la clave primaria de {@code node_closure}, así que MySQL puede recorrerla en
+     * orden y el {@code ORDER BY} no necesita una ordenación aparte.
+     * </p>
+     *
+     * @param id el ID del nodo raíz del árbol ZipTree.
+     * @return el árbol ZipTree generado, o {@code null} si no hay conexión o no existe la raíz.
+     */
+    public ZipTreeStrict<NodeInfo> getZipTreeBulk(int id) {
+        ZipTreeStrict<NodeInfo> zipTree = null;
+
+        switch (mpool) {
+            case Maybe.Nothing() -> System.out.println("Conexion no establecida");
+            case Maybe.Just(ConnectionPool pool) -> {
+                try (var connection = pool.acquire())
+                {
+                    var movesById = getSubtreeMoves(connection, id);
+
+                    var pstmt = connection.prepareStatement("""
+                        SELECT
+                            subtree.descendant_id AS id,
+                            parent.ancestor_id AS parent_id,
+                            node.name AS name,
+                            node.imgURL AS imgURL,
+                            ST_AsBinary(node.position) AS position
+                        FROM node_closure AS subtree
+                        INNER JOIN node ON node.id = subtree.descendant_id
+                        LEFT JOIN node_closure AS parent ON parent.descendant_id = subtree.descendant_id AND parent.depth = 1
+                        WHERE subtree.ancestor_id = ?
+                        ORDER BY subtree.depth, subtree.descendant_id
+                        """);
+                    pstmt.setInt(1, id);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        roundTrips.incrementAndGet();
+
+                        var ctxById = new HashMap<Integer, TreeCtxStrict<NodeInfo>>();
+                        while (rs.next()) {
+                            int nodeId = rs.getInt("id");
+                            var moves = movesById.getOrDefault(nodeId, new LinkedList<>());
+                            var nodeInfo = new NodeInfo(nodeId, rs.getString("name"), rs.getString("imgURL"), toPoint2D(rs.getBytes("position")), moves);
+
+                            if (zipTree == null) {
+                                zipTree = new ZipTreeStrict<>(nodeInfo);
+                                ctxById.put(nodeId, zipTree.getCtx());
+                            } else {
+                                var fatherCtx = ctxById.get(rs.getInt("parent_id"));
+                                zipTree.setCtx(fatherCtx);
+                                zipTree.insertChild(nodeInfo);
+                                ctxById.put(nodeId, fatherCtx.getChildren().getLast().getCurrent().snd());
+                            }
+                        }
+                    }
+
+                    if (zipTree == null) System.out.println("node no encontrado con id: " + id + " en la tabla node");
+                    else zipTree.toRoot();
+                } catch (SQLException e) { System.err.println(e); }
+            }
+        }
+
+        return zipTree;
+    }
+
+    /**
+     * Escribe un árbol completo en una exportación con una sola consulta que el servidor envía fila a
+     * fila, sin construir el árbol ni guardar el resultado en memoria.
+     * <p>
+     * Cada fila es un nodo con uno de sus movimientos espaciales, o sin ninguno; las filas del mismo nodo
+     * llegan seguidas y se juntan antes de escribirlo, de modo que solo hay un nodo en memoria cada vez.
+     * Los nodos llegan ordenados por profundidad y por ID, así que cada padre se escribe antes que sus
+     * hijos, como en {@link #getZipTreeBulk(int)}.
+     * </p>
+     *
+     * @param id     el ID del nodo raíz del árbol.
+     * @param export la exportación, que no se cierra.
+     * @return el número de nodos escritos, o -1 si no hay conexión, no existe la raíz u ocurre un error.
+     */
+    @Override
+    public long exportTree(int id, TreeExport export) {
+        long nodes = -1;
+
+        switch (mpool) {
+            case Maybe.Nothing() -> System.out.println("Conexion no establecida");
+            case Maybe.Just(ConnectionPool pool) -> {
+                try (var connection = pool.acquire())
+                {
+                    var pstmt = connection.prepareStatement("""
+                        SELECT
+                            subtree.descendant_id AS id,
+                            parent.ancestor_id AS parent_id,
+                            node.name AS name,
+                            node.imgURL AS imgURL,
+                            ST_AsBinary(node.position) AS position,
+                            ST_AsBinary(positions.position) AS movement_position,
+                            positions.movements AS movements
+                        FROM node_closure AS subtree
+                        INNER JOIN node ON node.id = subtree.descendant_id
+                        LEFT JOIN node_closure AS parent ON parent.descendant_id = subtree.descendant_id AND parent.depth = 1
+                        LEFT JOIN node_positions AS positions ON positions.node_id = subtree.descendant_id
+                        WHERE subtree.ancestor_id = ?
+                        ORDER BY subtree.depth, subtree.descendant_id
+                        """);
+                    pstmt.setInt(1, id);
+                    // Con este tamaño el conector de MySQL lee las filas a medida que se piden, en lugar de todas
+                    // de golpe; otros conectores no lo admiten.
+                    if (connection.getConnection().getMetaData().getDriverName().startsWith("MySQL"))
+                        pstmt.setFetchSize(Integer.MIN_VALUE);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        roundTrips.incrementAndGet();
+
+                        NodeInfo nodeInfo = null;
+                        int parentId = -1;
+                        while (rs.next()) {
+                            int nodeId = rs.getInt("id");
+                            if (nodeInfo == null || nodeInfo.getId() != nodeId) {
+                                if (nodeInfo != null) export.node(parentId, nodeInfo);
+                                nodeInfo = new NodeInfo(nodeId, rs.getString("name"), rs.getString("imgURL"), toPoint2D(rs.getBytes("position")), new LinkedList<>());
+                                parentId = rs.getInt("parent_id");
+                                if (rs.wasNull()) parentId = -1;
+                            }
+                            byte[] movementPosition = rs.getBytes("movement_position");
+                            if (movementPosition != null) {
+                                nodeInfo.getChildren().add(new MovementInSpace(toPoint2D(movementPosition), Movement.decode(rs.getBytes("movements"))));
+                            }
+                        }
+
+                        if (nodeInfo == null) System.out.println("node no encontrado con id: " + id + " en la tabla node");
+                        else {
+                            export.node(parentId, nodeInfo);
+                            nodes = export.getNodes();
+                        }
+                    }
+                } catch (SQLException | IOException | IllegalArgumentException e) { System.err.println(e); }
+            }
+        }
+
+        return nodes;
+    }
+
+    /**
+     * Crea un árbol nuevo con los nodos indicados en una sola transacción, insertándolos por lotes de
+     * {@value #IMPORT_BATCH} en lugar de llamar a {@code InsertChildNode} por cada uno.
+     * <p>
+     * Cada lote inserta sus filas de {@code node} en una sentencia de varias filas y lee los IDs
+     * generados, con los que sustituye los IDs del origen; después inserta las filas de
+     * {@code node_hierarchy}, {@code node_closure} y {@code node_positions} del lote, cuatro sentencias
+     * más. Las filas de {@code node_closure} de cada nodo se calculan en memoria a partir de los
+     * ancestros de su padre, que ya están insertados. Si algo falla, no queda nada del árbol.
+     * </p>
+     *
+     * @param name  el nombre del árbol.
+     * @param nodes los nodos, empezando por la raíz y cada uno después de su padre.
+     * @return el ID de la nueva raíz, o -1 si no hay conexión, no hay nodos u ocurre un error.
+     */
+    @Override
+    public int importTree(String name, Iterator<TreeImport.Node> nodes) {
+        int rootId = -1;
+
+        switch (mpool) {
+            case Maybe.Nothing() -> System.out.println("Conexion no establecida");
+            case Maybe.Just(ConnectionPool pool) -> {
+                try (var connection = pool.acquire())
+                {
+                    var jdbc = connection.getConnection();
+                    var nodeStmt = jdbc.prepareStatement("INSERT INTO node (name, imgURL, position) VALUES (?, ?, ST_GeomFromWKB(?))", Statement.RETURN_GENERATED_KEYS);
+                    var rootStmt = connection.prepareStatement("INSERT INTO roots (node_id, name) VALUES (?, ?)");
+                    var hierarchyStmt = connection.prepareStatement("INSERT INTO node_hierarchy (parent_node_id, child_node_id) VALUES (?, ?)");
+                    var closureStmt = connection.prepareStatement("INSERT INTO node_closure (ancestor_id, descendant_id, depth) VALUES (?, ?, ?)");
+                    var movesStmt = connection.prepareStatement("""
+                    INSERT INTO node_positions (position, node_id, movements)
+                    VALUES (ST_GeomFromWKB(?), ?, ?)
+                    """);
+
+                    jdbc.setAutoCommit(false);
+                    try (nodeStmt) {
+                        // ID en el origen -> ID nuevo, e ID nuevo -> ID nuevo del padre, para las filas de node_closure.
+                        var ids = new HashMap<Integer, Integer>();
+                        var parents = new HashMap<Integer, Integer>();
+                        var batch = new ArrayList<TreeImport.Node>(IMPORT_BATCH);
+                        while (nodes.hasNext()) {
+                            batch.add(nodes.next());
+                            if (batch.size() < IMPORT_BATCH && nodes.hasNext()) continue;
+
+                            for (TreeImport.Node node : batch) {
+                                var nodeInfo = node.nodeInfo();
+                                nodeStmt.setString(1, nodeInfo.getName());
+                                nodeStmt.setString(2, nodeInfo.getImgURL());
+                                nodeStmt.setBytes(3, toWKB(nodeInfo.getPos()));
+                                nodeStmt.addBatch();
+                            }
+                            nodeStmt.executeBatch();
+                            roundTrips.incrementAndGet();
+
+                            int hierarchy = 0, moves = 0;
+                            try (ResultSet keys = nodeStmt.getGeneratedKeys()) {
+                                for (TreeImport.Node node : batch) {
+                                    if (!keys.next()) throw new SQLException("Faltan IDs generados en el lote");
+                                    int id = keys.getInt(1);
+
+                                    if (rootId < 0) {
+                                        rootId = id;
+                                        rootStmt.setInt(1, id);
+                                        rootStmt.setString(2, name);
+                                        rootStmt.executeUpdate();
+                                        roundTrips.incrementAndGet();
+                                    } else {
+                                        Integer fatherId = ids.get(node.parentId());
+                                        if (fatherId == null) throw new IllegalArgumentException("El nodo " + node.id() + " llega antes que su padre " + node.parentId());
+                                        hierarchyStmt.setInt(1, fatherId);
+                                        hierarchyStmt.setInt(2, id);
+                                        hierarchyStmt.addBatch();
+                                        hierarchy++;
+                                        parents.put(id, fatherId);
+                                    }
+                                    ids.put(node.id(), id);
+
+                                    int depth = 0;
+                                    for (Integer ancestor = id; ancestor != null; ancestor = parents.get(ancestor)) {
+                                        closureStmt.setInt(1, ancestor);
+                                        closureStmt.setInt(2, id);
+                                        closureStmt.setInt(3, depth++);
+                                        closureStmt.addBatch();
+                                    }
+
+                                    for (MovementInSpace movementInSpace : node.nodeInfo().getChildren()) {
+                                        movesStmt.setBytes(1, toWKB(movementInSpace.getPos()));
+                                        movesStmt.setInt(2, id);
+                                        movesStmt.setBytes(3, encodeMovements(movementInSpace.getMovements()));
+                                        movesStmt.addBatch();
+                                        moves++;
+                                    }
+                                }
+                            }
+
+                            if (hierarchy > 0) { hierarchyStmt.executeBatch(); roundTrips.incrementAndGet(); }
+                            closureStmt.executeBatch();
+                            roundTrips.incrementAndGet();
+                            if (moves > 0) { movesStmt.executeBatch(); roundTrips.incrementAndGet(); }
+                            batch.clear();
+                        }
+                        jdbc.commit();
+                    } catch (SQLException | RuntimeException e) {
+                        jdbc.rollback();
+                        rootId = -1;
+                        throw e;
+                    } finally {
+                        hierarchyStmt.clearBatch();
+                        closureStmt.clearBatch();
+                        movesStmt.clearBatch();
+                        jdbc.setAutoCommit(true);
+                    }
+                } catch (SQLException | IllegalArgumentException | UncheckedIOException e) { System.err.println(e); }
+            }
+        }
+
+        return rootId;
+    }
+
+    /**
+     * Obtiene una página de hijos de cada uno de los nodos indicados, con dos consultas por cada bloque
+     * de {@link #inChunks}: una sobre {@code node_hierarchy} y {@code node}, y otra sobre
+     * {@code node_positions} para sus movimientos.
+     * <p>
+     * La paginación es por clave: cada página contiene, por padre, hasta {@code limit} hijos con ID
+     * mayor que {@code afterId}, ordenados por ID, igual que en {@link #getZipTreeGO}.
+     * </p>
+     *
+     * @param parentIds los IDs de los nodos padre.
+     * @param afterId   el ID del último hijo de la página anterior, o 0 para la primera página.
+     * @param limit     el número máximo de hijos por padre.
+     * @return un mapa del ID de cada padre con hijos a la página de sus hijos, en orden.
+     */
+    @Override
+    public HashMap<Integer, LinkedList<NodeInfo>> getChildrenPages(Collection<Integer> parentIds, int afterId, int limit) {
+        var pages = new HashMap<Integer, LinkedList<NodeInfo>>();
+        if (parentIds.isEmpty()) return pages;
+
+        switch (mpool) {
+            case Maybe.Nothing() -> System.out.println("Conexion no establecida");
+            case Maybe.Just(ConnectionPool pool) -> {
+                try (var connection = pool.acquire())
+                {
+                    for (var chunk : inChunks(parentIds)) {
+                        var pstmt = connection.prepareStatement("""
+                            SELECT page.id, page.parent_id, page.name, page.imgURL, page.position FROM (
+                                SELECT
+                                    child.id AS id,
+                                    hierarchy.parent_node_id AS parent_id,
+                                    child.name AS name,
+                                    child.imgURL AS imgURL,
+                                    ST_AsBinary(child.position) AS position,
+                                    ROW_NUMBER() OVER (PARTITION BY hierarchy.parent_node_id ORDER BY child.id) AS ix
+                                FROM node_hierarchy AS hierarchy
+                                INNER JOIN node AS child ON hierarchy.child_node_id = child.id
+                                WHERE hierarchy.parent_node_id IN (%s) AND hierarchy.child_node_id > ?
+                            ) AS page
+                            WHERE page.ix <= ?
+                            ORDER BY page.parent_id, page.id
+                            """.formatted(inParams(chunk.size())));
+                        int ix = 1;
+                        for (int parentId : chunk) pstmt.setInt(ix++, parentId);
+                        pstmt.setInt(ix++, afterId);
+                        pstmt.setInt(ix, limit);
+                        var children = new HashMap<Integer, NodeInfo>();
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            roundTrips.incrementAndGet();
+
+                            while (rs.next()) {
+                                int childId = rs.getInt("id");
+                                var nodeInfo = new NodeInfo(childId, rs.getString("name"), rs.getString("imgURL"), toPoint2D(rs.getBytes("position")), new LinkedList<>());
+                                children.put(childId, nodeInfo);
+                                pages.computeIfAbsent(rs.getInt("parent_id"), k -> new LinkedList<>()).add(nodeInfo);
+                            }
+                        }
+
+                        for (var childChunk : inChunks(children.keySet())) {
+                            var movesStmt = connection.prepareStatement(
+                                    "SELECT node_id, ST_AsBinary(position) AS position, movements FROM node_positions WHERE node_id IN (%s)".formatted(inParams(childChunk.size())));
+                            int movesIx = 1;
+                            for (int childId : childChunk) movesStmt.setInt(movesIx++, childId);
+
+                            try (ResultSet movesRs = movesStmt.executeQuery()) {
+                                roundTrips.incrementAndGet();
+
+                                while (movesRs.next()) {
+                                    var movementInSpace = new MovementInSpace(toPoint2D(movesRs.getBytes("position")), Movement.decode(movesRs.getBytes("movements")));
+                                    children.get(movesRs.getInt("node_id")).getChildren().add(movementInSpace);
+                                }
+                            }
+                        }
+                    }
+                } catch (SQLException e) { System.err.println(e); }
+            }
+        }
+
+        return pages;
+    }
+
+    /**
+     * Cuenta los nodos del subárbol con raíz en {@code id}, incluido él mismo, con una consulta sobre
+     * la clave primaria de {@code node_closure}.
+     *
+     * @param id el ID del nodo raíz del subárbol.
+     * @return el número de nodos del subárbol, 0 si no existe el nodo, o -1 si ocurre un error.
+     */
+    public int getSubtreeSize(int id) {
+        int size = -1;
+
+        switch (mpool) {
+            case Maybe.Nothing() -> System.out.println("Conexion no establecida");
+            case Maybe.Just(ConnectionPool pool) -> {
+                try (var connection = pool.acquire())
+                {
+                    var pstmt = connection.prepareStatement("SELECT COUNT(*) FROM node_closure WHERE ancestor_id = ?");
+                    pstmt.setInt(1, id);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        roundTrips.incrementAndGet();
+                        if (rs.next()) size = rs.getInt(1);
+                    }
+                } catch (SQLException e) { System.err.println(e); }
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Obtiene a qué profundidad está un nodo por debajo de otro, con una consulta sobre un único
+     * índice de {@code node_closure}.
+     *
+     * @param ancestorId   el ID del posible ancestro.
+     * @param descendantId el ID del posible descendiente.
+     * @return el número de niveles entre ambos, 0 si son el mismo nodo, o {@code Nothing} si
+     *         {@code ancestorId} no es ancestro de {@code descendantId} o si ocurre un error.
+     */
+    public Maybe<Integer> getAncestorDepth(int ancestorId, int descendantId) {
+        Maybe<Integer> depth = new Maybe.Nothing<>();
+
+        switch (mpool) {
+            case Maybe.Nothing() -> System.out.println("Conexion no establecida");
+            case Maybe.Just(ConnectionPool pool) -> {
+                try (var connection = pool.acquire())
+                {
+                    var pstmt = connection.prepareStatement("SELECT depth FROM node_closure WHERE descendant_id = ? AND ancestor_id = ?");
+                    pstmt.setInt(1, descendantId);
+                    pstmt.setInt(2, ancestorId);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        roundTrips.incrementAndGet();
+                        if (rs.next()) depth = new Maybe.Just<>(rs.getInt("depth"));
+                    }
+                } catch (SQLException e) { System.err.println(e); }
+            }
+        }
+
+        return depth;
+    }
+
+    /**
+     * Indica si un nodo es ancestro de otro, o el mismo nodo.
+     *
+     * @param ancestorId   el ID del posible ancestro.
+     * @param descendantId el ID del posible descendiente.
+     * @return {@code true} si {@code descendantId} está en el subárbol de {@code ancestorId}.
+     * @see #getAncestorDepth(int, int)
+     */
+    public boolean isAncestor(int ancestorId, int descendantId) {
+        return getAncestorDepth(ancestorId, descendantId).isJust();
+    }
+
+    /**
+     * Elimina un nodo junto con todos sus descendientes: primero lee sus IDs de {@code node_closure} y
+     * después los borra en un lote, de las hojas a la raíz. No se borra con una sola sentencia sobre
+     * {@code node_closure} porque borrar un nodo borra en cascada sus filas de esa tabla, y con subárboles
+     * grandes desaparecían las filas que recorría el propio borrado. Las filas de {@code node_hierarchy},
+     * {@code node_closure}, {@code node_positions} y {@code roots} que los referencian se borran en
+     * cascada.
+     * <p>
+     * La versión del árbol aumenta en la misma transacción que el borrado, así que un borrado fallido no
+     * la cambia.
+     * </p>
+     *
+     * @param id el ID del nodo raíz del subárbol.
+     * @return el número de nodos eliminados, o -1 si ocurre un error.
+     */
+    @Override
+    public int removeSubtree(int id) {
+        int removed = -1;
+
+        switch (mpool) {
+            case Maybe.Nothing() -> System.out.println("Conexion no establecida");
+            case Maybe.Just(ConnectionPool pool) -> {
+                try (var connection = pool.acquire())
+                {
+                    var jdbc = connection.getConnection();
+                    var subtreeStmt = connection.prepareStatement("""
+                        SELECT descendant_id FROM node_closure
+                        WHERE ancestor_id = ?
+                        ORDER BY depth DESC
+                        """);
+                    var deleteStmt = connection.prepareStatement("DELETE FROM node WHERE id = ?");
+
+                    jdbc.setAutoCommit(false);
+                    try {
+                        // Antes del borrado: después ya no quedan filas de node_closure que lleven a la raíz.
+                        bumpTreeVersion(connection, List.of(id));
+
+                        subtreeStmt.setInt(1, id);
+                        try (ResultSet rs = subtreeStmt.executeQuery()) {
+                            roundTrips.incrementAndGet();
+                            while (rs.next()) {
+                                deleteStmt.setInt(1, rs.getInt("descendant_id"));
+                                deleteStmt.addBatch();
+                            }
+                        }
+
+                        removed = 0;
+                        for (int rows : deleteStmt.executeBatch()) removed += rows == Statement.SUCCESS_NO_INFO ? 1 : rows;
+                        roundTrips.incrementAndGet();
+                        jdbc.commit();
+                    } catch (SQLException | RuntimeException e) {
+                        jdbc.rollback();
+                        removed = -1;
+                        throw e;
+                    } finally {
+                        deleteStmt.clearBatch();
+                        jdbc.setAutoCommit(true);
+                    }
+                } catch (SQLException e) { System.err.println(e); }
+            }
+        }
+
+        return removed;
+    }
+
+    /**
+     * Aumenta en uno la versión de los árboles que contienen alguno de los nodos, buscando sus
+     * ancestros en {@code node_closure} con una consulta por cada bloque de {@link #inChunks}.
+     *
+     * @param connection la conexión prestada, dentro de la transacción de la escritura si la hay.
+     * @param nodeIds    los IDs de los nodos escritos.
+     * @throws SQLException si falla la consulta.
+     */
+    private void bumpTreeVersion(ConnectionPool.Lease connection, Collection<Integer> nodeIds) throws SQLException {
+        for (var chunk : inChunks(nodeIds)) {
+            var pstmt = connection.prepareStatement("""
+                    UPDATE roots SET version = version + 1
+                    WHERE node_id IN (
+                        SELECT ancestor_id FROM node_closure WHERE descendant_id IN (%s)
+                    )
+                    """.formatted(inParams(chunk.size())));
+            int ix = 1;
+            for (int nodeId : chunk) pstmt.setInt(ix++, nodeId);
+            pstmt.executeUpdate();
+            roundTrips.incrementAndGet();
+        }
+    }
+
+    /**
+     * Parte los IDs, sin repetidos, en bloques de como mucho {@link #IN_CHUNK} y rellena cada bloque
+     * repitiendo su último ID hasta la siguiente potencia de dos.
+     * <p>
+     * Así las listas {@code IN (?, …)} sólo tienen {@code log2(IN_CHUNK) + 1} tamaños posibles y sus
+     * sentencias caben en la caché de sentencias preparadas; los IDs repetidos no cambian el resultado.
+     * </p>
+     *
+     * @param ids los IDs.
+     * @return los bloques, vacío si no hay IDs.
+     */
+    private static List<List<Integer>> inChunks(Collection<Integer> ids) {
+        var distinctIds = List.copyOf(new LinkedHashSet<>(ids));
+        var chunks = new ArrayList<List<Integer>>();
+        for (int from = 0; from < distinctIds.size(); from += IN_CHUNK) {
+            var chunk = new ArrayList<>(distinctIds.subList(from, Math.min(from + IN_CHUNK, distinctIds.size())));
+            int last = chunk.getLast();
+            while (Integer.bitCount(chunk.size()) != 1) chunk.add(last);
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    /**
+     * Construye la lista de parámetros de un {@code IN (?, …)}.
+     *
+     * @param count el número de parámetros.
+     * @return {@code count} signos {@code ?} separados por comas.
+     */
+    private static String inParams(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    /**
+     * Obtiene la versión de un árbol de la columna {@code roots.version}, que aumenta con cada escritura
+     * hecha por esta clase en alguno de sus nodos.
+     *
+     * @param rootId el ID del nodo raíz del árbol.
+     * @return la versión del árbol, o -1 si no existe la raíz o si ocurre un error.
+     */
+    @Override
+    public long getTreeVersion(int rootId) {
+        long version = -1;
+
+        switch (mpool) {
+            case Maybe.Nothing() -> System.out.println("Conexion no establecida");
+            case Maybe.Just(ConnectionPool pool) -> {
+                try (var connection = pool.acquire())
+                {
+                    var pstmt = connection.prepareStatement("SELECT version FROM roots WHERE node_id = ?");
+                    pstmt.setInt(1, rootId);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        roundTrips.incrementAndGet();
+                        if (rs.next()) version = rs.getLong("version");
+                    }
+                } catch (SQLException e) { System.err.println(e); }
+            }
+        }
+
+        return version;
+    }
+
+    /**
+     * Añade la columna {@code roots.version} a las bases de datos creadas antes de que existiera.
+     *
+     * @return {@code true} si se ha añadido la columna.
+     */
+    public boolean migrateTreeVersion() {
+        boolean migrated = false;
+
+        switch (mpool) {
             case Maybe.Nothing() -> System.out.println("Conexion no establecida");
-            case Maybe.Just(Connection connection) -> {
-                try { connection.close(); } catch (SQLException e) { System.err.println(e); }
+            case Maybe.Just(ConnectionPool pool) -> {
+                try (var connection = pool.acquire())
+                {
+                    var columnStmt = connection.prepareStatement("""
+                        SELECT 1 FROM information_schema.COLUMNS
+                        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'roots' AND COLUMN_NAME = 'version'
+                        """);
+                    try (ResultSet rs = columnStmt.executeQuery()) {
+                        roundTrips.incrementAndGet();
+                        if (rs.next()) return false;
+                    }
+
+                    try (var statement = connection.getConnection().createStatement()) {
+                        statement.execute("ALTER TABLE roots ADD COLUMN version bigint NOT NULL DEFAULT 0");
+                        roundTrips.incrementAndGet();
+                        migrated = true;
+                    }
+                } catch (SQLException e) { System.err.println(e); }
             }
         }
+
+        return migrated;
+    }
+
+    /**
+     * Añade el índice {@code (name, node_id)} de {@code roots} a las bases de datos creadas antes de que
+     * existiera.
+     *
+     * @return {@code true} si se ha añadido el índice.
+     */
+    public boolean migrateRootsIndex() {
+        boolean migrated = false;
+
+        switch (mpool) {
+            case Maybe.Nothing() -> System.out.println("Conexion no establecida");
+            case Maybe.Just(ConnectionPool pool) -> {
+                try (var connection = pool.acquire())
+                {
+                    var indexStmt = connection.prepareStatement("""
+                        SELECT 1 FROM information_schema.STATISTICS
+                        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'roots' AND INDEX_NAME = 'name'
+                        """);
+                    try (ResultSet rs = indexStmt.executeQuery()) {
+                        roundTrips.incrementAndGet();
+                        if (rs.next()) return false;
+                    }
+
+                    try (var statement = connection.getConnection().createStatement()) {
+                        statement.execute("ALTER TABLE roots ADD KEY name (name, node_id)");
+                        roundTrips.incrementAndGet();
+                        migrated = true;
+                    }
+                } catch (SQLException e) { System.err.println(e); }
+            }
+        }
+
+        return migrated;
+    }
+
+    /**
+     * Cambia la clave de {@code node_positions} en las bases de datos que todavía la tienen sobre un
+     * prefijo de {@code position}, con la que dos movimientos en el mismo punto chocaban y las lecturas
+     * por nodo pasaban por el índice {@code node_id} antes de volver a la tabla.
+     * <p>
+     * La nueva clave primaria es {@code (node_id, id)}, con {@code id} autoincremental: las filas de un
+     * nodo quedan juntas y en orden de inserción dentro del índice agrupado, que ya contiene todas las
+     * columnas, así que {@link #getChildrenMoves} y los cargadores en bloque las leen sin más búsquedas.
+     * </p>
+     *
+     * @return {@code true} si se ha cambiado la clave.
+     */
+    public boolean migrateNodePositionsKey() {
+        boolean migrated = false;
+
+        switch (mpool) {
+            case Maybe.Nothing() -> System.out.println("Conexion no establecida");
+            case Maybe.Just(ConnectionPool pool) -> {
+                try (var connection = pool.acquire())
+                {
+                    var columnStmt = connection.prepareStatement("""
+                        SELECT 1 FROM information_schema.COLUMNS
+                        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'node_positions' AND COLUMN_NAME = 'id'
+                        """);
+                    try (ResultSet rs = columnStmt.executeQuery()) {
+                        roundTrips.incrementAndGet();
+                        if (rs.next()) return false;
+                    }
+
+                    try (var statement = connection.getConnection().createStatement()) {
+                        statement.execute("""
+                            ALTER TABLE node_positions
+                                ADD COLUMN id int(11) NOT NULL AUTO_INCREMENT FIRST,
+                                DROP PRIMARY KEY,
+                                ADD PRIMARY KEY (node_id, id),
+                                ADD UNIQUE KEY id (id),
+                                DROP KEY node_id
+                            """);
+                        roundTrips.incrementAndGet();
+                        migrated = true;
+                    }
+                } catch (SQLException e) { System.err.println(e); }
+            }
+        }
+
+        return migrated;
+    }
+
+    /**
+     * Crea la tabla {@code node_closure} en las bases de datos creadas antes de que existiera: la
+     * rellena a partir de {@code node_hierarchy}, hace que {@code node_hierarchy} se borre en cascada
+     * y vuelve a crear los procedimientos que la mantienen, igual que en {@code treefx-database.sql}.
+     *
+     * @return el número de filas de la tabla creada, o 0 si ya existía.
+     */
+    public int migrateClosure() {
+        int migrated = 0;
+
+        switch (mpool) {
+            case Maybe.Nothing() -> System.out.println("Conexion no establecida");
+            case Maybe.Just(ConnectionPool pool) -> {
+                try (var connection = pool.acquire())
+                {
+                    var tableStmt = connection.prepareStatement("""
+                        SELECT 1 FROM information_schema.TABLES
+                        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'node_closure'
+                        """);
+                    try (ResultSet rs = tableStmt.executeQuery()) {
+                        roundTrips.incrementAndGet();
+                        if (rs.next()) return 0;
+                    }
+
+                    try (var statement = connection.getConnection().createStatement()) {
+                        for (String sql : CLOSURE_MIGRATION) {
+                            int rows = statement.executeUpdate(sql);
+                            roundTrips.incrementAndGet();
+                            if (sql.startsWith("INSERT")) migrated = rows;
+                        }
+                    }
+                } catch (SQLException e) { System.err.println(e); }
+            }
+        }
+
+        return migrated;
+    }
+
+    /**
+     * Sentencias de {@link #migrateClosure()}, en orden.
+     */
+    private static final List<String> CLOSURE_MIGRATION = List.of(
+            """
+            CREATE TABLE node_closure (
+              ancestor_id int(11) NOT NULL,
+              descendant_id int(11) NOT NULL,
+              depth int(11) NOT NULL,
+              PRIMARY KEY (ancestor_id, depth, descendant_id),
+              UNIQUE KEY descendant_id (descendant_id, ancestor_id),
+              CONSTRAINT node_closure_ibfk_1 FOREIGN KEY (ancestor_id) REFERENCES node (id) ON DELETE CASCADE,
+              CONSTRAINT node_closure_ibfk_2 FOREIGN KEY (descendant_id) REFERENCES node (id) ON DELETE CASCADE
+            ) ENGINE=InnoDB DEFAULT CHARSET=latin1 COLLATE=latin1_swedish_ci
+            """,
+            """
+            INSERT INTO node_closure (ancestor_id, descendant_id, depth)
+            WITH RECURSIVE closure (ancestor_id, descendant_id, depth) AS (
+                SELECT id, id, 0 FROM node
+                UNION ALL
+                SELECT closure.ancestor_id, hierarchy.child_node_id, closure.depth + 1
+                FROM node_hierarchy AS hierarchy
+                INNER JOIN closure ON hierarchy.parent_node_id = closure.descendant_id
+            )
+            SELECT ancestor_id, descendant_id, depth FROM closure
+            """,
+            "ALTER TABLE node_hierarchy DROP FOREIGN KEY node_hierarchy_ibfk_1, DROP FOREIGN KEY node_hierarchy_ibfk_2",
+            """
+            ALTER TABLE node_hierarchy
+                ADD CONSTRAINT node_hierarchy_ibfk_1 FOREIGN KEY (parent_node_id) REFERENCES node (id) ON DELETE CASCADE ON UPDATE CASCADE,
+                ADD CONSTRAINT node_hierarchy_ibfk_2 FOREIGN KEY (child_node_id) REFERENCES node (id) ON DELETE CASCADE ON UPDATE CASCADE
+            """,
+            "DROP PROCEDURE IF EXISTS DeleteRootAndChildren",
+            """
+            CREATE PROCEDURE DeleteRootAndChildren(IN root_id int)
+            BEGIN
+                DECLARE level int;
+
+                SELECT MAX(depth) INTO level FROM node_closure WHERE ancestor_id = root_id;
+
+                WHILE level >= 0 DO
+                    DELETE node
+                    FROM node
+                    INNER JOIN node_closure AS subtree ON subtree.descendant_id = node.id
+                    WHERE subtree.ancestor_id = root_id AND subtree.depth = level;
+                    SET level = level - 1;
+                END WHILE;
+            END
+            """,
+            "DROP PROCEDURE IF EXISTS InsertChildNode",
+            """
+            CREATE PROCEDURE InsertChildNode(IN node_name varchar(50), IN node_imgURL varchar(200),
+                                             IN node_position point, IN parent_id int, OUT new_node_id int)
+            BEGIN
+                DECLARE EXIT HANDLER FOR SQLEXCEPTION
+                BEGIN
+                    ROLLBACK;
+                    RESIGNAL;
+                END;
+
+                START TRANSACTION;
+
+                IF parent_id IS NULL THEN
+                    SIGNAL SQLSTATE '45000'
+                    SET MESSAGE_TEXT = 'Se requiere un ID de padre válido';
+                END IF;
+
+                IF NOT EXISTS (SELECT 1 FROM node WHERE id = parent_id) THEN
+                    SIGNAL SQLSTATE '45000'
+                    SET MESSAGE_TEXT = 'El nodo padre no existe';
+                END IF;
+
+                INSERT INTO node (`name`, `imgURL`, `position`)
+                VALUES (node_name, node_imgURL, node_position);
+
+                SET @new_node_id = LAST_INSERT_ID();
+
+                INSERT INTO node_hierarchy (`parent_node_id`, `child_node_id`)
+                VALUES (parent_id, @new_node_id);
+
+                INSERT INTO node_closure (`ancestor_id`, `descendant_id`, `depth`)
+                SELECT ancestor_id, @new_node_id, depth + 1
+                FROM node_closure
+                WHERE descendant_id = parent_id
+                UNION ALL
+                SELECT @new_node_id, @new_node_id, 0;
+
+                SET new_node_id = @new_node_id;
+
+                COMMIT;
+            END
+            """,
+            "DROP PROCEDURE IF EXISTS InsertRootNode",
+            """
+            CREATE PROCEDURE InsertRootNode(IN node_name varchar(50), IN node_imgURL varchar(200),
+                                            IN node_position point, IN root_name varchar(100),
+                                            OUT new_root_id int)
+            BEGIN
+                DECLARE EXIT HANDLER FOR SQLEXCEPTION
+                BEGIN
+                    ROLLBACK;
+                    RESIGNAL;
+                END;
+
+                START TRANSACTION;
+
+                INSERT INTO `node` (`name`, `imgURL`, `position`)
+                VALUES (node_name, node_imgURL, node_position);
+
+                SET @new_node_id = LAST_INSERT_ID();
+
+                INSERT INTO `node_closure` (`ancestor_id`, `descendant_id`, `depth`)
+                VALUES (@new_node_id, @new_node_id, 0);
+
+                INSERT INTO `roots` (`node_id`, `name`)
+                VALUES (@new_node_id, root_name);
+
+                SET new_root_id = @new_node_id;
+
+                COMMIT;
+            END
+            """);
+
+    /**
+     * Migra la columna {@code node_positions.movements} de texto ("Up Down(3) ...") a la codificación
+     * binaria de {@link Movement#encode}, si todavía es de texto. Cada ruta distinta se convierte una
+     * sola vez.
+     *
+     * @return el número de rutas distintas convertidas, o 0 si la columna ya era binaria.
+     */
+    public int migrateMovements() {
+        int migrated = 0;
+
+        switch (mpool) {
+            case Maybe.Nothing() -> System.out.println("Conexion no establecida");
+            case Maybe.Just(ConnectionPool pool) -> {
+                try (var connection = pool.acquire())
+                {
+                    var typeStmt = connection.prepareStatement("""
+                        SELECT DATA_TYPE FROM information_schema.COLUMNS
+                        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'node_positions' AND COLUMN_NAME = 'movements'
+                        """);
+                    String type;
+                    try (ResultSet rs = typeStmt.executeQuery()) {
+                        roundTrips.incrementAndGet();
+                        type = rs.next() ? rs.getString(1) : "";
+                    }
+                    if (!type.equalsIgnoreCase("varchar") && !type.equalsIgnoreCase("text")) return 0;
+
+                    var jdbc = connection.getConnection();
+                    try (var statement = jdbc.createStatement()) {
+                        statement.execute("ALTER TABLE node_positions ADD COLUMN movements_bin varbinary(" + MOVEMENTS_MAX_BYTES + ") DEFAULT NULL");
+                        roundTrips.incrementAndGet();
+
+                        var paths = new LinkedList<String>();
+                        try (ResultSet rs = statement.executeQuery("SELECT DISTINCT movements FROM node_positions WHERE movements IS NOT NULL")) {
+                            roundTrips.incrementAndGet();
+                            while (rs.next()) paths.add(rs.getString(1));
+                        }
+
+                        try (var update = jdbc.prepareStatement("UPDATE node_positions SET movements_bin = ? WHERE movements = ?")) {
+                            for (String path : paths) {
+                                update.setBytes(1, Movement.encode(readMovements(path)));
+                                update.setString(2, path);
+                                update.addBatch();
+                            }
+                            update.executeBatch();
+                            roundTrips.incrementAndGet();
+                        }
+
+                        statement.execute("ALTER TABLE node_positions DROP COLUMN movements, RENAME COLUMN movements_bin TO movements");
+                        roundTrips.incrementAndGet();
+                        migrated = paths.size();
+                    }
+                } catch (SQLException e) { System.err.println(e); }
+            }
+        }
+
+        return migrated;
+    }
+
+    /**
+     * Cierra las conexiones con la base de datos si están establecidas. Las medidas de sus operaciones y
+     * consultas siguen disponibles en {@link #getQueryMetrics()}.
+     */
+    @Override
+    public void close() {
+        switch (mpool) {
+            case Maybe.Nothing() -> System.out.println("Conexion no establecida");
+            case Maybe.Just(ConnectionPool pool) -> pool.close();
+        }
     }
 
     /**
@@ -382,14 +1683,54 @@ public class ConnectionDB {
      * @param bd   el nombre de la base de datos.
      */
     public ConnectionDB(String host, String port, String user, String pass, String bd) {
-        String url = "jdbc:mysql://" + host + ":" + port + "/" + bd + "?useSSL=false&serverTimezone=UTC";
+        this(host, port, user, pass, bd, ConnectionPool.SIZE);
+    }
+
+    /**
+     * Constructor que se conecta a una URL JDBC cualquiera sin aplicar migraciones, para bases de datos
+     * que ya tienen el esquema actual, como una embebida en las pruebas.
+     *
+     * @param url      la URL JDBC de la base de datos.
+     * @param user     el nombre de usuario para la conexión.
+     * @param pass     la contraseña para la conexión.
+     * @param poolSize el número máximo de conexiones abiertas a la vez.
+     */
+    public ConnectionDB(String url, String user, String pass, int poolSize) {
+        try {
+            this.mpool = new Maybe.Just<>(new ConnectionPool(url, user, pass, poolSize, metrics));
+        } catch (SQLException e) {
+            System.err.println(e);
+            this.mpool = new Maybe.Nothing<>();
+        }
+    }
+
+    /**
+     * Constructor que inicializa la conexión con la base de datos con un número máximo de conexiones
+     * abiertas a la vez.
+     *
+     * @param host     el host del servidor de base de datos.
+     * @param port     el puerto del servidor de base de datos.
+     * @param user     el nombre de usuario para la conexión.
+     * @param pass     la contraseña para la conexión.
+     * @param bd       el nombre de la base de datos.
+     * @param poolSize el número máximo de conexiones abiertas a la vez.
+     */
+    public ConnectionDB(String host, String port, String user, String pass, String bd, int poolSize) {
+        String url = "jdbc:mysql://" + host + ":" + port + "/" + bd + "?useSSL=false&serverTimezone=UTC&rewriteBatchedStatements=true";
         try {
             // Cargar el driver JDBC (opcional con JDBC 4.0+ pero recomendado)
             Class.forName("com.mysql.cj.jdbc.Driver");
-            this.mconnection = new Maybe.Just<>(DriverManager.getConnection(url, user, pass));
+            this.mpool = new Maybe.Just<>(new ConnectionPool(url, user, pass, poolSize, metrics));
+            int migrated = migrateMovements();
+            if (migrated > 0) System.out.println("Migradas " + migrated + " rutas de node_positions a formato binario");
+            if (migrateTreeVersion()) System.out.println("Añadida la columna roots.version");
+            if (migrateRootsIndex()) System.out.println("Añadido el índice roots.name");
+            if (migrateNodePositionsKey()) System.out.println("Cambiada la clave primaria de node_positions a (node_id, id)");
+            int closure = migrateClosure();
+            if (closure > 0) System.out.println("Creada la tabla node_closure con " + closure + " filas");
         } catch (ClassNotFoundException | SQLException e) {
             System.err.println(e);
-            this.mconnection = new Maybe.Nothing<>();
+            this.mpool = new Maybe.Nothing<>();
         }
     }
 }
\ No newline at end of file
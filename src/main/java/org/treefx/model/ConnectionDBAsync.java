@@ -0,0 +1,655 @@
+package org.treefx.model;
+
+import javafx.application.Platform;
+import javafx.geometry.Point2D;
+import org.treefx.model.ziptree.TreeCtxStrict;
+import org.treefx.model.ziptree.ZipTreeLazy;
+import org.treefx.model.ziptree.ZipTreePersistent;
+import org.treefx.model.ziptree.ZipTreeStrict;
+import org.treefx.utils.adt.Maybe;
+import org.treefx.utils.adt.T;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Variante no bloqueante de un {@link TreeStore}, normalmente {@link ConnectionDB}.
+ * <p>
+ * Cada operación se ejecuta en un hilo virtual y devuelve un {@link CompletableFuture}, de modo que el
+ * hilo de JavaFX nunca espera al almacenamiento. Las operaciones se encadenan en orden de llegada,
+ * por lo que una escritura nunca adelanta a otra anterior. Con {@link ConnectionDB}, cada una toma
+ * prestada una conexión de su {@link ConnectionPool}, que comparte con las lecturas del árbol perezoso.
+ * </p>
+ * <p>
+ * Para volver al hilo de JavaFX se encadena el resultado con el ejecutor {@link #FX}:
+ * </p>
+ * <pre>
+ * connection.getAllRoots().thenAcceptAsync(roots -> listView.getItems().addAll(roots), ConnectionDBAsync.FX);
+ * </pre>
+ * <p>
+ * Las inserciones reciben el {@link NodeInfo} que la interfaz ya muestra, con un ID provisional de -1,
+ * y le asignan el ID definitivo cuando la base de datos responde. Las operaciones posteriores sobre ese
+ * nodo leen el ID en el momento de ejecutarse, así que siempre ven el definitivo.
+ * </p>
+ * <p>
+ * Los cambios de posición, nombre e imagen no se envían uno a uno: se acumulan en una
+ * {@link WriteBehindQueue} y se escriben juntos en una transacción cuando la edición se detiene, cada
+ * pocos segundos, antes de cualquier otra operación y al cerrar la conexión.
+ * </p>
+ * <p>
+ * El editor no usa la cola para sus cambios: modifica el {@link NodeInfo}, que recuerda qué ha cambiado,
+ * y marca el nodo en su {@link ZipTreeStrict}. Al vaciar la cola se sacan los nodos marcados de cada
+ * árbol y se escribe solo su delta, en la misma transacción que los cambios de la cola, de modo que
+ * guardar un árbol grande con pocos nodos cambiados cuesta tantas filas como nodos cambiados.
+ * </p>
+ * <p>
+ * Si se indica un directorio de copias, los árboles completos se abren desde su {@link TreeSnapshot}
+ * mientras su versión coincida con la del almacenamiento, y la copia se reescribe al leer el árbol
+ * de la base de datos y al guardarlo con {@link #saveSnapshot(ZipTreeStrict)}.
+ * </p>
+ * <p>
+ * Si se indica un {@link OperationJournal}, las inserciones y los cambios del editor se registran en él
+ * antes de encolarse, y se marcan como aplicados cuando el almacenamiento termina de escribirlos. Las
+ * operaciones que quedaron sin aplicar en una ejecución anterior se reaplican antes que ninguna otra.
+ * </p>
+ * <p>
+ * Los nombres de los nodos de cada árbol completo que se lee se añaden a un {@link NameIndex}, que las
+ * inserciones, los cambios de nombre y los borrados mantienen al día, para buscarlos con
+ * {@link #searchNodes(String, int)}.
+ * </p>
+ */
+public class ConnectionDBAsync {
+    /**
+     * Ejecutor que devuelve el trabajo al hilo de aplicación de JavaFX.
+     */
+    public static final Executor FX = Platform::runLater;
+
+    private final TreeStore connection;
+    private final ExecutorService executor;
+    /**
+     * Última operación encolada; la siguiente se encadena detrás de ella.
+     */
+    private CompletableFuture<?> last;
+    private final WriteBehindQueue edits;
+    /**
+     * Árboles con nodos marcados como modificados desde el último vaciado.
+     */
+    private final Set<ZipTreeStrict<NodeInfo>> dirtyTrees = Collections.newSetFromMap(new IdentityHashMap<>());
+    /**
+     * Directorio de las copias binarias de los árboles, si se usan.
+     */
+    private final Maybe<Path> snapshots;
+    /**
+     * Diario de las operaciones del editor, si se usa.
+     */
+    private final Maybe<OperationJournal> journal;
+    /**
+     * Índice de los nombres de los nodos de los árboles leídos.
+     */
+    private final NameIndex names = new NameIndex();
+    /**
+     * Número de secuencia del diario hasta el que llegaba el último vaciado.
+     */
+    private long flushedSeq;
+
+    /**
+     * Crea la variante asíncrona sobre un almacenamiento ya abierto.
+     *
+     * @param connection el almacenamiento, por ejemplo la conexión con la base de datos.
+     */
+    public ConnectionDBAsync(TreeStore connection) {
+        this(connection, new Maybe.Nothing<>());
+    }
+
+    /**
+     * Crea la variante asíncrona sobre un almacenamiento ya abierto, con copias binarias de los árboles.
+     *
+     * @param connection el almacenamiento, por ejemplo la conexión con la base de datos.
+     * @param snapshots  el directorio de las copias, o {@code Nothing} para no usarlas.
+     */
+    public ConnectionDBAsync(TreeStore connection, Maybe<Path> snapshots) {
+        this(connection, snapshots, new Maybe.Nothing<>());
+    }
+
+    /**
+     * Crea la variante asíncrona sobre un almacenamiento ya abierto, con copias binarias de los árboles y
+     * un diario de operaciones. Si el diario tiene operaciones sin aplicar, se reaplican en segundo plano
+     * antes de cualquier otra operación.
+     *
+     * @param connection el almacenamiento, por ejemplo la conexión con la base de datos.
+     * @param snapshots  el directorio de las copias, o {@code Nothing} para no usarlas.
+     * @param journal    el archivo del diario, o {@code Nothing} para no usarlo.
+     */
+    public ConnectionDBAsync(TreeStore connection, Maybe<Path> snapshots, Maybe<Path> journal) {
+        this.connection = connection;
+        this.snapshots = snapshots;
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("treefx-db-", 0).factory());
+        this.last = CompletableFuture.completedFuture(null);
+        this.edits = new WriteBehindQueue(this::flush, WriteBehindQueue.IDLE_MS, WriteBehindQueue.MAX_DELAY_MS);
+        this.journal = switch (journal) {
+            case Maybe.Nothing() -> new Maybe.Nothing<>();
+            case Maybe.Just(Path file) -> {
+                try { yield new Maybe.Just<>(new OperationJournal(file)); }
+                catch (IOException e) {
+                    System.err.println(e);
+                    yield new Maybe.Nothing<>();
+                }
+            }
+        };
+
+        if (this.journal instanceof Maybe.Just(OperationJournal j) && j.getRecovered() > 0 && connection.success()) {
+            chain(j::replay);
+        }
+    }
+
+    /**
+     * Establece la conexión con la base de datos fuera del hilo de JavaFX.
+     *
+     * @param host el host del servidor de base de datos.
+     * @param port el puerto del servidor de base de datos.
+     * @param user el nombre de usuario para la conexión.
+     * @param pass la contraseña para la conexión.
+     * @param bd   el nombre de la base de datos.
+     * @return la conexión asíncrona, que puede no haber tenido éxito (ver {@link #success()}).
+     */
+    public static CompletableFuture<ConnectionDBAsync> connect(String host, String port, String user, String pass, String bd) {
+        return open(() -> new ConnectionDB(host, port, user, pass, bd));
+    }
+
+    /**
+     * Abre un almacenamiento cualquiera fuera del hilo de JavaFX.
+     *
+     * @param store la forma de abrir el almacenamiento.
+     * @return la variante asíncrona, que puede no haber tenido éxito (ver {@link #success()}).
+     */
+    public static CompletableFuture<ConnectionDBAsync> open(Supplier<TreeStore> store) {
+        return open(store, new Maybe.Nothing<>());
+    }
+
+    /**
+     * Abre un almacenamiento cualquiera fuera del hilo de JavaFX, con copias binarias de los árboles.
+     *
+     * @param store     la forma de abrir el almacenamiento.
+     * @param snapshots el directorio de las copias, o {@code Nothing} para no usarlas.
+     * @return la variante asíncrona, que puede no haber tenido éxito (ver {@link #success()}).
+     */
+    public static CompletableFuture<ConnectionDBAsync> open(Supplier<TreeStore> store, Maybe<Path> snapshots) {
+        return open(store, snapshots, new Maybe.Nothing<>());
+    }
+
+    /**
+     * Abre un almacenamiento cualquiera fuera del hilo de JavaFX, con copias binarias de los árboles y
+     * un diario de operaciones.
+     *
+     * @param store     la forma de abrir el almacenamiento.
+     * @param snapshots el directorio de las copias, o {@code Nothing} para no usarlas.
+     * @param journal   el archivo del diario, o {@code Nothing} para no usarlo.
+     * @return la variante asíncrona, que puede no haber tenido éxito (ver {@link #success()}).
+     */
+    public static CompletableFuture<ConnectionDBAsync> open(Supplier<TreeStore> store, Maybe<Path> snapshots, Maybe<Path> journal) {
+        return CompletableFuture.supplyAsync(
+                () -> new ConnectionDBAsync(store.get(), snapshots, journal),
+                Thread.ofVirtual().name("treefx-db-connect")::start);
+    }
+
+    public boolean success() {
+        return connection.success();
+    }
+
+    /**
+     * Encola una operación sobre la conexión. Se ejecuta cuando terminan todas las anteriores,
+     * aunque alguna haya fallado, y después de escribir los cambios pendientes de la cola diferida.
+     *
+     * @param k   la operación a ejecutar con el almacenamiento.
+     * @param <r> el tipo del resultado.
+     * @return el resultado futuro de la operación.
+     */
+    public synchronized <r> CompletableFuture<r> submit(Function<TreeStore, r> k) {
+        flush();
+        return chain(k);
+    }
+
+    /**
+     * Registra una operación del editor en el diario y la encola como {@link #submit(Function)}; cuando
+     * termina, se marca en el diario como aplicada o, si ha fallado, como fallida.
+     *
+     * @param record    la forma de registrar la operación, que devuelve su número de secuencia.
+     * @param k         la operación a ejecutar con el almacenamiento.
+     * @param succeeded indica si el resultado de la operación es un éxito.
+     * @param <r>       el tipo del resultado.
+     * @return el resultado futuro de la operación.
+     */
+    private synchronized <r> CompletableFuture<r> submitJournaled(ToLongFunction<OperationJournal> record, Function<TreeStore, r> k, Predicate<r> succeeded) {
+        flush();
+        long seq = this.journal instanceof Maybe.Just(OperationJournal j) ? record.applyAsLong(j) : 0;
+        return chain(db -> {
+            r result;
+            try { result = k.apply(db); }
+            catch (RuntimeException e) {
+                if (this.journal instanceof Maybe.Just(OperationJournal j)) j.failed(seq);
+                throw e;
+            }
+            if (this.journal instanceof Maybe.Just(OperationJournal j)) {
+                if (succeeded.test(result)) j.applied(seq);
+                else j.failed(seq);
+            }
+            return result;
+        });
+    }
+
+    private synchronized <r> CompletableFuture<r> chain(Function<TreeStore, r> k) {
+        CompletableFuture<r> next = this.last.handleAsync((ignored, e) -> k.apply(this.connection), this.executor);
+        next.whenComplete((ignored, e) -> { if (e != null) System.err.println(e); });
+        this.last = next;
+        return next;
+    }
+
+    /**
+     * Encola la escritura de los cambios pendientes de la cola diferida y de los nodos marcados en los
+     * árboles del editor, en una sola transacción.
+     *
+     * @return el futuro de la escritura; ya completado si no había cambios pendientes.
+     */
+    public synchronized CompletableFuture<Void> flush() {
+        var merged = new IdentityHashMap<NodeInfo, WriteBehindQueue.Edit>();
+        for (var edit : this.edits.drain()) merged.put(edit.nodeInfo(), edit);
+        // Los deltas se sacan ahora y no al escribir, para que un cambio posterior quede para el
+        // siguiente vaciado, igual que su registro en el diario.
+        for (var zipTree : this.dirtyTrees) {
+            for (NodeInfo nodeInfo : zipTree.takeDirty()) {
+                if (nodeInfo.takeDelta() instanceof Maybe.Just(WriteBehindQueue.Edit delta))
+                    merged.merge(nodeInfo, delta, WriteBehindQueue.Edit::then);
+            }
+        }
+        this.dirtyTrees.clear();
+        if (merged.isEmpty()) return CompletableFuture.completedFuture(null);
+        var pending = new LinkedList<>(merged.values());
+        // Los cambios registrados en el diario hasta ahora están en la cola o ya se han encolado. Los de
+        // este vaciado son posteriores al anterior, así que si falla, el primero que puede haberse perdido
+        // es el siguiente a él.
+        long seq = this.journal instanceof Maybe.Just(OperationJournal j) ? j.getSeq() : 0;
+        long firstSeq = this.flushedSeq + 1;
+        this.flushedSeq = seq;
+
+        return chain(db -> {
+            long start = System.nanoTime();
+            boolean written = false;
+            try { written = db.updateNodeInfos(pending.stream().map(WriteBehindQueue.Edit::toUpdate).toList()); }
+            finally {
+                if (this.journal instanceof Maybe.Just(OperationJournal j)) {
+                    if (written) j.applied(seq);
+                    else j.failed(firstSeq);
+                }
+            }
+            this.edits.recordFlush(pending.size(), System.nanoTime() - start);
+            return null;
+        });
+    }
+
+    /**
+     * La cola de escritura diferida, para consultar sus métricas.
+     */
+    public WriteBehindQueue getWriteBehind() {
+        return this.edits;
+    }
+
+    /**
+     * @see TreeStore#getAllRoots()
+     */
+    public CompletableFuture<LinkedList<T<Integer, String>>> getAllRoots() {
+        return submit(TreeStore::getAllRoots);
+    }
+
+    /**
+     * @see TreeStore#getRootsPage(String, Maybe, int)
+     */
+    public CompletableFuture<LinkedList<T<Integer, String>>> getRootsPage(String prefix, Maybe<T<Integer, String>> after, int limit) {
+        return submit(db -> db.getRootsPage(prefix, after, limit));
+    }
+
+    /**
+     * Inserta un nodo raíz y asigna su ID a {@code root} cuando la base de datos responde.
+     *
+     * @param name el nombre del nodo raíz.
+     * @param root la información del nodo raíz que ya se muestra en la interfaz.
+     * @return el ID del nodo raíz, o -1 si ocurre un error.
+     * @see TreeStore#insertRoot(String)
+     */
+    public CompletableFuture<Integer> insertRoot(String name, NodeInfo root) {
+        return submitJournaled(j -> j.insertRoot(root, name), db -> {
+            int id = db.insertRoot(name);
+            root.setId(id);
+            if (id >= 0) this.names.insertRoot(id, root.getName());
+            if (this.journal instanceof Maybe.Just(OperationJournal j)) j.assigned(root);
+            return id;
+        }, id -> id >= 0);
+    }
+
+    /**
+     * @see TreeStore#removeRoot(int)
+     */
+    public CompletableFuture<Integer> removeRoot(int root_id) {
+        return submitJournaled(j -> j.removeRoot(root_id), db -> {
+            int result = db.removeRoot(root_id);
+            this.names.removeRoot(root_id);
+            if (this.snapshots instanceof Maybe.Just(Path dir)) {
+                try { Files.deleteIfExists(TreeSnapshot.path(dir, root_id)); }
+                catch (IOException e) { System.err.println(e); }
+            }
+            return result;
+        }, result -> result >= 0);
+    }
+
+    /**
+     * Inserta un nodo hijo y asigna su ID a {@code child} cuando la base de datos responde.
+     *
+     * @param position la posición del nodo hijo.
+     * @param father   la información del nodo padre; su ID se lee al ejecutar la inserción.
+     * @param child    la información del nodo hijo que ya se muestra en la interfaz.
+     * @return el ID del nodo hijo, o -1 si ocurre un error.
+     * @see TreeStore#insertChild(Point2D, int)
+     */
+    public CompletableFuture<Integer> insertChild(Point2D position, NodeInfo father, NodeInfo child) {
+        return submitJournaled(j -> j.insertChild(father, child, position), db -> {
+            int id = db.insertChild(position, father.getId());
+            child.setId(id);
+            if (id >= 0) this.names.insertChild(father.getId(), id, child.getName());
+            if (this.journal instanceof Maybe.Just(OperationJournal j)) j.assigned(child);
+            return id;
+        }, id -> id >= 0);
+    }
+
+    /**
+     * Añade el cambio de posición a la cola diferida.
+     *
+     * @see TreeStore#updateNodeInfos(java.util.Collection)
+     */
+    public synchronized void updateNodeInfo(NodeInfo nodeInfo, Point2D position) {
+        if (this.journal instanceof Maybe.Just(OperationJournal j)) j.setPos(nodeInfo, position);
+        this.edits.add(new WriteBehindQueue.Edit(nodeInfo, new Maybe.Just<>(position), new Maybe.Nothing<>()));
+    }
+
+    /**
+     * Añade el cambio de nombre e imagen a la cola diferida.
+     *
+     * @see TreeStore#updateNodeInfos(java.util.Collection)
+     */
+    public synchronized void updateNodeInfo(NodeInfo nodeInfo, String name, String imageURL) {
+        if (this.journal instanceof Maybe.Just(OperationJournal j)) j.setInfo(nodeInfo, name, imageURL);
+        this.names.rename(nodeInfo.getId(), name);
+        this.edits.add(new WriteBehindQueue.Edit(nodeInfo, new Maybe.Nothing<>(), new Maybe.Just<>(new T.MkT<>(name, imageURL))));
+    }
+
+    /**
+     * Cambia la posición de un nodo del árbol del editor y la marca para el siguiente vaciado.
+     *
+     * @param zipTree  el árbol del editor.
+     * @param nodeCtx  el contexto del nodo.
+     * @param position la nueva posición del nodo.
+     */
+    public synchronized void updateNodeInfo(ZipTreeStrict<NodeInfo> zipTree, TreeCtxStrict<NodeInfo> nodeCtx, Point2D position) {
+        var nodeInfo = nodeCtx.getValue();
+        if (this.journal instanceof Maybe.Just(OperationJournal j)) j.setPos(nodeInfo, position);
+        nodeInfo.setPos(position);
+        markDirty(zipTree, nodeCtx);
+    }
+
+    /**
+     * Cambia el nombre y la imagen de un nodo del árbol del editor y los marca para el siguiente vaciado.
+     *
+     * @param zipTree  el árbol del editor.
+     * @param nodeCtx  el contexto del nodo.
+     * @param name     el nuevo nombre del nodo.
+     * @param imageURL la nueva URL de la imagen del nodo.
+     */
+    public synchronized void updateNodeInfo(ZipTreeStrict<NodeInfo> zipTree, TreeCtxStrict<NodeInfo> nodeCtx, String name, String imageURL) {
+        var nodeInfo = nodeCtx.getValue();
+        if (this.journal instanceof Maybe.Just(OperationJournal j)) j.setInfo(nodeInfo, name, imageURL);
+        this.names.rename(nodeInfo.getId(), name);
+        nodeInfo.setName(name);
+        nodeInfo.setImgURL(imageURL);
+        markDirty(zipTree, nodeCtx);
+    }
+
+    /**
+     * Añade un movimiento espacial a un nodo del árbol del editor y lo marca para el siguiente vaciado.
+     *
+     * @param zipTree         el árbol del editor.
+     * @param nodeCtx         el contexto del nodo.
+     * @param movementInSpace el movimiento nuevo.
+     */
+    public synchronized void insertMovementInSpace(ZipTreeStrict<NodeInfo> zipTree, TreeCtxStrict<NodeInfo> nodeCtx, MovementInSpace movementInSpace) {
+        var nodeInfo = nodeCtx.getValue();
+        if (this.journal instanceof Maybe.Just(OperationJournal j)) j.addPos(nodeInfo, movementInSpace);
+        nodeInfo.addPos(movementInSpace);
+        markDirty(zipTree, nodeCtx);
+    }
+
+    /**
+     * Quita un movimiento espacial de un nodo del árbol del editor. Si el movimiento aún estaba entre los
+     * cambios pendientes del nodo, basta con quitarlo de ellos; si ya se había sacado para escribirlo, su
+     * borrado se encola detrás de esa escritura.
+     *
+     * @param nodeInfo        la información del nodo.
+     * @param movementInSpace el movimiento a quitar.
+     * @see TreeStore#removeMovementInSpace(int, MovementInSpace)
+     */
+    public synchronized void removeMovementInSpace(NodeInfo nodeInfo, MovementInSpace movementInSpace) {
+        if (nodeInfo.removePos(movementInSpace)) {
+            submitJournaled(j -> j.removePos(nodeInfo, movementInSpace), db -> db.removeMovementInSpace(nodeInfo.getId(), movementInSpace), written -> written);
+        } else if (this.journal instanceof Maybe.Just(OperationJournal j)) {
+            // Se aplica con el siguiente vaciado, como el movimiento que anula.
+            j.removePos(nodeInfo, movementInSpace);
+        }
+    }
+
+    /**
+     * Elimina un nodo que no es raíz, con sus descendientes, y lo quita del índice de nombres. Su ID se
+     * lee al ejecutar el borrado, así que puede usarse justo después de insertarlo.
+     *
+     * @param nodeInfo la información del nodo.
+     * @return el número de nodos eliminados, o -1 si ocurre un error.
+     * @see TreeStore#removeSubtree(int)
+     */
+    public CompletableFuture<Integer> removeSubtree(NodeInfo nodeInfo) {
+        return submitJournaled(j -> j.removeSubtree(nodeInfo), db -> {
+            int removed = db.removeSubtree(nodeInfo.getId());
+            this.names.removeSubtree(nodeInfo.getId());
+            return removed;
+        }, removed -> removed >= 0);
+    }
+
+    private void markDirty(ZipTreeStrict<NodeInfo> zipTree, TreeCtxStrict<NodeInfo> nodeCtx) {
+        if (!nodeCtx.getValue().isDirty()) return;
+        zipTree.markDirty(nodeCtx);
+        this.dirtyTrees.add(zipTree);
+        this.edits.touch();
+    }
+
+    /**
+     * @see TreeStore#insertMovementInSpace(int, MovementInSpace)
+     */
+    public CompletableFuture<Boolean> insertMovementInSpace(NodeInfo nodeInfo, MovementInSpace movementInSpace) {
+        return submitJournaled(j -> j.addPos(nodeInfo, movementInSpace), db -> db.insertMovementInSpace(nodeInfo.getId(), movementInSpace), written -> written);
+    }
+
+    /**
+     * Obtiene el árbol completo desde memoria si el almacenamiento lo tiene, si no desde su copia binaria
+     * si está al día, y si tampoco, lo lee del almacenamiento y reescribe la copia. Los nombres de sus
+     * nodos se añaden al índice de búsqueda.
+     *
+     * @see TreeStore#getZipTree(int)
+     * @see TreeSnapshot
+     */
+    public CompletableFuture<ZipTreeStrict<NodeInfo>> getZipTree(int id) {
+        return submit(db -> {
+            var zipTree = loadZipTree(db, id);
+            if (zipTree != null) this.names.indexTree(zipTree);
+            return zipTree;
+        });
+    }
+
+    private ZipTreeStrict<NodeInfo> loadZipTree(TreeStore db, int id) {
+        return switch (this.snapshots) {
+            case Maybe.Nothing() -> db.getZipTree(id);
+            case Maybe.Just(Path ignored) when db.hasZipTreeInMemory(id) -> db.getZipTree(id);
+            case Maybe.Just(Path dir) -> {
+                long version = db.getTreeVersion(id);
+                Path file = TreeSnapshot.path(dir, id);
+                if (TreeSnapshot.read(file, id, version) instanceof Maybe.Just(ZipTreeStrict<NodeInfo> zipTree)) yield zipTree;
+
+                var zipTree = db.getZipTree(id);
+                if (zipTree != null && version >= 0) writeSnapshot(file, zipTree, version);
+                yield zipTree;
+            }
+        };
+    }
+
+    /**
+     * Escribe la copia binaria de un árbol después de las escrituras pendientes, con la versión que
+     * tiene entonces en el almacenamiento. No hace nada si no se usan copias.
+     * <p>
+     * El árbol se congela en el hilo que llama con {@link ZipTreePersistent#of(ZipTreeStrict, java.util.function.UnaryOperator)},
+     * copiando cada {@link NodeInfo}, y la copia se escribe desde esa versión, así que puede seguir
+     * editándose mientras tanto.
+     * </p>
+     *
+     * @param zipTree el árbol completo.
+     * @return el futuro de la escritura.
+     */
+    public CompletableFuture<Void> saveSnapshot(ZipTreeStrict<NodeInfo> zipTree) {
+        if (!(this.snapshots instanceof Maybe.Just(Path dir))) return CompletableFuture.completedFuture(null);
+
+        var frozen = ZipTreePersistent.of(zipTree, NodeInfo::copy).getTree();
+        return submit(db -> {
+            int id = frozen.value().getId();
+            long version = db.getTreeVersion(id);
+            if (version >= 0) {
+                try { TreeSnapshot.write(TreeSnapshot.path(dir, id), frozen, version); }
+                catch (IOException e) { System.err.println(e); }
+            }
+            return null;
+        });
+    }
+
+    private void writeSnapshot(Path file, ZipTreeStrict<NodeInfo> zipTree, long version) {
+        try { TreeSnapshot.write(file, zipTree, version); }
+        catch (IOException e) { System.err.println(e); }
+    }
+
+    /**
+     * Construye el árbol perezoso fuera del hilo de JavaFX. Moverse por él puede leer ramas del
+     * almacenamiento, así que debe navegarse desde {@link #navigator()}.
+     *
+     * @see TreeStore#getZipTreeLazy(int, int)
+     */
+    public CompletableFuture<ZipTreeLazy<Integer, NodeInfo>> getZipTreeLazy(int id, int prefetchDepth) {
+        return submit(db -> db.getZipTreeLazy(id, prefetchDepth));
+    }
+
+    /**
+     * Ejecutor que encadena cada tarea detrás de las operaciones encoladas, fuera del hilo de JavaFX. Los
+     * movimientos sobre un árbol de {@link #getZipTreeLazy(int, int)} se ejecutan en él, de modo que las
+     * ramas que todavía no se han leído se piden al almacenamiento sin bloquear la interfaz y el árbol
+     * nunca se toca desde dos hilos a la vez.
+     *
+     * @return el ejecutor.
+     */
+    public Executor navigator() {
+        return task -> chain(db -> { task.run(); return null; });
+    }
+
+    /**
+     * Exporta un árbol completo a un archivo, después de escribir los cambios pendientes. Si falla, el
+     * archivo se borra.
+     *
+     * @param id   el ID del nodo raíz del árbol.
+     * @param file el archivo de destino, que se sobrescribe.
+     * @return la exportación ya cerrada, con su número de nodos y su rendimiento, o {@code Nothing} si
+     * ocurre un error.
+     * @see TreeStore#exportTree(int, TreeExport)
+     * @see TreeExport
+     */
+    public CompletableFuture<Maybe<TreeExport>> exportTree(int id, Path file) {
+        return submit(db -> {
+            Maybe<TreeExport> result = new Maybe.Nothing<>();
+            try {
+                var export = new TreeExport(Files.newOutputStream(file));
+                long nodes;
+                try (export) { nodes = db.exportTree(id, export); }
+                if (nodes >= 0) result = new Maybe.Just<>(export);
+            } catch (IOException e) { System.err.println(e); }
+
+            if (result.isNothing()) {
+                try { Files.deleteIfExists(file); }
+                catch (IOException e) { System.err.println(e); }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Importa un árbol desde un archivo escrito por {@link #exportTree(int, Path)}.
+     *
+     * @param name el nombre del árbol nuevo.
+     * @param file el archivo de origen.
+     * @return el ID de la nueva raíz y la lectura ya cerrada, con su número de nodos y su rendimiento, o
+     * {@code Nothing} si ocurre un error.
+     * @see TreeStore#importTree(String, java.util.Iterator)
+     * @see TreeImport
+     */
+    public CompletableFuture<Maybe<T<Integer, TreeImport>>> importTree(String name, Path file) {
+        return submit(db -> {
+            try {
+                var source = new TreeImport(Files.newInputStream(file));
+                int rootId;
+                try (source) { rootId = db.importTree(name, source); }
+                return rootId < 0 ? new Maybe.Nothing<>() : new Maybe.Just<>(new T.MkT<>(rootId, source));
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println(e);
+                return new Maybe.Nothing<>();
+            }
+        });
+    }
+
+    /**
+     * Busca nodos por su nombre en los árboles leídos hasta ahora. No consulta el almacenamiento, así que
+     * puede llamarse desde el hilo de JavaFX mientras se escribe.
+     *
+     * @see NameIndex#search(String, int)
+     */
+    public LinkedList<NameIndex.Hit> searchNodes(String query, int limit) {
+        return this.names.search(query, limit);
+    }
+
+    /**
+     * El diario de operaciones, si se usa, para consultar sus métricas.
+     */
+    public Maybe<OperationJournal> getJournal() {
+        return this.journal;
+    }
+
+    /**
+     * Escribe los cambios pendientes, espera a que terminen las operaciones encoladas y cierra la conexión
+     * y el diario.
+     */
+    public void close() {
+        submit(db -> { db.close(); return null; }).join();
+        this.edits.close();
+        this.executor.shutdown();
+        if (this.journal instanceof Maybe.Just(OperationJournal j)) j.close();
+    }
+}
@@ -0,0 +1,265 @@
+package org.treefx.model;
+
+import java.sql.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Conjunto pequeño de conexiones JDBC que se reutilizan entre operaciones.
+ * <p>
+ * Cada conexión se presta como un {@link Lease}, que guarda en caché las sentencias preparadas
+ * (incluidas las llamadas a procedimientos almacenados) por su texto SQL, de modo que cada sentencia
+ * se prepara una sola vez por conexión. Al devolverse, la conexión vuelve al conjunto con su caché.
+ * </p>
+ * <p>
+ * Una conexión que lleva un tiempo sin usarse se valida antes de prestarla; si el servidor la ha
+ * cerrado se descarta y se abre otra en su lugar. Un mismo hilo que pide una conexión mientras ya
+ * tiene otra prestada recibe la misma, así que las operaciones anidadas de {@link ConnectionDB} no
+ * pueden agotar el conjunto.
+ * </p>
+ * <p>
+ * Todas las conexiones se miden con un {@link QueryMetrics}: cada préstamo cuenta como una operación
+ * con el nombre del método que pidió la conexión.
+ * </p>
+ */
+public class ConnectionPool {
+    /**
+     * Número máximo de conexiones abiertas a la vez que se usa por defecto.
+     */
+    public static final int SIZE = 4;
+    /**
+     * Número máximo de sentencias preparadas que se guardan por conexión.
+     */
+    public static final int STATEMENT_CACHE_SIZE = 64;
+    /**
+     * Milisegundos sin usarse a partir de los cuales una conexión se valida antes de prestarla.
+     */
+    private static final long VALIDATE_AFTER_MS = 5_000;
+    /**
+     * Segundos que se espera la respuesta del servidor al validar una conexión.
+     */
+    private static final int VALIDATE_TIMEOUT_S = 2;
+
+    private final String url;
+    private final String user;
+    private final String pass;
+    private final ArrayBlockingQueue<Lease> idle;
+    private final Semaphore permits;
+    private final ThreadLocal<Lease> leased;
+    private final QueryMetrics metrics;
+    private volatile boolean closed;
+
+    /**
+     * Conexión prestada por el conjunto, con su caché de sentencias preparadas.
+     * Se devuelve al conjunto al cerrarla.
+     */
+    public class Lease implements AutoCloseable {
+        private final Connection connection;
+        private final LinkedHashMap<String, PreparedStatement> statements;
+        private final QueryMetrics.Operation operation;
+        /**
+         * Número de veces que el hilo actual ha pedido esta conexión sin devolverla.
+         */
+        private int holds;
+        private long lastUsed;
+
+        private Lease(Connection connection) {
+            this.operation = new QueryMetrics.Operation();
+            this.connection = metrics.instrument(connection, this.operation);
+            this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() <= STATEMENT_CACHE_SIZE) return false;
+                    try { eldest.getValue().close(); } catch (SQLException e) { System.err.println(e); }
+                    return true;
+                }
+            };
+            this.lastUsed = System.currentTimeMillis();
+        }
+
+        /**
+         * La conexión JDBC subyacente, para operaciones que no son sentencias, como las transacciones.
+         * No debe cerrarse directamente.
+         */
+        public Connection getConnection() {
+            return connection;
+        }
+
+        /**
+         * Obtiene la sentencia preparada para {@code sql}, preparándola solo la primera vez.
+         * La sentencia pertenece a la caché y no debe cerrarse.
+         *
+         * @param sql el texto de la sentencia.
+         * @return la sentencia preparada.
+         * @throws SQLException si falla la preparación.
+         */
+        public PreparedStatement prepareStatement(String sql) throws SQLException {
+            PreparedStatement pstmt = statements.get(sql);
+            if (pstmt == null || pstmt.isClosed()) {
+                pstmt = connection.prepareStatement(sql);
+                statements.put(sql, pstmt);
+            }
+            return pstmt;
+        }
+
+        /**
+         * Obtiene la llamada a procedimiento almacenado para {@code sql}, preparándola solo la primera vez.
+         * La sentencia pertenece a la caché y no debe cerrarse.
+         *
+         * @param sql el texto de la llamada, por ejemplo {@code "{call InsertChildNode(?, ?, ?, ?, ?)}"}.
+         * @return la llamada preparada.
+         * @throws SQLException si falla la preparación.
+         */
+        public CallableStatement prepareCall(String sql) throws SQLException {
+            if (statements.get(sql) instanceof CallableStatement cstmt && !cstmt.isClosed()) return cstmt;
+
+            CallableStatement cstmt = connection.prepareCall(sql);
+            statements.put(sql, cstmt);
+            return cstmt;
+        }
+
+        private boolean isValid() {
+            try {
+                if (connection.isClosed()) return false;
+                return System.currentTimeMillis() - lastUsed < VALIDATE_AFTER_MS || connection.isValid(VALIDATE_TIMEOUT_S);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        private void discard() {
+            try { connection.close(); } catch (SQLException e) { System.err.println(e); }
+        }
+
+        /**
+         * Devuelve la conexión al conjunto cuando el hilo la ha devuelto tantas veces como la pidió.
+         */
+        @Override
+        public void close() {
+            if (--holds == 0) release(this);
+        }
+    }
+
+    /**
+     * Crea el conjunto y abre la primera conexión para comprobar los parámetros.
+     *
+     * @param url  la URL JDBC de la base de datos.
+     * @param user el nombre de usuario para la conexión.
+     * @param pass la contraseña para la conexión.
+     * @param size el número máximo de conexiones abiertas a la vez.
+     * @throws SQLException si no se puede abrir la primera conexión.
+     */
+    public ConnectionPool(String url, String user, String pass, int size) throws SQLException {
+        this(url, user, pass, size, new QueryMetrics());
+    }
+
+    /**
+     * Crea el conjunto con las medidas dadas y abre la primera conexión para comprobar los parámetros.
+     *
+     * @param url     la URL JDBC de la base de datos.
+     * @param user    el nombre de usuario para la conexión.
+     * @param pass    la contraseña para la conexión.
+     * @param size    el número máximo de conexiones abiertas a la vez.
+     * @param metrics las medidas a las que se suman las sentencias de todas las conexiones.
+     * @throws SQLException si no se puede abrir la primera conexión.
+     */
+    public ConnectionPool(String url, String user, String pass, int size, QueryMetrics metrics) throws SQLException {
+        this.url = url;
+        this.user = user;
+        this.pass = pass;
+        this.idle = new ArrayBlockingQueue<>(size);
+        this.permits = new Semaphore(size, true);
+        this.leased = new ThreadLocal<>();
+        this.metrics = metrics;
+        this.closed = false;
+        this.idle.add(open());
+    }
+
+    private Lease open() throws SQLException {
+        return new Lease(DriverManager.getConnection(url, user, pass));
+    }
+
+    /**
+     * Presta una conexión válida, esperando si todas están en uso. Si el hilo ya tiene una conexión
+     * prestada, devuelve esa misma.
+     *
+     * @return la conexión prestada; debe cerrarse para devolverla, normalmente con try-with-resources.
+     * @throws SQLException si el conjunto está cerrado o no se puede abrir una conexión nueva.
+     */
+    public Lease acquire() throws SQLException {
+        Lease lease = leased.get();
+        if (lease != null) {
+            lease.holds++;
+            return lease;
+        }
+        if (closed) throw new SQLException("El conjunto de conexiones está cerrado");
+
+        permits.acquireUninterruptibly();
+        try {
+            lease = idle.poll();
+            while (lease != null && !lease.isValid()) {
+                lease.discard();
+                lease = idle.poll();
+            }
+            if (lease == null) lease = open();
+        } catch (SQLException e) {
+            permits.release();
+            throw e;
+        }
+
+        lease.holds = 1;
+        lease.operation.begin(caller());
+        leased.set(lease);
+        return lease;
+    }
+
+    /**
+     * Clase y método que han pedido la conexión, como {@code ConnectionDB.getZipTreeBulk}.
+     */
+    private static String caller() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(frame -> !frame.getClassName().equals(ConnectionPool.class.getName()))
+                .findFirst()
+                .map(frame -> {
+                    String className = frame.getClassName();
+                    return className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethodName();
+                })
+                .orElse("?"));
+    }
+
+    private void release(Lease lease) {
+        leased.remove();
+        metrics.end(lease.operation);
+        lease.lastUsed = System.currentTimeMillis();
+
+        boolean broken;
+        try { broken = lease.connection.isClosed(); } catch (SQLException e) { broken = true; }
+        if (closed || broken || !idle.offer(lease)) lease.discard();
+        permits.release();
+    }
+
+    /**
+     * Las medidas de las sentencias ejecutadas en las conexiones del conjunto.
+     */
+    public QueryMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Número de conexiones abiertas que no están prestadas.
+     */
+    public int getIdle() {
+        return idle.size();
+    }
+
+    /**
+     * Cierra las conexiones libres. Las que están prestadas se cierran al devolverse.
+     */
+    public void close() {
+        closed = true;
+        Lease lease;
+        while ((lease = idle.poll()) != null) lease.discard();
+    }
+}
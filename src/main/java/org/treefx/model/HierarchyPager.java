@@ -0,0 +1,148 @@
+package org.treefx.model;
+
+import org.treefx.model.ziplist.ZipList;
+import org.treefx.model.ziplist.ZipListLazy;
+import org.treefx.model.ziptree.ZipTreeLazy;
+import org.treefx.utils.adt.Maybe;
+import org.treefx.utils.adt.T;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Genera un {@link ZipTreeLazy} respaldado por un {@link TreeStore}.
+ * <p>
+ * El estado de cada nodo es su ID. Al generar un nodo, sus hijos se representan con un
+ * {@link ZipListLazy} cuyo estado es una página de IDs de {@code node_hierarchy}: cuando se agota,
+ * la siguiente página se pide a {@link TreeStore#getChildrenPages}. Así solo se leen las ramas
+ * que realmente se visitan.
+ * </p>
+ * <p>
+ * Con una profundidad de precarga {@code d > 0}, al visitar un nodo cuyos hijos aún no se conocen se
+ * carga la primera página de hijos de los {@code d} niveles siguientes, con dos consultas por nivel.
+ * Así bajar por el árbol casi nunca espera al almacenamiento.
+ * </p>
+ * <p>
+ * Generar un nodo que no se ha precargado consulta el almacenamiento en el hilo que navega el árbol y
+ * el pager no es seguro entre hilos, así que desde la interfaz el árbol se navega con
+ * {@link ConnectionDBAsync#navigator()}.
+ * </p>
+ */
+public class HierarchyPager {
+    /**
+     * Número de hijos por página que se usa por defecto.
+     */
+    public static final int PAGE_SIZE = 50;
+
+    private final TreeStore connection;
+    private final int pageSize;
+    private final int prefetchDepth;
+    /**
+     * Nodos ya leídos del almacenamiento que todavía no se han generado en el árbol.
+     */
+    private final HashMap<Integer, NodeInfo> infos;
+    /**
+     * Primeras páginas de hijos ya leídas, por ID del padre.
+     */
+    private final HashMap<Integer, ChildrenPage> firstPages;
+
+    /**
+     * Página de hijos de un nodo, recorrida por un índice.
+     *
+     * @param parentId el ID del nodo padre.
+     * @param ids      los IDs de los hijos de esta página, en orden.
+     * @param ix       la posición del siguiente hijo a generar dentro de la página.
+     * @param last     si es la última página del padre.
+     */
+    private record ChildrenPage(int parentId, ArrayList<Integer> ids, int ix, boolean last) {}
+
+    /**
+     * @param connection    el almacenamiento de los árboles.
+     * @param pageSize      el número de hijos por página.
+     * @param prefetchDepth el número de niveles que se cargan por adelantado al visitar un nodo.
+     */
+    public HierarchyPager(TreeStore connection, int pageSize, int prefetchDepth) {
+        this.connection = connection;
+        this.pageSize = pageSize;
+        this.prefetchDepth = prefetchDepth;
+        this.infos = new HashMap<>();
+        this.firstPages = new HashMap<>();
+    }
+
+    /**
+     * Construye el árbol perezoso con raíz en el nodo indicado.
+     *
+     * @param rootId el ID del nodo raíz.
+     * @return el árbol, situado en la raíz.
+     */
+    public ZipTreeLazy<Integer, NodeInfo> getZipTree(int rootId) {
+        return new ZipTreeLazy<>(new ZipListLazy<>(), rootId, this::generateNode);
+    }
+
+    /**
+     * Guarda una página leída del almacenamiento y devuelve los IDs de sus hijos.
+     */
+    private ArrayList<Integer> store(LinkedList<NodeInfo> page) {
+        var ids = new ArrayList<Integer>(page.size());
+        for (NodeInfo nodeInfo : page) {
+            ids.add(nodeInfo.getId());
+            this.infos.put(nodeInfo.getId(), nodeInfo);
+        }
+        return ids;
+    }
+
+    /**
+     * Carga la primera página de hijos de {@code id} y de sus descendientes hasta {@code prefetchDepth}
+     * niveles, con una petición por nivel.
+     */
+    private void prefetch(int id) {
+        var level = new ArrayList<Integer>();
+        level.add(id);
+
+        for (int depth = 0; depth < this.prefetchDepth && !level.isEmpty(); depth++) {
+            var pages = this.connection.getChildrenPages(level, 0, this.pageSize);
+            var nextLevel = new ArrayList<Integer>();
+
+            for (int parentId : level) {
+                var ids = store(pages.getOrDefault(parentId, new LinkedList<>()));
+                this.firstPages.put(parentId, new ChildrenPage(parentId, ids, 0, ids.size() < this.pageSize));
+                for (int childId : ids) if (!this.firstPages.containsKey(childId)) nextLevel.add(childId);
+            }
+            level = nextLevel;
+        }
+    }
+
+    /**
+     * Generador de nodos del árbol: a partir del ID produce la información del nodo y la lista
+     * perezosa de los IDs de sus hijos.
+     */
+    private T<NodeInfo, ZipList<Integer>> generateNode(Integer id) {
+        NodeInfo nodeInfo = this.infos.remove(id);
+        if (nodeInfo == null) nodeInfo = this.connection.getNodeInfo(id);
+
+        if (this.prefetchDepth > 0 && !this.firstPages.containsKey(id)) prefetch(id);
+        ChildrenPage page = this.firstPages.remove(id);
+        if (page == null) page = new ChildrenPage(id, new ArrayList<>(), 0, false);
+
+        return new T.MkT<>(nodeInfo, new ZipListLazy<>(page, this::generateChild));
+    }
+
+    /**
+     * Generador de la lista de hijos: devuelve el siguiente ID de la página, o pide la siguiente
+     * página al almacenamiento cuando se agota.
+     */
+    private Maybe<T<Integer, ChildrenPage>> generateChild(ChildrenPage page) {
+        if (page.ix() < page.ids().size()) {
+            var next = new ChildrenPage(page.parentId(), page.ids(), page.ix() + 1, page.last());
+            return new Maybe.Just<>(new T.MkT<>(page.ids().get(page.ix()), next));
+        }
+        if (page.last()) return new Maybe.Nothing<>();
+
+        int afterId = page.ids().isEmpty() ? 0 : page.ids().getLast();
+        var pages = this.connection.getChildrenPages(List.of(page.parentId()), afterId, this.pageSize);
+        var ids = store(pages.getOrDefault(page.parentId(), new LinkedList<>()));
+        return generateChild(new ChildrenPage(page.parentId(), ids, 0, ids.size() < this.pageSize));
+    }
+}
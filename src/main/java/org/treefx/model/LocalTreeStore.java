@@ -0,0 +1,657 @@
+package org.treefx.model;
+
+import javafx.geometry.Point2D;
+import org.treefx.model.ziptree.TreeCtxStrict;
+import org.treefx.model.ziptree.ZipTreeStrict;
+import org.treefx.utils.adt.Maybe;
+import org.treefx.utils.adt.Movement;
+import org.treefx.utils.adt.T;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Almacenamiento de árboles en archivos locales, sin servidor de base de datos.
+ * <p>
+ * Cada cambio se añade como un registro al final de un segmento, un archivo de tamaño fijo
+ * ({@link #SEGMENT_SIZE}) proyectado en memoria con {@link FileChannel#map}; cuando se llena se abre el
+ * siguiente. Al abrir el almacenamiento se reproducen todos los registros y el estado completo queda en
+ * memoria, así que las lecturas no tocan el disco.
+ * </p>
+ * <p>
+ * Cada registro es {@code [longitud][CRC32][tipo][datos]}. Un registro incompleto o dañado, por ejemplo
+ * por un corte al escribirlo, termina la reproducción de su segmento y se sobrescribe con los siguientes.
+ * </p>
+ * <p>
+ * Cuando los segmentos ocupan bastante más que el estado vivo (por ejemplo tras muchas actualizaciones de
+ * posición), al abrir se escribe una base compactada {@code base-N.log} con el estado vivo, que sustituye a
+ * todos los segmentos anteriores a {@code segment-N.log}.
+ * </p>
+ */
+public class LocalTreeStore implements TreeStore {
+    /**
+     * Tamaño en bytes de cada segmento.
+     */
+    public static final int SEGMENT_SIZE = 8 << 20;
+
+    private static final byte ROOT = 1;
+    private static final byte CHILD = 2;
+    private static final byte POSITION = 3;
+    private static final byte INFO = 4;
+    private static final byte MOVEMENT = 5;
+    private static final byte REMOVE_ROOT = 6;
+    private static final byte NEXT_ID = 7;
+    private static final byte REMOVE_SUBTREE = 8;
+    private static final byte REMOVE_MOVEMENT = 9;
+    /**
+     * Bytes de longitud y CRC32 al principio de cada registro.
+     */
+    private static final int HEADER = 8;
+
+    private final Path dir;
+    private final HashMap<Integer, Node> nodes;
+    private final LinkedHashMap<Integer, String> roots;
+    /**
+     * Las mismas raíces, en el orden de {@link #getRootsPage(String, Maybe, int)}.
+     */
+    private final TreeSet<T<Integer, String>> rootsByName;
+    private final CRC32 crc;
+    private ByteBuffer record;
+    private int nextId;
+    /**
+     * Registros reproducidos o escritos desde la última base compactada.
+     */
+    private long records;
+    /**
+     * Compactaciones hechas desde que se abrió el almacenamiento.
+     */
+    private long compactions;
+
+    private FileChannel lockChannel;
+    private FileLock lock;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private int segmentNumber;
+    private boolean ok;
+
+    /**
+     * Estado vivo de un nodo.
+     */
+    private static class Node {
+        final int id;
+        final int parentId;
+        String name = "";
+        String imgURL = "";
+        double x;
+        double y;
+        /**
+         * IDs de los hijos, en orden de inserción, que es también orden de ID.
+         */
+        final ArrayList<Integer> children = new ArrayList<>();
+        final ArrayList<Hotspot> moves = new ArrayList<>();
+
+        Node(int id, int parentId, double x, double y) {
+            this.id = id;
+            this.parentId = parentId;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    /**
+     * Movimiento espacial guardado, con la ruta codificada por {@link Movement#encode}.
+     */
+    private record Hotspot(double x, double y, byte[] movements) {}
+
+    /**
+     * Abre o crea el almacenamiento en un directorio.
+     *
+     * @param dir el directorio de los segmentos; se crea si no existe.
+     */
+    public LocalTreeStore(Path dir) {
+        this.dir = dir;
+        this.nodes = new HashMap<>();
+        this.roots = new LinkedHashMap<>();
+        this.rootsByName = new TreeSet<>(Comparator.comparing((T<Integer, String> root) -> root.snd(), String.CASE_INSENSITIVE_ORDER).thenComparing(T::fst));
+        this.crc = new CRC32();
+        this.record = ByteBuffer.allocate(1024);
+        this.nextId = 1;
+
+        try {
+            Files.createDirectories(dir);
+            this.lockChannel = FileChannel.open(dir.resolve("lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            this.lock = lockChannel.tryLock();
+            if (this.lock == null) throw new IOException("El almacenamiento " + dir + " ya está abierto en otro proceso");
+
+            int base = replay();
+            if (records > 2L * liveRecords() + 1024) compact();
+            this.ok = true;
+        } catch (IOException | OverlappingFileLockException e) {
+            System.err.println(e);
+            this.ok = false;
+        }
+    }
+
+    private static int number(Path file) {
+        String name = file.getFileName().toString();
+        return Integer.parseInt(name.substring(name.indexOf('-') + 1, name.indexOf('.')));
+    }
+
+    private List<Path> list(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().startsWith(prefix) && f.getFileName().toString().endsWith(".log"))
+                    .sorted(Comparator.comparingInt(LocalTreeStore::number))
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(int number) {
+        return dir.resolve("segment-%06d.log".formatted(number));
+    }
+
+    /**
+     * Reproduce la última base y los segmentos posteriores, y deja abierto para escribir el último segmento.
+     *
+     * @return el número de la base reproducida, o 0 si no hay ninguna.
+     */
+    private int replay() throws IOException {
+        int base = 0;
+        List<Path> bases = list("base-");
+        if (!bases.isEmpty()) {
+            Path last = bases.getLast();
+            base = number(last);
+            try (var baseChannel = FileChannel.open(last, StandardOpenOption.READ)) {
+                replaySegment(baseChannel.map(FileChannel.MapMode.READ_ONLY, 0, baseChannel.size()));
+            }
+        }
+
+        this.records = 0;
+        for (Path segmentFile : list("segment-")) {
+            int number = number(segmentFile);
+            if (number < base) continue;
+            openSegment(number);
+            int end = replaySegment(segment);
+            segment.position(end);
+        }
+        if (channel == null) openSegment(Math.max(base, 1));
+        return base;
+    }
+
+    /**
+     * Aplica los registros válidos de un segmento y devuelve la posición donde terminan. Si encuentra un
+     * registro dañado, borra el resto del segmento para que no se confunda con registros posteriores.
+     */
+    private int replaySegment(ByteBuffer buffer) {
+        buffer.position(0);
+        while (buffer.remaining() > HEADER) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            if (length == 0) return start;
+
+            int checksum = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) return truncate(buffer, start);
+            ByteBuffer data = buffer.slice(buffer.position(), length);
+            crc.reset();
+            crc.update(data.duplicate());
+            if ((int) crc.getValue() != checksum) return truncate(buffer, start);
+
+            apply(data);
+            records++;
+            buffer.position(buffer.position() + length);
+        }
+        return buffer.position();
+    }
+
+    private int truncate(ByteBuffer buffer, int start) {
+        System.err.println("Registro dañado en " + dir + " en la posición " + start + "; se descarta el resto del segmento");
+        if (!buffer.isReadOnly()) {
+            for (int i = start; i < buffer.limit(); i++) buffer.put(i, (byte) 0);
+        }
+        return start;
+    }
+
+    private void openSegment(int number) throws IOException {
+        if (channel != null) {
+            segment.force();
+            channel.close();
+        }
+        this.segmentNumber = number;
+        this.channel = FileChannel.open(segmentPath(number), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE);
+    }
+
+    private static String getString(ByteBuffer data) {
+        byte[] bytes = new byte[data.getInt()];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Aplica un registro al estado en memoria.
+     */
+    private void apply(ByteBuffer data) {
+        byte type = data.get();
+        switch (type) {
+            case ROOT -> {
+                int id = data.getInt();
+                var node = new Node(id, 0, data.getDouble(), data.getDouble());
+                nodes.put(id, node);
+                String name = getString(data);
+                roots.put(id, name);
+                rootsByName.add(new T.MkT<>(id, name));
+                nextId = Math.max(nextId, id + 1);
+            }
+            case CHILD -> {
+                int id = data.getInt();
+                int parentId = data.getInt();
+                nextId = Math.max(nextId, id + 1);
+                Node parent = nodes.get(parentId);
+                if (parent == null) return;
+                nodes.put(id, new Node(id, parentId, data.getDouble(), data.getDouble()));
+                parent.children.add(id);
+            }
+            case POSITION -> {
+                Node node = nodes.get(data.getInt());
+                if (node == null) return;
+                node.x = data.getDouble();
+                node.y = data.getDouble();
+            }
+            case INFO -> {
+                Node node = nodes.get(data.getInt());
+                if (node == null) return;
+                node.name = getString(data);
+                node.imgURL = getString(data);
+            }
+            case MOVEMENT -> {
+                Node node = nodes.get(data.getInt());
+                if (node == null) return;
+                double x = data.getDouble();
+                double y = data.getDouble();
+                byte[] movements = new byte[data.getInt()];
+                data.get(movements);
+                node.moves.add(new Hotspot(x, y, movements));
+            }
+            case REMOVE_ROOT -> {
+                int id = data.getInt();
+                String name = roots.remove(id);
+                if (name != null) {
+                    rootsByName.remove(new T.MkT<>(id, name));
+                    forgetSubtree(id);
+                }
+            }
+            case NEXT_ID -> nextId = Math.max(nextId, data.getInt());
+            case REMOVE_SUBTREE -> {
+                Node node = nodes.get(data.getInt());
+                if (node == null) return;
+                Node parent = nodes.get(node.parentId);
+                if (parent != null) parent.children.remove((Integer) node.id);
+                forgetSubtree(node.id);
+            }
+            case REMOVE_MOVEMENT -> {
+                Node node = nodes.get(data.getInt());
+                if (node == null) return;
+                double x = data.getDouble();
+                double y = data.getDouble();
+                byte[] movements = new byte[data.getInt()];
+                data.get(movements);
+                for (int ix = node.moves.size() - 1; ix >= 0; ix--) {
+                    Hotspot hotspot = node.moves.get(ix);
+                    if (hotspot.x() == x && hotspot.y() == y && Arrays.equals(hotspot.movements(), movements)) {
+                        node.moves.remove(ix);
+                        break;
+                    }
+                }
+            }
+            default -> System.err.println("Tipo de registro desconocido: " + type);
+        }
+    }
+
+    private void forgetSubtree(int id) {
+        var pending = new ArrayDeque<Integer>();
+        pending.add(id);
+        while (!pending.isEmpty()) {
+            Node node = nodes.remove(pending.poll());
+            if (node != null) pending.addAll(node.children);
+        }
+    }
+
+    /**
+     * Prepara un registro nuevo del tipo indicado.
+     */
+    private ByteBuffer begin(byte type, int size) {
+        if (record.capacity() < size + 1) record = ByteBuffer.allocate(Math.max(size + 1, record.capacity() * 2));
+        record.clear();
+        record.put(type);
+        return record;
+    }
+
+    private static void putString(ByteBuffer data, byte[] bytes) {
+        data.putInt(bytes.length);
+        data.put(bytes);
+    }
+
+    /**
+     * Escribe el registro preparado al final del segmento actual, abriendo uno nuevo si no cabe,
+     * y lo aplica al estado en memoria.
+     */
+    private boolean commit() {
+        record.flip();
+        int length = record.remaining();
+        try {
+            if (segment.remaining() < HEADER + length + HEADER) openSegment(segmentNumber + 1);
+        } catch (IOException e) {
+            System.err.println(e);
+            return false;
+        }
+
+        crc.reset();
+        crc.update(record.duplicate());
+        int start = segment.position();
+        segment.position(start + HEADER);
+        segment.put(record.duplicate());
+        segment.putInt(start + 4, (int) crc.getValue());
+        segment.putInt(start, length);
+
+        apply(record);
+        records++;
+        return true;
+    }
+
+    /**
+     * Número de registros que tendría una base compactada con el estado actual.
+     */
+    private long liveRecords() {
+        long live = 1;
+        for (Node node : nodes.values()) live += 2 + node.moves.size();
+        return live;
+    }
+
+    /**
+     * Escribe el estado vivo en {@code base-N.log}, donde N es el siguiente segmento, y borra la base y
+     * los segmentos anteriores. La base se escribe en un archivo temporal y se renombra al terminar, así
+     * que un corte a medias deja intacto el estado anterior.
+     */
+    private void compact() throws IOException {
+        int base = segmentNumber + 1;
+        var out = new java.io.ByteArrayOutputStream();
+        var writer = new Object() {
+            void write(ByteBuffer data) {
+                data.flip();
+                crc.reset();
+                crc.update(data.duplicate());
+                var header = ByteBuffer.allocate(HEADER).putInt(data.remaining()).putInt((int) crc.getValue());
+                out.write(header.array(), 0, HEADER);
+                out.write(data.array(), 0, data.remaining());
+            }
+        };
+
+        writer.write(begin(NEXT_ID, 4).putInt(nextId));
+        for (var root : roots.entrySet()) {
+            byte[] rootName = root.getValue().getBytes(StandardCharsets.UTF_8);
+            Node rootNode = nodes.get(root.getKey());
+            writer.write(begin(ROOT, 24 + rootName.length).putInt(rootNode.id).putDouble(rootNode.x).putDouble(rootNode.y).putInt(rootName.length).put(rootName));
+
+            var pending = new ArrayDeque<Node>();
+            pending.add(rootNode);
+            while (!pending.isEmpty()) {
+                Node node = pending.poll();
+                if (node != rootNode) writer.write(begin(CHILD, 24).putInt(node.id).putInt(node.parentId).putDouble(node.x).putDouble(node.y));
+                if (!node.name.isEmpty() || !node.imgURL.isEmpty()) {
+                    byte[] name = node.name.getBytes(StandardCharsets.UTF_8);
+                    byte[] imgURL = node.imgURL.getBytes(StandardCharsets.UTF_8);
+                    var data = begin(INFO, 12 + name.length + imgURL.length).putInt(node.id);
+                    putString(data, name);
+                    putString(data, imgURL);
+                    writer.write(data);
+                }
+                for (Hotspot hotspot : node.moves) {
+                    var data = begin(MOVEMENT, 24 + hotspot.movements().length).putInt(node.id).putDouble(hotspot.x()).putDouble(hotspot.y());
+                    putString(data, hotspot.movements());
+                    writer.write(data);
+                }
+                for (int childId : node.children) pending.add(nodes.get(childId));
+            }
+        }
+
+        Path tmp = dir.resolve("base-%06d.tmp".formatted(base));
+        try (var baseChannel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            baseChannel.write(ByteBuffer.wrap(out.toByteArray()));
+            baseChannel.force(true);
+        }
+        Files.move(tmp, dir.resolve("base-%06d.log".formatted(base)), StandardCopyOption.ATOMIC_MOVE);
+
+        openSegment(base);
+        this.records = 0;
+        for (Path old : list("segment-")) if (number(old) < base) delete(old);
+        for (Path old : list("base-")) if (number(old) < base) delete(old);
+        this.compactions++;
+    }
+
+    private static void delete(Path file) {
+        try { Files.deleteIfExists(file); } catch (IOException e) { System.err.println(e); }
+    }
+
+    private NodeInfo toNodeInfo(Node node) {
+        var moves = new LinkedList<MovementInSpace>();
+        for (Hotspot hotspot : node.moves)
+            moves.add(new MovementInSpace(new Point2D(hotspot.x(), hotspot.y()), Movement.decode(hotspot.movements())));
+        return new NodeInfo(node.id, node.name, node.imgURL, new Point2D(node.x, node.y), moves);
+    }
+
+    @Override
+    public boolean success() {
+        return ok;
+    }
+
+    /**
+     * Número de compactaciones hechas desde que se abrió el almacenamiento.
+     */
+    public synchronized long getCompactions() {
+        return compactions;
+    }
+
+    @Override
+    public synchronized LinkedList<T<Integer, String>> getAllRoots() {
+        var all = new LinkedList<T<Integer, String>>();
+        for (var root : roots.entrySet()) all.add(new T.MkT<>(root.getKey(), root.getValue()));
+        return all;
+    }
+
+    @Override
+    public synchronized LinkedList<T<Integer, String>> getRootsPage(String prefix, Maybe<T<Integer, String>> after, int limit) {
+        var page = new LinkedList<T<Integer, String>>();
+        var from = switch (after) {
+            case Maybe.Nothing() -> rootsByName.ceiling(new T.MkT<>(Integer.MIN_VALUE, prefix));
+            case Maybe.Just(T<Integer, String> last) -> rootsByName.higher(last);
+        };
+        if (from == null) return page;
+
+        for (var root : rootsByName.tailSet(from, true)) {
+            if (page.size() >= limit || !root.snd().regionMatches(true, 0, prefix, 0, prefix.length())) break;
+            page.add(root);
+        }
+        return page;
+    }
+
+    @Override
+    public synchronized int insertRoot(String name) {
+        int id = nextId;
+        byte[] rootName = name.getBytes(StandardCharsets.UTF_8);
+        begin(ROOT, 24 + rootName.length).putInt(id).putDouble(100).putDouble(100).putInt(rootName.length).put(rootName);
+        return commit() ? id : -1;
+    }
+
+    @Override
+    public synchronized int removeRoot(int root_id) {
+        begin(REMOVE_ROOT, 4).putInt(root_id);
+        return commit() ? 0 : -1;
+    }
+
+    @Override
+    public synchronized int insertChild(Point2D position, int parentId) {
+        if (!nodes.containsKey(parentId)) {
+            System.err.println("node no encontrado con id: " + parentId);
+            return -1;
+        }
+        int id = nextId;
+        begin(CHILD, 24).putInt(id).putInt(parentId).putDouble(position.getX()).putDouble(position.getY());
+        return commit() ? id : -1;
+    }
+
+    @Override
+    public synchronized int removeSubtree(int id) {
+        Node node = nodes.get(id);
+        if (node == null || node.parentId == 0) return -1;
+        int removed = 0;
+        var pending = new ArrayDeque<Node>();
+        pending.add(node);
+        while (!pending.isEmpty()) {
+            removed++;
+            for (int childId : pending.poll().children) pending.add(nodes.get(childId));
+        }
+        begin(REMOVE_SUBTREE, 4).putInt(id);
+        return commit() ? removed : -1;
+    }
+
+    @Override
+    public synchronized boolean updateNodeInfo(int id, Point2D position) {
+        begin(POSITION, 20).putInt(id).putDouble(position.getX()).putDouble(position.getY());
+        return commit();
+    }
+
+    @Override
+    public synchronized boolean updateNodeInfo(int id, String name, String imageURL) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        byte[] imgBytes = imageURL.getBytes(StandardCharsets.UTF_8);
+        var data = begin(INFO, 12 + nameBytes.length + imgBytes.length).putInt(id);
+        putString(data, nameBytes);
+        putString(data, imgBytes);
+        return commit();
+    }
+
+    @Override
+    public synchronized boolean updateNodeInfos(Collection<NodeUpdate> updates) {
+        boolean written = true;
+        for (NodeUpdate update : updates) {
+            if (update.position().isJust()) written &= updateNodeInfo(update.id(), update.position().fromJust());
+            if (update.nameAndImage().isJust())
+                written &= updateNodeInfo(update.id(), update.nameAndImage().fromJust().fst(), update.nameAndImage().fromJust().snd());
+            for (MovementInSpace movementInSpace : update.movements()) written &= insertMovementInSpace(update.id(), movementInSpace);
+        }
+        return written;
+    }
+
+    @Override
+    public synchronized NodeInfo getNodeInfo(int id) {
+        Node node = nodes.get(id);
+        if (node == null) {
+            System.out.println("node no encontrado con id: " + id);
+            return null;
+        }
+        return toNodeInfo(node);
+    }
+
+    @Override
+    public synchronized boolean insertMovementInSpace(int node_id, MovementInSpace movementInSpace) {
+        byte[] movements = Movement.encode(movementInSpace.getMovements());
+        var pos = movementInSpace.getPos();
+        var data = begin(MOVEMENT, 24 + movements.length).putInt(node_id).putDouble(pos.getX()).putDouble(pos.getY());
+        putString(data, movements);
+        return commit();
+    }
+
+    @Override
+    public synchronized boolean removeMovementInSpace(int node_id, MovementInSpace movementInSpace) {
+        byte[] movements = Movement.encode(movementInSpace.getMovements());
+        var pos = movementInSpace.getPos();
+        var data = begin(REMOVE_MOVEMENT, 24 + movements.length).putInt(node_id).putDouble(pos.getX()).putDouble(pos.getY());
+        putString(data, movements);
+        return commit();
+    }
+
+    @Override
+    public synchronized LinkedList<MovementInSpace> getChildrenMoves(int id) {
+        Node node = nodes.get(id);
+        return node == null ? new LinkedList<>() : toNodeInfo(node).getChildren();
+    }
+
+    @Override
+    public synchronized ZipTreeStrict<NodeInfo> getZipTree(int id) {
+        Node root = nodes.get(id);
+        if (root == null) {
+            System.out.println("node no encontrado con id: " + id);
+            return null;
+        }
+
+        var zipTree = new ZipTreeStrict<>(toNodeInfo(root));
+        var ctxById = new HashMap<Integer, TreeCtxStrict<NodeInfo>>();
+        ctxById.put(id, zipTree.getCtx());
+
+        var pending = new ArrayDeque<Node>();
+        pending.add(root);
+        while (!pending.isEmpty()) {
+            Node father = pending.poll();
+            var fatherCtx = ctxById.get(father.id);
+            for (int childId : father.children) {
+                Node child = nodes.get(childId);
+                zipTree.setCtx(fatherCtx);
+                zipTree.insertChild(toNodeInfo(child));
+                ctxById.put(childId, fatherCtx.getChildren().getLast().getCurrent().snd());
+                pending.add(child);
+            }
+        }
+
+        zipTree.toRoot();
+        return zipTree;
+    }
+
+    @Override
+    public synchronized HashMap<Integer, LinkedList<NodeInfo>> getChildrenPages(Collection<Integer> parentIds, int afterId, int limit) {
+        var pages = new HashMap<Integer, LinkedList<NodeInfo>>();
+        for (int parentId : parentIds) {
+            Node parent = nodes.get(parentId);
+            if (parent == null) continue;
+
+            int from = Collections.binarySearch(parent.children, afterId + 1);
+            if (from < 0) from = -from - 1;
+            var page = new LinkedList<NodeInfo>();
+            for (int i = from; i < parent.children.size() && page.size() < limit; i++)
+                page.add(toNodeInfo(nodes.get(parent.children.get(i))));
+            if (!page.isEmpty()) pages.put(parentId, page);
+        }
+        return pages;
+    }
+
+    /**
+     * Asegura que los registros escritos hasta ahora están en disco.
+     */
+    public synchronized void force() {
+        if (segment != null) segment.force();
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            if (channel != null) {
+                segment.force();
+                channel.close();
+                channel = null;
+            }
+            if (lock != null) lock.release();
+            if (lockChannel != null) lockChannel.close();
+        } catch (IOException e) { System.err.println(e); }
+        ok = false;
+    }
+}
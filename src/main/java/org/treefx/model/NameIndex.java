@@ -0,0 +1,324 @@
+package org.treefx.model;
+
+import org.treefx.model.ziplist.NodeLinkList;
+import org.treefx.model.ziptree.TreeCtxStrict;
+import org.treefx.model.ziptree.ZipTreeStrict;
+import org.treefx.utils.adt.Maybe;
+import org.treefx.utils.adt.Movement;
+import org.treefx.utils.adt.T;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Índice invertido en memoria de los nombres de los nodos de todos los árboles leídos.
+ * <p>
+ * Cada nombre se normaliza (minúsculas, sin acentos ni signos) y se parte en palabras; cada palabra
+ * se indexa por sus trigramas, con dos espacios delante para que los primeros trigramas marquen el
+ * principio de la palabra. Una búsqueda cruza las listas de los trigramas de sus palabras empezando
+ * por la más corta y comprueba cada candidato contra su nombre, así que su coste depende del número de
+ * candidatos y no del número de nodos indexados.
+ * </p>
+ * <p>
+ * Las palabras de la búsqueda con tres o más letras se buscan en cualquier parte de las palabras del
+ * nombre; las más cortas, al principio de alguna palabra, para que la búsqueda funcione mientras se
+ * escribe.
+ * </p>
+ * <p>
+ * Cada nodo guarda la ruta desde su raíz, de modo que un resultado lleva todo lo necesario para abrir
+ * el árbol directamente en ese nodo con {@link org.treefx.model.ziptree.ZipTree#moveTo(LinkedList)}.
+ * El índice es seguro entre hilos: se alimenta desde los hilos del almacenamiento y se consulta desde
+ * el de JavaFX.
+ * </p>
+ */
+public class NameIndex {
+    /**
+     * Un nodo encontrado.
+     *
+     * @param rootId el ID de la raíz del árbol que lo contiene.
+     * @param nodeId el ID del nodo.
+     * @param name   el nombre del nodo.
+     * @param path   los movimientos desde la raíz hasta el nodo.
+     */
+    public record Hit(int rootId, int nodeId, String name, LinkedList<Movement> path) {}
+
+    private static final class Entry {
+        private final int rootId;
+        private final int[] path;
+        private String name;
+        /**
+         * Nombre normalizado, con las palabras separadas por un único espacio.
+         */
+        private String text;
+        /**
+         * Número de hijos indexados; los hijos se numeran desde 1, igual que en {@link Movement.Down}.
+         */
+        private int children;
+
+        private Entry(int rootId, int[] path, String name) {
+            this.rootId = rootId;
+            this.path = path;
+            this.name = name;
+            this.text = normalize(name);
+        }
+    }
+
+    private final HashMap<Integer, Entry> nodes = new HashMap<>();
+    private final HashMap<Integer, LinkedList<Integer>> roots = new HashMap<>();
+    /**
+     * Nodos de cada trigrama, ordenados por ID para que los resultados salgan siempre en el mismo orden.
+     */
+    private final HashMap<Long, TreeSet<Integer>> postings = new HashMap<>();
+
+    /**
+     * Indexa un árbol completo, sustituyendo lo que hubiera de su raíz. Todos sus nodos deben tener
+     * ya su ID definitivo.
+     *
+     * @param zipTree el árbol, que no debe modificarse mientras se recorre.
+     */
+    public void indexTree(ZipTreeStrict<NodeInfo> zipTree) {
+        int rootId = zipTree.getRoot().getValue().getId();
+        if (rootId < 0) return;
+
+        var ctxs = new ArrayList<TreeCtxStrict<NodeInfo>>();
+        var entries = new ArrayList<Entry>();
+        ctxs.add(zipTree.getRoot());
+        entries.add(new Entry(rootId, new int[0], zipTree.getRoot().getValue().getName()));
+        // Recorrido en anchura siguiendo los enlaces de cada lista de hijos, sin mover sus cursores.
+        for (int ix = 0; ix < ctxs.size(); ix++) {
+            var father = entries.get(ix);
+            var child = ctxs.get(ix).getChildren().getHead();
+            while (child != null) {
+                var childCtx = child.getCurrent().snd();
+                ctxs.add(childCtx);
+                entries.add(new Entry(rootId, append(father.path, ++father.children), childCtx.getValue().getName()));
+                child = child.getAfter() instanceof Maybe.Just(NodeLinkList<T<NodeInfo, TreeCtxStrict<NodeInfo>>> after) ? after : null;
+            }
+        }
+
+        synchronized (this) {
+            removeRoot(rootId);
+            for (int ix = 0; ix < ctxs.size(); ix++) add(ctxs.get(ix).getValue().getId(), entries.get(ix));
+        }
+    }
+
+    /**
+     * Indexa una raíz nueva.
+     *
+     * @param rootId el ID de la raíz.
+     * @param name   el nombre del nodo raíz.
+     */
+    public synchronized void insertRoot(int rootId, String name) {
+        removeRoot(rootId);
+        add(rootId, new Entry(rootId, new int[0], name));
+    }
+
+    /**
+     * Indexa un hijo nuevo como último hijo de su padre. No hace nada si el padre no está indexado.
+     *
+     * @param fatherId el ID del padre.
+     * @param childId  el ID del hijo.
+     * @param name     el nombre del hijo.
+     */
+    public synchronized void insertChild(int fatherId, int childId, String name) {
+        var father = this.nodes.get(fatherId);
+        if (father == null || this.nodes.containsKey(childId)) return;
+        add(childId, new Entry(father.rootId, append(father.path, ++father.children), name));
+    }
+
+    /**
+     * Cambia el nombre indexado de un nodo. No hace nada si el nodo no está indexado.
+     *
+     * @param nodeId el ID del nodo.
+     * @param name   el nuevo nombre.
+     */
+    public synchronized void rename(int nodeId, String name) {
+        var entry = this.nodes.get(nodeId);
+        if (entry == null || entry.name.equals(name)) return;
+        unpost(nodeId, entry.text);
+        entry.name = name;
+        entry.text = normalize(name);
+        post(nodeId, entry.text);
+    }
+
+    /**
+     * Quita del índice un nodo y sus descendientes, recorriendo los nodos de su árbol. No hace nada si
+     * el nodo no está indexado. El nodo debe ser el último hijo de su padre, como al deshacer una
+     * inserción; si no, las rutas de los hermanos posteriores quedarían desplazadas.
+     *
+     * @param nodeId el ID del nodo.
+     * @throws IllegalStateException si el nodo no es el último hijo de su padre; el índice no cambia.
+     */
+    public synchronized void removeSubtree(int nodeId) {
+        var entry = this.nodes.get(nodeId);
+        if (entry == null) return;
+
+        // Solo se quitan subárboles al deshacer una inserción, y se deshace en orden inverso: las
+        // inserciones posteriores de hermanos ya se han deshecho, así que el nodo es el último hijo y
+        // las rutas de sus hermanos siguen siendo válidas. El padre deja de contarlo.
+        var ids = this.roots.get(entry.rootId);
+        Entry father = null;
+        for (int id : ids) {
+            var other = this.nodes.get(id);
+            if (other.path.length == entry.path.length - 1
+                    && Arrays.equals(other.path, 0, other.path.length, entry.path, 0, other.path.length)) {
+                father = other;
+                break;
+            }
+        }
+        if (father != null && father.children != entry.path[entry.path.length - 1])
+            throw new IllegalStateException("El nodo " + nodeId + " no es el último hijo de su padre");
+
+        for (var it = ids.iterator(); it.hasNext(); ) {
+            int id = it.next();
+            var other = this.nodes.get(id);
+            if (other.path.length >= entry.path.length && Arrays.equals(other.path, 0, entry.path.length, entry.path, 0, entry.path.length)) {
+                unpost(id, this.nodes.remove(id).text);
+                it.remove();
+            }
+        }
+        if (father != null) father.children--;
+    }
+
+    /**
+     * Quita del índice todos los nodos de un árbol.
+     *
+     * @param rootId el ID de la raíz.
+     */
+    public synchronized void removeRoot(int rootId) {
+        var ids = this.roots.remove(rootId);
+        if (ids == null) return;
+        for (int id : ids) unpost(id, this.nodes.remove(id).text);
+    }
+
+    /**
+     * Busca los nodos cuyo nombre contiene todas las palabras de la búsqueda.
+     *
+     * @param query las palabras buscadas.
+     * @param limit el número máximo de resultados.
+     * @return los nodos encontrados, ordenados por ID.
+     */
+    public synchronized LinkedList<Hit> search(String query, int limit) {
+        var hits = new LinkedList<Hit>();
+        var words = words(normalize(query));
+        if (words.length == 0 || limit <= 0) return hits;
+
+        var sets = new ArrayList<TreeSet<Integer>>();
+        for (String word : words) {
+            for (long trigram : queryTrigrams(word)) {
+                var set = this.postings.get(trigram);
+                if (set == null) return hits;
+                sets.add(set);
+            }
+        }
+        sets.sort(Comparator.comparingInt(Set::size));
+
+        candidates:
+        for (int id : sets.getFirst()) {
+            for (int i = 1; i < sets.size(); i++) if (!sets.get(i).contains(id)) continue candidates;
+            var entry = this.nodes.get(id);
+            if (!matches(entry.text, words)) continue;
+
+            var path = new LinkedList<Movement>();
+            for (int child : entry.path) path.add(Movement.DOWN(child));
+            hits.add(new Hit(entry.rootId, id, entry.name, path));
+            if (hits.size() == limit) break;
+        }
+        return hits;
+    }
+
+    /**
+     * Número de nodos indexados.
+     */
+    public synchronized int size() {
+        return this.nodes.size();
+    }
+
+    private void add(int nodeId, Entry entry) {
+        if (nodeId < 0) return;
+        this.nodes.put(nodeId, entry);
+        this.roots.computeIfAbsent(entry.rootId, ignored -> new LinkedList<>()).add(nodeId);
+        post(nodeId, entry.text);
+    }
+
+    private void post(int nodeId, String text) {
+        for (long trigram : trigrams(text)) this.postings.computeIfAbsent(trigram, ignored -> new TreeSet<>()).add(nodeId);
+    }
+
+    private void unpost(int nodeId, String text) {
+        for (long trigram : trigrams(text)) {
+            var set = this.postings.get(trigram);
+            if (set != null && set.remove(nodeId) && set.isEmpty()) this.postings.remove(trigram);
+        }
+    }
+
+    private static boolean matches(String text, String[] words) {
+        String spaced = " " + text;
+        for (String word : words) {
+            if (word.length() < 3 ? !spaced.contains(" " + word) : !text.contains(word)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Pasa un texto a minúsculas, sin acentos, y deja solo letras y dígitos con las palabras separadas
+     * por un único espacio.
+     */
+    static String normalize(String s) {
+        String stripped = Normalizer.normalize(s, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return stripped.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").strip();
+    }
+
+    private static String[] words(String text) {
+        return text.isEmpty() ? new String[0] : text.split(" ");
+    }
+
+    /**
+     * Trigramas de todas las palabras de un texto normalizado, cada palabra con dos espacios delante.
+     */
+    private static Set<Long> trigrams(String text) {
+        var trigrams = new HashSet<Long>();
+        for (String word : words(text)) {
+            String padded = "  " + word;
+            for (int i = 0; i + 3 <= padded.length(); i++) trigrams.add(trigram(padded, i));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Trigramas que debe tener una palabra del nombre para contener la palabra buscada: los de la
+     * propia palabra si tiene tres o más letras, o el que marca el principio de palabra si es más corta.
+     */
+    private static long[] queryTrigrams(String word) {
+        if (word.length() < 3) {
+            String padded = "  " + word;
+            return new long[]{ trigram(padded, padded.length() - 3) };
+        }
+        var trigrams = new long[word.length() - 2];
+        for (int i = 0; i < trigrams.length; i++) trigrams[i] = trigram(word, i);
+        return trigrams;
+    }
+
+    private static long trigram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    private static int[] append(int[] path, int child) {
+        var newPath = Arrays.copyOf(path, path.length + 1);
+        newPath[path.length] = child;
+        return newPath;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "NameIndex[nodes=%d, trigrams=%d]".formatted(this.nodes.size(), this.postings.size());
+    }
+}
@@ -1,20 +1,32 @@
 package org.treefx.model;
 
 import javafx.geometry.Point2D;
+import org.treefx.utils.adt.Maybe;
+import org.treefx.utils.adt.T;
 
 import java.util.LinkedList;
+import java.util.Objects;
 
 /**
  * Clase que representa información sobre un nodo en un árbol.
  * Contiene datos relacionados como su identificador, nombre, URL de imagen,
  * posición y movimientos asociados.
+ * <p>
+ * El nodo recuerda qué campos han cambiado y qué movimientos se le han añadido desde que se leyó o
+ * se guardó por última vez, para que {@link #takeDelta()} devuelva solo esos cambios. Asignar el
+ * mismo valor que ya tenía no cuenta como cambio.
+ * </p>
  */
 public class NodeInfo {
-    private final int id;
+    private int id;
     private String name;
     private String imgURL;
     private Point2D pos;
     private LinkedList<MovementInSpace> movements;
+    private boolean posDirty;
+    private boolean infoDirty;
+    private LinkedList<MovementInSpace> addedMovements = new LinkedList<>();
+    private final NodeInfo origin;
 
     /**
      * Constructor para inicializar un objeto NodeInfo con todos sus atributos.
@@ -31,6 +43,27 @@ public class NodeInfo {
         this.imgURL = imgURL;
         this.pos = pos;
         this.movements = movements;
+        this.origin = null;
+    }
+
+    private NodeInfo(NodeInfo origin) {
+        this.id = origin.id;
+        this.name = origin.name;
+        this.imgURL = origin.imgURL;
+        this.pos = origin.pos;
+        this.movements = new LinkedList<>(origin.movements);
+        this.origin = origin;
+    }
+
+    /**
+     * Copia los datos actuales del nodo, para leerlos desde otro hilo mientras el original sigue
+     * cambiando. El ID se sigue leyendo del original, porque un nodo recién creado solo lo recibe
+     * cuando se guarda.
+     *
+     * @return una copia que no ve los cambios posteriores del nodo, salvo su ID.
+     */
+    public synchronized NodeInfo copy() {
+        return new NodeInfo(this);
     }
 
     /**
@@ -39,7 +72,17 @@ public class NodeInfo {
      * @return El identificador del nodo.
      */
     public int getId() {
-        return id;
+        return origin != null ? origin.getId() : id;
+    }
+
+    /**
+     * Asigna el identificador definitivo a un nodo creado antes de ser persistido.
+     * Solo la capa de persistencia lo utiliza, una vez que la base de datos devuelve el ID.
+     *
+     * @param id El identificador asignado por la base de datos.
+     */
+    void setId(int id) {
+        this.id = id;
     }
 
     /**
@@ -56,7 +99,8 @@ public class NodeInfo {
      *
      * @param name El nuevo nombre del nodo.
      */
-    public void setName(String name) {
+    public synchronized void setName(String name) {
+        if (!Objects.equals(this.name, name)) infoDirty = true;
         this.name = name;
     }
 
@@ -74,7 +118,8 @@ public class NodeInfo {
      *
      * @param imgURL La nueva URL de imagen del nodo.
      */
-    public void setImgURL(String imgURL) {
+    public synchronized void setImgURL(String imgURL) {
+        if (!Objects.equals(this.imgURL, imgURL)) infoDirty = true;
         this.imgURL = imgURL;
     }
 
@@ -92,7 +137,8 @@ public class NodeInfo {
      *
      * @param pos La nueva posición del nodo representada por un Point2D.
      */
-    public void setPos(Point2D pos) {
+    public synchronized void setPos(Point2D pos) {
+        if (!Objects.equals(this.pos, pos)) posDirty = true;
         this.pos = pos;
     }
 
@@ -101,8 +147,21 @@ public class NodeInfo {
      *
      * @param movementInSpace El movimiento que se añadirá.
      */
-    public void addPos(MovementInSpace movementInSpace) {
+    public synchronized void addPos(MovementInSpace movementInSpace) {
         this.movements.add(movementInSpace);
+        this.addedMovements.add(movementInSpace);
+    }
+
+    /**
+     * Quita un movimiento del nodo. Si aún no se había sacado con {@link #takeDelta()}, también se quita
+     * de los cambios sin guardar, y no hace falta borrarlo del almacenamiento.
+     *
+     * @param movementInSpace El movimiento que se quitará.
+     * @return {@code true} si el movimiento ya se había sacado para guardarlo.
+     */
+    public synchronized boolean removePos(MovementInSpace movementInSpace) {
+        this.movements.removeLastOccurrence(movementInSpace);
+        return !this.addedMovements.removeLastOccurrence(movementInSpace);
     }
 
     /**
@@ -122,4 +181,31 @@ public class NodeInfo {
     public void setChildren(LinkedList<MovementInSpace> children) {
         this.movements = children;
     }
-}
\ No newline at end of file
+
+    /**
+     * Indica si el nodo tiene cambios sin guardar.
+     *
+     * @return {@code true} si ha cambiado algún campo o se le ha añadido algún movimiento.
+     */
+    public synchronized boolean isDirty() {
+        return posDirty || infoDirty || !addedMovements.isEmpty();
+    }
+
+    /**
+     * Saca los cambios sin guardar del nodo, que queda limpio.
+     *
+     * @return los cambios, o {@code Nothing} si no había ninguno.
+     */
+    public synchronized Maybe<WriteBehindQueue.Edit> takeDelta() {
+        if (!isDirty()) return new Maybe.Nothing<>();
+
+        var edit = new WriteBehindQueue.Edit(this,
+                posDirty ? new Maybe.Just<>(pos) : new Maybe.Nothing<>(),
+                infoDirty ? new Maybe.Just<>(new T.MkT<>(name, imgURL)) : new Maybe.Nothing<>(),
+                addedMovements);
+        posDirty = false;
+        infoDirty = false;
+        addedMovements = new LinkedList<>();
+        return new Maybe.Just<>(edit);
+    }
+}
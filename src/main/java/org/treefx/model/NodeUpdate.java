@@ -0,0 +1,22 @@
+package org.treefx.model;
+
+import javafx.geometry.Point2D;
+import org.treefx.utils.adt.Maybe;
+import org.treefx.utils.adt.T;
+
+import java.util.LinkedList;
+
+/**
+ * Cambios pendientes de escribir sobre la fila de un nodo en la tabla {@code node}, y los movimientos
+ * espaciales nuevos del nodo.
+ *
+ * @param id           el ID del nodo.
+ * @param position     la nueva posición, si ha cambiado.
+ * @param nameAndImage el nuevo nombre y la nueva URL de la imagen, si han cambiado.
+ * @param movements    los movimientos añadidos al nodo, en orden.
+ */
+public record NodeUpdate(int id, Maybe<Point2D> position, Maybe<T<String, String>> nameAndImage, LinkedList<MovementInSpace> movements) {
+    public NodeUpdate(int id, Maybe<Point2D> position, Maybe<T<String, String>> nameAndImage) {
+        this(id, position, nameAndImage, new LinkedList<>());
+    }
+}
@@ -0,0 +1,579 @@
+package org.treefx.model;
+
+import javafx.geometry.Point2D;
+import org.treefx.utils.adt.Movement;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Diario local de las operaciones del editor, para no perderlas si la aplicación se cierra antes de
+ * que lleguen al {@link TreeStore}.
+ * <p>
+ * Cada operación se añade a un buffer en memoria, así que registrarla cuesta microsegundos; un hilo
+ * de fondo escribe el buffer al final del archivo y lo sincroniza con el disco cada {@link #SYNC_MS}
+ * milisegundos, una sola vez para todas las operaciones acumuladas. Una operación puede perderse solo
+ * si la aplicación se cae antes de la siguiente sincronización.
+ * </p>
+ * <p>
+ * Cuando el almacenamiento aplica una operación se registra {@link #applied(long)}; al abrir el diario,
+ * las operaciones posteriores a la última aplicada se reaplican con {@link #replay(TreeStore)}. Si una
+ * operación falla se registra {@link #failed(long)}, y la marca de aplicadas ya no pasa de la anterior a
+ * ella: al volver a abrir el diario se reaplica desde esa operación, incluidas las posteriores que sí
+ * se aplicaron. Los
+ * nodos insertados que aún no tienen ID se identifican con una referencia provisional negativa, y su
+ * ID se registra con {@link #assigned(NodeInfo)} en cuanto se conoce. Si la aplicación se cae entre
+ * una inserción y el registro de su ID, al reaplicar el diario el nodo puede quedar insertado dos veces.
+ * </p>
+ * <p>
+ * Los registros tienen el mismo formato que en {@link LocalTreeStore}, {@code [longitud][CRC32][datos]}:
+ * un registro incompleto al final del archivo se descarta al abrirlo. Cuando todas las operaciones están
+ * aplicadas y el archivo supera {@link #COMPACT_BYTES}, se vacía.
+ * </p>
+ */
+public class OperationJournal implements AutoCloseable {
+    /**
+     * Milisegundos entre sincronizaciones con el disco.
+     */
+    public static final long SYNC_MS = 20;
+    /**
+     * Tamaño del archivo a partir del cual se vacía cuando ya no hay operaciones por aplicar.
+     */
+    public static final long COMPACT_BYTES = 1 << 20;
+
+    private static final byte INSERT_ROOT = 1;
+    private static final byte INSERT_CHILD = 2;
+    private static final byte SET_POS = 3;
+    private static final byte SET_INFO = 4;
+    private static final byte ADD_POS = 5;
+    private static final byte REMOVE_ROOT = 6;
+    private static final byte APPLIED = 7;
+    private static final byte ASSIGNED = 8;
+    private static final byte REMOVE_SUBTREE = 9;
+    private static final byte REMOVE_POS = 10;
+    private static final int HEADER = 8;
+
+    /**
+     * Operación del editor; los nodos se identifican por su ID o por una referencia provisional negativa.
+     */
+    public sealed interface Op {
+        record InsertRoot(int ref, String name) implements Op {}
+        record InsertChild(int parentRef, int ref, Point2D position) implements Op {}
+        record SetPos(int ref, Point2D position) implements Op {}
+        record SetInfo(int ref, String name, String imgURL) implements Op {}
+        record AddPos(int ref, MovementInSpace movementInSpace) implements Op {}
+        record RemoveRoot(int ref) implements Op {}
+        record RemoveSubtree(int ref) implements Op {}
+        record RemovePos(int ref, MovementInSpace movementInSpace) implements Op {}
+    }
+
+    /**
+     * Operación leída del diario con su número de secuencia.
+     */
+    private record Entry(long seq, Op op) {}
+
+    private final FileChannel channel;
+    private final ScheduledExecutorService syncer;
+    private final CRC32 crc;
+    /**
+     * Registros añadidos que aún no se han escrito en el archivo.
+     */
+    private ByteArrayOutputStream buffer;
+    /**
+     * Protege la escritura en el archivo, para que las sincronizaciones no se mezclen.
+     */
+    private final Object io;
+
+    private final IdentityHashMap<NodeInfo, Integer> refs;
+    private int nextRef;
+    private long seq;
+    private long appliedSeq;
+    /**
+     * Número de secuencia de la primera operación que el almacenamiento no ha podido aplicar.
+     */
+    private long failedSeq = Long.MAX_VALUE;
+
+    /**
+     * Operaciones sin aplicar encontradas al abrir el diario, e IDs ya asignados a sus referencias.
+     */
+    private final LinkedList<Entry> recovered;
+    private final HashMap<Integer, Integer> recoveredIds;
+
+    private long appended;
+    private long replayed;
+    private long syncs;
+    private long syncedBytes;
+    private long maxSyncNanos;
+
+    /**
+     * Abre o crea el diario y lee las operaciones que quedaron sin aplicar.
+     *
+     * @param file el archivo del diario; se crea si no existe.
+     * @throws IOException si no se puede abrir o leer el archivo.
+     */
+    public OperationJournal(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.crc = new CRC32();
+        this.buffer = new ByteArrayOutputStream();
+        this.io = new Object();
+        this.refs = new IdentityHashMap<>();
+        this.nextRef = -1;
+        this.recovered = new LinkedList<>();
+        this.recoveredIds = new HashMap<>();
+
+        read();
+
+        this.syncer = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("treefx-journal").factory());
+        this.syncer.scheduleWithFixedDelay(() -> {
+            try { sync(); }
+            catch (IOException e) { System.err.println(e); }
+        }, SYNC_MS, SYNC_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Lee todos los registros del archivo y lo corta tras el último válido.
+     */
+    private void read() throws IOException {
+        var bytes = ByteBuffer.allocate((int) channel.size());
+        while (bytes.hasRemaining() && channel.read(bytes, bytes.position()) > 0) {}
+        bytes.flip();
+
+        var entries = new LinkedList<Entry>();
+        while (bytes.remaining() > HEADER) {
+            int start = bytes.position();
+            int length = bytes.getInt();
+            int checksum = bytes.getInt();
+            if (length <= 0 || length > bytes.remaining()) { bytes.position(start); break; }
+
+            ByteBuffer data = bytes.slice(bytes.position(), length);
+            crc.reset();
+            crc.update(data.duplicate());
+            if ((int) crc.getValue() != checksum) { bytes.position(start); break; }
+            bytes.position(bytes.position() + length);
+
+            byte type = data.get();
+            long recordSeq = data.getLong();
+            seq = Math.max(seq, recordSeq);
+            switch (type) {
+                case APPLIED -> appliedSeq = Math.max(appliedSeq, recordSeq);
+                case ASSIGNED -> recoveredIds.put(data.getInt(), data.getInt());
+                default -> entries.add(new Entry(recordSeq, readOp(type, data)));
+            }
+        }
+
+        if (bytes.position() < channel.size()) {
+            System.err.println("Diario cortado en el byte " + bytes.position() + " de " + channel.size());
+            channel.truncate(bytes.position());
+        }
+        channel.position(bytes.position());
+
+        for (Entry entry : entries) {
+            if (entry.seq() > appliedSeq) recovered.add(entry);
+            nextRef = Math.min(nextRef, minRef(entry.op()) - 1);
+        }
+    }
+
+    private static Op readOp(byte type, ByteBuffer data) {
+        return switch (type) {
+            case INSERT_ROOT -> new Op.InsertRoot(data.getInt(), readString(data));
+            case INSERT_CHILD -> new Op.InsertChild(data.getInt(), data.getInt(), new Point2D(data.getDouble(), data.getDouble()));
+            case SET_POS -> new Op.SetPos(data.getInt(), new Point2D(data.getDouble(), data.getDouble()));
+            case SET_INFO -> new Op.SetInfo(data.getInt(), readString(data), readString(data));
+            case ADD_POS -> new Op.AddPos(data.getInt(), new MovementInSpace(new Point2D(data.getDouble(), data.getDouble()), Movement.decode(data)));
+            case REMOVE_ROOT -> new Op.RemoveRoot(data.getInt());
+            case REMOVE_SUBTREE -> new Op.RemoveSubtree(data.getInt());
+            case REMOVE_POS -> new Op.RemovePos(data.getInt(), new MovementInSpace(new Point2D(data.getDouble(), data.getDouble()), Movement.decode(data)));
+            default -> throw new IllegalStateException("Tipo de registro desconocido en el diario: " + type);
+        };
+    }
+
+    private static String readString(ByteBuffer data) {
+        byte[] bytes = new byte[data.getInt()];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int minRef(Op op) {
+        return switch (op) {
+            case Op.InsertRoot(int ref, String ignored) -> Math.min(ref, 0);
+            case Op.InsertChild(int parentRef, int ref, Point2D ignored) -> Math.min(Math.min(parentRef, ref), 0);
+            case Op.SetPos(int ref, Point2D ignored) -> Math.min(ref, 0);
+            case Op.SetInfo(int ref, String ignored, String ignored2) -> Math.min(ref, 0);
+            case Op.AddPos(int ref, MovementInSpace ignored) -> Math.min(ref, 0);
+            case Op.RemoveRoot(int ref) -> Math.min(ref, 0);
+            case Op.RemoveSubtree(int ref) -> Math.min(ref, 0);
+            case Op.RemovePos(int ref, MovementInSpace ignored) -> Math.min(ref, 0);
+        };
+    }
+
+    /**
+     * Obtiene la referencia de un nodo: su referencia provisional si se insertó en este diario y aún no
+     * se ha registrado su ID, o si no su ID.
+     */
+    private int ref(NodeInfo nodeInfo) {
+        Integer ref = refs.get(nodeInfo);
+        return ref != null ? ref : nodeInfo.getId();
+    }
+
+    private int newRef(NodeInfo nodeInfo) {
+        int ref = nextRef--;
+        refs.put(nodeInfo, ref);
+        return ref;
+    }
+
+    /**
+     * Añade un registro al buffer.
+     *
+     * @param type      el tipo de registro.
+     * @param recordSeq el número de secuencia del registro.
+     * @param payload   los datos del registro, después del tipo y la secuencia.
+     */
+    private void append(byte type, long recordSeq, ByteBuffer payload) {
+        payload.flip();
+        var data = ByteBuffer.allocate(1 + Long.BYTES + payload.remaining()).put(type).putLong(recordSeq).put(payload).flip();
+        crc.reset();
+        crc.update(data.duplicate());
+        buffer.writeBytes(ByteBuffer.allocate(HEADER + data.remaining()).putInt(data.remaining()).putInt((int) crc.getValue()).put(data).array());
+    }
+
+    private long appendOp(byte type, ByteBuffer payload) {
+        appended++;
+        append(type, ++seq, payload);
+        return seq;
+    }
+
+    private static ByteBuffer putString(ByteBuffer payload, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        return payload.putInt(bytes.length).put(bytes);
+    }
+
+    private static int stringSize(String s) {
+        return Integer.BYTES + s.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * Registra la inserción de un nodo raíz que aún no tiene ID.
+     *
+     * @return el número de secuencia de la operación.
+     */
+    public synchronized long insertRoot(NodeInfo root, String name) {
+        int ref = newRef(root);
+        return appendOp(INSERT_ROOT, putString(ByteBuffer.allocate(Integer.BYTES + stringSize(name)).putInt(ref), name));
+    }
+
+    /**
+     * Registra la inserción de un nodo hijo que aún no tiene ID.
+     *
+     * @return el número de secuencia de la operación.
+     */
+    public synchronized long insertChild(NodeInfo father, NodeInfo child, Point2D position) {
+        int parentRef = ref(father);
+        int ref = newRef(child);
+        return appendOp(INSERT_CHILD, ByteBuffer.allocate(2 * Integer.BYTES + 2 * Double.BYTES)
+                .putInt(parentRef).putInt(ref).putDouble(position.getX()).putDouble(position.getY()));
+    }
+
+    /**
+     * Registra el cambio de posición de un nodo.
+     *
+     * @return el número de secuencia de la operación.
+     */
+    public synchronized long setPos(NodeInfo nodeInfo, Point2D position) {
+        return appendOp(SET_POS, ByteBuffer.allocate(Integer.BYTES + 2 * Double.BYTES)
+                .putInt(ref(nodeInfo)).putDouble(position.getX()).putDouble(position.getY()));
+    }
+
+    /**
+     * Registra el cambio de nombre e imagen de un nodo.
+     *
+     * @return el número de secuencia de la operación.
+     */
+    public synchronized long setInfo(NodeInfo nodeInfo, String name, String imgURL) {
+        var payload = ByteBuffer.allocate(Integer.BYTES + stringSize(name) + stringSize(imgURL)).putInt(ref(nodeInfo));
+        return appendOp(SET_INFO, putString(putString(payload, name), imgURL));
+    }
+
+    /**
+     * Registra un nuevo movimiento espacial de un nodo.
+     *
+     * @return el número de secuencia de la operación.
+     */
+    public synchronized long addPos(NodeInfo nodeInfo, MovementInSpace movementInSpace) {
+        byte[] path = Movement.encode(movementInSpace.getMovements());
+        return appendOp(ADD_POS, ByteBuffer.allocate(Integer.BYTES + 2 * Double.BYTES + path.length)
+                .putInt(ref(nodeInfo)).putDouble(movementInSpace.getPos().getX()).putDouble(movementInSpace.getPos().getY()).put(path));
+    }
+
+    /**
+     * Registra que se quita un movimiento espacial de un nodo.
+     *
+     * @return el número de secuencia de la operación.
+     */
+    public synchronized long removePos(NodeInfo nodeInfo, MovementInSpace movementInSpace) {
+        byte[] path = Movement.encode(movementInSpace.getMovements());
+        return appendOp(REMOVE_POS, ByteBuffer.allocate(Integer.BYTES + 2 * Double.BYTES + path.length)
+                .putInt(ref(nodeInfo)).putDouble(movementInSpace.getPos().getX()).putDouble(movementInSpace.getPos().getY()).put(path));
+    }
+
+    /**
+     * Registra la eliminación de un nodo que no es raíz, con sus descendientes.
+     *
+     * @return el número de secuencia de la operación.
+     */
+    public synchronized long removeSubtree(NodeInfo nodeInfo) {
+        return appendOp(REMOVE_SUBTREE, ByteBuffer.allocate(Integer.BYTES).putInt(ref(nodeInfo)));
+    }
+
+    /**
+     * Registra la eliminación de un nodo raíz.
+     *
+     * @return el número de secuencia de la operación.
+     */
+    public synchronized long removeRoot(int rootId) {
+        return appendOp(REMOVE_ROOT, ByteBuffer.allocate(Integer.BYTES).putInt(rootId));
+    }
+
+    /**
+     * Registra que el almacenamiento ya ha aplicado todas las operaciones hasta {@code appliedSeq}.
+     * Las operaciones se aplican en orden, así que basta con la última. La marca no pasa de la anterior
+     * a la primera operación fallida.
+     *
+     * @param appliedSeq el número de secuencia de la última operación aplicada.
+     */
+    public synchronized void applied(long appliedSeq) {
+        appliedSeq = Math.min(appliedSeq, this.failedSeq - 1);
+        if (appliedSeq <= this.appliedSeq) return;
+        this.appliedSeq = appliedSeq;
+        append(APPLIED, appliedSeq, ByteBuffer.allocate(0));
+    }
+
+    /**
+     * Registra que el almacenamiento no ha podido aplicar una operación. Desde entonces la marca de
+     * aplicadas no pasa de la anterior a ella, así que se reaplicará al volver a abrir el diario.
+     *
+     * @param failedSeq el número de secuencia de la operación fallida.
+     */
+    public synchronized void failed(long failedSeq) {
+        this.failedSeq = Math.min(this.failedSeq, failedSeq);
+    }
+
+    /**
+     * Registra el ID asignado por el almacenamiento a un nodo insertado con referencia provisional.
+     * Desde entonces sus operaciones usan el ID.
+     *
+     * @param nodeInfo el nodo, con su ID ya asignado.
+     */
+    public synchronized void assigned(NodeInfo nodeInfo) {
+        Integer ref = refs.remove(nodeInfo);
+        if (ref == null) return;
+        append(ASSIGNED, 0, ByteBuffer.allocate(2 * Integer.BYTES).putInt(ref).putInt(nodeInfo.getId()));
+    }
+
+    /**
+     * Número de secuencia de la última operación registrada.
+     */
+    public synchronized long getSeq() {
+        return seq;
+    }
+
+    /**
+     * Número de operaciones que quedaron sin aplicar al abrir el diario.
+     */
+    public synchronized int getRecovered() {
+        return recovered.size();
+    }
+
+    /**
+     * Número de secuencia de la última operación que el almacenamiento ha aplicado.
+     */
+    public synchronized long getApplied() {
+        return appliedSeq;
+    }
+
+    /**
+     * Número de secuencia de la primera operación que el almacenamiento no ha podido aplicar, o -1 si
+     * no ha fallado ninguna.
+     */
+    public synchronized long getFailed() {
+        return failedSeq == Long.MAX_VALUE ? -1 : failedSeq;
+    }
+
+    /**
+     * Número de operaciones reaplicadas con {@link #replay(TreeStore)} desde que se abrió el diario.
+     */
+    public synchronized long getReplayed() {
+        return replayed;
+    }
+
+    /**
+     * Número de registros añadidos al diario desde que se abrió.
+     */
+    public synchronized long getAppended() {
+        return appended;
+    }
+
+    /**
+     * Número de sincronizaciones con el disco desde que se abrió el diario.
+     */
+    public synchronized long getSyncs() {
+        return syncs;
+    }
+
+    /**
+     * Bytes escritos en el disco desde que se abrió el diario.
+     */
+    public synchronized long getSyncedBytes() {
+        return syncedBytes;
+    }
+
+    /**
+     * Duración de la sincronización más lenta, en milisegundos.
+     */
+    public synchronized double getMaxSyncMs() {
+        return maxSyncNanos / 1e6;
+    }
+
+    /**
+     * Aplica en el almacenamiento las operaciones que quedaron sin aplicar al abrir el diario y las marca
+     * como aplicadas, hasta la primera que falle. Las operaciones sobre un nodo cuya inserción falló no
+     * se intentan.
+     *
+     * @param store el almacenamiento.
+     * @return el número de operaciones aplicadas.
+     */
+    public int replay(TreeStore store) {
+        LinkedList<Entry> entries;
+        synchronized (this) {
+            entries = new LinkedList<>(recovered);
+            recovered.clear();
+        }
+
+        var ids = new HashMap<>(recoveredIds);
+        int replayed = 0;
+        long last = 0;
+        for (Entry entry : entries) {
+            last = entry.seq();
+            var op = entry.op();
+            if (!resolvable(op, ids)) {
+                System.err.println("Operación del diario sobre un nodo inexistente: " + op);
+                continue;
+            }
+
+            boolean ok;
+            try {
+                ok = switch (op) {
+                    case Op.InsertRoot(int ref, String name) -> put(ids, ref, store.insertRoot(name));
+                    case Op.InsertChild(int parentRef, int ref, Point2D position) -> put(ids, ref, store.insertChild(position, id(parentRef, ids)));
+                    case Op.SetPos(int ref, Point2D position) -> store.updateNodeInfo(id(ref, ids), position);
+                    case Op.SetInfo(int ref, String name, String imgURL) -> store.updateNodeInfo(id(ref, ids), name, imgURL);
+                    case Op.AddPos(int ref, MovementInSpace movementInSpace) -> store.insertMovementInSpace(id(ref, ids), movementInSpace);
+                    case Op.RemoveRoot(int ref) -> store.removeRoot(id(ref, ids)) >= 0;
+                    case Op.RemoveSubtree(int ref) -> store.removeSubtree(id(ref, ids)) >= 0;
+                    case Op.RemovePos(int ref, MovementInSpace movementInSpace) -> store.removeMovementInSpace(id(ref, ids), movementInSpace);
+                };
+            } catch (RuntimeException e) {
+                System.err.println(e);
+                ok = false;
+            }
+            if (ok) replayed++;
+            else failed(entry.seq());
+        }
+
+        applied(last);
+        synchronized (this) { this.replayed += replayed; }
+        return replayed;
+    }
+
+    private static boolean put(HashMap<Integer, Integer> ids, int ref, int id) {
+        ids.put(ref, id);
+        return id >= 0;
+    }
+
+    private static int id(int ref, HashMap<Integer, Integer> ids) {
+        return ref > 0 ? ref : ids.getOrDefault(ref, -1);
+    }
+
+    private static boolean resolvable(Op op, HashMap<Integer, Integer> ids) {
+        return switch (op) {
+            case Op.InsertRoot(int ref, String ignored) -> true;
+            case Op.InsertChild(int parentRef, int ref, Point2D ignored) -> id(parentRef, ids) > 0;
+            case Op.SetPos(int ref, Point2D ignored) -> id(ref, ids) > 0;
+            case Op.SetInfo(int ref, String ignored, String ignored2) -> id(ref, ids) > 0;
+            case Op.AddPos(int ref, MovementInSpace ignored) -> id(ref, ids) > 0;
+            case Op.RemoveRoot(int ref) -> id(ref, ids) > 0;
+            case Op.RemoveSubtree(int ref) -> id(ref, ids) > 0;
+            case Op.RemovePos(int ref, MovementInSpace ignored) -> id(ref, ids) > 0;
+        };
+    }
+
+    /**
+     * Escribe en el archivo los registros añadidos hasta ahora y espera a que estén en el disco. Si ya no
+     * queda ninguna operación por aplicar y el archivo es grande, lo vacía.
+     *
+     * @throws IOException si falla la escritura.
+     */
+    public void sync() throws IOException {
+        synchronized (io) {
+            byte[] bytes;
+            boolean compact;
+            synchronized (this) {
+                bytes = buffer.toByteArray();
+                buffer = new ByteArrayOutputStream();
+                compact = appliedSeq == seq && recovered.isEmpty() && refs.isEmpty()
+                        && channel.position() + bytes.length > COMPACT_BYTES;
+            }
+            if (compact) {
+                // Todo lo registrado hasta ahora está aplicado, así que no hace falta conservarlo.
+                channel.truncate(0);
+                channel.position(0);
+                channel.force(false);
+                return;
+            }
+            if (bytes.length == 0) return;
+
+            long start = System.nanoTime();
+            var data = ByteBuffer.wrap(bytes);
+            while (data.hasRemaining()) channel.write(data);
+            channel.force(false);
+            long nanos = System.nanoTime() - start;
+
+            synchronized (this) {
+                syncs++;
+                syncedBytes += bytes.length;
+                maxSyncNanos = Math.max(maxSyncNanos, nanos);
+            }
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "OperationJournal[seq=%d, applied=%d, appended=%d, replayed=%d, syncs=%d, bytes=%d, maxSync=%.2fms]"
+                .formatted(seq, appliedSeq, appended, replayed, syncs, syncedBytes, maxSyncNanos / 1e6);
+    }
+
+    /**
+     * Detiene la sincronización periódica, escribe lo pendiente y cierra el archivo.
+     */
+    @Override
+    public void close() {
+        syncer.shutdownNow();
+        try {
+            sync();
+            channel.close();
+        } catch (IOException e) { System.err.println(e); }
+    }
+}
@@ -0,0 +1,505 @@
+package org.treefx.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Tiempos, filas y número de sentencias de todo lo que se envía a la base de datos a través de un
+ * {@link ConnectionPool}.
+ * <p>
+ * Cada conexión del conjunto se envuelve con {@link #instrument(Connection, Operation)}, de modo que
+ * cualquier sentencia que se prepare o se cree en ella se mide sin cambiar el código que la usa. Se
+ * mide a dos niveles:
+ * </p>
+ * <ul>
+ *     <li>Por sentencia, agrupando por su texto SQL: desde que se ejecuta hasta que se cierra su
+ *     resultado, incluida la lectura de las filas.</li>
+ *     <li>Por operación, es decir, por préstamo de una conexión: el método que la pidió (por ejemplo
+ *     {@code ConnectionDB.getZipTreeBulk}), cuántas sentencias ejecutó, cuántas filas leyó o escribió y
+ *     cuánto tiempo la tuvo.</li>
+ * </ul>
+ * <p>
+ * Cada grupo guarda un histograma de latencias en potencias de dos de microsegundos, del que salen
+ * los percentiles de {@link #toString()}. Las sentencias y operaciones también se emiten como eventos
+ * de JFR ({@code org.treefx.Query} y {@code org.treefx.Operation}), que solo cuestan algo si hay una
+ * grabación activa. Las sentencias que tardan al menos {@link #getSlowQueryMillis()} o que fallan se
+ * escriben en {@code System.err} con su SQL, sus parámetros y su duración, y se guardan las últimas
+ * {@link #SLOW_QUERIES}.
+ * </p>
+ */
+public class QueryMetrics {
+    /**
+     * Umbral de consulta lenta en milisegundos por defecto, que se puede cambiar con la propiedad
+     * {@code treefx.slowQueryMs}.
+     */
+    public static final long SLOW_QUERY_MS = Long.getLong("treefx.slowQueryMs", 100);
+    /**
+     * Número de consultas lentas que se guardan.
+     */
+    public static final int SLOW_QUERIES = 100;
+    /**
+     * Grupos que se muestran de cada nivel en {@link #toString()}.
+     */
+    private static final int REPORT_ROWS = 10;
+
+    private final ConcurrentHashMap<String, Histogram> statements = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Histogram> operations = new ConcurrentHashMap<>();
+    private final ArrayDeque<String> slowQueries = new ArrayDeque<>();
+    private volatile long slowNanos = SLOW_QUERY_MS * 1_000_000;
+
+    /**
+     * Histograma de latencias de un grupo de sentencias u operaciones, con sus contadores.
+     * <p>
+     * El cubo {@code i} cuenta las duraciones de menos de {@code 2^i} microsegundos que no caben en el
+     * anterior, así que un percentil es la cota superior de su cubo.
+     * </p>
+     */
+    public static class Histogram {
+        private static final int BUCKETS = 40;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder statements = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private void add(long nanos, long rows, long statements, boolean failed) {
+            long micros = nanos / 1000;
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+            this.buckets.incrementAndGet(bucket);
+            this.count.increment();
+            this.rows.add(rows);
+            this.statements.add(statements);
+            if (failed) this.errors.increment();
+            this.totalNanos.add(nanos);
+            this.maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * Filas leídas, o modificadas en el caso de las escrituras.
+         */
+        public long getRows() {
+            return rows.sum();
+        }
+
+        /**
+         * Sentencias ejecutadas, que en una operación son sus viajes al servidor.
+         */
+        public long getStatements() {
+            return statements.sum();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public double getTotalMillis() {
+            return totalNanos.sum() / 1e6;
+        }
+
+        public double getMaxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        /**
+         * Cota superior en milisegundos de la latencia del percentil {@code p}.
+         *
+         * @param p el percentil, entre 0 y 100.
+         */
+        public double getPercentileMillis(double p) {
+            long total = getCount();
+            if (total == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(total * p / 100));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) return Math.min((1L << i) / 1e3, getMaxMillis());
+            }
+            return getMaxMillis();
+        }
+    }
+
+    /**
+     * Préstamo de una conexión en curso: acumula las sentencias y filas de la operación que la tiene.
+     * Solo la usa el hilo que tiene la conexión.
+     */
+    public static class Operation {
+        private String name = "";
+        private long start;
+        private long statements;
+        private long rows;
+        private boolean failed;
+        private OperationEvent event;
+
+        /**
+         * Empieza una operación con el nombre del método que pidió la conexión.
+         */
+        public void begin(String name) {
+            this.name = name;
+            this.start = System.nanoTime();
+            this.statements = 0;
+            this.rows = 0;
+            this.failed = false;
+            this.event = new OperationEvent();
+            this.event.begin();
+        }
+    }
+
+    @Name("org.treefx.Query")
+    @Label("Consulta SQL")
+    @Category({"TreeFX", "JDBC"})
+    @Description("Una sentencia ejecutada, hasta que se cierra su resultado")
+    static class QueryEvent extends Event {
+        @Label("Operación")
+        String operation;
+        @Label("SQL")
+        String sql;
+        @Label("Parámetros")
+        String parameters;
+        @Label("Filas")
+        long rows;
+        @Label("Fallida")
+        boolean failed;
+    }
+
+    @Name("org.treefx.Operation")
+    @Label("Operación de base de datos")
+    @Category({"TreeFX", "JDBC"})
+    @Description("Un préstamo de una conexión del conjunto")
+    static class OperationEvent extends Event {
+        @Label("Operación")
+        String operation;
+        @Label("Sentencias")
+        long statements;
+        @Label("Filas")
+        long rows;
+        @Label("Fallida")
+        boolean failed;
+    }
+
+    /**
+     * Umbral a partir del cual una sentencia se considera lenta, en milisegundos.
+     */
+    public long getSlowQueryMillis() {
+        return slowNanos / 1_000_000;
+    }
+
+    /**
+     * Cambia el umbral de consulta lenta; con 0 se registran todas las sentencias.
+     *
+     * @param millis el umbral en milisegundos.
+     */
+    public void setSlowQueryMillis(long millis) {
+        this.slowNanos = millis * 1_000_000;
+    }
+
+    /**
+     * Las últimas consultas lentas o fallidas, de la más antigua a la más reciente.
+     */
+    public synchronized List<String> getSlowQueries() {
+        return new ArrayList<>(slowQueries);
+    }
+
+    /**
+     * Histogramas por texto SQL.
+     */
+    public Map<String, Histogram> getStatements() {
+        return statements;
+    }
+
+    /**
+     * Histogramas por operación, con el nombre del método que pidió la conexión.
+     */
+    public Map<String, Histogram> getOperations() {
+        return operations;
+    }
+
+    /**
+     * Envuelve una conexión para medir las sentencias que se preparen o se creen en ella. Los
+     * métodos que no son sentencias, como los de transacciones, pasan sin cambios.
+     *
+     * @param connection la conexión JDBC.
+     * @param operation  la operación a la que se suman las sentencias ejecutadas.
+     * @return la conexión envuelta.
+     */
+    public Connection instrument(Connection connection, Operation operation) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            Object result = invoke(connection, method, args);
+            return switch (method.getName()) {
+                case "prepareStatement" -> statement(PreparedStatement.class, (Statement) result, (String) args[0], operation);
+                case "prepareCall" -> statement(CallableStatement.class, (Statement) result, (String) args[0], operation);
+                case "createStatement" -> statement(Statement.class, (Statement) result, null, operation);
+                default -> result;
+            };
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+    }
+
+    /**
+     * Termina una operación y la suma a su histograma.
+     */
+    public void end(Operation operation) {
+        long nanos = System.nanoTime() - operation.start;
+        var event = operation.event;
+        if (operation.statements == 0) return;
+
+        operations.computeIfAbsent(operation.name, k -> new Histogram()).add(nanos, operation.rows, operation.statements, operation.failed);
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation.name;
+            event.statements = operation.statements;
+            event.rows = operation.rows;
+            event.failed = operation.failed;
+            event.commit();
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private <s extends Statement> s statement(Class<s> type, Statement statement, String sql, Operation operation) {
+        var handler = new StatementHandler(statement, sql, operation);
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    /**
+     * Mide las ejecuciones de una sentencia y guarda sus parámetros para el registro de consultas lentas.
+     * Una consulta queda abierta hasta que se cierra su resultado, se vuelve a ejecutar la sentencia o
+     * se cierra la sentencia.
+     */
+    private class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final String sql;
+        private final Operation operation;
+        private Object[] parameters = new Object[0];
+        private final Map<String, Object> named = new LinkedHashMap<>();
+        private int count = 0;
+        private int batch = 0;
+        private long executions = 0;
+
+        private String openSql;
+        private int openBatch;
+        private long openStart;
+        private long openRows;
+        private QueryEvent openEvent;
+
+        private StatementHandler(Statement statement, String sql, Operation operation) {
+            this.statement = statement;
+            this.sql = normalize(sql);
+            this.operation = operation;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                if (index > parameters.length) parameters = Arrays.copyOf(parameters, Math.max(index, parameters.length * 2));
+                if (index >= 1) parameters[index - 1] = name.equals("setNull") ? null : args[1];
+                count = Math.max(count, index);
+                return QueryMetrics.invoke(statement, method, args);
+            }
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof String parameter
+                    && statement instanceof CallableStatement) {
+                named.put(parameter, name.equals("setNull") ? null : args[1]);
+                return QueryMetrics.invoke(statement, method, args);
+            }
+            switch (name) {
+                case "clearParameters" -> {
+                    Arrays.fill(parameters, null);
+                    named.clear();
+                    count = 0;
+                }
+                case "addBatch" -> batch++;
+                case "clearBatch" -> batch = 0;
+                case "close" -> finish(false);
+                case "executeQuery", "execute", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch" -> {
+                    return execute(method, args);
+                }
+                default -> {}
+            }
+            return QueryMetrics.invoke(statement, method, args);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            finish(false);
+            this.executions++;
+            this.openSql = args != null && args.length > 0 && args[0] instanceof String text ? normalize(text) : this.sql;
+            this.openBatch = batch;
+            this.openRows = 0;
+            this.openEvent = new QueryEvent();
+            this.openEvent.begin();
+            this.openStart = System.nanoTime();
+            batch = 0;
+
+            Object result;
+            try {
+                result = QueryMetrics.invoke(statement, method, args);
+            } catch (Throwable e) {
+                finish(true);
+                throw e;
+            }
+
+            switch (result) {
+                case ResultSet rs -> { return results(rs); }
+                case Integer updated -> openRows = Math.max(0, updated);
+                case Long updated -> openRows = Math.max(0, updated);
+                case int[] updated -> { for (int rows : updated) openRows += rows == Statement.SUCCESS_NO_INFO ? 1 : Math.max(0, rows); }
+                case long[] updated -> { for (long rows : updated) openRows += rows == Statement.SUCCESS_NO_INFO ? 1 : Math.max(0, rows); }
+                default -> {}
+            }
+            finish(false);
+            return result;
+        }
+
+        /**
+         * Envuelve el resultado para contar sus filas. Si la sentencia ya se ha vuelto a ejecutar, el
+         * resultado pertenece a una consulta terminada y no cuenta.
+         */
+        private ResultSet results(ResultSet rs) {
+            long execution = this.executions;
+            InvocationHandler handler = (proxy, method, args) -> {
+                Object result = QueryMetrics.invoke(rs, method, args);
+                if (execution != this.executions) return result;
+                switch (method.getName()) {
+                    case "next" -> { if ((Boolean) result) openRows++; }
+                    case "close" -> finish(false);
+                    default -> {}
+                }
+                return result;
+            };
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class}, handler);
+        }
+
+        private void finish(boolean failed) {
+            if (openEvent == null) return;
+            long nanos = System.nanoTime() - openStart;
+            var event = openEvent;
+            openEvent = null;
+            record(operation, openSql, this::describe, nanos, openRows, failed, event);
+        }
+
+        /**
+         * Los parámetros de la última ejecución, que solo se escriben si hacen falta.
+         */
+        private String describe() {
+            var sb = new StringBuilder(openBatch > 0 ? "lote de " + openBatch + ", último [" : "[");
+            for (int i = 0; i < count; i++) {
+                if (i > 0) sb.append(", ");
+                sb.append(format(parameters[i]));
+            }
+            for (var parameter : named.entrySet()) {
+                if (sb.charAt(sb.length() - 1) != '[') sb.append(", ");
+                sb.append(parameter.getKey()).append('=').append(format(parameter.getValue()));
+            }
+            return sb.append(']').toString();
+        }
+    }
+
+    private void record(Operation operation, String sql, Supplier<String> parameters, long nanos, long rows, boolean failed, QueryEvent event) {
+        operation.statements++;
+        operation.rows += rows;
+        operation.failed |= failed;
+        statements.computeIfAbsent(sql, k -> new Histogram()).add(nanos, rows, 1, failed);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation.name;
+            event.sql = sql;
+            event.parameters = parameters.get();
+            event.rows = rows;
+            event.failed = failed;
+            event.commit();
+        }
+
+        if (failed || nanos >= slowNanos) {
+            String line = "%s (%.1f ms, %d filas) en %s: %s %s".formatted(
+                    failed ? "Consulta fallida" : "Consulta lenta", nanos / 1e6, rows, operation.name, sql, parameters.get());
+            System.err.println(line);
+            synchronized (this) {
+                if (slowQueries.size() == SLOW_QUERIES) slowQueries.removeFirst();
+                slowQueries.addLast(line);
+            }
+        }
+    }
+
+    private static String normalize(String sql) {
+        return sql == null ? "" : sql.strip().replaceAll("\\s+", " ");
+    }
+
+    private static String format(Object value) {
+        return switch (value) {
+            case null -> "NULL";
+            case String s -> "'" + s + "'";
+            case byte[] bytes when bytes.length <= 32 -> "0x" + HexFormat.of().formatHex(bytes);
+            case byte[] bytes -> "<" + bytes.length + " bytes>";
+            default -> String.valueOf(value);
+        };
+    }
+
+    private static String table(String title, Map<String, Histogram> groups) {
+        var sb = new StringBuilder("%n  %-60s %7s %9s %7s %10s %8s %8s %8s %8s".formatted(
+                title, "count", "rows", "errors", "total ms", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        groups.entrySet().stream()
+                .sorted(Comparator.comparingDouble((Map.Entry<String, Histogram> e) -> e.getValue().getTotalMillis()).reversed())
+                .limit(REPORT_ROWS)
+                .forEach(e -> {
+                    var h = e.getValue();
+                    String key = e.getKey().length() > 60 ? e.getKey().substring(0, 57) + "..." : e.getKey();
+                    sb.append("%n  %-60s %7d %9d %7d %10.1f %8.3f %8.3f %8.3f %8.3f".formatted(
+                            key, h.getCount(), h.getRows(), h.getErrors(), h.getTotalMillis(),
+                            h.getPercentileMillis(50), h.getPercentileMillis(95), h.getPercentileMillis(99), h.getMaxMillis()));
+                });
+        return sb.toString();
+    }
+
+    /**
+     * Resumen con las operaciones y las sentencias que más tiempo han ocupado.
+     */
+    @Override
+    public String toString() {
+        long count = statements.values().stream().mapToLong(Histogram::getCount).sum();
+        long rows = statements.values().stream().mapToLong(Histogram::getRows).sum();
+        long errors = statements.values().stream().mapToLong(Histogram::getErrors).sum();
+        double millis = statements.values().stream().mapToDouble(Histogram::getTotalMillis).sum();
+        return "QueryMetrics[statements=%d, rows=%d, errors=%d, elapsed=%.1fms, slow=%d]".formatted(count, rows, errors, millis, getSlowQueries().size())
+                + table("operation", operations)
+                + table("statement", statements);
+    }
+}
@@ -0,0 +1,180 @@
+package org.treefx.model;
+
+import org.treefx.model.ziptree.ZipTreeStrict;
+import org.treefx.utils.adt.Movement;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Exportación de un árbol a un documento JSON portable, escrito nodo a nodo.
+ * <p>
+ * El documento tiene la forma:
+ * </p>
+ * <pre>
+ * {"format":"treefx","version":1,"nodes":[
+ * {"id":1,"parent":null,"name":"...","imgURL":"...","x":100.0,"y":100.0,"movements":[{"x":0.5,"y":0.5,"path":["Down(1)"]}]},
+ * {"id":2,"parent":1,...}
+ * ]}
+ * </pre>
+ * <p>
+ * Cada nodo aparece después de su padre, y los hijos de un mismo padre en su orden, de modo que el
+ * árbol se puede reconstruir leyendo el documento de principio a fin. Las rutas de los movimientos usan
+ * la representación de {@link Movement#show(Movement)}.
+ * </p>
+ * <p>
+ * Nada del documento se guarda en memoria: cada nodo se escribe en cuanto llega, así que exportar
+ * cuesta la misma memoria sea cual sea el tamaño del árbol. Cuenta los nodos escritos y el tiempo
+ * transcurrido para dar el rendimiento en nodos por segundo. {@link TreeImport} lee el documento.
+ * </p>
+ */
+public class TreeExport implements Closeable {
+    /**
+     * Versión del formato del documento.
+     */
+    public static final int VERSION = 1;
+
+    private final BufferedWriter out;
+    private final long start;
+    private long nodes = 0;
+    private long elapsedNanos = -1;
+
+    /**
+     * Empieza el documento en {@code out}, que se cierra al cerrar la exportación.
+     *
+     * @param out el flujo de salida.
+     * @throws IOException si falla la escritura.
+     */
+    public TreeExport(OutputStream out) throws IOException {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        this.start = System.nanoTime();
+        this.out.write("{\"format\":\"treefx\",\"version\":" + VERSION + ",\"nodes\":[");
+    }
+
+    /**
+     * Escribe un nodo. Su padre debe haberse escrito antes.
+     *
+     * @param parentId el ID del padre, o -1 si es la raíz.
+     * @param nodeInfo la información del nodo.
+     * @throws IOException              si falla la escritura.
+     * @throws IllegalArgumentException si alguna coordenada es {@code NaN} o infinita, que JSON no admite.
+     */
+    public void node(int parentId, NodeInfo nodeInfo) throws IOException {
+        if (this.nodes > 0) this.out.write(',');
+        this.out.write("\n{\"id\":");
+        this.out.write(Integer.toString(nodeInfo.getId()));
+        this.out.write(",\"parent\":");
+        this.out.write(parentId < 0 ? "null" : Integer.toString(parentId));
+        this.out.write(",\"name\":");
+        string(nodeInfo.getName());
+        this.out.write(",\"imgURL\":");
+        string(nodeInfo.getImgURL());
+        this.out.write(",\"x\":");
+        number(nodeInfo.getPos().getX());
+        this.out.write(",\"y\":");
+        number(nodeInfo.getPos().getY());
+        this.out.write(",\"movements\":[");
+        boolean firstMovement = true;
+        for (MovementInSpace movementInSpace : nodeInfo.getChildren()) {
+            if (!firstMovement) this.out.write(',');
+            firstMovement = false;
+            this.out.write("{\"x\":");
+            number(movementInSpace.getPos().getX());
+            this.out.write(",\"y\":");
+            number(movementInSpace.getPos().getY());
+            this.out.write(",\"path\":[");
+            boolean firstStep = true;
+            for (Movement m : movementInSpace.getMovements()) {
+                if (!firstStep) this.out.write(',');
+                firstStep = false;
+                string(Movement.show(m));
+            }
+            this.out.write("]}");
+        }
+        this.out.write("]}");
+        this.nodes++;
+    }
+
+    private void number(double d) throws IOException {
+        if (!Double.isFinite(d)) throw new IllegalArgumentException("Coordenada no representable en JSON: " + d);
+        this.out.write(Double.toString(d));
+    }
+
+    private void string(String s) throws IOException {
+        if (s == null) {
+            this.out.write("null");
+            return;
+        }
+        this.out.write('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> this.out.write("\\\"");
+                case '\\' -> this.out.write("\\\\");
+                case '\n' -> this.out.write("\\n");
+                case '\r' -> this.out.write("\\r");
+                case '\t' -> this.out.write("\\t");
+                default -> {
+                    if (c < 0x20) this.out.write("\\u%04x".formatted((int) c));
+                    else this.out.write(c);
+                }
+            }
+        }
+        this.out.write('"');
+    }
+
+    /**
+     * Escribe todos los nodos de un árbol en preorden con {@link TreeImport#preorder(ZipTreeStrict)}, que
+     * solo guarda un enlace por nivel, así que la memoria depende de la profundidad del árbol y no de su
+     * tamaño.
+     *
+     * @param zipTree el árbol; todos sus nodos deben tener ya su ID definitivo.
+     * @throws IOException si falla la escritura.
+     */
+    public void tree(ZipTreeStrict<NodeInfo> zipTree) throws IOException {
+        var nodes = TreeImport.preorder(zipTree);
+        while (nodes.hasNext()) {
+            var node = nodes.next();
+            node(node.parentId(), node.nodeInfo());
+        }
+    }
+
+    /**
+     * Número de nodos escritos.
+     */
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Nodos escritos por segundo, hasta ahora o hasta el cierre.
+     */
+    public double getNodesPerSecond() {
+        long nanos = this.elapsedNanos >= 0 ? this.elapsedNanos : System.nanoTime() - this.start;
+        return nanos == 0 ? 0 : this.nodes * 1e9 / nanos;
+    }
+
+    /**
+     * Termina el documento y cierra el flujo.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.elapsedNanos >= 0) return;
+        try {
+            this.out.write("\n]}\n");
+        } finally {
+            this.out.close();
+            this.elapsedNanos = System.nanoTime() - this.start;
+        }
+    }
+
+    @Override
+    public String toString() {
+        long nanos = this.elapsedNanos >= 0 ? this.elapsedNanos : System.nanoTime() - this.start;
+        return "TreeExport[nodes=%d, elapsed=%.2fms, rate=%.0f nodes/s]".formatted(this.nodes, nanos / 1e6, getNodesPerSecond());
+    }
+}
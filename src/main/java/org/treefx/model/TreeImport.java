@@ -0,0 +1,320 @@
+package org.treefx.model;
+
+import javafx.geometry.Point2D;
+import org.treefx.model.ziplist.NodeLinkList;
+import org.treefx.model.ziptree.TreeCtxStrict;
+import org.treefx.model.ziptree.ZipTreeStrict;
+import org.treefx.utils.adt.Maybe;
+import org.treefx.utils.adt.Movement;
+import org.treefx.utils.adt.T;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Lectura nodo a nodo de un documento escrito por {@link TreeExport}, para importarlo con
+ * {@link TreeStore#importTree(String, Iterator)}.
+ * <p>
+ * Se comporta como un iterador de {@link Node}: lee la cabecera al crearse y cada nodo cuando se pide,
+ * así que la memoria no depende del tamaño del documento. Los errores de lectura se lanzan como
+ * {@link UncheckedIOException} y los de formato como {@link IllegalArgumentException}.
+ * </p>
+ * <p>
+ * Para copiar un árbol desde otro almacenamiento, {@link #preorder(ZipTreeStrict)} da sus nodos en el
+ * mismo orden sin pasar por un documento.
+ * </p>
+ */
+public class TreeImport implements Iterator<TreeImport.Node>, Closeable {
+    /**
+     * Un nodo leído, con los IDs que tenía en el árbol de origen.
+     *
+     * @param id       el ID del nodo en el origen.
+     * @param parentId el ID del padre en el origen, o -1 si es la raíz.
+     * @param nodeInfo la información del nodo, con sus movimientos espaciales.
+     */
+    public record Node(int id, int parentId, NodeInfo nodeInfo) {}
+
+    private final Reader in;
+    /**
+     * Caracteres leídos de {@link #in} que aún no se han consumido, de {@link #pos} a {@link #len}.
+     */
+    private final char[] buffer = new char[1 << 16];
+    private int pos = 0;
+    private int len = 0;
+    private final long start;
+    private long nodes = 0;
+    private long elapsedNanos = -1;
+    private boolean done = false;
+
+    /**
+     * Lee la cabecera del documento.
+     *
+     * @param in el flujo de entrada, que se cierra al cerrar la lectura.
+     * @throws IOException              si falla la lectura.
+     * @throws IllegalArgumentException si no es un documento de {@link TreeExport} o su versión es posterior.
+     */
+    public TreeImport(InputStream in) throws IOException {
+        this.in = new InputStreamReader(in, StandardCharsets.UTF_8);
+        this.start = System.nanoTime();
+
+        expect('{');
+        boolean format = false;
+        while (true) {
+            String key = readString();
+            expect(':');
+            if (key.equals("nodes")) break;
+            Object value = readValue();
+            switch (key) {
+                case "format" -> format = "treefx".equals(value);
+                case "version" -> {
+                    if (!(value instanceof Double version) || version > TreeExport.VERSION) throw invalid("versión " + value);
+                }
+                default -> {}
+            }
+            expect(',');
+        }
+        if (!format) throw invalid("falta \"format\":\"treefx\"");
+        expect('[');
+        if (peek() == ']') finish();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !this.done;
+    }
+
+    @Override
+    public Node next() {
+        if (this.done) throw new NoSuchElementException();
+        try {
+            if (this.nodes > 0) expect(',');
+            var node = toNode(readValue());
+            this.nodes++;
+            if (peek() == ']') finish();
+            return node;
+        } catch (IOException e) { throw new UncheckedIOException(e); }
+    }
+
+    private void finish() throws IOException {
+        expect(']');
+        expect('}');
+        this.done = true;
+    }
+
+    private static Node toNode(Object value) {
+        if (!(value instanceof Map<?, ?> node)) throw invalid("se esperaba un nodo");
+
+        var movements = new LinkedList<MovementInSpace>();
+        if (node.get("movements") instanceof List<?> list) {
+            for (Object item : list) {
+                if (!(item instanceof Map<?, ?> movement) || !(movement.get("path") instanceof List<?> path)) throw invalid("movimiento " + item);
+                var steps = new LinkedList<Movement>();
+                for (Object step : path) steps.add(Movement.read(String.valueOf(step)));
+                movements.add(new MovementInSpace(new Point2D(number(movement, "x"), number(movement, "y")), steps));
+            }
+        }
+
+        int id = (int) number(node, "id");
+        int parentId = node.get("parent") == null ? -1 : (int) number(node, "parent");
+        var nodeInfo = new NodeInfo(id, text(node, "name"), text(node, "imgURL"), new Point2D(number(node, "x"), number(node, "y")), movements);
+        return new Node(id, parentId, nodeInfo);
+    }
+
+    private static double number(Map<?, ?> object, String key) {
+        if (object.get(key) instanceof Double d) return d;
+        throw invalid("\"" + key + "\" debe ser un número");
+    }
+
+    private static String text(Map<?, ?> object, String key) {
+        return object.get(key) instanceof String s ? s : "";
+    }
+
+    private Object readValue() throws IOException {
+        return switch (peek()) {
+            case '{' -> {
+                expect('{');
+                var object = new HashMap<String, Object>();
+                if (peek() == '}') { expect('}'); yield object; }
+                do {
+                    String key = readString();
+                    expect(':');
+                    object.put(key, readValue());
+                } while (accept(','));
+                expect('}');
+                yield object;
+            }
+            case '[' -> {
+                expect('[');
+                var array = new ArrayList<>();
+                if (peek() == ']') { expect(']'); yield array; }
+                do { array.add(readValue()); } while (accept(','));
+                expect(']');
+                yield array;
+            }
+            case '"' -> readString();
+            case 'n' -> { word("null"); yield null; }
+            case 't' -> { word("true"); yield true; }
+            case 'f' -> { word("false"); yield false; }
+            default -> readNumber();
+        };
+    }
+
+    private String readString() throws IOException {
+        expect('"');
+        var sb = new StringBuilder();
+        while (true) {
+            int c = read();
+            if (c == '"') return sb.toString();
+            if (c != '\\') { sb.append((char) c); continue; }
+            int e = read();
+            switch (e) {
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'u' -> {
+                    var hex = new char[4];
+                    for (int i = 0; i < 4; i++) hex[i] = (char) read();
+                    sb.append((char) Integer.parseInt(new String(hex), 16));
+                }
+                default -> sb.append((char) e);
+            }
+        }
+    }
+
+    private Double readNumber() throws IOException {
+        var sb = new StringBuilder();
+        int c;
+        while ((c = readOrEnd()) != -1 && "+-0123456789.eE".indexOf(c) >= 0) sb.append((char) c);
+        if (c != -1) this.pos--;
+        try { return Double.parseDouble(sb.toString()); }
+        catch (NumberFormatException e) { throw invalid("número \"" + sb + "\""); }
+    }
+
+    private void word(String word) throws IOException {
+        for (int i = 0; i < word.length(); i++) if (read() != word.charAt(i)) throw invalid("se esperaba " + word);
+    }
+
+    private int readOrEnd() throws IOException {
+        if (this.pos == this.len) {
+            this.len = this.in.read(this.buffer);
+            this.pos = 0;
+            if (this.len <= 0) {
+                this.len = 0;
+                return -1;
+            }
+        }
+        return this.buffer[this.pos++];
+    }
+
+    private int read() throws IOException {
+        int c = readOrEnd();
+        if (c == -1) throw invalid("fin inesperado del documento");
+        return c;
+    }
+
+    /**
+     * Siguiente carácter que no es un espacio, sin consumirlo.
+     */
+    private int peek() throws IOException {
+        int c;
+        do { c = read(); } while (Character.isWhitespace(c));
+        this.pos--;
+        return c;
+    }
+
+    private boolean accept(char expected) throws IOException {
+        if (peek() != expected) return false;
+        read();
+        return true;
+    }
+
+    private void expect(char expected) throws IOException {
+        if (!accept(expected)) throw invalid("se esperaba '" + expected + "'");
+    }
+
+    private static IllegalArgumentException invalid(String detail) {
+        return new IllegalArgumentException("Documento de exportación no válido: " + detail);
+    }
+
+    /**
+     * Nodos de un árbol en preorden, con el mismo orden y los mismos datos que se exportan, siguiendo los
+     * enlaces de cada lista de hijos sin mover sus cursores. Solo guarda un enlace por nivel.
+     *
+     * @param zipTree el árbol; todos sus nodos deben tener ya su ID definitivo.
+     * @return los nodos del árbol, empezando por la raíz.
+     */
+    public static Iterator<Node> preorder(ZipTreeStrict<NodeInfo> zipTree) {
+        var root = zipTree.getRoot();
+        var pending = new ArrayDeque<NodeLinkList<T<NodeInfo, TreeCtxStrict<NodeInfo>>>>();
+
+        return new Iterator<>() {
+            private boolean rootDone = false;
+
+            @Override
+            public boolean hasNext() {
+                return !this.rootDone || !pending.isEmpty();
+            }
+
+            @Override
+            public Node next() {
+                if (!this.rootDone) {
+                    this.rootDone = true;
+                    if (root.getChildren().getHead() != null) pending.push(root.getChildren().getHead());
+                    return new Node(root.getValue().getId(), -1, root.getValue());
+                }
+                if (pending.isEmpty()) throw new NoSuchElementException();
+
+                var link = pending.pop();
+                var ctx = link.getCurrent().snd();
+                if (link.getAfter() instanceof Maybe.Just(NodeLinkList<T<NodeInfo, TreeCtxStrict<NodeInfo>>> after)) pending.push(after);
+                if (ctx.getChildren().getHead() != null) pending.push(ctx.getChildren().getHead());
+                return new Node(ctx.getValue().getId(), ctx.getFather().fromJust().getValue().getId(), ctx.getValue());
+            }
+        };
+    }
+
+    /**
+     * Número de nodos leídos.
+     */
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Nodos leídos por segundo, hasta ahora o hasta el cierre.
+     */
+    public double getNodesPerSecond() {
+        long nanos = this.elapsedNanos >= 0 ? this.elapsedNanos : System.nanoTime() - this.start;
+        return nanos == 0 ? 0 : this.nodes * 1e9 / nanos;
+    }
+
+    /**
+     * Cierra el flujo de entrada.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.elapsedNanos < 0) this.elapsedNanos = System.nanoTime() - this.start;
+        this.in.close();
+    }
+
+    @Override
+    public String toString() {
+        long nanos = this.elapsedNanos >= 0 ? this.elapsedNanos : System.nanoTime() - this.start;
+        return "TreeImport[nodes=%d, elapsed=%.2fms, rate=%.0f nodes/s]".formatted(this.nodes, nanos / 1e6, getNodesPerSecond());
+    }
+}
@@ -0,0 +1,292 @@
+package org.treefx.model;
+
+import javafx.geometry.Point2D;
+import org.treefx.model.ziplist.NodeLinkList;
+import org.treefx.model.ziptree.PersistentTree;
+import org.treefx.model.ziptree.TreeCtxStrict;
+import org.treefx.model.ziptree.ZipTreePersistent;
+import org.treefx.model.ziptree.ZipTreeStrict;
+import org.treefx.utils.adt.Maybe;
+import org.treefx.utils.adt.Movement;
+import org.treefx.utils.adt.T;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Copia binaria de un árbol completo en un archivo, para abrirlo sin consultar la base de datos.
+ * <p>
+ * El archivo se proyecta en memoria con {@link FileChannel#map} y el {@link ZipTreeStrict} se construye
+ * directamente desde el buffer. Todos los números son little-endian:
+ * </p>
+ * <ul>
+ *     <li>Cabecera de {@value #HEADER_SIZE} bytes: {@link #MAGIC}, versión del formato, ID de la raíz,
+ *     número de nodos, versión del árbol ({@link TreeStore#getTreeVersion(int)}), desplazamiento y tamaño
+ *     de la tabla de cadenas y de la sección de movimientos, y el CRC32 de todo lo que sigue a la cabecera.</li>
+ *     <li>Un registro de {@value #NODE_SIZE} bytes por nodo, en orden de anchura: ID, índice del registro
+ *     del padre (-1 en la raíz), desplazamiento y longitud del nombre y de la URL de la imagen en la tabla
+ *     de cadenas, posición, y desplazamiento y número de sus movimientos espaciales.</li>
+ *     <li>La tabla de cadenas en UTF-8, con cada cadena distinta una sola vez.</li>
+ *     <li>Los movimientos espaciales: posición, longitud de la ruta y la ruta codificada con
+ *     {@link Movement#encode}.</li>
+ * </ul>
+ * <p>
+ * Una copia solo se usa si su versión coincide con la del árbol en la base de datos; si no, se ignora
+ * y se vuelve a escribir después de leer el árbol.
+ * </p>
+ */
+public final class TreeSnapshot {
+    /**
+     * Primeros bytes de todo archivo de copia, "TFXS".
+     */
+    public static final int MAGIC = 0x53584654;
+    /**
+     * Versión del formato; una copia con otra versión se ignora.
+     */
+    public static final short FORMAT = 1;
+    public static final int HEADER_SIZE = 48;
+    public static final int NODE_SIZE = 48;
+    private static final int MOVE_HEADER_SIZE = 20;
+
+    private TreeSnapshot() {}
+
+    /**
+     * Obtiene el archivo de copia de un árbol dentro de un directorio.
+     *
+     * @param dir    el directorio de las copias.
+     * @param rootId el ID del nodo raíz del árbol.
+     * @return la ruta del archivo, exista o no.
+     */
+    public static Path path(Path dir, int rootId) {
+        return dir.resolve("tree-" + rootId + ".snap");
+    }
+
+    /**
+     * Escribe la copia de un árbol completo, sin mover su contexto actual. Se escribe en un archivo
+     * temporal que después sustituye al anterior, de modo que nunca queda una copia a medias.
+     *
+     * @param file    el archivo de copia.
+     * @param zipTree el árbol; todos sus nodos deben tener ya su ID definitivo.
+     * @param version la versión del árbol en la base de datos.
+     * @throws IOException si falla la escritura.
+     */
+    public static void write(Path file, ZipTreeStrict<NodeInfo> zipTree, long version) throws IOException {
+        var nodes = new ArrayList<TreeCtxStrict<NodeInfo>>();
+        var parents = new ArrayList<Integer>();
+        nodes.add(zipTree.getRoot());
+        parents.add(-1);
+        // Recorrido en anchura siguiendo los enlaces de cada lista de hijos, sin mover sus cursores.
+        for (int ix = 0; ix < nodes.size(); ix++) {
+            var child = nodes.get(ix).getChildren().getHead();
+            while (child != null) {
+                nodes.add(child.getCurrent().snd());
+                parents.add(ix);
+                child = child.getAfter() instanceof Maybe.Just(NodeLinkList<T<NodeInfo, TreeCtxStrict<NodeInfo>>> after) ? after : null;
+            }
+        }
+        write(file, nodes.stream().map(TreeCtxStrict::getValue).toList(), parents, version);
+    }
+
+    /**
+     * Escribe la copia de una versión congelada de un árbol, como la de
+     * {@link ZipTreePersistent#of(ZipTreeStrict, java.util.function.UnaryOperator)}. Al ser inmutable,
+     * puede escribirse desde otro hilo mientras el árbol original se sigue editando.
+     *
+     * @param file    el archivo de copia.
+     * @param tree    la raíz del árbol; todos sus nodos deben tener ya su ID definitivo.
+     * @param version la versión del árbol en la base de datos.
+     * @throws IOException si falla la escritura.
+     */
+    public static void write(Path file, PersistentTree<NodeInfo> tree, long version) throws IOException {
+        var nodes = new ArrayList<PersistentTree<NodeInfo>>();
+        var parents = new ArrayList<Integer>();
+        nodes.add(tree);
+        parents.add(-1);
+        for (int ix = 0; ix < nodes.size(); ix++) {
+            for (var child : nodes.get(ix).children()) {
+                nodes.add(child);
+                parents.add(ix);
+            }
+        }
+        write(file, nodes.stream().map(PersistentTree::value).toList(), parents, version);
+    }
+
+    /**
+     * Escribe los nodos ya recorridos en orden de anchura, con el índice del padre de cada uno.
+     */
+    private static void write(Path file, List<NodeInfo> nodes, List<Integer> parents, long version) throws IOException {
+        var strings = new ByteArrayOutputStream();
+        var stringOffsets = new HashMap<String, Integer>();
+        var moves = new ByteArrayOutputStream();
+        var records = ByteBuffer.allocate(nodes.size() * NODE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        for (int ix = 0; ix < nodes.size(); ix++) {
+            NodeInfo nodeInfo = nodes.get(ix);
+            byte[] name = nodeInfo.getName().getBytes(StandardCharsets.UTF_8);
+            byte[] imgURL = nodeInfo.getImgURL().getBytes(StandardCharsets.UTF_8);
+
+            records.putInt(nodeInfo.getId());
+            records.putInt(parents.get(ix));
+            records.putInt(stringOffset(strings, stringOffsets, nodeInfo.getName(), name)).putInt(name.length);
+            records.putInt(stringOffset(strings, stringOffsets, nodeInfo.getImgURL(), imgURL)).putInt(imgURL.length);
+            records.putDouble(nodeInfo.getPos().getX()).putDouble(nodeInfo.getPos().getY());
+            records.putInt(moves.size()).putInt(nodeInfo.getChildren().size());
+
+            for (MovementInSpace movementInSpace : nodeInfo.getChildren()) {
+                byte[] path = Movement.encode(movementInSpace.getMovements());
+                moves.writeBytes(ByteBuffer.allocate(MOVE_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+                        .putDouble(movementInSpace.getPos().getX())
+                        .putDouble(movementInSpace.getPos().getY())
+                        .putInt(path.length)
+                        .array());
+                moves.writeBytes(path);
+            }
+        }
+
+        int stringsOffset = HEADER_SIZE + records.capacity();
+        int movesOffset = stringsOffset + strings.size();
+        var body = ByteBuffer.allocate(movesOffset + moves.size() - HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        body.put(records.flip()).put(strings.toByteArray()).put(moves.toByteArray()).flip();
+
+        var crc = new CRC32();
+        crc.update(body.duplicate());
+
+        var header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(MAGIC)
+                .putShort(FORMAT)
+                .putShort((short) 0)
+                .putInt(nodes.getFirst().getId())
+                .putInt(nodes.size())
+                .putLong(version)
+                .putInt(stringsOffset)
+                .putInt(strings.size())
+                .putInt(movesOffset)
+                .putInt(moves.size())
+                .putInt((int) crc.getValue())
+                .putInt(0)
+                .flip();
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (var channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (header.hasRemaining()) channel.write(header);
+            while (body.hasRemaining()) channel.write(body);
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int stringOffset(ByteArrayOutputStream strings, HashMap<String, Integer> offsets, String s, byte[] bytes) {
+        return offsets.computeIfAbsent(s, k -> {
+            int offset = strings.size();
+            strings.writeBytes(bytes);
+            return offset;
+        });
+    }
+
+    /**
+     * Lee la copia de un árbol si existe, está completa y corresponde a la versión indicada.
+     *
+     * @param file    el archivo de copia.
+     * @param rootId  el ID del nodo raíz del árbol.
+     * @param version la versión actual del árbol en la base de datos.
+     * @return el árbol, situado en la raíz, o {@code Nothing} si no hay una copia válida de esa versión.
+     */
+    public static Maybe<ZipTreeStrict<NodeInfo>> read(Path file, int rootId, long version) {
+        if (version < 0 || !Files.isRegularFile(file)) return new Maybe.Nothing<>();
+
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) throw new IOException("Tamaño de copia inválido: " + file);
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.getInt(0) != MAGIC || buffer.getShort(4) != FORMAT || buffer.getInt(8) != rootId) return new Maybe.Nothing<>();
+            if (buffer.getLong(16) != version) return new Maybe.Nothing<>();
+
+            int nodeCount = buffer.getInt(12);
+            int stringsOffset = buffer.getInt(24);
+            int movesOffset = buffer.getInt(32);
+            int end = movesOffset + buffer.getInt(36);
+            if (nodeCount <= 0 || stringsOffset != HEADER_SIZE + nodeCount * NODE_SIZE
+                    || movesOffset != stringsOffset + buffer.getInt(28) || end != buffer.capacity())
+                throw new IOException("Cabecera de copia inválida: " + file);
+
+            var crc = new CRC32();
+            crc.update(buffer.slice(HEADER_SIZE, end - HEADER_SIZE));
+            if ((int) crc.getValue() != buffer.getInt(40)) throw new IOException("CRC de copia inválido: " + file);
+
+            return new Maybe.Just<>(build(buffer, nodeCount, stringsOffset, movesOffset));
+        } catch (IOException | RuntimeException e) {
+            System.err.println(e);
+            return new Maybe.Nothing<>();
+        }
+    }
+
+    /**
+     * Construye el árbol desde los registros de nodos. Como están en orden de anchura, el padre de cada
+     * nodo ya está en el árbol cuando se inserta, igual que en {@link ConnectionDB#getZipTreeBulk(int)}.
+     */
+    private static ZipTreeStrict<NodeInfo> build(ByteBuffer buffer, int nodeCount, int stringsOffset, int movesOffset) {
+        var ctxs = new ArrayList<TreeCtxStrict<NodeInfo>>(nodeCount);
+        var strings = new HashMap<Integer, String>();
+        ZipTreeStrict<NodeInfo> zipTree = null;
+
+        for (int ix = 0; ix < nodeCount; ix++) {
+            int record = HEADER_SIZE + ix * NODE_SIZE;
+            int parent = buffer.getInt(record + 4);
+            String name = string(buffer, strings, stringsOffset + buffer.getInt(record + 8), buffer.getInt(record + 12));
+            String imgURL = string(buffer, strings, stringsOffset + buffer.getInt(record + 16), buffer.getInt(record + 20));
+            var pos = new Point2D(buffer.getDouble(record + 24), buffer.getDouble(record + 32));
+
+            var moves = new LinkedList<MovementInSpace>();
+            int move = movesOffset + buffer.getInt(record + 40);
+            for (int m = buffer.getInt(record + 44); m > 0; m--) {
+                int length = buffer.getInt(move + 16);
+                var movementInSpace = new MovementInSpace(
+                        new Point2D(buffer.getDouble(move), buffer.getDouble(move + 8)),
+                        Movement.decode(buffer.slice(move + MOVE_HEADER_SIZE, length)));
+                moves.add(movementInSpace);
+                move += MOVE_HEADER_SIZE + length;
+            }
+
+            var nodeInfo = new NodeInfo(buffer.getInt(record), name, imgURL, pos, moves);
+            if (zipTree == null) {
+                if (parent != -1) throw new IllegalStateException("El primer registro de la copia no es la raíz");
+                zipTree = new ZipTreeStrict<>(nodeInfo);
+                ctxs.add(zipTree.getCtx());
+            } else {
+                if (parent < 0 || parent >= ix) throw new IllegalStateException("Padre inválido en el registro " + ix);
+                var fatherCtx = ctxs.get(parent);
+                zipTree.setCtx(fatherCtx);
+                zipTree.insertChild(nodeInfo);
+                ctxs.add(fatherCtx.getChildren().getLast().getCurrent().snd());
+            }
+        }
+
+        zipTree.toRoot();
+        return zipTree;
+    }
+
+    /**
+     * Decodifica una cadena de la tabla, compartiendo la misma instancia entre los nodos que la repiten.
+     */
+    private static String string(ByteBuffer buffer, HashMap<Integer, String> strings, int offset, int length) {
+        return strings.computeIfAbsent(offset, k -> {
+            byte[] bytes = new byte[length];
+            buffer.get(offset, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        });
+    }
+}
@@ -0,0 +1,264 @@
+package org.treefx.model;
+
+import javafx.geometry.Point2D;
+import org.treefx.model.ziptree.ZipTreeLazy;
+import org.treefx.model.ziptree.ZipTreeStrict;
+import org.treefx.utils.adt.Maybe;
+import org.treefx.utils.adt.T;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * Almacenamiento persistente de los árboles: raíces, nodos, jerarquía y movimientos espaciales.
+ * <p>
+ * {@link ConnectionDB} lo implementa sobre MySQL y {@link LocalTreeStore} sobre archivos locales.
+ * Los IDs los asigna el almacenamiento al insertar; los hijos de un nodo se devuelven siempre
+ * ordenados por ID, que es el orden en que se insertaron.
+ * </p>
+ */
+public interface TreeStore {
+    /**
+     * @return {@code true} si el almacenamiento está disponible.
+     */
+    boolean success();
+
+    /**
+     * Obtiene todos los nodos raíz.
+     *
+     * @return una lista enlazada con las raíces, cada una representada por su ID y nombre.
+     */
+    LinkedList<T<Integer, String>> getAllRoots();
+
+    /**
+     * Obtiene una página de raíces cuyo nombre empieza por {@code prefix}, ordenadas por nombre sin
+     * distinguir mayúsculas y, a igual nombre, por ID. La paginación es por clave: la página empieza
+     * justo después de {@code after}, así que su coste no depende de cuántas páginas haya antes.
+     *
+     * @param prefix el principio del nombre, o la cadena vacía para todas las raíces.
+     * @param after  la última raíz de la página anterior, o {@code Nothing} para la primera página.
+     * @param limit  el número máximo de raíces de la página.
+     * @return las raíces de la página, cada una representada por su ID y nombre, en orden.
+     */
+    LinkedList<T<Integer, String>> getRootsPage(String prefix, Maybe<T<Integer, String>> after, int limit);
+
+    /**
+     * Inserta un nodo raíz.
+     *
+     * @param name el nombre del nodo raíz que se desea insertar.
+     * @return el ID del nodo raíz recién insertado, o -1 si ocurre un error.
+     */
+    int insertRoot(String name);
+
+    /**
+     * Elimina un nodo raíz junto con todos sus descendientes.
+     *
+     * @param root_id el ID del nodo raíz que se desea eliminar.
+     * @return 0, o -1 si ocurre un error.
+     */
+    int removeRoot(int root_id);
+
+    /**
+     * Inserta un nodo hijo.
+     *
+     * @param position la posición del nodo hijo.
+     * @param parentId el ID del nodo padre.
+     * @return el ID del nodo hijo recién insertado, o -1 si ocurre un error.
+     */
+    int insertChild(Point2D position, int parentId);
+
+    /**
+     * Elimina un nodo que no es raíz junto con todos sus descendientes y sus movimientos.
+     *
+     * @param id el ID del nodo.
+     * @return el número de nodos eliminados, o -1 si ocurre un error.
+     */
+    int removeSubtree(int id);
+
+    /**
+     * Actualiza la posición de un nodo.
+     *
+     * @param id       el ID del nodo que se desea actualizar.
+     * @param position la nueva posición del nodo.
+     * @return {@code false} si ocurre un error.
+     */
+    boolean updateNodeInfo(int id, Point2D position);
+
+    /**
+     * Actualiza el nombre y la URL de la imagen de un nodo.
+     *
+     * @param id       el ID del nodo que se desea actualizar.
+     * @param name     el nuevo nombre del nodo.
+     * @param imageURL la nueva URL de la imagen del nodo.
+     * @return {@code false} si ocurre un error.
+     */
+    boolean updateNodeInfo(int id, String name, String imageURL);
+
+    /**
+     * Escribe varias actualizaciones de nodos de una vez, incluidos sus movimientos nuevos.
+     *
+     * @param updates las actualizaciones, como mucho una por nodo.
+     * @return {@code false} si ocurre un error al escribir alguna.
+     */
+    boolean updateNodeInfos(Collection<NodeUpdate> updates);
+
+    /**
+     * Obtiene la información de un nodo a partir de su ID, con sus movimientos espaciales.
+     *
+     * @param id el ID del nodo.
+     * @return la información del nodo, o {@code null} si no se encuentra.
+     */
+    NodeInfo getNodeInfo(int id);
+
+    /**
+     * Añade un movimiento espacial a un nodo.
+     *
+     * @param node_id         el ID del nodo al cual se le agrega el movimiento.
+     * @param movementInSpace la posición y la ruta del movimiento.
+     * @return {@code false} si ocurre un error.
+     */
+    boolean insertMovementInSpace(int node_id, MovementInSpace movementInSpace);
+
+    /**
+     * Quita de un nodo el último movimiento espacial añadido con la misma posición y la misma ruta.
+     *
+     * @param node_id         el ID del nodo.
+     * @param movementInSpace la posición y la ruta del movimiento.
+     * @return {@code false} si ocurre un error; no encontrar el movimiento no es un error.
+     */
+    boolean removeMovementInSpace(int node_id, MovementInSpace movementInSpace);
+
+    /**
+     * Obtiene los movimientos espaciales de un nodo.
+     *
+     * @param id el ID del nodo.
+     * @return una lista enlazada de los movimientos espaciales.
+     */
+    LinkedList<MovementInSpace> getChildrenMoves(int id);
+
+    /**
+     * Obtiene el árbol completo con raíz en un nodo.
+     *
+     * @param id el ID del nodo raíz del árbol.
+     * @return el árbol, situado en la raíz, o {@code null} si no existe la raíz.
+     */
+    ZipTreeStrict<NodeInfo> getZipTree(int id);
+
+    /**
+     * Indica si {@link #getZipTree(int)} devolvería el árbol desde memoria, sin leerlo del almacenamiento.
+     *
+     * @param id el ID del nodo raíz del árbol.
+     * @return {@code true} si el árbol ya está en memoria.
+     * @see CachedTreeStore
+     */
+    default boolean hasZipTreeInMemory(int id) {
+        return false;
+    }
+
+    /**
+     * Escribe un árbol completo en una exportación, nodo a nodo. Por defecto lee el árbol con
+     * {@link #getZipTree(int)}; {@link ConnectionDB} lo recorre directamente con un cursor, sin
+     * construirlo en memoria.
+     *
+     * @param id     el ID del nodo raíz del árbol.
+     * @param export la exportación, que no se cierra.
+     * @return el número de nodos escritos, o -1 si no existe la raíz u ocurre un error.
+     */
+    default long exportTree(int id, TreeExport export) {
+        var zipTree = getZipTree(id);
+        if (zipTree == null) return -1;
+        try {
+            export.tree(zipTree);
+            return export.getNodes();
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(e);
+            return -1;
+        }
+    }
+
+    /**
+     * Crea un árbol nuevo con los nodos indicados, que deben llegar cada uno después de su padre, como en
+     * un documento de {@link TreeExport}. Los IDs del origen se sustituyen por los nuevos; las rutas de
+     * los movimientos espaciales son relativas y se guardan tal cual.
+     * <p>
+     * Por defecto inserta los nodos uno a uno y escribe sus datos al final con
+     * {@link #updateNodeInfos(Collection)}; si algo falla, borra lo insertado. {@link ConnectionDB} lo
+     * hace por lotes en una sola transacción.
+     * </p>
+     *
+     * @param name  el nombre del árbol.
+     * @param nodes los nodos, empezando por la raíz.
+     * @return el ID de la nueva raíz, o -1 si no hay nodos u ocurre un error.
+     */
+    default int importTree(String name, Iterator<TreeImport.Node> nodes) {
+        var ids = new HashMap<Integer, Integer>();
+        var updates = new LinkedList<NodeUpdate>();
+        int rootId = -1;
+        try {
+            while (nodes.hasNext()) {
+                var node = nodes.next();
+                var nodeInfo = node.nodeInfo();
+                int id;
+                if (rootId < 0) {
+                    id = rootId = insertRoot(name);
+                    if (id < 0) return -1;
+                } else {
+                    Integer fatherId = ids.get(node.parentId());
+                    if (fatherId == null) throw new IllegalArgumentException("El nodo " + node.id() + " llega antes que su padre " + node.parentId());
+                    id = insertChild(nodeInfo.getPos(), fatherId);
+                    if (id < 0) throw new IllegalStateException("No se pudo insertar el nodo " + node.id());
+                }
+                ids.put(node.id(), id);
+                updates.add(new NodeUpdate(id, new Maybe.Just<>(nodeInfo.getPos()), new Maybe.Just<>(new T.MkT<>(nodeInfo.getName(), nodeInfo.getImgURL())), nodeInfo.getChildren()));
+            }
+            updateNodeInfos(updates);
+            return rootId;
+        } catch (RuntimeException e) {
+            System.err.println(e);
+            if (rootId >= 0) removeRoot(rootId);
+            return -1;
+        }
+    }
+
+    /**
+     * Obtiene una página de hijos de cada uno de los nodos indicados: por padre, hasta {@code limit}
+     * hijos con ID mayor que {@code afterId}, ordenados por ID y con sus movimientos espaciales.
+     *
+     * @param parentIds los IDs de los nodos padre.
+     * @param afterId   el ID del último hijo de la página anterior, o 0 para la primera página.
+     * @param limit     el número máximo de hijos por padre.
+     * @return un mapa del ID de cada padre con hijos a la página de sus hijos, en orden.
+     */
+    HashMap<Integer, LinkedList<NodeInfo>> getChildrenPages(Collection<Integer> parentIds, int afterId, int limit);
+
+    /**
+     * Obtiene la versión de un árbol: un contador que aumenta con cada escritura en alguno de sus nodos.
+     * Sirve para saber si una copia guardada del árbol, como un {@link TreeSnapshot}, sigue al día.
+     *
+     * @param rootId el ID del nodo raíz del árbol.
+     * @return la versión del árbol, o -1 si no existe la raíz o el almacenamiento no lleva versiones.
+     */
+    default long getTreeVersion(int rootId) {
+        return -1;
+    }
+
+    /**
+     * Obtiene un árbol perezoso que solo lee cada rama al visitarla.
+     *
+     * @param id            el ID del nodo raíz del árbol.
+     * @param prefetchDepth el número de niveles por debajo de cada nodo visitado que se cargan por adelantado.
+     * @return el árbol perezoso, situado en la raíz.
+     * @see HierarchyPager
+     */
+    default ZipTreeLazy<Integer, NodeInfo> getZipTreeLazy(int id, int prefetchDepth) {
+        return new HierarchyPager(this, HierarchyPager.PAGE_SIZE, prefetchDepth).getZipTree(id);
+    }
+
+    /**
+     * Libera los recursos del almacenamiento; las escrituras hechas hasta ahora quedan persistidas.
+     */
+    void close();
+}
@@ -0,0 +1,87 @@
+package org.treefx.model;
+
+import org.treefx.utils.adt.Maybe;
+
+import java.util.ArrayDeque;
+
+/**
+ * Historial acotado de operaciones para deshacer y rehacer.
+ * <p>
+ * Cada operación se guarda una sola vez, en la pila de deshacer o en la de rehacer, y quien la registra
+ * la guarda en una forma que permite aplicarla en los dos sentidos (por ejemplo, la posición anterior y
+ * la nueva), así que la memoria depende del número de operaciones y no del tamaño del árbol. Registrar,
+ * deshacer y rehacer cuestan O(1); registrar una operación nueva descarta las que se podían rehacer.
+ * Cuando el historial está lleno, se olvida la operación más antigua.
+ * </p>
+ *
+ * @param <op> El tipo de las operaciones.
+ */
+public class UndoHistory<op> {
+    /**
+     * Número de operaciones que se pueden deshacer por defecto.
+     */
+    public static final int CAPACITY = 200;
+
+    private final int capacity;
+    private final ArrayDeque<op> undo = new ArrayDeque<>();
+    private final ArrayDeque<op> redo = new ArrayDeque<>();
+
+    /**
+     * Crea un historial vacío.
+     *
+     * @param capacity el número máximo de operaciones que se pueden deshacer.
+     */
+    public UndoHistory(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacidad no válida: " + capacity);
+        this.capacity = capacity;
+    }
+
+    /**
+     * Registra una operación recién hecha y descarta las que se podían rehacer.
+     *
+     * @param operation la operación.
+     */
+    public void record(op operation) {
+        this.redo.clear();
+        if (this.undo.size() == this.capacity) this.undo.removeLast();
+        this.undo.push(operation);
+    }
+
+    /**
+     * Saca la última operación hecha, que pasa a poder rehacerse. Quien llama aplica su inversa.
+     *
+     * @return la operación, o {@code Nothing} si no hay nada que deshacer.
+     */
+    public Maybe<op> undo() {
+        if (this.undo.isEmpty()) return Maybe.nothing();
+        var operation = this.undo.pop();
+        this.redo.push(operation);
+        return new Maybe.Just<>(operation);
+    }
+
+    /**
+     * Saca la última operación deshecha, que vuelve a poder deshacerse. Quien llama la aplica de nuevo.
+     *
+     * @return la operación, o {@code Nothing} si no hay nada que rehacer.
+     */
+    public Maybe<op> redo() {
+        if (this.redo.isEmpty()) return Maybe.nothing();
+        var operation = this.redo.pop();
+        this.undo.push(operation);
+        return new Maybe.Just<>(operation);
+    }
+
+    /**
+     * Número de operaciones que se pueden deshacer.
+     */
+    public int getUndoCount() {
+        return this.undo.size();
+    }
+
+    /**
+     * Número de operaciones que se pueden rehacer.
+     */
+    public int getRedoCount() {
+        return this.redo.size();
+    }
+}
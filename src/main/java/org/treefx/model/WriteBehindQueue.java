@@ -0,0 +1,211 @@
+package org.treefx.model;
+
+import javafx.geometry.Point2D;
+import org.treefx.utils.adt.Maybe;
+import org.treefx.utils.adt.T;
+
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cola de escritura diferida para los cambios de posición, nombre e imagen de los nodos, y para los
+ * movimientos espaciales que se les añaden.
+ * <p>
+ * Los cambios sobre un mismo nodo se combinan: solo se escribe el último valor de cada campo. La cola
+ * avisa de que debe vaciarse cuando pasan {@code idleMs} milisegundos sin cambios nuevos, o como mucho
+ * {@code maxDelayMs} milisegundos después del primer cambio pendiente, aunque sigan llegando más.
+ * </p>
+ * <p>
+ * Los cambios se guardan por {@link NodeInfo} y no por ID, porque un nodo recién creado todavía puede
+ * tener el ID provisional -1; el ID se lee al convertir los cambios en {@link NodeUpdate}.
+ * </p>
+ */
+public class WriteBehindQueue {
+    /**
+     * Milisegundos sin cambios nuevos tras los que se vacía la cola que se usan por defecto.
+     */
+    public static final long IDLE_MS = 300;
+    /**
+     * Milisegundos máximos que un cambio espera en la cola que se usan por defecto.
+     */
+    public static final long MAX_DELAY_MS = 2_000;
+
+    private final Runnable onDue;
+    private final long idleMs;
+    private final long maxDelayMs;
+    private final ScheduledExecutorService timer;
+    private IdentityHashMap<NodeInfo, Edit> pending;
+    private ScheduledFuture<?> idleFlush;
+    private ScheduledFuture<?> deadlineFlush;
+
+    private long enqueued;
+    private long written;
+    private long flushes;
+    private long lastFlushNanos;
+    private long maxFlushNanos;
+    private long totalFlushNanos;
+
+    /**
+     * Cambios pendientes sobre un nodo.
+     *
+     * @param nodeInfo     la información del nodo.
+     * @param position     la nueva posición, si ha cambiado.
+     * @param nameAndImage el nuevo nombre y la nueva URL de la imagen, si han cambiado.
+     * @param movements    los movimientos añadidos al nodo, en orden.
+     */
+    public record Edit(NodeInfo nodeInfo, Maybe<Point2D> position, Maybe<T<String, String>> nameAndImage, LinkedList<MovementInSpace> movements) {
+        public Edit(NodeInfo nodeInfo, Maybe<Point2D> position, Maybe<T<String, String>> nameAndImage) {
+            this(nodeInfo, position, nameAndImage, new LinkedList<>());
+        }
+
+        /**
+         * Combina este cambio con otro posterior sobre el mismo nodo; los campos del posterior ganan y
+         * los movimientos de ambos se conservan.
+         */
+        Edit then(Edit later) {
+            var both = new LinkedList<>(movements);
+            both.addAll(later.movements);
+            return new Edit(nodeInfo,
+                    later.position.isJust() ? later.position : position,
+                    later.nameAndImage.isJust() ? later.nameAndImage : nameAndImage,
+                    both);
+        }
+
+        /**
+         * Convierte el cambio en una actualización con el ID actual del nodo.
+         */
+        public NodeUpdate toUpdate() {
+            return new NodeUpdate(nodeInfo.getId(), position, nameAndImage, movements);
+        }
+    }
+
+    /**
+     * @param onDue      la acción que vacía la cola, llamada desde el hilo del temporizador.
+     * @param idleMs     los milisegundos sin cambios nuevos tras los que se llama a {@code onDue}.
+     * @param maxDelayMs los milisegundos máximos desde el primer cambio pendiente hasta llamar a {@code onDue}.
+     */
+    public WriteBehindQueue(Runnable onDue, long idleMs, long maxDelayMs) {
+        this.onDue = onDue;
+        this.idleMs = idleMs;
+        this.maxDelayMs = maxDelayMs;
+        this.timer = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("treefx-write-behind").factory());
+        this.pending = new IdentityHashMap<>();
+    }
+
+    /**
+     * Añade un cambio a la cola, combinándolo con los pendientes sobre el mismo nodo.
+     *
+     * @param edit el cambio.
+     */
+    public synchronized void add(Edit edit) {
+        pending.merge(edit.nodeInfo(), edit, Edit::then);
+        touch();
+    }
+
+    /**
+     * Programa el vaciado de la cola como si llegara un cambio, para los cambios que se guardan fuera de
+     * la cola, como los nodos marcados en un {@link org.treefx.model.ziptree.ZipTreeStrict}.
+     */
+    public synchronized void touch() {
+        enqueued++;
+        if (idleFlush != null) idleFlush.cancel(false);
+        idleFlush = timer.schedule(onDue, idleMs, TimeUnit.MILLISECONDS);
+        if (deadlineFlush == null) deadlineFlush = timer.schedule(onDue, maxDelayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Saca todos los cambios pendientes, en ningún orden en particular.
+     *
+     * @return los cambios pendientes, uno por nodo.
+     */
+    public synchronized LinkedList<Edit> drain() {
+        var edits = new LinkedList<>(pending.values());
+        pending = new IdentityHashMap<>();
+
+        if (idleFlush != null) idleFlush.cancel(false);
+        if (deadlineFlush != null) deadlineFlush.cancel(false);
+        idleFlush = null;
+        deadlineFlush = null;
+        return edits;
+    }
+
+    /**
+     * Registra el vaciado de la cola.
+     *
+     * @param edits el número de nodos escritos.
+     * @param nanos lo que tardó la escritura, en nanosegundos.
+     */
+    public synchronized void recordFlush(int edits, long nanos) {
+        written += edits;
+        flushes++;
+        lastFlushNanos = nanos;
+        maxFlushNanos = Math.max(maxFlushNanos, nanos);
+        totalFlushNanos += nanos;
+    }
+
+    /**
+     * Número de nodos con cambios pendientes.
+     */
+    public synchronized int getDepth() {
+        return pending.size();
+    }
+
+    /**
+     * Número de cambios recibidos, antes de combinarlos.
+     */
+    public synchronized long getEnqueued() {
+        return enqueued;
+    }
+
+    /**
+     * Número de actualizaciones de nodo escritas en la base de datos.
+     */
+    public synchronized long getWritten() {
+        return written;
+    }
+
+    /**
+     * Número de veces que se ha vaciado la cola.
+     */
+    public synchronized long getFlushes() {
+        return flushes;
+    }
+
+    /**
+     * Duración del último vaciado, en milisegundos.
+     */
+    public synchronized double getLastFlushMs() {
+        return lastFlushNanos / 1e6;
+    }
+
+    /**
+     * Duración del vaciado más lento, en milisegundos.
+     */
+    public synchronized double getMaxFlushMs() {
+        return maxFlushNanos / 1e6;
+    }
+
+    /**
+     * Duración media de los vaciados, en milisegundos.
+     */
+    public synchronized double getMeanFlushMs() {
+        return flushes == 0 ? 0 : totalFlushNanos / 1e6 / flushes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "WriteBehindQueue[depth=%d, enqueued=%d, written=%d, flushes=%d, last=%.2fms, mean=%.2fms, max=%.2fms]"
+                .formatted(getDepth(), enqueued, written, flushes, getLastFlushMs(), getMeanFlushMs(), getMaxFlushMs());
+    }
+
+    /**
+     * Detiene el temporizador. Los cambios pendientes deben sacarse antes con {@link #drain()}.
+     */
+    public void close() {
+        timer.shutdownNow();
+    }
+}
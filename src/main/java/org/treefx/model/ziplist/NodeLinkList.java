@@ -10,9 +10,9 @@ import org.treefx.utils.adt.Maybe;
  */
 public class NodeLinkList<a> {
     /**
-     * Nodo anterior de la lista, que puede estar vacío.
+     * Nodo anterior de la lista, o {@code null} si es el primero.
      */
-    private Maybe<NodeLinkList<a>> before;
+    NodeLinkList<a> before;
 
     /**
      * Elemento actual almacenado en este nodo.
@@ -20,9 +20,25 @@ public class NodeLinkList<a> {
     private a current;
 
     /**
-     * Nodo siguiente de la lista, que puede estar vacío.
+     * Nodo siguiente de la lista, o {@code null} si es el último.
      */
-    private Maybe<NodeLinkList<a>> after;
+    NodeLinkList<a> after;
+
+    /**
+     * Posición (desde 1) del nodo en su {@link ZipListStrict} la última vez que se numeró, o 0 si el nodo no
+     * está en ninguna lista. Solo es exacta si es menor que la primera posición modificada desde entonces.
+     */
+    int ordinal = 0;
+
+    /**
+     * Este nodo envuelto en un {@link Maybe.Just}, que se crea una sola vez para que navegar no reserve memoria.
+     */
+    private final Maybe.Just<NodeLinkList<a>> just = new Maybe.Just<>(this);
+
+    /**
+     * El elemento actual envuelto en un {@link Maybe.Just}, creado la primera vez que se pide.
+     */
+    private Maybe.Just<a> justCurrent;
 
     /**
      * Constructor que inicializa un nodo con nodos antes y después opcionales.
@@ -32,9 +48,9 @@ public class NodeLinkList<a> {
      * @param after   El nodo siguiente, que puede estar vacío.
      */
     public NodeLinkList(Maybe<NodeLinkList<a>> before, a current, Maybe<NodeLinkList<a>> after) {
-        this.before = before;
+        this.before = before.fromJust();
         this.current = current;
-        this.after = after;
+        this.after = after.fromJust();
     }
 
     /**
@@ -43,7 +59,23 @@ public class NodeLinkList<a> {
      * @param current El elemento actual a almacenar.
      */
     public NodeLinkList(a current) {
-        this(new Maybe.Nothing<>(), current, new Maybe.Nothing<>());
+        this.current = current;
+    }
+
+    /**
+     * Devuelve un {@link Maybe} con un nodo, o la instancia compartida de {@link Maybe.Nothing} si es {@code null}.
+     */
+    static <a> Maybe<NodeLinkList<a>> maybe(NodeLinkList<a> node) {
+        return node == null ? Maybe.nothing() : node.just;
+    }
+
+    /**
+     * Obtiene este nodo envuelto en un {@link Maybe.Just}, siempre la misma instancia.
+     *
+     * @return Este nodo como un objeto Maybe.
+     */
+    public Maybe.Just<NodeLinkList<a>> just() {
+        return just;
     }
 
     /**
@@ -52,7 +84,7 @@ public class NodeLinkList<a> {
      * @return El nodo previo como un objeto Maybe (puede estar vacío).
      */
     public Maybe<NodeLinkList<a>> getBefore() {
-        return before;
+        return maybe(before);
     }
 
     /**
@@ -61,7 +93,7 @@ public class NodeLinkList<a> {
      * @param before El nodo previo a asignar, como un objeto Maybe.
      */
     public void setBefore(Maybe<NodeLinkList<a>> before) {
-        this.before = before;
+        this.before = before.fromJust();
     }
 
     /**
@@ -73,6 +105,16 @@ public class NodeLinkList<a> {
         return current;
     }
 
+    /**
+     * Obtiene el elemento actual envuelto en un {@link Maybe.Just}, que se reutiliza mientras no cambie.
+     *
+     * @return El elemento actual como un objeto Maybe.
+     */
+    Maybe.Just<a> getJustCurrent() {
+        if (justCurrent == null) justCurrent = new Maybe.Just<>(current);
+        return justCurrent;
+    }
+
     /**
      * Establece el elemento actual.
      *
@@ -80,6 +122,7 @@ public class NodeLinkList<a> {
      */
     public void setCurrent(a current) {
         this.current = current;
+        this.justCurrent = null;
     }
 
     /**
@@ -88,7 +131,7 @@ public class NodeLinkList<a> {
      * @return El nodo siguiente como un objeto Maybe (puede estar vacío).
      */
     public Maybe<NodeLinkList<a>> getAfter() {
-        return after;
+        return maybe(after);
     }
 
     /**
@@ -97,19 +140,19 @@ public class NodeLinkList<a> {
      * @param after El nodo siguiente a asignar, como un objeto Maybe.
      */
     public void setAfter(Maybe<NodeLinkList<a>> after) {
-        this.after = after;
+        this.after = after.fromJust();
     }
 
     /**
      * Muestra visualmente el nodo actual y los nodos antes y después de este.
      */
     public void show() {
-        switch (this.before) {
+        switch (this.getBefore()) {
             case Maybe.Nothing() -> System.out.print("||");
             case Maybe.Just(NodeLinkList<a> beforeNode) -> System.out.print(beforeNode.showLeft());
         }
         System.out.print("@" + ">" + this.getCurrent() + "<" + "@");
-        switch (this.after) {
+        switch (this.getAfter()) {
             case Maybe.Nothing() -> System.out.print("||");
             case Maybe.Just(NodeLinkList<a> afterNode) -> System.out.println(afterNode.showRight());
         }
@@ -121,7 +164,7 @@ public class NodeLinkList<a> {
      * @return Una representación en forma de cadena de los nodos previos y el nodo actual.
      */
     public String showLeft() {
-        return switch (this.before) {
+        return switch (this.getBefore()) {
             case Maybe.Nothing() -> "||";
             case Maybe.Just(NodeLinkList<a> beforeNode) -> beforeNode.showLeft();
         } + "@" + this.getCurrent();
@@ -133,7 +176,7 @@ public class NodeLinkList<a> {
      * @return Una representación en forma de cadena del nodo actual y los nodos siguientes.
      */
     public String showRight() {
-        return this.getCurrent() + "@" + switch (this.after) {
+        return this.getCurrent() + "@" + switch (this.getAfter()) {
             case Maybe.Nothing() -> "||";
             case Maybe.Just(NodeLinkList<a> afterNode) -> afterNode.showRight();
         };
@@ -0,0 +1,237 @@
+package org.treefx.model.ziplist;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Lista inmutable y persistente: cada modificación devuelve una lista nueva que comparte con la anterior
+ * todo lo que no cambia.
+ * <p>
+ * Es un árbol AVL ordenado por posición, en el que cada nodo guarda el tamaño de su subárbol. Leer,
+ * reemplazar, insertar o borrar un elemento cuesta O(log n) y solo crea O(log n) nodos nuevos; las
+ * versiones anteriores siguen siendo válidas y se pueden leer desde otros hilos.
+ * </p>
+ * <p>
+ * Las posiciones empiezan en 1, como en {@link ZipListStrict}.
+ * </p>
+ *
+ * @param <a> El tipo de elementos que contiene la lista.
+ */
+public final class PersistentList<a> implements Iterable<a> {
+    private record Node<a>(Node<a> left, a value, Node<a> right, int size, int height) {}
+
+    private static final PersistentList<?> EMPTY = new PersistentList<>(null);
+
+    private final Node<a> root;
+
+    private PersistentList(Node<a> root) {
+        this.root = root;
+    }
+
+    /**
+     * Obtiene la lista vacía, que es siempre la misma instancia.
+     *
+     * @param <a> El tipo de elementos de la lista.
+     * @return La lista vacía.
+     */
+    @SuppressWarnings("unchecked")
+    public static <a> PersistentList<a> empty() {
+        return (PersistentList<a>) EMPTY;
+    }
+
+    /**
+     * Crea una lista con los elementos dados, en O(n).
+     *
+     * @param values Los elementos, en orden.
+     * @param <a>    El tipo de elementos de la lista.
+     * @return Una lista con esos elementos.
+     */
+    public static <a> PersistentList<a> of(List<? extends a> values) {
+        return values.isEmpty() ? empty() : new PersistentList<>(build(values, 0, values.size()));
+    }
+
+    private static <a> Node<a> build(List<? extends a> values, int from, int to) {
+        if (from >= to) return null;
+        int middle = (from + to) >>> 1;
+        return node(build(values, from, middle), values.get(middle), build(values, middle + 1, to));
+    }
+
+    /**
+     * Devuelve el número de elementos de la lista.
+     *
+     * @return El tamaño de la lista.
+     */
+    public int size() {
+        return size(this.root);
+    }
+
+    /**
+     * Indica si la lista no tiene elementos.
+     *
+     * @return true si la lista está vacía.
+     */
+    public boolean isEmpty() {
+        return this.root == null;
+    }
+
+    /**
+     * Obtiene el elemento de una posición.
+     *
+     * @param i La posición, entre 1 y el tamaño de la lista.
+     * @return El elemento en esa posición.
+     * @throws IndexOutOfBoundsException si la posición no existe.
+     */
+    public a get(int i) {
+        check(i, size());
+        var node = this.root;
+        while (true) {
+            int left = size(node.left);
+            if (i <= left) node = node.left;
+            else if (i == left + 1) return node.value;
+            else {
+                i -= left + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Devuelve una lista con el elemento de una posición reemplazado.
+     *
+     * @param i     La posición, entre 1 y el tamaño de la lista.
+     * @param value El nuevo elemento.
+     * @return La lista nueva.
+     * @throws IndexOutOfBoundsException si la posición no existe.
+     */
+    public PersistentList<a> set(int i, a value) {
+        check(i, size());
+        return new PersistentList<>(set(this.root, i, value));
+    }
+
+    /**
+     * Devuelve una lista con un elemento nuevo en una posición; los siguientes se desplazan.
+     *
+     * @param i     La posición que ocupará el elemento, entre 1 y el tamaño de la lista más uno.
+     * @param value El elemento a insertar.
+     * @return La lista nueva.
+     * @throws IndexOutOfBoundsException si la posición no existe.
+     */
+    public PersistentList<a> insert(int i, a value) {
+        check(i, size() + 1);
+        return new PersistentList<>(insert(this.root, i, value));
+    }
+
+    /**
+     * Devuelve una lista con un elemento nuevo al final.
+     *
+     * @param value El elemento a añadir.
+     * @return La lista nueva.
+     */
+    public PersistentList<a> append(a value) {
+        return insert(size() + 1, value);
+    }
+
+    /**
+     * Devuelve una lista sin el elemento de una posición.
+     *
+     * @param i La posición, entre 1 y el tamaño de la lista.
+     * @return La lista nueva.
+     * @throws IndexOutOfBoundsException si la posición no existe.
+     */
+    public PersistentList<a> remove(int i) {
+        check(i, size());
+        var newRoot = remove(this.root, i);
+        return newRoot == null ? empty() : new PersistentList<>(newRoot);
+    }
+
+    /**
+     * Recorre los elementos en orden.
+     *
+     * @return Un iterador sobre los elementos.
+     */
+    @Override
+    public Iterator<a> iterator() {
+        var pending = new ArrayDeque<Node<a>>();
+        for (var node = this.root; node != null; node = node.left) pending.push(node);
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !pending.isEmpty();
+            }
+
+            @Override
+            public a next() {
+                if (pending.isEmpty()) throw new NoSuchElementException();
+                var node = pending.pop();
+                for (var next = node.right; next != null; next = next.left) pending.push(next);
+                return node.value;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        var sb = new StringBuilder("[");
+        for (a value : this) sb.append(sb.length() > 1 ? ", " : "").append(value);
+        return sb.append(']').toString();
+    }
+
+    private static void check(int i, int max) {
+        if (i < 1 || i > max) throw new IndexOutOfBoundsException("Posición " + i + " fuera de 1.." + max);
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int height(Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static <a> Node<a> node(Node<a> left, a value, Node<a> right) {
+        return new Node<>(left, value, right, size(left) + size(right) + 1, Math.max(height(left), height(right)) + 1);
+    }
+
+    /**
+     * Crea un nodo y lo equilibra con una o dos rotaciones, si sus subárboles difieren en altura en más de uno.
+     */
+    private static <a> Node<a> balance(Node<a> left, a value, Node<a> right) {
+        if (height(left) > height(right) + 1) {
+            if (height(left.left) >= height(left.right)) return node(left.left, left.value, node(left.right, value, right));
+            return node(node(left.left, left.value, left.right.left), left.right.value, node(left.right.right, value, right));
+        }
+        if (height(right) > height(left) + 1) {
+            if (height(right.right) >= height(right.left)) return node(node(left, value, right.left), right.value, right.right);
+            return node(node(left, value, right.left.left), right.left.value, node(right.left.right, right.value, right.right));
+        }
+        return node(left, value, right);
+    }
+
+    private static <a> Node<a> set(Node<a> node, int i, a value) {
+        int left = size(node.left);
+        if (i <= left) return new Node<>(set(node.left, i, value), node.value, node.right, node.size, node.height);
+        if (i == left + 1) return new Node<>(node.left, value, node.right, node.size, node.height);
+        return new Node<>(node.left, node.value, set(node.right, i - left - 1, value), node.size, node.height);
+    }
+
+    private static <a> Node<a> insert(Node<a> node, int i, a value) {
+        if (node == null) return node(null, value, null);
+        int left = size(node.left);
+        if (i <= left + 1) return balance(insert(node.left, i, value), node.value, node.right);
+        return balance(node.left, node.value, insert(node.right, i - left - 1, value));
+    }
+
+    private static <a> Node<a> remove(Node<a> node, int i) {
+        int left = size(node.left);
+        if (i <= left) return balance(remove(node.left, i), node.value, node.right);
+        if (i > left + 1) return balance(node.left, node.value, remove(node.right, i - left - 1));
+        if (node.right == null) return node.left;
+        if (node.left == null) return node.right;
+        // Sustituye el nodo por el primero de su subárbol derecho.
+        var first = node.right;
+        while (first.left != null) first = first.left;
+        return balance(node.left, first.value, remove(node.right, 1));
+    }
+}
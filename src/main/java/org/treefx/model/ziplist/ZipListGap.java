@@ -0,0 +1,168 @@
+package org.treefx.model.ziplist;
+
+import org.treefx.utils.adt.Maybe;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Variante de {@link ZipListStrict} para listas largas, que además de la lista enlazada guarda sus nodos
+ * en un arreglo con un hueco (gap buffer) en la última posición donde se insertó o borró.
+ * <p>
+ * Los nodos siguen siendo los mismos {@link NodeLinkList}, enlazados entre sí, de modo que quien guarda un
+ * nodo o recorre la lista por sus enlaces no nota la diferencia. Con el arreglo, moverse a una posición
+ * ({@link #to(int)}) y leer un elemento ({@link #get(int)}) cuestan O(1), recorrer la lista
+ * ({@link #mapM(Consumer)}) lee memoria contigua, e insertar o borrar junto a la última modificación
+ * solo mueve el hueco unas pocas posiciones.
+ * </p>
+ *
+ * @param <a> El tipo de elementos que contiene la lista.
+ */
+public class ZipListGap<a> extends ZipListStrict<a> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Nodos de la lista en orden; las posiciones {@code [gapStart, gapEnd)} están libres.
+     */
+    private NodeLinkList<a>[] buffer;
+    private int gapStart = 0;
+    private int gapEnd;
+
+    /**
+     * Constructor que inicializa una lista vacía.
+     */
+    public ZipListGap() {
+        this.buffer = newBuffer(INITIAL_CAPACITY);
+        this.gapEnd = INITIAL_CAPACITY;
+    }
+
+    /**
+     * Constructor que toma los nodos de otra lista, con su cursor, sin copiarlos. La otra lista no debe
+     * volver a usarse.
+     *
+     * @param list La lista cuyos nodos pasan a esta.
+     */
+    public ZipListGap(ZipListStrict<a> list) {
+        takeNodes(list);
+        int capacity = Math.max(INITIAL_CAPACITY, list.size() * 2);
+        this.buffer = newBuffer(capacity);
+        var node = list.getHead();
+        for (int i = 0; i < list.size(); i++) {
+            this.buffer[i] = node;
+            node = node.after;
+        }
+        this.gapStart = list.size();
+        this.gapEnd = capacity;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <a> NodeLinkList<a>[] newBuffer(int capacity) {
+        return (NodeLinkList<a>[]) new NodeLinkList[capacity];
+    }
+
+    /**
+     * Obtiene el nodo de una posición, sin mover el cursor.
+     *
+     * @param i La posición, entre 1 y el tamaño de la lista.
+     * @return El nodo en esa posición.
+     */
+    public NodeLinkList<a> getNode(int i) {
+        int ix = i - 1;
+        return this.buffer[ix < this.gapStart ? ix : ix + this.gapEnd - this.gapStart];
+    }
+
+    /**
+     * Obtiene el elemento de una posición, sin mover el cursor.
+     *
+     * @param i La posición, entre 1 y el tamaño de la lista.
+     * @return El elemento en esa posición.
+     */
+    public a get(int i) {
+        return getNode(i).getCurrent();
+    }
+
+    /**
+     * Mueve el hueco para que empiece en la posición (desde 0) {@code ix}.
+     */
+    private void moveGap(int ix) {
+        if (ix < this.gapStart) {
+            int count = this.gapStart - ix;
+            System.arraycopy(this.buffer, ix, this.buffer, this.gapEnd - count, count);
+            Arrays.fill(this.buffer, ix, Math.min(this.gapStart, this.gapEnd - count), null);
+            this.gapStart -= count;
+            this.gapEnd -= count;
+        } else if (ix > this.gapStart) {
+            int count = ix - this.gapStart;
+            System.arraycopy(this.buffer, this.gapEnd, this.buffer, this.gapStart, count);
+            Arrays.fill(this.buffer, Math.max(this.gapEnd, ix), this.gapEnd + count, null);
+            this.gapStart += count;
+            this.gapEnd += count;
+        }
+    }
+
+    /**
+     * Duplica la capacidad cuando el hueco se ha llenado.
+     */
+    private void grow() {
+        int after = this.buffer.length - this.gapEnd;
+        NodeLinkList<a>[] bigger = newBuffer(this.buffer.length * 2);
+        System.arraycopy(this.buffer, 0, bigger, 0, this.gapStart);
+        System.arraycopy(this.buffer, this.gapEnd, bigger, bigger.length - after, after);
+        this.gapEnd = bigger.length - after;
+        this.buffer = bigger;
+    }
+
+    @Override
+    public <x> ZipList<x> empty() {
+        return new ZipListGap<>();
+    }
+
+    @Override
+    public void insertR(a val) {
+        super.insertR(val);
+        moveGap(getIx() - 1);
+        if (this.gapStart == this.gapEnd) grow();
+        this.buffer[this.gapStart++] = getMNode().fromJust();
+    }
+
+    @Override
+    public Maybe<a> deleteCurrent() {
+        int ix = getIx();
+        var deleted = super.deleteCurrent();
+        if (deleted.isJust()) {
+            moveGap(ix - 1);
+            this.buffer[this.gapEnd++] = null;
+        }
+        return deleted;
+    }
+
+    /**
+     * Mueve el cursor de la lista al índice especificado, en tiempo constante.
+     *
+     * @param i El índice al que se desea mover el cursor.
+     * @return El índice actual después de completar el movimiento.
+     */
+    @Override
+    public int to(int i) {
+        if (size() == 0) return 0;
+        if (i < 1) i = 1;
+        if (i > size()) i = size();
+        focus(getNode(i), i);
+        return i;
+    }
+
+    /**
+     * Aplica una función especificada a cada elemento de la lista, recorriendo el arreglo, y vuelve la
+     * posición al inicio.
+     *
+     * @param k Una función que se aplicará a cada elemento de la lista.
+     */
+    @Override
+    public void mapM(Consumer<a> k) {
+        if (size() == 0) return;
+
+        for (int i = 0; i < this.gapStart; i++) k.accept(this.buffer[i].getCurrent());
+        for (int i = this.gapEnd; i < this.buffer.length; i++) k.accept(this.buffer[i].getCurrent());
+        to(1);
+    }
+}
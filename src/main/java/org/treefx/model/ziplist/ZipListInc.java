@@ -83,7 +83,7 @@ public class ZipListInc<a, b> {
                 this.left.setCurrent(null);
                 switch (this.right.extract()) {
                     case Maybe.Nothing() -> this.right.insertR(b);
-                    case Maybe.Just(b v1) -> v1 = b;
+                    case Maybe.Just(b previous) -> this.right.setCurrent(b);
                 }
             }
         }
@@ -10,15 +10,30 @@ import java.util.function.Consumer;
  * para agregar, eliminar, y modificar elementos de manera eficiente. Este enfoque utiliza la
  * estructura Maybe para manejar valores nulos y controlar el flujo de los nodos, mejorando
  * la seguridad frente a errores.
+ * <p>
+ * Por dentro los nodos se enlazan con referencias directas, y los {@link Maybe} que se devuelven son
+ * siempre los mismos: el {@link NodeLinkList#just()} de cada nodo, el elemento ya envuelto de cada nodo
+ * y {@link Maybe#nothing()}. Así, moverse por la lista, extraer el elemento actual y recorrerla con
+ * {@link #mapM(Consumer)} no reservan memoria.
+ * </p>
  *
  * @param <a> El tipo de elementos que contiene la lista.
  */
 public class ZipListStrict<a> implements ZipList<a> {
-    private Maybe<NodeLinkList<a>> mNode;
+    /**
+     * Nodo del cursor, o {@code null} si la lista está vacía.
+     */
+    private NodeLinkList<a> node;
     private int size;
     private int index;
     private NodeLinkList<a> head = null;
     private NodeLinkList<a> last = null;
+    /**
+     * Primera posición cuyos nodos pueden tener el {@code ordinal} desactualizado, o
+     * {@link Integer#MAX_VALUE} si todos están al día. Las inserciones y borrados solo la bajan, y
+     * {@link #getIndex(NodeLinkList)} vuelve a numerar desde ella cuando hace falta.
+     */
+    private int stale = Integer.MAX_VALUE;
 
     /**
      * Obtiene el nodo cabeza de la lista.
@@ -63,37 +78,93 @@ public class ZipListStrict<a> implements ZipList<a> {
      */
     @Override
     public void setCurrent(a a) {
-        switch (this.mNode) {
-            case Maybe.Nothing() -> {
-            }
-            case Maybe.Just(NodeLinkList<a> node) -> node.setCurrent(a);
-        }
+        if (this.node != null) this.node.setCurrent(a);
     }
 
     /**
      * Constructor que inicializa una lista vacía.
      */
     public ZipListStrict() {
-        this.mNode = new Maybe.Nothing<>();
+        this.node = null;
         this.size = 0;
         this.index = 0;
     }
 
     /**
-     * Obtiene el índice de un nodo específico en la lista.
+     * Obtiene el índice de un nodo específico en la lista, sin mover el cursor.
+     * <p>
+     * Cada nodo guarda su posición; tras insertar o borrar en medio de la lista, las posiciones
+     * siguientes se vuelven a numerar una sola vez, en la primera consulta que las necesite. Cuesta
+     * O(1) mientras no haya ediciones en medio, y O(n) la primera consulta tras cada una de ellas;
+     * no es O(1) amortizado si las ediciones en medio se alternan con consultas.
+     * </p>
      *
-     * @param node El nodo cuyo índice se quiere obtener.
-     * @return El índice del nodo, o 0 si no se encuentra.
+     * @param node El nodo cuyo índice se quiere obtener, que debe pertenecer a esta lista.
+     * @return El índice del nodo, o 0 si no está en ninguna lista.
      */
     public int getIndex(NodeLinkList<a> node) {
-        if (this.head == null) return 0;
-        this.toStart();
+        if (node.ordinal >= this.stale) renumber();
+        return node.ordinal;
+    }
 
-        do {
-            if (this.mNode.fromJust() == node) return this.index;
-        } while (this.next());
+    /**
+     * Vuelve a numerar los nodos desde la primera posición desactualizada hasta el final, partiendo
+     * del cursor, cuya posición siempre es exacta.
+     */
+    private void renumber() {
+        int from = this.stale;
+        this.stale = Integer.MAX_VALUE;
+        if (this.node == null) return;
 
-        return 0;
+        var node = this.node;
+        int ix = this.index;
+        while (ix >= from && node != null) {
+            node.ordinal = ix--;
+            node = node.before;
+        }
+        node = this.node;
+        ix = this.index;
+        while (node.after != null) {
+            node = node.after;
+            node.ordinal = ++ix;
+        }
+    }
+
+    /**
+     * Pone el cursor en un nodo cuya posición ya se conoce.
+     *
+     * @param node El nodo, que debe pertenecer a esta lista.
+     * @param ix   La posición del nodo.
+     */
+    void focus(NodeLinkList<a> node, int ix) {
+        this.node = node;
+        this.index = ix;
+    }
+
+    /**
+     * Se queda con los nodos, el cursor y las posiciones de otra lista, que deja de usarse.
+     *
+     * @param other La lista cuyos nodos pasan a esta.
+     */
+    void takeNodes(ZipListStrict<a> other) {
+        this.node = other.node;
+        this.size = other.size;
+        this.index = other.index;
+        this.head = other.head;
+        this.last = other.last;
+        this.stale = other.stale;
+    }
+
+    /**
+     * Mueve el cursor a un nodo específico de la lista, en tiempo constante.
+     *
+     * @param node El nodo, que debe pertenecer a esta lista.
+     * @return El índice del nodo, o 0 si no está en ninguna lista.
+     */
+    public int toNode(NodeLinkList<a> node) {
+        int ix = getIndex(node);
+        if (ix != 0) focus(node, ix);
+        return ix;
     }
 
     /**
@@ -102,7 +173,7 @@ public class ZipListStrict<a> implements ZipList<a> {
      * @return Un Maybe que contiene el nodo actual.
      */
     public Maybe<NodeLinkList<a>> getMNode() {
-        return this.mNode;
+        return NodeLinkList.maybe(this.node);
     }
 
     /**
@@ -112,10 +183,7 @@ public class ZipListStrict<a> implements ZipList<a> {
      */
     @Override
     public Maybe<a> extract() {
-        return switch (this.mNode) {
-            case Maybe.Nothing() -> new Maybe.Nothing<>();
-            case Maybe.Just(NodeLinkList<a> node) -> new Maybe.Just<>(node.getCurrent());
-        };
+        return this.node == null ? Maybe.nothing() : this.node.getJustCurrent();
     }
 
     /**
@@ -136,23 +204,10 @@ public class ZipListStrict<a> implements ZipList<a> {
      */
     @Override
     public boolean next() {
-        switch (this.mNode) {
-            case Maybe.Nothing() -> {
-                return false;
-            }
-            case Maybe.Just(NodeLinkList<a> node) -> {
-                switch (node.getAfter()) {
-                    case Maybe.Nothing() -> {
-                        return false;
-                    }
-                    case Maybe.Just(NodeLinkList<a> ignored) -> {
-                        this.mNode = node.getAfter();
-                        this.index++;
-                        return true;
-                    }
-                }
-            }
-        }
+        if (this.node == null || this.node.after == null) return false;
+        this.node = this.node.after;
+        this.index++;
+        return true;
     }
 
     /**
@@ -161,14 +216,7 @@ public class ZipListStrict<a> implements ZipList<a> {
      * @return true si existe un nodo siguiente, false en caso contrario.
      */
     public boolean hasNext() {
-        switch (this.mNode) {
-            case Maybe.Nothing() -> {
-                return false;
-            }
-            case Maybe.Just(NodeLinkList<a> node) -> {
-                return node.getAfter().isJust();
-            }
-        }
+        return this.node != null && this.node.after != null;
     }
 
     /**
@@ -178,23 +226,10 @@ public class ZipListStrict<a> implements ZipList<a> {
      */
     @Override
     public boolean prev() {
-        switch (this.mNode) {
-            case Maybe.Nothing() -> {
-                return false;
-            }
-            case Maybe.Just(NodeLinkList<a> node) -> {
-                switch (node.getBefore()) {
-                    case Maybe.Nothing() -> {
-                        return false;
-                    }
-                    case Maybe.Just(NodeLinkList<a> ignored) -> {
-                        this.mNode = node.getBefore();
-                        this.index--;
-                        return true;
-                    }
-                }
-            }
-        }
+        if (this.node == null || this.node.before == null) return false;
+        this.node = this.node.before;
+        this.index--;
+        return true;
     }
 
     /**
@@ -203,14 +238,7 @@ public class ZipListStrict<a> implements ZipList<a> {
      * @return true si existe un nodo anterior, false en caso contrario.
      */
     public boolean hasPrev() {
-        switch (this.mNode) {
-            case Maybe.Nothing() -> {
-                return false;
-            }
-            case Maybe.Just(NodeLinkList<a> node) -> {
-                return node.getBefore().isJust();
-            }
-        }
+        return this.node != null && this.node.before != null;
     }
 
     /**
@@ -219,25 +247,28 @@ public class ZipListStrict<a> implements ZipList<a> {
      * @param val El valor que tendrá el nuevo nodo.
      */
     public void insertR(a val) {
-        switch (this.mNode) {
-            case Maybe.Nothing() -> {
-                var newNode = new NodeLinkList<>(val);
-                this.head = newNode;
-                this.last = newNode;
-                this.mNode = new Maybe.Just<>(newNode);
-                this.size = 1;
-                this.index = 1;
-            }
-            case Maybe.Just(NodeLinkList<a> node) -> {
-                var newNode = new NodeLinkList<>(this.mNode, val, node.getAfter());
-                var mnewNode = new Maybe.Just<>(newNode);
-                node.setAfter(mnewNode);
-                this.mNode = mnewNode;
-                this.size++;
-                this.index++;
-                if (this.size == this.index) this.last = newNode;
-            }
+        var newNode = new NodeLinkList<>(val);
+        if (this.node == null) {
+            newNode.ordinal = 1;
+            this.head = newNode;
+            this.last = newNode;
+            this.node = newNode;
+            this.size = 1;
+            this.index = 1;
+            this.stale = Integer.MAX_VALUE;
+            return;
         }
+
+        newNode.before = this.node;
+        newNode.after = this.node.after;
+        if (this.node.after != null) this.node.after.before = newNode;
+        this.node.after = newNode;
+        this.node = newNode;
+        this.size++;
+        this.index++;
+        newNode.ordinal = this.index;
+        if (this.size == this.index) this.last = newNode;
+        else this.stale = Math.min(this.stale, this.index);
     }
 
     /**
@@ -258,48 +289,39 @@ public class ZipListStrict<a> implements ZipList<a> {
      * @return Un Maybe que contiene el valor del nodo eliminado, o Nothing si la lista está vacía.
      */
     public Maybe<a> deleteCurrent() {
-        return switch (this.mNode) {
-            case Maybe.Nothing() -> new Maybe.Nothing<>();
-            case Maybe.Just(NodeLinkList<a> node) -> {
-                switch (node.getBefore()) {
-                    case Maybe.Nothing() -> {
-                        switch (node.getAfter()) {
-                            case Maybe.Nothing() -> {
-                                this.head = null;
-                                this.last = null;
-                                this.size = 0;
-                                this.index = 0;
-                                this.mNode = new Maybe.Nothing<>();
-                            }
-                            case Maybe.Just(NodeLinkList<a> nodeAfter) -> {
-                                this.head = nodeAfter;
-                                this.size--;
-                                nodeAfter.setBefore(new Maybe.Nothing<>());
-                                this.mNode = node.getAfter();
-                            }
-                        }
-                    }
-                    case Maybe.Just(NodeLinkList<a> nodeBefore) -> {
-                        switch (node.getAfter()) {
-                            case Maybe.Nothing() -> {
-                                this.last = nodeBefore;
-                                this.size--;
-                                this.index--;
-                                nodeBefore.setAfter(new Maybe.Nothing<>());
-                                this.mNode = node.getBefore();
-                            }
-                            case Maybe.Just(NodeLinkList<a> nodeAfter) -> {
-                                nodeBefore.setAfter(node.getAfter());
-                                this.size--;
-                                this.index--;
-                                this.mNode = node.getBefore();
-                            }
-                        }
-                    }
-                }
-                yield new Maybe.Just<>(node.getCurrent());
+        var node = this.node;
+        if (node == null) return Maybe.nothing();
+
+        if (node.after != null) this.stale = Math.min(this.stale, this.index);
+        node.ordinal = 0;
+        if (node.before == null) {
+            if (node.after == null) {
+                this.head = null;
+                this.last = null;
+                this.size = 0;
+                this.index = 0;
+                this.node = null;
+            } else {
+                this.head = node.after;
+                this.size--;
+                node.after.before = null;
+                this.node = node.after;
+            }
+        } else {
+            if (node.after == null) {
+                this.last = node.before;
+                node.before.after = null;
+            } else {
+                node.before.after = node.after;
+                node.after.before = node.before;
             }
-        };
+            this.size--;
+            this.index--;
+            this.node = node.before;
+        }
+        node.before = null;
+        node.after = null;
+        return node.getJustCurrent();
     }
 
     
@@ -313,7 +335,7 @@ public class ZipListStrict<a> implements ZipList<a> {
     public Maybe<a> delete(int i) {
         int ix = this.index;
         this.to(i);
-        Maybe<a> deleted = new Maybe.Nothing<>();
+        Maybe<a> deleted = Maybe.nothing();
         if (this.index == i) deleted = this.deleteCurrent();
         this.to(ix);
         return deleted;
@@ -355,7 +377,7 @@ public class ZipListStrict<a> implements ZipList<a> {
      */
     private void toStart() {
         this.index = 1;
-        this.mNode = new Maybe.Just<>(this.head);
+        this.node = this.head;
     }
 
     /**
@@ -364,7 +386,7 @@ public class ZipListStrict<a> implements ZipList<a> {
      */
     private void toEnd() {
         this.index = this.size;
-        this.mNode = new Maybe.Just<>(this.last);
+        this.node = this.last;
     }
 
     /**
@@ -376,11 +398,7 @@ public class ZipListStrict<a> implements ZipList<a> {
     public void mapM(Consumer<a> k) {
         if (size == 0) return;
 
-        toStart();
-        do {
-            k.accept(this.mNode.fromJust().getCurrent());
-        }
-        while (this.next());
+        for (var node = this.head; node != null; node = node.after) k.accept(node.getCurrent());
         this.toStart();
     }
 
@@ -394,9 +412,7 @@ public class ZipListStrict<a> implements ZipList<a> {
      */
     @Override
     public void show() {
-        switch (this.mNode) {
-            case Maybe.Nothing() -> System.out.println("--");
-            case Maybe.Just(NodeLinkList<a> node) -> node.show();
-        }
+        if (this.node == null) System.out.println("--");
+        else this.node.show();
     }
 }
\ No newline at end of file
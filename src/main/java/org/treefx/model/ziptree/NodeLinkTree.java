@@ -11,10 +11,17 @@ import org.treefx.utils.adt.Maybe;
  */
 public class NodeLinkTree<a> {
     private a current;
-    private Maybe<NodeLinkTree<a>> before;
-    private Maybe<NodeLinkTree<a>> after;
-    private Maybe<NodeLinkTree<a>> up;
-    private Maybe<NodeLinkTree<a>> down;
+    /**
+     * Nodos vecinos, o {@code null} si no existen; los {@link Maybe} solo se usan al devolverlos.
+     */
+    private NodeLinkTree<a> before;
+    private NodeLinkTree<a> after;
+    private NodeLinkTree<a> up;
+    private NodeLinkTree<a> down;
+    /**
+     * Este nodo envuelto en un {@link Maybe.Just}, que se crea una sola vez para que navegar no reserve memoria.
+     */
+    private final Maybe.Just<NodeLinkTree<a>> just = new Maybe.Just<>(this);
 
     /**
      * Constructor que inicializa un nodo del árbol con valores específicos para las
@@ -28,10 +35,10 @@ public class NodeLinkTree<a> {
      */
     public NodeLinkTree(a current, Maybe<NodeLinkTree<a>> before, Maybe<NodeLinkTree<a>> after, Maybe<NodeLinkTree<a>> up, Maybe<NodeLinkTree<a>> down) {
         this.current = current;
-        this.before = before;
-        this.after = after;
-        this.up = up;
-        this.down = down;
+        this.before = before.fromJust();
+        this.after = after.fromJust();
+        this.up = up.fromJust();
+        this.down = down.fromJust();
     }
 
     /**
@@ -41,7 +48,20 @@ public class NodeLinkTree<a> {
      * @param current El valor almacenado en el nodo.
      */
     public NodeLinkTree(a current) {
-        this(current, new Maybe.Nothing<>(), new Maybe.Nothing<>(), new Maybe.Nothing<>(), new Maybe.Nothing<>());
+        this.current = current;
+    }
+
+    private static <a> Maybe<NodeLinkTree<a>> maybe(NodeLinkTree<a> node) {
+        return node == null ? Maybe.nothing() : node.just;
+    }
+
+    /**
+     * Obtiene este nodo envuelto en un {@link Maybe.Just}, siempre la misma instancia.
+     *
+     * @return Este nodo como un objeto Maybe.
+     */
+    public Maybe.Just<NodeLinkTree<a>> just() {
+        return just;
     }
 
     /**
@@ -68,7 +88,7 @@ public class NodeLinkTree<a> {
      * @return El nodo anterior, si existe, o un {@code Maybe.Nothing}.
      */
     public Maybe<NodeLinkTree<a>> getBefore() {
-        return before;
+        return maybe(before);
     }
 
     /**
@@ -77,7 +97,7 @@ public class NodeLinkTree<a> {
      * @param before El nodo a establecer como anterior.
      */
     public void setBefore(Maybe<NodeLinkTree<a>> before) {
-        this.before = before;
+        this.before = before.fromJust();
     }
 
     /**
@@ -86,7 +106,7 @@ public class NodeLinkTree<a> {
      * @return El nodo siguiente, si existe, o un {@code Maybe.Nothing}.
      */
     public Maybe<NodeLinkTree<a>> getAfter() {
-        return after;
+        return maybe(after);
     }
 
     /**
@@ -95,7 +115,7 @@ public class NodeLinkTree<a> {
      * @param after El nodo a establecer como siguiente.
      */
     public void setAfter(Maybe<NodeLinkTree<a>> after) {
-        this.after = after;
+        this.after = after.fromJust();
     }
 
     /**
@@ -104,7 +124,7 @@ public class NodeLinkTree<a> {
      * @return El nodo padre, si existe, o un {@code Maybe.Nothing}.
      */
     public Maybe<NodeLinkTree<a>> getUp() {
-        return up;
+        return maybe(up);
     }
 
     /**
@@ -113,7 +133,7 @@ public class NodeLinkTree<a> {
      * @param up El nodo a establecer como padre.
      */
     public void setUp(Maybe<NodeLinkTree<a>> up) {
-        this.up = up;
+        this.up = up.fromJust();
     }
 
     /**
@@ -122,7 +142,7 @@ public class NodeLinkTree<a> {
      * @return El nodo hijo, si existe, o un {@code Maybe.Nothing}.
      */
     public Maybe<NodeLinkTree<a>> getDown() {
-        return down;
+        return maybe(down);
     }
 
     /**
@@ -131,6 +151,6 @@ public class NodeLinkTree<a> {
      * @param down El nodo a establecer como hijo.
      */
     public void setDown(Maybe<NodeLinkTree<a>> down) {
-        this.down = down;
+        this.down = down.fromJust();
     }
 }
\ No newline at end of file
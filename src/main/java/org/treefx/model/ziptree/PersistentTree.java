@@ -0,0 +1,59 @@
+package org.treefx.model.ziptree;
+
+import org.treefx.model.ziplist.PersistentList;
+
+/**
+ * Nodo inmutable de un árbol: un valor y la lista persistente de sus hijos.
+ * <p>
+ * Modificar un nodo devuelve uno nuevo que comparte con el anterior los hijos que no cambian, de modo que
+ * una versión del árbol nunca cambia después de creada. Es la estructura que recorre {@link ZipTreePersistent}.
+ * </p>
+ *
+ * @param value    El valor del nodo.
+ * @param children Los hijos del nodo, en orden.
+ * @param <a>      El tipo de datos contenido en los nodos del árbol.
+ */
+public record PersistentTree<a>(a value, PersistentList<PersistentTree<a>> children) {
+    /**
+     * Crea un nodo sin hijos.
+     *
+     * @param value El valor del nodo.
+     * @param <a>   El tipo de datos del nodo.
+     * @return Un nodo hoja con ese valor.
+     */
+    public static <a> PersistentTree<a> leaf(a value) {
+        return new PersistentTree<>(value, PersistentList.empty());
+    }
+
+    /**
+     * Devuelve una copia del nodo con otro valor y los mismos hijos.
+     *
+     * @param value El nuevo valor.
+     * @return El nodo nuevo.
+     */
+    public PersistentTree<a> withValue(a value) {
+        return new PersistentTree<>(value, this.children);
+    }
+
+    /**
+     * Devuelve una copia del nodo con el hijo de una posición reemplazado.
+     *
+     * @param ix    La posición del hijo, desde 1.
+     * @param child El nuevo hijo.
+     * @return El nodo nuevo.
+     */
+    public PersistentTree<a> withChild(int ix, PersistentTree<a> child) {
+        return new PersistentTree<>(this.value, this.children.set(ix, child));
+    }
+
+    /**
+     * Cuenta los nodos del árbol que empieza en este nodo.
+     *
+     * @return El número de nodos, incluido este.
+     */
+    public int size() {
+        int size = 1;
+        for (var child : this.children) size += child.size();
+        return size;
+    }
+}
@@ -29,7 +29,7 @@ public class Tree<a> implements ZipTree<a> {
      * @param value El valor inicial que será almacenado en el nodo raíz.
      */
     public Tree(a value) {
-        this.node = new NodeLinkTree<>(value, new Maybe.Nothing<>(), new Maybe.Nothing<>(), new Maybe.Nothing<>(), new Maybe.Nothing<>());
+        this.node = new NodeLinkTree<>(value);
     }
 
     /**
@@ -123,6 +123,18 @@ public class Tree<a> implements ZipTree<a> {
         }
     }
 
+    @Override
+    public boolean hasPrev() { return this.node.getBefore().isJust(); }
+
+    @Override
+    public boolean hasNext() { return this.node.getAfter().isJust(); }
+
+    @Override
+    public boolean hasTop() { return this.node.getUp().isJust(); }
+
+    @Override
+    public boolean hasDown() { return this.node.getDown().isJust(); }
+
     /**
      * Inserta un nuevo nodo como hermano derecho del nodo actual,
      * con el valor proporcionado.
@@ -131,8 +143,8 @@ public class Tree<a> implements ZipTree<a> {
      */
     public void insertR(a val) {
         var cNode = this.node;
-        var newNode = new NodeLinkTree<>(val, new Maybe.Just<>(cNode), cNode.getAfter(), cNode.getUp(), new Maybe.Nothing<>());
-        cNode.setAfter(new Maybe.Just<>(newNode));
+        var newNode = new NodeLinkTree<>(val, cNode.just(), cNode.getAfter(), cNode.getUp(), Maybe.nothing());
+        cNode.setAfter(newNode.just());
         this.node = newNode;
     }
 
@@ -146,14 +158,14 @@ public class Tree<a> implements ZipTree<a> {
         NodeLinkTree<a> newNode;
         switch (this.node.getDown()) {
             case Maybe.Nothing() ->
-                    newNode = new NodeLinkTree<>(val, new Maybe.Nothing<>(), new Maybe.Nothing<>(), new Maybe.Just<>(this.node), new Maybe.Nothing<>());
+                    newNode = new NodeLinkTree<>(val, Maybe.nothing(), Maybe.nothing(), this.node.just(), Maybe.nothing());
             case Maybe.Just(NodeLinkTree<a> downNode) -> {
-                newNode = new NodeLinkTree<>(val, new Maybe.Just<>(downNode), downNode.getAfter(), new Maybe.Just<>(this.node), new Maybe.Nothing<>());
-                downNode.setAfter(new Maybe.Just<>(newNode));
+                newNode = new NodeLinkTree<>(val, downNode.just(), downNode.getAfter(), this.node.just(), Maybe.nothing());
+                downNode.setAfter(newNode.just());
             }
         }
 
-        this.node.setDown(new Maybe.Just<>(newNode));
+        this.node.setDown(newNode.just());
         this.node = newNode;
     }
 }
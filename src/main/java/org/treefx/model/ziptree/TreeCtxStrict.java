@@ -1,6 +1,7 @@
 package org.treefx.model.ziptree;
 
 import org.treefx.model.ziplist.NodeLinkList;
+import org.treefx.model.ziplist.ZipListGap;
 import org.treefx.model.ziplist.ZipListStrict;
 import org.treefx.utils.adt.Maybe;
 import org.treefx.utils.adt.T;
@@ -17,6 +18,12 @@ import java.util.function.Function;
  * @param <a> El tipo de datos contenido en los nodos del árbol.
  */
 public class TreeCtxStrict<a> {
+    /**
+     * Número de hijos a partir del cual {@link ZipTreeStrict#insertChild(Object)} pasa la lista de hijos
+     * a un {@link ZipListGap}, con acceso directo por posición.
+     */
+    public static final int WIDE_CHILDREN = 64;
+
     /**
      * Referencia al nodo padre del nodo actual. Es opcional (puede no existir).
      */
@@ -135,6 +142,18 @@ public class TreeCtxStrict<a> {
         this.children = children;
     }
 
+    /**
+     * Pasa la lista de hijos a un {@link ZipListGap}, con los mismos nodos y el mismo cursor, y hace que
+     * cada hijo la tenga como lista de hermanos. Los contextos y nodos guardados siguen siendo válidos.
+     */
+    public void widenChildren() {
+        if (this.children instanceof ZipListGap) return;
+
+        var wide = new ZipListGap<>(this.children);
+        for (int i = 1; i <= wide.size(); i++) wide.get(i).snd().setBrothers(wide);
+        this.children = wide;
+    }
+
     /**
      * Aplica una función de forma descendente a todos los nodos desde el nodo actual.
      *
@@ -143,7 +162,10 @@ public class TreeCtxStrict<a> {
     public void downMap(Function<a, Void> k) {
         var a = this.current.getCurrent().fst();
         k.apply(a);
-        this.children.mapM(x -> x.snd().downMap(k));
+        // Sin lambdas por nodo, para que recorrer el árbol no reserve memoria.
+        for (var child = this.children.getHead(); child != null; child = child.getAfter().fromJust())
+            child.getCurrent().snd().downMap(k);
+        this.children.to(1);
     }
 
     /**
@@ -157,7 +179,8 @@ public class TreeCtxStrict<a> {
     public <b> void downMapWithFatherGO(Maybe<b> mfatherResult, BiFunction<Maybe<b>, TreeCtxStrict<a>, b> k) {
         var a = this.current.getCurrent().snd();
         var b = k.apply(mfatherResult, a);
-        this.children.mapM(x -> x.snd().downMapWithFatherGO(new Maybe.Just<>(b), k));
+        var mb = new Maybe.Just<>(b);
+        this.children.mapM(x -> x.snd().downMapWithFatherGO(mb, k));
     }
 
     /**
@@ -168,6 +191,6 @@ public class TreeCtxStrict<a> {
      * @param <b> El tipo del resultado producido por la función.
      */
     public <b> void downMapWithFather(BiFunction<Maybe<b>, TreeCtxStrict<a>, b> k) {
-        this.downMapWithFatherGO(new Maybe.Nothing<>(), k);
+        this.downMapWithFatherGO(Maybe.nothing(), k);
     }
 }
\ No newline at end of file
@@ -1,5 +1,9 @@
 package org.treefx.model.ziptree;
 
+import org.treefx.utils.adt.Movement;
+
+import java.util.LinkedList;
+
 /**
  * Represents a ZipTree structure, a navigable tree using zipper principles.
  *
@@ -11,4 +15,31 @@ public interface ZipTree<a> {
     public boolean next();
     public boolean top();
     public boolean down();
-}
\ No newline at end of file
+
+    public boolean hasPrev();
+    public boolean hasNext();
+    public boolean hasTop();
+    public boolean hasDown();
+
+    /**
+     * Follows a list of movements from the current node. {@code Down(i)} goes to the first child
+     * and then to its {@code i}-th brother, counting from 1.
+     *
+     * @param movements The movements to follow.
+     * @return true if every movement succeeded, false otherwise.
+     */
+    public default boolean moveTo(LinkedList<Movement> movements) {
+        for (Movement m : movements) {
+            switch (m) {
+                case Movement.Up() -> {
+                    if (!this.top()) return false;
+                }
+                case Movement.Down(int child) -> {
+                    if (!this.down()) return false;
+                    for (int i = 1; i < child; i++) if (!this.next()) return false;
+                }
+            }
+        }
+        return true;
+    }
+}
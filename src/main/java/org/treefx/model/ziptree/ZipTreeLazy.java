@@ -58,10 +58,10 @@ public class ZipTreeLazy<b, a> implements ZipTree<a> {
         if (this.memo.prev()) {
             var brothersRef = this.ctx.getBrothers();
             brothersRef.prev();
-            return switch (brothersRef.extract().fromJust()) {
+            switch (brothersRef.extract().fromJust()) {
                 case Either.Left(b ignored) -> throw new Error("ZipListInc mismatch with memo, cannot be state");
-                case Either.Right(TreeCtxLazy<b> ignored) -> true;
-            };
+                case Either.Right(TreeCtxLazy<b> brother) -> { this.ctx = brother; return true; }
+            }
         } else return false;
     }
 
@@ -96,6 +96,40 @@ public class ZipTreeLazy<b, a> implements ZipTree<a> {
         }
     }
 
+    @Override
+    public boolean hasPrev() {
+        return this.memo.hasPrev();
+    }
+
+    /**
+     * Comprueba si hay un hermano siguiente, generándolo si todavía no existe.
+     *
+     * @return {@code true} si existe un hermano siguiente.
+     */
+    @Override
+    public boolean hasNext() {
+        if (this.memo.hasNext()) return true;
+        var brothersRef = this.ctx.getBrothers();
+        if (!brothersRef.next()) return false;
+        brothersRef.prev();
+        return true;
+    }
+
+    @Override
+    public boolean hasTop() {
+        return this.memo.hasTop();
+    }
+
+    /**
+     * Comprueba si el nodo actual tiene hijos, generando el estado del primero si todavía no existe.
+     *
+     * @return {@code true} si el nodo tiene al menos un hijo.
+     */
+    @Override
+    public boolean hasDown() {
+        return this.memo.hasDown() || this.ctx.getChildren().extract().isJust();
+    }
+
     /**
      * Se mueve al nodo padre del nodo actual si existe.
      *
@@ -118,7 +152,10 @@ public class ZipTreeLazy<b, a> implements ZipTree<a> {
     @Override
     public boolean down() {
         if (this.memo.down()) {
-            switch (this.ctx.getChildren().extract().fromJust()) {
+            // El memo baja al primer hijo, la lista de hijos se rebobina al mismo sitio
+            var childrenRef = this.ctx.getChildren();
+            while (childrenRef.prev()) { }
+            switch (childrenRef.extract().fromJust()) {
                 case Either.Left(b ignored) -> throw new Error("ZipTreeLazy mismatch with memo, cannot be state");
                 case Either.Right(TreeCtxLazy<b> children) -> { this.ctx = children; return true; }
             }
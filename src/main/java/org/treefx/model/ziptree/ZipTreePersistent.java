@@ -0,0 +1,321 @@
+package org.treefx.model.ziptree;
+
+import org.treefx.model.ziplist.PersistentList;
+import org.treefx.utils.adt.Movement;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Zipper sobre un árbol inmutable ({@link PersistentTree}), con las mismas operaciones de navegación que
+ * {@link ZipTreeStrict}.
+ * <p>
+ * El cursor es mutable, pero cada versión del árbol es inmutable: modificar el nodo actual copia solo el
+ * camino desde ese nodo hasta la raíz, y en cada nivel la lista de hermanos se actualiza en O(log n)
+ * ({@link PersistentList}). Todo lo demás se comparte con la versión anterior. Por eso
+ * {@link #snapshot()} cuesta O(1): la copia comparte la raíz y el camino, y ninguna modificación
+ * posterior de este zipper la altera, de modo que puede guardarse, exportarse o compararse desde otro
+ * hilo mientras se sigue editando.
+ * </p>
+ *
+ * @param <a> El tipo de datos contenido en los nodos del árbol.
+ */
+public class ZipTreePersistent<a> implements ZipTree<a> {
+    /**
+     * Paso del camino desde la raíz: el padre del nodo actual (en la versión actual), la posición del
+     * nodo entre sus hijos y el paso anterior. Se comparte entre versiones.
+     */
+    private record Crumb<a>(PersistentTree<a> father, int ix, Crumb<a> up) {}
+
+    private PersistentTree<a> root;
+    private PersistentTree<a> focus;
+    private Crumb<a> path;
+    private int depth;
+
+    /**
+     * Construye un árbol con un único nodo.
+     *
+     * @param val El valor del nodo raíz.
+     */
+    public ZipTreePersistent(a val) {
+        this(PersistentTree.leaf(val));
+    }
+
+    /**
+     * Construye un zipper sobre un árbol, con el cursor en la raíz.
+     *
+     * @param root La raíz del árbol.
+     */
+    public ZipTreePersistent(PersistentTree<a> root) {
+        this(root, root, null, 0);
+    }
+
+    private ZipTreePersistent(PersistentTree<a> root, PersistentTree<a> focus, Crumb<a> path, int depth) {
+        this.root = root;
+        this.focus = focus;
+        this.path = path;
+        this.depth = depth;
+    }
+
+    /**
+     * Crea un zipper persistente con los mismos valores y la misma forma que un {@link ZipTreeStrict},
+     * con el cursor en la raíz. Cuesta O(n) y no mueve el cursor del otro árbol.
+     *
+     * @param zipTree El árbol a copiar.
+     * @param <a>     El tipo de datos de los nodos.
+     * @return Un zipper persistente equivalente.
+     */
+    public static <a> ZipTreePersistent<a> of(ZipTreeStrict<a> zipTree) {
+        return of(zipTree, UnaryOperator.identity());
+    }
+
+    /**
+     * Igual que {@link #of(ZipTreeStrict)}, pero guardando una copia de cada valor, para valores que se
+     * modifican en el sitio y deben quedar congelados.
+     *
+     * @param zipTree El árbol a copiar.
+     * @param copy    La función que copia cada valor.
+     * @param <a>     El tipo de datos de los nodos.
+     * @return Un zipper persistente equivalente.
+     */
+    public static <a> ZipTreePersistent<a> of(ZipTreeStrict<a> zipTree, UnaryOperator<a> copy) {
+        return new ZipTreePersistent<>(freeze(zipTree.getRoot(), copy));
+    }
+
+    private static <a> PersistentTree<a> freeze(TreeCtxStrict<a> ctx, UnaryOperator<a> copy) {
+        var children = new ArrayList<PersistentTree<a>>(ctx.getChildren().size());
+        for (var child = ctx.getChildren().getHead(); child != null; child = child.getAfter().fromJust())
+            children.add(freeze(child.getCurrent().snd(), copy));
+        return new PersistentTree<>(copy.apply(ctx.getValue()), PersistentList.of(children));
+    }
+
+    /**
+     * Toma una instantánea del árbol y del cursor en O(1). La instantánea es un zipper independiente: no
+     * ve las modificaciones posteriores de este, ni este las de ella.
+     *
+     * @return Un zipper sobre la versión actual del árbol.
+     */
+    public ZipTreePersistent<a> snapshot() {
+        return new ZipTreePersistent<>(this.root, this.focus, this.path, this.depth);
+    }
+
+    /**
+     * Obtiene la raíz de la versión actual del árbol, que no cambiará.
+     *
+     * @return La raíz del árbol.
+     */
+    public PersistentTree<a> getTree() {
+        return this.root;
+    }
+
+    /**
+     * Obtiene el nodo actual, con sus hijos.
+     *
+     * @return El nodo actual.
+     */
+    public PersistentTree<a> getFocus() {
+        return this.focus;
+    }
+
+    @Override
+    public a extract() {
+        return this.focus.value();
+    }
+
+    /**
+     * Obtiene la posición del nodo actual entre sus hermanos.
+     *
+     * @return La posición, desde 1; la raíz está en la posición 1.
+     */
+    public int getIx() {
+        return this.path == null ? 1 : this.path.ix();
+    }
+
+    /**
+     * Obtiene los movimientos que llevan desde la raíz hasta el nodo actual.
+     *
+     * @return Una lista de {@link Movement#DOWN(int)}.
+     */
+    public LinkedList<Movement> getPosition() {
+        var movements = new LinkedList<Movement>();
+        for (var crumb = this.path; crumb != null; crumb = crumb.up()) movements.addFirst(Movement.DOWN(crumb.ix()));
+        return movements;
+    }
+
+    /**
+     * Cambia el cursor al padre del nodo actual.
+     *
+     * @return true si se cambió al padre, false si no hay padre.
+     */
+    public boolean toFather() {
+        if (this.path == null) return false;
+        this.focus = this.path.father();
+        this.path = this.path.up();
+        this.depth--;
+        return true;
+    }
+
+    /**
+     * Cambia el cursor al padre del nodo actual, igual que {@link #toFather()}.
+     *
+     * @return true si se cambió al padre, false si no hay padre.
+     */
+    @Override
+    public boolean top() {
+        return toFather();
+    }
+
+    /**
+     * Cambia el cursor a la raíz del árbol.
+     */
+    public void toRoot() {
+        this.focus = this.root;
+        this.path = null;
+        this.depth = 0;
+    }
+
+    /**
+     * Cambia el cursor al hijo en el índice especificado. Igual que en {@link ZipTreeStrict#toChild(int)},
+     * un índice fuera de rango se ajusta al primer o al último hijo.
+     *
+     * @param ix El índice del hijo, desde 1.
+     * @return El índice del hijo seleccionado, o 0 si no hay hijos.
+     */
+    public int toChild(int ix) {
+        var children = this.focus.children();
+        if (children.isEmpty()) return 0;
+        ix = Math.max(1, Math.min(ix, children.size()));
+        this.path = new Crumb<>(this.focus, ix, this.path);
+        this.focus = children.get(ix);
+        this.depth++;
+        return ix;
+    }
+
+    @Override
+    public boolean down() {
+        return toChild(1) != 0;
+    }
+
+    @Override
+    public boolean next() {
+        if (!hasNext()) return false;
+        toBrother(this.path.ix() + 1);
+        return true;
+    }
+
+    @Override
+    public boolean prev() {
+        if (!hasPrev()) return false;
+        toBrother(this.path.ix() - 1);
+        return true;
+    }
+
+    private void toBrother(int ix) {
+        var father = this.path.father();
+        this.path = new Crumb<>(father, ix, this.path.up());
+        this.focus = father.children().get(ix);
+    }
+
+    @Override
+    public boolean hasTop() {
+        return this.path != null;
+    }
+
+    @Override
+    public boolean hasDown() {
+        return !this.focus.children().isEmpty();
+    }
+
+    @Override
+    public boolean hasPrev() {
+        return this.path != null && this.path.ix() > 1;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return this.path != null && this.path.ix() < this.path.father().children().size();
+    }
+
+    /**
+     * Reemplaza el valor del nodo actual.
+     *
+     * @param val El nuevo valor.
+     */
+    public void setValue(a val) {
+        replaceFocus(this.focus.withValue(val));
+    }
+
+    /**
+     * Inserta un nuevo hijo, al final, en el nodo actual. El cursor no se mueve.
+     *
+     * @param val El valor del nuevo hijo.
+     */
+    public void insertChild(a val) {
+        insertChild(this.focus.children().size() + 1, PersistentTree.leaf(val));
+    }
+
+    /**
+     * Inserta un subárbol como hijo del nodo actual, en una posición. El cursor no se mueve.
+     *
+     * @param ix    La posición que ocupará, entre 1 y el número de hijos más uno.
+     * @param child El subárbol a insertar.
+     */
+    public void insertChild(int ix, PersistentTree<a> child) {
+        replaceFocus(new PersistentTree<>(this.focus.value(), this.focus.children().insert(ix, child)));
+    }
+
+    /**
+     * Borra el nodo actual, con sus descendientes, y cambia el cursor a su padre.
+     *
+     * @return El subárbol borrado, o null si el nodo actual es la raíz.
+     */
+    public PersistentTree<a> deleteCurrent() {
+        if (this.path == null) return null;
+        var deleted = this.focus;
+        int ix = this.path.ix();
+        toFather();
+        replaceFocus(new PersistentTree<>(this.focus.value(), this.focus.children().remove(ix)));
+        return deleted;
+    }
+
+    /**
+     * Pone un nodo en lugar del actual y copia el camino hasta la raíz, de abajo arriba, para que cada
+     * padre apunte a la nueva versión de su hijo. Las migas antiguas quedan intactas para las instantáneas.
+     */
+    @SuppressWarnings("unchecked")
+    private void replaceFocus(PersistentTree<a> newFocus) {
+        Crumb<a>[] crumbs = (Crumb<a>[]) new Crumb[this.depth];
+        int i = this.depth;
+        for (var crumb = this.path; crumb != null; crumb = crumb.up()) crumbs[--i] = crumb;
+
+        var child = newFocus;
+        PersistentTree<a>[] fathers = (PersistentTree<a>[]) new PersistentTree[this.depth];
+        for (i = this.depth - 1; i >= 0; i--) {
+            child = crumbs[i].father().withChild(crumbs[i].ix(), child);
+            fathers[i] = child;
+        }
+
+        Crumb<a> path = null;
+        for (i = 0; i < this.depth; i++) path = new Crumb<>(fathers[i], crumbs[i].ix(), path);
+
+        this.root = child;
+        this.focus = newFocus;
+        this.path = path;
+    }
+
+    /**
+     * Aplica una función de forma descendente a todos los nodos del árbol desde la raíz.
+     *
+     * @param k La función a aplicar a cada nodo.
+     */
+    public void mapM(Function<a, Void> k) {
+        downMap(this.root, k);
+    }
+
+    private static <a> void downMap(PersistentTree<a> node, Function<a, Void> k) {
+        k.apply(node.value());
+        for (var child : node.children()) downMap(child, k);
+    }
+}
@@ -5,7 +5,10 @@ import org.treefx.utils.adt.Movement;
 import org.treefx.utils.adt.Maybe;
 import org.treefx.utils.adt.T;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
+import java.util.Set;
 import java.util.Stack;
 import java.util.function.BiFunction;
 import java.util.function.Function;
@@ -24,12 +27,17 @@ import java.util.function.Function;
  * actual en el árbol. Este contexto puede ser modificado con operaciones
  * específicas para desplazarse o manipular elementos.
  * </p>
+ * <p>
+ * El árbol lleva además el conjunto de nodos modificados desde el último guardado, que se marcan con
+ * {@link #markDirty(TreeCtxStrict)} y se sacan con {@link #takeDirty()}, para guardar solo esos nodos.
+ * </p>
  *
  * @param <a> El tipo de datos contenido en los nodos del árbol.
  */
-public class ZipTreeStrict<a> {
+public class ZipTreeStrict<a> implements ZipTree<a> {
     private TreeCtxStrict<a> ctx;
     private final TreeCtxStrict<a> root;
+    private Set<a> dirty = Collections.newSetFromMap(new IdentityHashMap<>());
 
     /**
      * Construye un nuevo árbol ZipTreeStrict con el valor inicial especificado.
@@ -38,7 +46,7 @@ public class ZipTreeStrict<a> {
      */
     public ZipTreeStrict(a val) {
         ZipListStrict<T<a, TreeCtxStrict<a>>> brothers = new ZipListStrict<>();
-        this.ctx = new TreeCtxStrict<>(new Maybe.Nothing<>(), null, brothers, new ZipListStrict<>());
+        this.ctx = new TreeCtxStrict<>(Maybe.nothing(), null, brothers, new ZipListStrict<>());
 
         T<a, TreeCtxStrict<a>> current = new T.MkT<>(val, this.ctx);
         brothers.insertR(current);
@@ -61,6 +69,7 @@ public class ZipTreeStrict<a> {
      *
      * @return El valor contenido en el nodo actual.
      */
+    @Override
     public a extract() {
         return this.ctx.getValue();
     }
@@ -74,6 +83,15 @@ public class ZipTreeStrict<a> {
         return this.ctx;
     }
 
+    /**
+     * Devuelve el contexto del nodo raíz, sin mover el contexto actual.
+     *
+     * @return El contexto de la raíz del árbol.
+     */
+    public TreeCtxStrict<a> getRoot() {
+        return this.root;
+    }
+
     /**
      * Cambia el contexto actual al padre del nodo actual.
      *
@@ -89,6 +107,36 @@ public class ZipTreeStrict<a> {
         }
     }
 
+    /**
+     * Cambia el contexto actual al padre del nodo actual, igual que {@link #toFather()}.
+     *
+     * @return true si se cambió al padre, false si no hay padre.
+     */
+    @Override
+    public boolean top() {
+        return toFather();
+    }
+
+    @Override
+    public boolean hasTop() {
+        return this.ctx.getFather().isJust();
+    }
+
+    @Override
+    public boolean hasDown() {
+        return this.ctx.getChildren().size() != 0;
+    }
+
+    @Override
+    public boolean hasPrev() {
+        return this.ctx.getBrothers().hasPrev();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return this.ctx.getBrothers().hasNext();
+    }
+
     /**
      * Cambia el contexto actual al nodo raíz del árbol.
      */
@@ -103,9 +151,7 @@ public class ZipTreeStrict<a> {
      */
     public void toNodeCtx(TreeCtxStrict<a> nodeCtx) {
         this.ctx = nodeCtx;
-        var brothers = this.ctx.getBrothers();
-        int ix = brothers.getIndex(nodeCtx.getCurrent());
-        brothers.to(ix);
+        this.ctx.getBrothers().toNode(nodeCtx.getCurrent());
     }
 
 
@@ -130,6 +176,7 @@ public class ZipTreeStrict<a> {
      *
      * @return true si el cambio fue exitoso, false si no hay un siguiente hermano.
      */
+    @Override
     public boolean next() {
         if (this.ctx.getBrothers().next()) {
             this.ctx = this.ctx.getBrothers().getMNode().fromJust().getCurrent().snd();
@@ -143,6 +190,7 @@ public class ZipTreeStrict<a> {
      *
      * @return true si el cambio fue exitoso, false si no hay un hermano previo.
      */
+    @Override
     public boolean prev() {
         if (this.ctx.getBrothers().prev()) {
             this.ctx = this.ctx.getBrothers().getMNode().fromJust().getCurrent().snd();
@@ -156,6 +204,7 @@ public class ZipTreeStrict<a> {
      *
      * @return true si el cambio fue exitoso, false si no hay hijos.
      */
+    @Override
     public boolean down() {
         var children = this.ctx.getChildren();
         if (children.getMNode().isNothing()) return false;
@@ -164,7 +213,8 @@ public class ZipTreeStrict<a> {
     }
 
     /**
-     * Inserta un nuevo hijo con el valor especificado al nodo actual.
+     * Inserta un nuevo hijo con el valor especificado al nodo actual. Al llegar a
+     * {@link TreeCtxStrict#WIDE_CHILDREN} hijos, la lista de hijos pasa a tener acceso directo por posición.
      *
      * @param val El valor que tendrá el nuevo nodo hijo.
      */
@@ -174,6 +224,85 @@ public class ZipTreeStrict<a> {
         var current = new T.MkT<>(val, newCtx);
         children.insert(current);
         newCtx.setCurrent(children.getLast());
+        if (children.size() == TreeCtxStrict.WIDE_CHILDREN) this.ctx.widenChildren();
+    }
+
+    /**
+     * Quita un nodo del árbol, con sus descendientes, en O(1), sin modificar su contexto, de modo que
+     * puede volver a ponerse con {@link #attachChild(TreeCtxStrict)}. Si el nodo actual estaba en ese
+     * subárbol, el contexto actual pasa al padre del nodo quitado.
+     * <p>
+     * {@link #attachChild(TreeCtxStrict)} lo devuelve como último hijo, así que solo vuelve a su sitio
+     * si era el último hijo al quitarlo. El editor lo cumple porque deshace en orden inverso (LIFO):
+     * cuando deshace una inserción, las inserciones posteriores de hermanos ya se han deshecho. Las rutas
+     * guardadas de los demás hijos, en el índice de nombres y en los movimientos, no cambian.
+     * </p>
+     *
+     * @param childCtx El contexto del nodo a quitar, que no puede ser la raíz.
+     */
+    public void detachChild(TreeCtxStrict<a> childCtx) {
+        var brothers = childCtx.getBrothers();
+        brothers.toNode(childCtx.getCurrent());
+        brothers.deleteCurrent();
+
+        for (var ctx = this.ctx; ; ctx = ctx.getFather().fromJust()) {
+            if (ctx == childCtx) {
+                this.ctx = childCtx.getFather().fromJust();
+                break;
+            }
+            if (ctx.getFather().isNothing()) break;
+        }
+    }
+
+    /**
+     * Vuelve a poner un nodo quitado con {@link #detachChild(TreeCtxStrict)}, con sus descendientes,
+     * como último hijo de su padre.
+     *
+     * @param childCtx El contexto del nodo quitado.
+     */
+    public void attachChild(TreeCtxStrict<a> childCtx) {
+        var father = childCtx.getFather().fromJust();
+        var children = father.getChildren();
+        children.insert(childCtx.getCurrent().getCurrent());
+        childCtx.setBrothers(children);
+        childCtx.setCurrent(children.getLast());
+        if (children.size() == TreeCtxStrict.WIDE_CHILDREN) father.widenChildren();
+    }
+
+    /**
+     * Marca el valor del nodo actual como modificado.
+     */
+    public void markDirty() {
+        markDirty(this.ctx);
+    }
+
+    /**
+     * Marca el valor de un nodo como modificado, sin mover el contexto actual.
+     *
+     * @param nodeCtx el contexto del nodo modificado.
+     */
+    public synchronized void markDirty(TreeCtxStrict<a> nodeCtx) {
+        this.dirty.add(nodeCtx.getValue());
+    }
+
+    /**
+     * Número de nodos marcados como modificados.
+     *
+     * @return el número de nodos pendientes de guardar.
+     */
+    public synchronized int getDirtyCount() {
+        return this.dirty.size();
+    }
+
+    /**
+     * Saca los valores de los nodos marcados como modificados; el árbol queda sin nodos marcados.
+     *
+     * @return los valores modificados, cada uno una sola vez y en ningún orden en particular.
+     */
+    public synchronized LinkedList<a> takeDirty() {
+        var values = new LinkedList<>(this.dirty);
+        this.dirty = Collections.newSetFromMap(new IdentityHashMap<>());
+        return values;
     }
 
     /**
@@ -232,6 +361,7 @@ public class ZipTreeStrict<a> {
      * @param movements Una lista de movimientos que se ejecutarán.
      * @return true si todos los movimientos fueron exitosos, false de lo contrario.
      */
+    @Override
     public boolean moveTo(LinkedList<Movement> movements) {
         for (Movement m : movements) {
             switch (m) {
@@ -6,6 +6,17 @@ package org.treefx.utils.adt;
  * @param <a> El tipo del valor contenido.
  */
 sealed public interface Maybe<a> {
+    /**
+     * Obtiene la instancia compartida de {@link Nothing}, para no crear una nueva cada vez.
+     *
+     * @param <a> El tipo del valor ausente.
+     * @return siempre la misma instancia de {@link Nothing}.
+     */
+    @SuppressWarnings("unchecked")
+    static <a> Nothing<a> nothing() {
+        return (Nothing<a>) Nothing.INSTANCE;
+    }
+
     /**
      * Obtiene el valor contenido en la instancia. Si la instancia es {@link Nothing}, retorna {@code null}.
      *
@@ -33,6 +44,8 @@ sealed public interface Maybe<a> {
      * @param <a> El tipo genérico para mantener la consistencia con la interfaz {@link Maybe}.
      */
     record Nothing<a>() implements Maybe<a> {
+        private static final Nothing<?> INSTANCE = new Nothing<>();
+
         /**
          * Retorna {@code null} ya que no existe ningún valor para esta instancia.
          *
@@ -1,5 +1,10 @@
 package org.treefx.utils.adt;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.LinkedList;
+import java.util.List;
+
 /**
  * Interfaz sellada que representa un movimiento en una estructura de datos jerárquica.
  * Puede ser ascendente (Up) o descendente (Down) a un hijo específico.
@@ -51,4 +56,71 @@ sealed public interface Movement {
             throw new RuntimeException("Parser error: Up | Down(<int>)");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Codifica una ruta de movimientos en bytes: cada movimiento es un entero variable (varint, 7 bits por
+     * byte, el bit alto indica que siguen más bytes), con 0 para "Up" y {@code i + 1} para "Down(i)".
+     * Un movimiento hacia cualquiera de los primeros 126 hijos ocupa un solo byte.
+     *
+     * @param movements la ruta de movimientos
+     * @return la ruta codificada
+     * @throws IllegalArgumentException si algún índice de hijo es negativo
+     */
+    static byte[] encode(List<Movement> movements) {
+        var bytes = new ByteArrayOutputStream(movements.size());
+        for (Movement m : movements) {
+            int code = switch (m) {
+                case Up() -> 0;
+                case Down(int child) -> {
+                    if (child < 0) throw new IllegalArgumentException("Índice de hijo negativo: " + child);
+                    yield child + 1;
+                }
+            };
+            while ((code & ~0x7F) != 0) {
+                bytes.write((code & 0x7F) | 0x80);
+                code >>>= 7;
+            }
+            bytes.write(code);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodifica una ruta de movimientos codificada con {@link #encode(List)}, leyendo directamente del
+     * buffer todos los bytes que quedan en él, sin copias intermedias.
+     *
+     * @param bytes el buffer con la ruta codificada; se consume por completo
+     * @return la ruta de movimientos
+     * @throws RuntimeException si el último movimiento está incompleto o algún movimiento no cabe en un
+     *                          {@code int} (más de 5 bytes)
+     */
+    static LinkedList<Movement> decode(ByteBuffer bytes) {
+        var movements = new LinkedList<Movement>();
+        while (bytes.hasRemaining()) {
+            int code = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (!bytes.hasRemaining()) throw new RuntimeException("Parser error: varint incompleto");
+                b = bytes.get();
+                // El quinto byte solo aporta los 4 bits altos del int y no puede continuar
+                if (shift == 28 && (b & 0xF0) != 0) throw new RuntimeException("Parser error: varint de más de 32 bits");
+                code |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            movements.add(code == 0 ? UP : new Down(code - 1));
+        }
+        return movements;
+    }
+
+    /**
+     * Decodifica una ruta de movimientos codificada con {@link #encode(List)}.
+     *
+     * @param bytes la ruta codificada, puede ser {@code null}
+     * @return la ruta de movimientos, vacía si {@code bytes} es {@code null}
+     */
+    static LinkedList<Movement> decode(byte[] bytes) {
+        if (bytes == null) return new LinkedList<>();
+        return decode(ByteBuffer.wrap(bytes));
+    }
+}
@@ -0,0 +1,94 @@
+package org.treefx.model;
+
+import javafx.geometry.Point2D;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.treefx.utils.adt.Maybe;
+import org.treefx.utils.adt.Movement;
+
+import java.nio.file.Path;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachedTreeStoreTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsThroughAndCopies() {
+        var store = new LocalTreeStore(dir);
+        int rootId = store.insertRoot("r");
+        int childId = store.insertChild(new Point2D(1, 1), rootId);
+        var cache = new CachedTreeStore(store, CachedTreeStore.BUDGET);
+
+        var first = cache.getZipTree(rootId);
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertTrue(cache.hasZipTreeInMemory(rootId));
+
+        // El árbol devuelto se puede modificar sin tocar la copia guardada.
+        first.down();
+        first.extract().setName("cambiado");
+        var second = cache.getZipTree(rootId);
+        assertEquals(1, cache.getHits());
+        assertNotSame(first.getRoot().getValue(), second.getRoot().getValue());
+        assertTrue(second.down());
+        assertEquals(childId, second.extract().getId());
+        assertEquals("", second.extract().getName());
+        assertFalse(second.extract().isDirty());
+
+        cache.getNodeInfo(childId);
+        cache.getNodeInfo(childId);
+        assertEquals(2, cache.getHits());
+        cache.close();
+    }
+
+    @Test
+    void writesInvalidate() {
+        var store = new LocalTreeStore(dir);
+        int rootId = store.insertRoot("r");
+        int childId = store.insertChild(new Point2D(1, 1), rootId);
+        var cache = new CachedTreeStore(store, CachedTreeStore.BUDGET);
+        cache.getZipTree(rootId);
+        cache.getChildrenMoves(childId);
+
+        var movement = new MovementInSpace(new Point2D(2, 2), new LinkedList<>(List.of(Movement.UP)));
+        cache.insertMovementInSpace(childId, movement);
+        assertFalse(cache.hasZipTreeInMemory(rootId));
+        assertEquals(1, cache.getChildrenMoves(childId).size());
+
+        cache.getZipTree(rootId);
+        cache.insertChild(new Point2D(3, 3), childId);
+        var zipTree = cache.getZipTree(rootId);
+        assertTrue(zipTree.down());
+        assertTrue(zipTree.down());
+        assertEquals(new Point2D(3, 3), zipTree.extract().getPos());
+
+        cache.updateNodeInfos(List.of(new NodeUpdate(rootId, new Maybe.Just<>(new Point2D(9, 9)), new Maybe.Nothing<>())));
+        assertEquals(new Point2D(9, 9), cache.getZipTree(rootId).extract().getPos());
+        assertEquals(0, cache.getHits());
+        cache.close();
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        var store = new LocalTreeStore(dir);
+        var ids = new int[20];
+        for (int i = 0; i < ids.length; i++) ids[i] = store.insertRoot("raíz " + i);
+        // Caben unos pocos nodos sueltos, no los veinte.
+        var cache = new CachedTreeStore(store, 2_000);
+
+        for (int id : ids) cache.getNodeInfo(id);
+        assertTrue(cache.getBytes() <= 2_000);
+        assertTrue(cache.getEvictions() > 0);
+        long misses = cache.getMisses();
+
+        cache.getNodeInfo(ids[ids.length - 1]);
+        assertEquals(1, cache.getHits());
+        cache.getNodeInfo(ids[0]);
+        assertEquals(misses + 1, cache.getMisses());
+        cache.close();
+    }
+}
@@ -0,0 +1,259 @@
+package org.treefx.model;
+
+import javafx.geometry.Point2D;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.treefx.model.ziptree.TreeCtxStrict;
+import org.treefx.model.ziptree.ZipTreeStrict;
+import org.treefx.utils.adt.Movement;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionDBAsyncTest {
+    private ConnectionDBAsync disconnected() {
+        return new ConnectionDBAsync(new ConnectionDB("localhost", "1", "", "", "treefx"));
+    }
+
+    @Test
+    void submitKeepsOrder() {
+        var connection = disconnected();
+        var order = new ArrayList<Integer>();
+
+        CompletableFuture<Void> last = null;
+        for (int i = 0; i < 100; i++) {
+            int ix = i;
+            last = connection.submit(db -> { order.add(ix); return null; });
+        }
+        last.join();
+
+        for (int i = 0; i < 100; i++) assertEquals(i, order.get(i));
+    }
+
+    @Test
+    void submitContinuesAfterFailure() {
+        var connection = disconnected();
+        var failed = connection.submit(db -> { throw new RuntimeException("fallo"); });
+        var next = connection.submit(db -> 1);
+
+        assertEquals(1, next.join());
+        assertTrue(failed.isCompletedExceptionally());
+    }
+
+    @Test
+    void insertChildAssignsId() {
+        var connection = disconnected();
+        var father = new NodeInfo(7, "", "", new Point2D(0, 0), new LinkedList<>());
+        var child = new NodeInfo(0, "", "", new Point2D(0, 0), new LinkedList<>());
+
+        assertEquals(-1, connection.insertChild(new Point2D(0, 0), father, child).join());
+        assertEquals(-1, child.getId());
+    }
+
+    @Test
+    void submitFlushesPendingEdits() {
+        var connection = disconnected();
+        var nodeInfo = new NodeInfo(7, "", "", new Point2D(0, 0), new LinkedList<>());
+        for (int i = 0; i < 10; i++) connection.updateNodeInfo(nodeInfo, new Point2D(i, i));
+        connection.updateNodeInfo(nodeInfo, "nombre", "");
+
+        var queue = connection.getWriteBehind();
+        assertEquals(1, queue.getDepth());
+        connection.submit(db -> null).join();
+
+        assertEquals(0, queue.getDepth());
+        assertEquals(11, queue.getEnqueued());
+        assertEquals(1, queue.getWritten());
+        assertEquals(1, queue.getFlushes());
+    }
+
+    @Test
+    void savesOnlyDirtyNodes(@TempDir Path dir) {
+        var store = new LocalTreeStore(dir);
+        int rootId = store.insertRoot("r");
+        for (int i = 0; i < 10_000; i++) store.insertChild(new Point2D(i, i), rootId);
+        var zipTree = store.getZipTree(rootId);
+        var connection = new ConnectionDBAsync(store);
+
+        zipTree.down();
+        var first = zipTree.getCtx();
+        connection.updateNodeInfo(zipTree, first, new Point2D(-1, -1));
+        connection.updateNodeInfo(zipTree, first, new Point2D(-2, -2));
+        // Mismo valor que ya tenía: no cuenta como cambio.
+        zipTree.next();
+        connection.updateNodeInfo(zipTree, zipTree.getCtx(), new Point2D(1, 1));
+        zipTree.next();
+        connection.updateNodeInfo(zipTree, zipTree.getCtx(), "dos", "url");
+        zipTree.next();
+        var movement = new MovementInSpace(new Point2D(5, 5), new LinkedList<>(List.of(Movement.UP, Movement.DOWN(1))));
+        connection.insertMovementInSpace(zipTree, zipTree.getCtx(), movement);
+        assertEquals(3, zipTree.getDirtyCount());
+
+        connection.flush().join();
+        var queue = connection.getWriteBehind();
+        assertEquals(1, queue.getFlushes());
+        assertEquals(3, queue.getWritten());
+        assertEquals(0, zipTree.getDirtyCount());
+        assertFalse(first.getValue().isDirty());
+        connection.flush().join();
+        assertEquals(1, queue.getFlushes());
+
+        var saved = store.getZipTree(rootId);
+        saved.down();
+        assertEquals(new Point2D(-2, -2), saved.extract().getPos());
+        saved.next();
+        saved.next();
+        assertEquals("dos", saved.extract().getName());
+        saved.next();
+        assertEquals(List.of(Movement.UP, Movement.DOWN(1)), saved.extract().getChildren().getFirst().getMovements());
+        connection.close();
+    }
+
+    @Test
+    void undoesInsertsAndMovements(@TempDir Path dir) {
+        var store = new LocalTreeStore(dir);
+        int rootId = store.insertRoot("r");
+        var zipTree = store.getZipTree(rootId);
+        var connection = new ConnectionDBAsync(store);
+        var root = zipTree.getCtx();
+
+        // Movimiento deshecho antes de vaciar la cola: no llega a escribirse.
+        var movement = new MovementInSpace(new Point2D(1, 1), new LinkedList<>(List.of(Movement.UP)));
+        connection.insertMovementInSpace(zipTree, root, movement);
+        connection.removeMovementInSpace(root.getValue(), movement);
+        connection.flush().join();
+        assertEquals(0, connection.getWriteBehind().getWritten());
+        assertTrue(store.getChildrenMoves(rootId).isEmpty());
+
+        // Movimiento deshecho después de guardarlo: se borra del almacenamiento.
+        connection.insertMovementInSpace(zipTree, root, movement);
+        connection.flush().join();
+        assertEquals(1, store.getChildrenMoves(rootId).size());
+        connection.removeMovementInSpace(root.getValue(), movement);
+
+        var child = new NodeInfo(-1, "", "", new Point2D(2, 2), new LinkedList<>());
+        connection.insertChild(child.getPos(), root.getValue(), child);
+        zipTree.insertChild(child);
+        assertTrue(zipTree.down());
+        var childCtx = zipTree.getCtx();
+        zipTree.detachChild(childCtx);
+        assertSame(root, zipTree.getCtx());
+        assertFalse(zipTree.hasDown());
+        // Se borra detrás de la inserción, aunque aún no se conociera su ID.
+        assertEquals(1, connection.removeSubtree(child).join());
+        assertTrue(store.getChildrenMoves(rootId).isEmpty());
+        assertNull(store.getNodeInfo(child.getId()));
+
+        // Rehacer vuelve a poner el mismo contexto y crea el nodo de nuevo.
+        zipTree.attachChild(childCtx);
+        int childId = connection.insertChild(child.getPos(), root.getValue(), child).join();
+        assertTrue(zipTree.down());
+        assertSame(childCtx, zipTree.getCtx());
+        assertEquals(childId, store.getNodeInfo(childId).getId());
+        connection.close();
+    }
+
+    private static TreeCtxStrict<NodeInfo> insert(ConnectionDBAsync connection, ZipTreeStrict<NodeInfo> zipTree, String name) {
+        var root = zipTree.getRoot();
+        var child = new NodeInfo(-1, name, "", new Point2D(1, 1), new LinkedList<>());
+        connection.insertChild(child.getPos(), root.getValue(), child);
+        zipTree.insertChild(child);
+        return root.getChildren().getLast().getCurrent().snd();
+    }
+
+    @Test
+    void undoKeepsStoredPaths(@TempDir Path dir) {
+        var store = new LocalTreeStore(dir);
+        var connection = new ConnectionDBAsync(store);
+        var rootInfo = new NodeInfo(-1, "raiz", "", new Point2D(0, 0), new LinkedList<>());
+        int rootId = connection.insertRoot("raiz", rootInfo).join();
+        var zipTree = new ZipTreeStrict<>(rootInfo);
+
+        insert(connection, zipTree, "alfa");
+        var beta = insert(connection, zipTree, "beta");
+        // Deshacer, rehacer y volver a deshacer la inserción del hermano, como haría el editor.
+        zipTree.detachChild(beta);
+        connection.removeSubtree(beta.getValue());
+        zipTree.attachChild(beta);
+        connection.insertChild(beta.getValue().getPos(), rootInfo, beta.getValue());
+        zipTree.detachChild(beta);
+        connection.removeSubtree(beta.getValue());
+        insert(connection, zipTree, "gamma");
+        connection.submit(db -> null).join();
+
+        var saved = store.getZipTree(rootId);
+        assertEquals(2, saved.getRoot().getChildren().size());
+        assertTrue(connection.searchNodes("beta", 10).isEmpty());
+        for (String name : List.of("alfa", "gamma")) {
+            var hits = connection.searchNodes(name, 10);
+            assertEquals(1, hits.size());
+            var hit = hits.getFirst();
+            zipTree.toRoot();
+            assertTrue(zipTree.moveTo(hit.path()));
+            assertEquals(name, zipTree.extract().getName());
+            assertEquals(hit.nodeId(), zipTree.extract().getId());
+            saved.toRoot();
+            assertTrue(saved.moveTo(hit.path()));
+            assertEquals(hit.nodeId(), saved.extract().getId());
+        }
+        connection.close();
+    }
+
+    @Test
+    void navigatesLazyTreeOffCallingThread(@TempDir Path dir) {
+        var store = new LocalTreeStore(dir);
+        int rootId = store.insertRoot("r");
+        int childId = store.insertChild(new Point2D(1, 1), rootId);
+        int grandchildId = store.insertChild(new Point2D(2, 2), childId);
+        var connection = new ConnectionDBAsync(store);
+        // Sin precarga, cada movimiento lee del almacenamiento.
+        var zipTree = connection.getZipTreeLazy(rootId, 0).join();
+
+        var caller = Thread.currentThread();
+        var steps = new ArrayList<Integer>();
+        CompletableFuture<Void> last = null;
+        for (int i = 0; i < 2; i++) {
+            last = CompletableFuture.runAsync(() -> {
+                assertNotSame(caller, Thread.currentThread());
+                zipTree.down();
+                steps.add(zipTree.extract().getId());
+            }, connection.navigator());
+        }
+        last.join();
+
+        assertEquals(List.of(childId, grandchildId), steps);
+        connection.close();
+    }
+
+    @Test
+    void exportsAndImportsTreeWithThroughput(@TempDir Path dir) {
+        var store = new LocalTreeStore(dir.resolve("store"));
+        int rootId = store.insertRoot("r");
+        store.insertChild(new Point2D(1, 1), rootId);
+        store.insertChild(new Point2D(2, 2), rootId);
+        var connection = new ConnectionDBAsync(store);
+
+        var export = connection.exportTree(rootId, dir.resolve("r.json")).join();
+        assertTrue(export.isJust());
+        assertEquals(3, export.fromJust().getNodes());
+        assertTrue(export.fromJust().getNodesPerSecond() > 0);
+
+        var imported = connection.importTree("copia", dir.resolve("r.json")).join();
+        assertTrue(imported.isJust());
+        assertEquals(3, imported.fromJust().snd().getNodes());
+        assertTrue(imported.fromJust().snd().getNodesPerSecond() > 0);
+        assertEquals(2, store.getZipTree(imported.fromJust().fst()).getRoot().getChildren().size());
+        assertTrue(connection.importTree("nada", dir.resolve("nada.json")).join().isNothing());
+
+        Path missing = dir.resolve("missing.json");
+        assertTrue(connection.exportTree(rootId + 100, missing).join().isNothing());
+        assertFalse(Files.exists(missing));
+        connection.close();
+    }
+}
@@ -1,8 +1,14 @@
 package org.treefx.model;
 
+import javafx.geometry.Point2D;
 import org.junit.jupiter.api.Test;
 import org.treefx.utils.ReadCredentials;
 
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ConnectionDBTest {
@@ -16,4 +22,19 @@ class ConnectionDBTest {
             assertTrue(e.getMessage().contains("DATABASE_CREDENTIALS file format is invalid"), "Error: Invalid format in the DATABASE_CREDENTIALS file.");
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void wkbPoint() {
+        var point = new Point2D(12.5, -3.25);
+        byte[] wkb = ConnectionDB.toWKB(point);
+        // ST_AsBinary(Point(12.5, -3.25))
+        assertArrayEquals(HexFormat.of().parseHex("010100000000000000000029400000000000000ac0"), wkb);
+        assertEquals(point, ConnectionDB.toPoint2D(wkb));
+        assertEquals(point, ConnectionDB.toPoint2D(HexFormat.of().parseHex("00000000014029000000000000c00a000000000000")));
+
+        // Truncado, un LINESTRING y un orden de bytes que no existe.
+        assertThrows(IllegalArgumentException.class, () -> ConnectionDB.toPoint2D(HexFormat.of().parseHex("0101000000000000000000294000")));
+        assertThrows(IllegalArgumentException.class, () -> ConnectionDB.toPoint2D(HexFormat.of().parseHex("010200000000000000000029400000000000000ac0")));
+        assertThrows(IllegalArgumentException.class, () -> ConnectionDB.toPoint2D(HexFormat.of().parseHex("020100000000000000000029400000000000000ac0")));
+    }
+}
@@ -0,0 +1,95 @@
+package org.treefx.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTest {
+    private static final String SQL = "SELECT 1";
+    private EmbeddedDatabase database;
+
+    @BeforeEach
+    void open() throws Exception {
+        this.database = new EmbeddedDatabase();
+    }
+
+    @AfterEach
+    void close() throws Exception {
+        this.database.close();
+    }
+
+    private ConnectionPool pool(int size) throws Exception {
+        return new ConnectionPool(this.database.getUrl(), "sa", "", size);
+    }
+
+    @Test
+    void reusesStatements() throws Exception {
+        var pool = pool(1);
+        try (var first = pool.acquire()) {
+            var pstmt = first.prepareStatement(SQL);
+            assertSame(pstmt, first.prepareStatement(SQL));
+        }
+        try (var second = pool.acquire()) {
+            var pstmt = second.prepareStatement(SQL);
+            try (var rs = pstmt.executeQuery()) {
+                assertTrue(rs.next());
+                assertEquals(1, rs.getInt(1));
+            }
+            assertSame(pstmt, second.prepareStatement(SQL));
+        }
+        pool.close();
+    }
+
+    @Test
+    void nestedAcquireSharesLease() throws Exception {
+        var pool = pool(1);
+        try (var outer = pool.acquire()) {
+            try (var inner = pool.acquire()) {
+                assertSame(outer, inner);
+            }
+            assertEquals(0, pool.getIdle());
+        }
+        assertEquals(1, pool.getIdle());
+        pool.close();
+    }
+
+    @Test
+    void reconnectsClosedConnection() throws Exception {
+        var pool = pool(1);
+        try (var lease = pool.acquire()) {
+            lease.getConnection().close();
+        }
+        try (var lease = pool.acquire()) {
+            assertFalse(lease.getConnection().isClosed());
+            try (var rs = lease.prepareStatement(SQL).executeQuery()) {
+                assertTrue(rs.next());
+            }
+        }
+        pool.close();
+    }
+
+    @Test
+    void concurrentLeases() throws Exception {
+        var pool = pool(2);
+        var futures = new ArrayList<CompletableFuture<Integer>>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try (var lease = pool.acquire(); var rs = lease.prepareStatement(SQL).executeQuery()) {
+                    rs.next();
+                    return rs.getInt(1);
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            }));
+        }
+        for (var future : futures) assertEquals(1, future.join());
+        assertTrue(pool.getIdle() <= 2);
+        pool.close();
+    }
+}
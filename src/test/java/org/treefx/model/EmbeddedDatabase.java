@@ -0,0 +1,231 @@
+package org.treefx.model;
+
+import org.h2.api.Trigger;
+import org.h2.tools.SimpleResultSet;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Base de datos H2 en memoria, en modo de compatibilidad con MySQL, con el esquema de
+ * {@code treefx-database.sql}, para probar y medir {@link ConnectionDB} sin un servidor.
+ * <p>
+ * Las tablas se crean a partir de las sentencias {@code CREATE TABLE} del script, cambiando el tipo
+ * {@code point} por los 25 bytes de su WKB: {@code ST_GeomFromWKB} y {@code ST_AsBinary} son aquí la
+ * identidad. Los procedimientos {@code InsertRootNode}, {@code InsertChildNode} y
+ * {@code DeleteRootAndChildren}, y el disparador {@code AfterDeleteRoot}, se reproducen con los métodos
+ * de esta clase. Como en MySQL, las llamadas a los procedimientos devuelven el ID creado en el
+ * parámetro de salida con nombre.
+ * </p>
+ * <p>
+ * La base de datos existe mientras esté abierta esta instancia; al cerrarla se pierde.
+ * </p>
+ */
+public class EmbeddedDatabase implements AutoCloseable {
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+    private static final Pattern CREATE_TABLE = Pattern.compile("CREATE TABLE `\\w+` \\(.*?\\n\\)", Pattern.DOTALL);
+    private static final String CLASS = EmbeddedDatabase.class.getName();
+
+    private final String url;
+    private final Connection keeper;
+    private final ConnectionDB connection;
+
+    /**
+     * Crea una base de datos vacía con un nombre único.
+     *
+     * @throws SQLException si falla la creación del esquema.
+     */
+    public EmbeddedDatabase() throws SQLException {
+        this.url = "jdbc:h2:mem:treefx" + COUNTER.incrementAndGet() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE";
+        this.keeper = DriverManager.getConnection(this.url, "sa", "");
+        try (Statement statement = this.keeper.createStatement()) {
+            for (String sql : schema()) statement.execute(sql);
+        }
+        this.connection = new ConnectionDB(this.url, "sa", "", ConnectionPool.SIZE);
+    }
+
+    /**
+     * La URL JDBC de la base de datos, con usuario {@code sa} y sin contraseña, para abrir otros
+     * {@link ConnectionPool} sobre ella.
+     */
+    public String getUrl() {
+        return this.url;
+    }
+
+    /**
+     * La conexión a la base de datos, que se cierra al cerrar la base de datos.
+     */
+    public ConnectionDB getConnection() {
+        return this.connection;
+    }
+
+    /**
+     * Sentencias que crean las tablas, las funciones, los procedimientos y el disparador.
+     */
+    static List<String> schema() {
+        String script;
+        try {
+            script = Files.readString(Path.of("treefx-database.sql"), StandardCharsets.ISO_8859_1);
+        } catch (IOException e) { throw new IllegalStateException("No se puede leer treefx-database.sql", e); }
+
+        var statements = new ArrayList<String>();
+        // Como utf8mb4_general_ci: sin distinguir mayúsculas ni acentos.
+        statements.add("SET COLLATION SPANISH STRENGTH PRIMARY");
+        var matcher = CREATE_TABLE.matcher(script);
+        while (matcher.find()) statements.add(matcher.group().replaceAll("` point ", "` varbinary(25) "));
+        statements.add("CREATE ALIAS ST_GeomFromWKB FOR '" + CLASS + ".wkb'");
+        statements.add("CREATE ALIAS ST_AsBinary FOR '" + CLASS + ".wkb'");
+        statements.add("CREATE ALIAS InsertRootNode FOR '" + CLASS + ".insertRootNode'");
+        statements.add("CREATE ALIAS InsertChildNode FOR '" + CLASS + ".insertChildNode'");
+        statements.add("CREATE ALIAS DeleteRootAndChildren FOR '" + CLASS + ".deleteRootAndChildren'");
+        statements.add("CREATE TRIGGER AfterDeleteRoot AFTER DELETE ON roots FOR EACH ROW CALL '" + AfterDeleteRoot.class.getName() + "'");
+        return statements;
+    }
+
+    public static byte[] wkb(byte[] wkb) {
+        return wkb;
+    }
+
+    /**
+     * Si H2 solo está pidiendo las columnas del resultado, al preparar la llamada.
+     */
+    private static boolean columnList(Connection connection) throws SQLException {
+        return connection.getMetaData().getURL().equals("jdbc:columnlist:connection");
+    }
+
+    /**
+     * Resultado de una llamada a procedimiento: una fila con un valor por parámetro, de modo que los
+     * parámetros con nombre de {@link java.sql.CallableStatement} corresponden a sus columnas.
+     */
+    private static SimpleResultSet call(String[] names, int[] types, Object... values) {
+        var rs = new SimpleResultSet();
+        for (int i = 0; i < names.length; i++) rs.addColumn(names[i], types[i], 0, 0);
+        if (values.length > 0) rs.addRow(values);
+        return rs;
+    }
+
+    private static int insertNode(Connection connection, String name, String imgURL, byte[] position) throws SQLException {
+        try (var pstmt = connection.prepareStatement("INSERT INTO node (name, imgURL, position) VALUES (?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, name);
+            pstmt.setString(2, imgURL);
+            pstmt.setBytes(3, position);
+            pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                keys.next();
+                return keys.getInt(1);
+            }
+        }
+    }
+
+    private static final String[] ROOT_PARAMETERS = {"node_name", "node_imgURL", "node_position", "root_name", "new_root_id"};
+    private static final int[] ROOT_TYPES = {Types.VARCHAR, Types.VARCHAR, Types.VARBINARY, Types.VARCHAR, Types.INTEGER};
+
+    /**
+     * {@code InsertRootNode}: crea el nodo, su fila de {@code node_closure} y su fila de {@code roots}.
+     */
+    public static ResultSet insertRootNode(Connection connection, String name, String imgURL, byte[] position, String rootName, Integer newRootId) throws SQLException {
+        if (columnList(connection)) return call(ROOT_PARAMETERS, ROOT_TYPES);
+
+        int id = insertNode(connection, name, imgURL, position);
+        try (var statement = connection.createStatement()) {
+            statement.executeUpdate("INSERT INTO node_closure (ancestor_id, descendant_id, depth) VALUES (%d, %d, 0)".formatted(id, id));
+        }
+        try (var pstmt = connection.prepareStatement("INSERT INTO roots (node_id, name) VALUES (?, ?)")) {
+            pstmt.setInt(1, id);
+            pstmt.setString(2, rootName);
+            pstmt.executeUpdate();
+        }
+        return call(ROOT_PARAMETERS, ROOT_TYPES, name, imgURL, position, rootName, id);
+    }
+
+    private static final String[] CHILD_PARAMETERS = {"node_name", "node_imgURL", "node_position", "parent_id", "new_node_id"};
+    private static final int[] CHILD_TYPES = {Types.VARCHAR, Types.VARCHAR, Types.VARBINARY, Types.INTEGER, Types.INTEGER};
+
+    /**
+     * {@code InsertChildNode}: crea el nodo bajo {@code parentId}, con su fila de {@code node_hierarchy}
+     * y sus filas de {@code node_closure}.
+     */
+    public static ResultSet insertChildNode(Connection connection, String name, String imgURL, byte[] position, Integer parentId, Integer newNodeId) throws SQLException {
+        if (columnList(connection)) return call(CHILD_PARAMETERS, CHILD_TYPES);
+
+        if (parentId == null) throw new SQLException("Se requiere un ID de padre válido", "45000");
+        try (var pstmt = connection.prepareStatement("SELECT 1 FROM node WHERE id = ?")) {
+            pstmt.setInt(1, parentId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) throw new SQLException("El nodo padre no existe", "45000");
+            }
+        }
+
+        int id = insertNode(connection, name, imgURL, position);
+        try (var pstmt = connection.prepareStatement("INSERT INTO node_hierarchy (parent_node_id, child_node_id) VALUES (?, ?)")) {
+            pstmt.setInt(1, parentId);
+            pstmt.setInt(2, id);
+            pstmt.executeUpdate();
+        }
+        try (var pstmt = connection.prepareStatement("""
+                INSERT INTO node_closure (ancestor_id, descendant_id, depth)
+                SELECT ancestor_id, CAST(? AS INT), depth + 1 FROM node_closure WHERE descendant_id = ?
+                UNION ALL
+                SELECT CAST(? AS INT), CAST(? AS INT), 0
+                """)) {
+            pstmt.setInt(1, id);
+            pstmt.setInt(2, parentId);
+            pstmt.setInt(3, id);
+            pstmt.setInt(4, id);
+            pstmt.executeUpdate();
+        }
+        return call(CHILD_PARAMETERS, CHILD_TYPES, name, imgURL, position, parentId, id);
+    }
+
+    /**
+     * {@code DeleteRootAndChildren}: borra el árbol de las hojas a la raíz, igual que el procedimiento.
+     */
+    public static void deleteRootAndChildren(Connection connection, int rootId) throws SQLException {
+        int level;
+        try (var pstmt = connection.prepareStatement("SELECT MAX(depth) FROM node_closure WHERE ancestor_id = ?")) {
+            pstmt.setInt(1, rootId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                level = rs.getInt(1);
+                if (rs.wasNull()) return;
+            }
+        }
+        try (var pstmt = connection.prepareStatement("""
+                DELETE FROM node WHERE id IN (SELECT descendant_id FROM node_closure WHERE ancestor_id = ? AND depth = ?)
+                """)) {
+            for (; level >= 0; level--) {
+                pstmt.setInt(1, rootId);
+                pstmt.setInt(2, level);
+                pstmt.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * {@code AfterDeleteRoot}: al borrar una fila de {@code roots} se borra su árbol.
+     */
+    public static class AfterDeleteRoot implements Trigger {
+        @Override
+        public void fire(Connection connection, Object[] oldRow, Object[] newRow) throws SQLException {
+            deleteRootAndChildren(connection, (Integer) oldRow[0]);
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        this.connection.close();
+        this.keeper.close();
+    }
+}
@@ -0,0 +1,137 @@
+package org.treefx.model;
+
+import javafx.geometry.Point2D;
+import org.junit.jupiter.api.Test;
+import org.treefx.utils.adt.Maybe;
+import org.treefx.utils.adt.Movement;
+import org.treefx.utils.adt.T;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmbeddedDatabaseTest {
+    @Test
+    void storesAndLoadsTrees() throws SQLException {
+        try (var database = new EmbeddedDatabase()) {
+            var db = database.getConnection();
+            assertTrue(db.success());
+            int root = db.insertRoot("árbol");
+            int a = db.insertChild(new Point2D(1, 2), root);
+            int b = db.insertChild(new Point2D(3, 4), root);
+            int c = db.insertChild(new Point2D(5, 6), a);
+            assertEquals(-1, db.insertChild(new Point2D(0, 0), c + 100));
+            db.updateNodeInfo(b, new Point2D(7, 8));
+            db.updateNodeInfo(c, "hoja", "url");
+            // Dos movimientos en el mismo punto.
+            db.insertMovementInSpace(a, new MovementInSpace(new Point2D(0.5, 0.5), new LinkedList<>(List.of(Movement.UP, Movement.DOWN(2)))));
+            db.insertMovementInSpace(b, new MovementInSpace(new Point2D(0.5, 0.5), new LinkedList<>(List.of(Movement.DOWN(1)))));
+
+            assertEquals(List.of(new T.MkT<>(root, "árbol")), db.getAllRoots());
+            assertEquals(List.of(new T.MkT<>(root, "árbol")), db.getRootsPage("ÁR", new Maybe.Nothing<>(), 10));
+            assertEquals(new Point2D(7, 8), db.getNodeInfo(b).getPos());
+            assertEquals("hoja", db.getNodeInfo(c).getName());
+            assertEquals(List.of(Movement.UP, Movement.DOWN(2)), db.getChildrenMoves(a).getFirst().getMovements());
+            assertTrue(db.getTreeVersion(root) > 0);
+
+            var zipTree = db.getZipTree(root);
+            assertTrue(zipTree.down());
+            assertEquals(a, zipTree.extract().getId());
+            assertEquals(1, zipTree.extract().getChildren().size());
+            assertTrue(zipTree.down());
+            assertEquals(c, zipTree.extract().getId());
+            zipTree.toFather();
+            assertTrue(zipTree.next());
+            assertEquals(b, zipTree.extract().getId());
+            assertEquals(new Point2D(7, 8), zipTree.extract().getPos());
+
+            assertEquals(List.of(a, b), db.getChildrenPages(List.of(root), -1, 10).get(root).stream().map(NodeInfo::getId).toList());
+        }
+    }
+
+    @Test
+    void removesWholeTrees() throws SQLException {
+        try (var database = new EmbeddedDatabase()) {
+            var db = database.getConnection();
+            int root = db.insertRoot("r");
+            int father = root;
+            for (int i = 0; i < 10; i++) father = db.insertChild(new Point2D(i, i), father);
+            int other = db.insertRoot("otro");
+
+            db.removeRoot(root);
+            assertEquals(List.of(new T.MkT<>(other, "otro")), db.getAllRoots());
+            assertNull(db.getNodeInfo(father));
+            assertNotNull(db.getNodeInfo(other));
+        }
+    }
+
+    @Test
+    void removesSubtreesFromTheLeaves() throws SQLException {
+        try (var database = new EmbeddedDatabase()) {
+            var db = database.getConnection();
+            int root = db.insertRoot("r");
+            int a = db.insertChild(new Point2D(1, 1), root);
+            int b = db.insertChild(new Point2D(2, 2), root);
+            int father = a;
+            for (int i = 0; i < 10; i++) {
+                father = db.insertChild(new Point2D(i, i), father);
+                db.insertChild(new Point2D(i, -i), father);
+            }
+            db.insertMovementInSpace(father, new MovementInSpace(new Point2D(0, 0), new LinkedList<>(List.of(Movement.UP))));
+            long version = db.getTreeVersion(root);
+
+            assertEquals(21, db.removeSubtree(a));
+            assertNull(db.getNodeInfo(a));
+            assertNull(db.getNodeInfo(father));
+            assertTrue(db.getChildrenMoves(father).isEmpty());
+            assertEquals(version + 1, db.getTreeVersion(root));
+            assertEquals(List.of(b), db.getChildrenPages(List.of(root), -1, 10).get(root).stream().map(NodeInfo::getId).toList());
+
+            assertEquals(0, db.removeSubtree(a));
+            assertEquals(version + 1, db.getTreeVersion(root));
+        }
+    }
+
+    @Test
+    void removesMovements() throws SQLException {
+        try (var database = new EmbeddedDatabase()) {
+            var db = database.getConnection();
+            int root = db.insertRoot("r");
+            db.insertMovementInSpace(root, new MovementInSpace(new Point2D(2, 2), new LinkedList<>(List.of(Movement.DOWN(1)))));
+            db.insertMovementInSpace(root, new MovementInSpace(new Point2D(3, 3), new LinkedList<>(List.of(Movement.DOWN(1)))));
+
+            db.removeMovementInSpace(root, new MovementInSpace(new Point2D(2, 2), new LinkedList<>(List.of(Movement.DOWN(1)))));
+            var moves = db.getChildrenMoves(root);
+            assertEquals(1, moves.size());
+            assertEquals(new Point2D(3, 3), moves.getFirst().getPos());
+        }
+    }
+
+    @Test
+    void importsAndExports() throws SQLException, IOException {
+        try (var database = new EmbeddedDatabase()) {
+            var db = database.getConnection();
+            int root = db.insertRoot("r");
+            int child = db.insertChild(new Point2D(1, 2), root);
+            db.insertMovementInSpace(child, new MovementInSpace(new Point2D(0.25, 0.75), new LinkedList<>(List.of(Movement.UP))));
+
+            var bytes = new ByteArrayOutputStream();
+            try (var export = new TreeExport(bytes)) { assertEquals(2, db.exportTree(root, export)); }
+            int copy;
+            try (var source = new TreeImport(new ByteArrayInputStream(bytes.toByteArray()))) {
+                copy = db.importTree("copia", source);
+            }
+            assertTrue(copy > child);
+
+            var zipTree = db.getZipTree(copy);
+            assertTrue(zipTree.down());
+            assertEquals(new Point2D(1, 2), zipTree.extract().getPos());
+            assertEquals(new Point2D(0.25, 0.75), zipTree.extract().getChildren().getFirst().getPos());
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package org.treefx.model;
+
+import javafx.geometry.Point2D;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.treefx.utils.adt.Maybe;
+import org.treefx.utils.adt.Movement;
+import org.treefx.utils.adt.T;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalTreeStoreTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void persistsAcrossReopen() {
+        var store = new LocalTreeStore(dir);
+        assertTrue(store.success());
+        int root = store.insertRoot("árbol");
+        int a = store.insertChild(new Point2D(1, 2), root);
+        int b = store.insertChild(new Point2D(3, 4), root);
+        int c = store.insertChild(new Point2D(5, 6), a);
+        store.updateNodeInfo(b, new Point2D(7, 8));
+        store.updateNodeInfo(c, "hoja", "url");
+        store.insertMovementInSpace(a, new MovementInSpace(new Point2D(0.5, 0.5), new LinkedList<>(List.of(Movement.UP, Movement.DOWN(2)))));
+        store.close();
+
+        var reopened = new LocalTreeStore(dir);
+        assertEquals(List.of(new T.MkT<>(root, "árbol")), reopened.getAllRoots());
+        assertEquals(new Point2D(7, 8), reopened.getNodeInfo(b).getPos());
+        assertEquals("hoja", reopened.getNodeInfo(c).getName());
+        var moves = reopened.getChildrenMoves(a);
+        assertEquals(1, moves.size());
+        assertEquals(List.of(Movement.UP, Movement.DOWN(2)), moves.getFirst().getMovements());
+
+        var zipTree = reopened.getZipTree(root);
+        assertTrue(zipTree.down());
+        assertEquals(a, zipTree.extract().getId());
+        assertTrue(zipTree.down());
+        assertEquals(c, zipTree.extract().getId());
+        zipTree.toFather();
+        assertTrue(zipTree.next());
+        assertEquals(b, zipTree.extract().getId());
+
+        assertTrue(reopened.insertChild(new Point2D(0, 0), root) > c);
+        reopened.close();
+    }
+
+    @Test
+    void removeRootRemovesSubtree() {
+        var store = new LocalTreeStore(dir);
+        int root = store.insertRoot("r");
+        int child = store.insertChild(new Point2D(0, 0), root);
+        store.removeRoot(root);
+
+        assertTrue(store.getAllRoots().isEmpty());
+        assertNull(store.getNodeInfo(child));
+        assertEquals(-1, store.insertChild(new Point2D(0, 0), child));
+        store.close();
+    }
+
+    @Test
+    void removesSubtreesAndMovements() {
+        var store = new LocalTreeStore(dir);
+        int root = store.insertRoot("r");
+        int a = store.insertChild(new Point2D(0, 0), root);
+        int b = store.insertChild(new Point2D(1, 1), root);
+        int c = store.insertChild(new Point2D(2, 2), a);
+        var movement = new MovementInSpace(new Point2D(3, 3), new LinkedList<>(List.of(Movement.DOWN(1))));
+        store.insertMovementInSpace(b, movement);
+        store.insertMovementInSpace(b, new MovementInSpace(new Point2D(4, 4), new LinkedList<>(List.of(Movement.UP))));
+
+        assertEquals(2, store.removeSubtree(a));
+        assertEquals(-1, store.removeSubtree(root));
+        assertEquals(-1, store.removeSubtree(a));
+        store.removeMovementInSpace(b, new MovementInSpace(new Point2D(3, 3), new LinkedList<>(List.of(Movement.DOWN(1)))));
+        store.close();
+
+        var reopened = new LocalTreeStore(dir);
+        assertNull(reopened.getNodeInfo(a));
+        assertNull(reopened.getNodeInfo(c));
+        assertEquals(List.of(b), reopened.getChildrenPages(List.of(root), 0, 10).get(root).stream().map(NodeInfo::getId).toList());
+        var moves = reopened.getChildrenMoves(b);
+        assertEquals(1, moves.size());
+        assertEquals(List.of(Movement.UP), moves.getFirst().getMovements());
+        reopened.close();
+    }
+
+    @Test
+    void childrenPages() {
+        var store = new LocalTreeStore(dir);
+        int root = store.insertRoot("r");
+        var ids = new LinkedList<Integer>();
+        for (int i = 0; i < 7; i++) ids.add(store.insertChild(new Point2D(i, i), root));
+
+        var first = store.getChildrenPages(List.of(root), 0, 3).get(root);
+        assertEquals(ids.subList(0, 3), first.stream().map(NodeInfo::getId).toList());
+        var last = store.getChildrenPages(List.of(root), ids.get(5), 3).get(root);
+        assertEquals(List.of(ids.get(6)), last.stream().map(NodeInfo::getId).toList());
+        assertFalse(store.getChildrenPages(List.of(root), ids.get(6), 3).containsKey(root));
+        store.close();
+    }
+
+    @Test
+    void rootsPages() {
+        var store = new LocalTreeStore(dir);
+        int b = store.insertRoot("beta");
+        int a2 = store.insertRoot("Alfa");
+        int a1 = store.insertRoot("alfa");
+        int g = store.insertRoot("gamma");
+        store.insertRoot("otro");
+
+        var first = store.getRootsPage("", new Maybe.Nothing<>(), 3);
+        assertEquals(List.of(a2, a1, b), first.stream().map(T::fst).toList());
+        var second = store.getRootsPage("", new Maybe.Just<>(first.getLast()), 3);
+        assertEquals(2, second.size());
+        assertEquals(g, second.getFirst().fst());
+
+        var alfa = store.getRootsPage("AL", new Maybe.Nothing<>(), 1);
+        assertEquals(List.of(a2), alfa.stream().map(T::fst).toList());
+        alfa = store.getRootsPage("AL", new Maybe.Just<>(alfa.getLast()), 1);
+        assertEquals(List.of(a1), alfa.stream().map(T::fst).toList());
+        assertTrue(store.getRootsPage("AL", new Maybe.Just<>(alfa.getLast()), 1).isEmpty());
+
+        store.removeRoot(b);
+        assertEquals(List.of(g), store.getRootsPage("", new Maybe.Just<>(new T.MkT<>(a1, "alfa")), 1).stream().map(T::fst).toList());
+        store.close();
+    }
+
+    @Test
+    void ignoresTornRecord() throws IOException {
+        var store = new LocalTreeStore(dir);
+        int root = store.insertRoot("r");
+        int child = store.insertChild(new Point2D(1, 1), root);
+        store.close();
+
+        // Un registro con longitud pero con CRC incorrecto, como si la escritura se hubiera cortado.
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.filter(f -> f.getFileName().toString().startsWith("segment-")).findFirst().orElseThrow();
+        }
+        try (var channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            int end = 0;
+            while (buffer.getInt(end) != 0) end += 8 + buffer.getInt(end);
+            buffer.put(end, ByteBuffer.allocate(13).putInt(5).putInt(1234).put((byte) 3).array());
+        }
+
+        var reopened = new LocalTreeStore(dir);
+        assertNotNull(reopened.getNodeInfo(child));
+        int next = reopened.insertChild(new Point2D(2, 2), root);
+        reopened.close();
+
+        var again = new LocalTreeStore(dir);
+        assertNotNull(again.getNodeInfo(next));
+        again.close();
+    }
+
+    @Test
+    void compactsOnOpen() throws IOException {
+        var store = new LocalTreeStore(dir);
+        int root = store.insertRoot("r");
+        int child = store.insertChild(new Point2D(0, 0), root);
+        for (int i = 0; i < 5000; i++) store.updateNodeInfo(child, new Point2D(i, i));
+        store.close();
+
+        var compacted = new LocalTreeStore(dir);
+        assertEquals(1, compacted.getCompactions());
+        assertEquals(new Point2D(4999, 4999), compacted.getNodeInfo(child).getPos());
+        compacted.close();
+        try (Stream<Path> files = Files.list(dir)) {
+            assertTrue(files.anyMatch(f -> f.getFileName().toString().startsWith("base-")));
+        }
+
+        var reopened = new LocalTreeStore(dir);
+        assertEquals(new Point2D(4999, 4999), reopened.getNodeInfo(child).getPos());
+        assertTrue(reopened.insertChild(new Point2D(0, 0), root) > child);
+        reopened.close();
+    }
+
+    @Test
+    void lockedByAnotherInstance() {
+        var store = new LocalTreeStore(dir);
+        var second = new LocalTreeStore(dir);
+        assertFalse(second.success());
+        store.close();
+    }
+}
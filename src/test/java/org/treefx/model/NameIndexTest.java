@@ -0,0 +1,96 @@
+package org.treefx.model;
+
+import org.junit.jupiter.api.Test;
+import org.treefx.model.ziptree.ZipTreeStrict;
+import org.treefx.utils.adt.Movement;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NameIndexTest {
+    private static List<Integer> ids(List<NameIndex.Hit> hits) {
+        return hits.stream().map(NameIndex.Hit::nodeId).toList();
+    }
+
+    private static ZipTreeStrict<NodeInfo> tree() {
+        return TestTrees.sample("Presentación", "Introducción a los árboles", "Árboles zipper", "Navegación con zipper");
+    }
+
+    @Test
+    void searchesWordsAndPrefixes() {
+        var index = new NameIndex();
+        index.indexTree(tree());
+        assertEquals(4, index.size());
+
+        assertEquals(List.of(2, 3), ids(index.search("arbol", 10)));
+        assertEquals(List.of(3, 4), ids(index.search("ZIPPER", 10)));
+        assertEquals(List.of(4), ids(index.search("zip nav", 10)));
+        // Las palabras cortas solo coinciden con el principio de una palabra.
+        assertEquals(List.of(2), ids(index.search("in", 10)));
+        assertEquals(List.of(2), ids(index.search("a los", 10)));
+        assertEquals(List.of(2), ids(index.search("arbol", 1)));
+        assertTrue(index.search("grafo", 10).isEmpty());
+        assertTrue(index.search("  ", 10).isEmpty());
+
+        var hit = index.search("navegacion", 10).getFirst();
+        assertEquals(1, hit.rootId());
+        assertEquals("Navegación con zipper", hit.name());
+        assertEquals(List.of(Movement.DOWN(1), Movement.DOWN(1)), hit.path());
+        var zipTree = tree();
+        assertTrue(zipTree.moveTo(hit.path()));
+        assertEquals(4, zipTree.extract().getId());
+    }
+
+    @Test
+    void followsEdits() {
+        var index = new NameIndex();
+        index.indexTree(tree());
+
+        index.rename(2, "Grafos");
+        assertTrue(index.search("introduccion", 10).isEmpty());
+        assertEquals(List.of(2), ids(index.search("graf", 10)));
+
+        index.insertChild(3, 5, "Otro zipper");
+        var hit = index.search("otro", 10).getFirst();
+        assertEquals(List.of(Movement.DOWN(2), Movement.DOWN(1)), hit.path());
+        index.insertChild(99, 6, "Sin padre");
+        assertTrue(index.search("padre", 10).isEmpty());
+
+        index.insertRoot(7, "Otro");
+        assertEquals(List.of(5, 7), ids(index.search("otro", 10)));
+
+        index.removeRoot(1);
+        assertEquals(List.of(7), ids(index.search("o", 10)));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void removesOnlyLastChild() {
+        var index = new NameIndex();
+        index.indexTree(tree());
+
+        assertThrows(IllegalStateException.class, () -> index.removeSubtree(2));
+        assertEquals(4, index.size());
+
+        index.removeSubtree(3);
+        assertEquals(3, index.size());
+        index.removeSubtree(2);
+        assertEquals(1, index.size());
+        index.insertChild(1, 5, "Otro zipper");
+        assertEquals(List.of(Movement.DOWN(1)), index.search("otro", 10).getFirst().path());
+    }
+
+    @Test
+    void reindexReplacesTree() {
+        var index = new NameIndex();
+        index.indexTree(tree());
+        var zipTree = tree();
+        zipTree.getRoot().getValue().setName("Portada");
+        index.indexTree(zipTree);
+
+        assertEquals(4, index.size());
+        assertTrue(index.search("presentacion", 10).isEmpty());
+        assertEquals(List.of(1), ids(index.search("portada", 10)));
+    }
+}
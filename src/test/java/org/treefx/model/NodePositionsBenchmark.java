@@ -0,0 +1,172 @@
+package org.treefx.model;
+
+import javafx.geometry.Point2D;
+import org.treefx.utils.ReadCredentials;
+import org.treefx.utils.adt.Maybe;
+import org.treefx.utils.adt.Movement;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Compara las consultas de movimientos sobre {@code node_positions}, con clave primaria
+ * {@code (node_id, id)}, y sobre una copia con la clave anterior ({@code position(25)} más un índice
+ * {@code node_id}) en la base de datos local.
+ * <p>
+ * Crea un árbol temporal de {@code n} nodos (por defecto 2000) con dos movimientos por nodo, el segundo
+ * siempre en el mismo punto, e importa otro de {@code 9n} nodos para que el árbol medido no sea toda la
+ * tabla. Muestra cuántas filas rechaza la clave anterior y, ya sin los movimientos repetidos, el plan de
+ * la consulta del cargador en bloque y las páginas que lee, y el tiempo de esa consulta y de la de
+ * {@link ConnectionDB#getChildrenMoves} para cada nodo del árbol. Elimina los árboles y la copia al
+ * terminar.
+ * </p>
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.treefx.model.NodePositionsBenchmark -Dexec.args=2000
+ * </pre>
+ */
+public class NodePositionsBenchmark {
+    private static final int ROUNDS = 5;
+    private static final int BACKGROUND = 9;
+
+    /**
+     * La consulta de {@code ConnectionDB.getSubtreeMoves}, sobre la tabla indicada.
+     */
+    private static final String LOADER_QUERY = """
+            SELECT positions.node_id, ST_AsBinary(positions.position) AS position, positions.movements
+            FROM node_closure AS subtree
+            INNER JOIN %s AS positions ON positions.node_id = subtree.descendant_id
+            WHERE subtree.ancestor_id = ?
+            """;
+
+    /**
+     * La consulta de {@link ConnectionDB#getChildrenMoves}, sobre la tabla indicada.
+     */
+    private static final String NODE_QUERY = "SELECT ST_AsBinary(position) AS position, movements, node_id FROM %s WHERE node_id = ?";
+
+    private static final Pattern PAGES = Pattern.compile("\"pages_accessed\": (\\d+)");
+
+    private static void explain(Connection jdbc, String table, int rootId) throws SQLException {
+        System.out.println(table + ":");
+        try (var pstmt = jdbc.prepareStatement("EXPLAIN " + LOADER_QUERY.formatted(table))) {
+            pstmt.setInt(1, rootId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    System.out.printf("  %-10s type=%-6s key=%-14s rows=%-6s %s%n",
+                            rs.getString("table"), rs.getString("type"), rs.getString("key"), rs.getString("rows"), rs.getString("Extra"));
+                }
+            }
+        }
+
+        // ANALYZE FORMAT=JSON es de MariaDB; en MySQL no hay recuento de páginas.
+        try (var pstmt = jdbc.prepareStatement("ANALYZE FORMAT=JSON " + LOADER_QUERY.formatted(table))) {
+            pstmt.setInt(1, rootId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                long pages = 0;
+                if (rs.next()) {
+                    var matcher = PAGES.matcher(rs.getString(1));
+                    while (matcher.find()) pages += Long.parseLong(matcher.group(1));
+                }
+                System.out.println("  pages accessed: " + pages);
+            }
+        } catch (SQLException e) { System.out.println("  pages accessed: " + e.getMessage()); }
+    }
+
+    private static void measure(Connection jdbc, String table, int rootId, List<Integer> ids) throws SQLException {
+        try (var loader = jdbc.prepareStatement(LOADER_QUERY.formatted(table));
+             var node = jdbc.prepareStatement(NODE_QUERY.formatted(table))) {
+            for (int round = 1; round <= ROUNDS; round++) {
+                long start = System.nanoTime();
+                int loaderRows = 0;
+                loader.setInt(1, rootId);
+                try (ResultSet rs = loader.executeQuery()) {
+                    while (rs.next()) loaderRows++;
+                }
+                long loaderNanos = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                int nodeRows = 0;
+                for (int id : ids) {
+                    node.setInt(1, id);
+                    try (ResultSet rs = node.executeQuery()) {
+                        while (rs.next()) nodeRows++;
+                    }
+                }
+                long nodeNanos = System.nanoTime() - start;
+
+                System.out.printf("round %d %s: loader %d rows, %.1f ms | per node %d queries, %d rows, %.1f ms%n",
+                        round, table, loaderRows, loaderNanos / 1e6, ids.size(), nodeRows, nodeNanos / 1e6);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        var userPass = ReadCredentials.read();
+        var connection = new ConnectionDB("localhost", "3306", userPass.fst(), userPass.snd(), "treefx");
+        if (!connection.success()) return;
+
+        int rootId = ZipTreeLoaderBenchmark.createTree(connection, n);
+        int backgroundId = connection.importTree("benchmark-background", TreeImport.preorder(TreeImportBenchmark.randomTree(BACKGROUND * n)));
+        try (var jdbc = DriverManager.getConnection("jdbc:mysql://localhost:3306/treefx?useSSL=false&serverTimezone=UTC", userPass.fst(), userPass.snd());
+             var statement = jdbc.createStatement()) {
+            var ids = new ArrayList<Integer>();
+            var updates = new LinkedList<NodeUpdate>();
+            try (var pstmt = jdbc.prepareStatement("SELECT descendant_id FROM node_closure WHERE ancestor_id = ?")) {
+                pstmt.setInt(1, rootId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getInt(1));
+                        var moves = new LinkedList<>(List.of(new MovementInSpace(new Point2D(0.5, 0.5), new LinkedList<>(List.of(Movement.DOWN(1))))));
+                        updates.add(new NodeUpdate(rs.getInt(1), new Maybe.Nothing<>(), new Maybe.Nothing<>(), moves));
+                    }
+                }
+            }
+            connection.updateNodeInfos(updates);
+
+            statement.execute("DROP TABLE IF EXISTS node_positions_before");
+            statement.execute("""
+                    CREATE TABLE node_positions_before (
+                      `position` point NOT NULL,
+                      node_id int(11) NOT NULL,
+                      movements varbinary(4096) DEFAULT NULL,
+                      PRIMARY KEY (`position`(25)),
+                      KEY node_id (node_id)
+                    ) ENGINE=InnoDB
+                    """);
+            try {
+                int total;
+                try (ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM node_positions")) {
+                    rs.next();
+                    total = rs.getInt(1);
+                }
+                int copied = statement.executeUpdate("""
+                        INSERT IGNORE INTO node_positions_before (position, node_id, movements)
+                        SELECT position, node_id, movements FROM node_positions ORDER BY node_id, id
+                        """);
+                System.out.printf("%d movements in node_positions; the old key keeps %d (rejects %d repeated points)%n",
+                        total, copied, total - copied);
+                // Sin los movimientos repetidos, para que las dos tablas tengan las mismas filas.
+                statement.execute("DELETE FROM node_positions WHERE position = POINT(0.5, 0.5)");
+                statement.execute("DELETE FROM node_positions_before WHERE position = POINT(0.5, 0.5)");
+                statement.execute("ANALYZE TABLE node_positions, node_positions_before");
+
+                explain(jdbc, "node_positions_before", rootId);
+                explain(jdbc, "node_positions", rootId);
+                measure(jdbc, "node_positions_before", rootId, ids);
+                measure(jdbc, "node_positions", rootId, ids);
+            } finally {
+                statement.execute("DROP TABLE node_positions_before");
+            }
+        } finally {
+            connection.removeRoot(rootId);
+            if (backgroundId >= 0) connection.removeRoot(backgroundId);
+            connection.close();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package org.treefx.model;
+
+import javafx.geometry.Point2D;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.treefx.utils.adt.Maybe;
+import org.treefx.utils.adt.Movement;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OperationJournalTest {
+    @TempDir
+    Path dir;
+
+    private static NodeInfo pending() {
+        return new NodeInfo(-1, "", "", new Point2D(0, 0), new LinkedList<>());
+    }
+
+    @Test
+    void replaysUnappliedOperations() throws IOException {
+        Path file = dir.resolve("journal.log");
+        var journal = new OperationJournal(file);
+        var root = pending();
+        var child = pending();
+        journal.insertRoot(root, "árbol");
+        journal.insertChild(root, child, new Point2D(1, 1));
+        journal.setPos(child, new Point2D(2, 3));
+        journal.setInfo(child, "hijo", "url");
+        journal.addPos(child, new MovementInSpace(new Point2D(4, 5), new LinkedList<>(List.of(Movement.UP))));
+        // Se cierra sin marcar nada como aplicado, igual que si la aplicación se hubiera caído tras sincronizar.
+        journal.close();
+        assertEquals(5, journal.getAppended());
+        assertEquals(0, journal.getApplied());
+        assertTrue(journal.getSyncs() > 0 && journal.getSyncedBytes() > 0);
+
+        var store = new LocalTreeStore(dir.resolve("store"));
+        var reopened = new OperationJournal(file);
+        assertEquals(5, reopened.getRecovered());
+        assertEquals(5, reopened.replay(store));
+        assertEquals(5, reopened.getReplayed());
+        assertEquals(reopened.getSeq(), reopened.getApplied());
+        reopened.close();
+
+        var roots = store.getAllRoots();
+        assertEquals(1, roots.size());
+        var zipTree = store.getZipTree(roots.getFirst().fst());
+        assertTrue(zipTree.down());
+        var nodeInfo = zipTree.extract();
+        assertEquals(new Point2D(2, 3), nodeInfo.getPos());
+        assertEquals("hijo", nodeInfo.getName());
+        assertEquals(List.of(Movement.UP), nodeInfo.getChildren().getFirst().getMovements());
+        assertFalse(zipTree.next());
+
+        var again = new OperationJournal(file);
+        assertEquals(0, again.getRecovered());
+        again.close();
+        store.close();
+    }
+
+    @Test
+    void resolvesAssignedIds() throws IOException {
+        Path file = dir.resolve("journal.log");
+        var store = new LocalTreeStore(dir.resolve("store"));
+        int rootId = store.insertRoot("r");
+        var root = new NodeInfo(rootId, "", "", new Point2D(0, 0), new LinkedList<>());
+        var child = pending();
+
+        var journal = new OperationJournal(file);
+        long insert = journal.insertChild(root, child, new Point2D(1, 1));
+        // El cambio se registra antes de conocer el ID, con la referencia provisional.
+        journal.setPos(child, new Point2D(9, 9));
+        child.setId(store.insertChild(new Point2D(1, 1), rootId));
+        journal.assigned(child);
+        journal.applied(insert);
+        journal.close();
+
+        var reopened = new OperationJournal(file);
+        assertEquals(1, reopened.getRecovered());
+        assertEquals(1, reopened.replay(store));
+        reopened.close();
+
+        assertEquals(new Point2D(9, 9), store.getNodeInfo(child.getId()).getPos());
+        assertEquals(1, store.getChildrenPages(List.of(rootId), 0, 10).get(rootId).size());
+        store.close();
+    }
+
+    @Test
+    void replaysRemovals() throws IOException {
+        Path file = dir.resolve("journal.log");
+        var store = new LocalTreeStore(dir.resolve("store"));
+        int rootId = store.insertRoot("r");
+        int childId = store.insertChild(new Point2D(1, 1), rootId);
+        var movement = new MovementInSpace(new Point2D(2, 2), new LinkedList<>(List.of(Movement.DOWN(1))));
+        store.insertMovementInSpace(rootId, movement);
+
+        var journal = new OperationJournal(file);
+        journal.removePos(new NodeInfo(rootId, "", "", new Point2D(0, 0), new LinkedList<>()), movement);
+        journal.removeSubtree(new NodeInfo(childId, "", "", new Point2D(1, 1), new LinkedList<>()));
+        journal.close();
+
+        var reopened = new OperationJournal(file);
+        assertEquals(2, reopened.replay(store));
+        reopened.close();
+
+        assertTrue(store.getChildrenMoves(rootId).isEmpty());
+        assertNull(store.getNodeInfo(childId));
+        store.close();
+    }
+
+    @Test
+    void dropsTornTail() throws IOException {
+        Path file = dir.resolve("journal.log");
+        var journal = new OperationJournal(file);
+        var nodeInfo = new NodeInfo(5, "", "", new Point2D(0, 0), new LinkedList<>());
+        journal.setPos(nodeInfo, new Point2D(1, 1));
+        journal.setPos(nodeInfo, new Point2D(2, 2));
+        journal.close();
+        long size = Files.size(file);
+        Files.write(file, new byte[]{ 0, 0, 0, 40, 1, 2, 3 }, StandardOpenOption.APPEND);
+
+        var reopened = new OperationJournal(file);
+        assertEquals(2, reopened.getRecovered());
+        assertEquals(size, Files.size(file));
+        assertEquals(3, reopened.setPos(nodeInfo, new Point2D(3, 3)));
+        reopened.close();
+    }
+
+    @Test
+    void asyncConnectionMarksApplied() throws IOException {
+        Path file = dir.resolve("journal.log");
+        var connection = new ConnectionDBAsync(new LocalTreeStore(dir.resolve("store")), new Maybe.Nothing<>(), new Maybe.Just<>(file));
+        var root = pending();
+        connection.insertRoot("r", root);
+        var child = pending();
+        connection.insertChild(new Point2D(1, 1), root, child);
+        connection.updateNodeInfo(child, new Point2D(2, 2));
+        connection.close();
+
+        var reopened = new OperationJournal(file);
+        assertEquals(0, reopened.getRecovered());
+        reopened.close();
+    }
+
+    @Test
+    void asyncConnectionReplaysOnOpen() throws IOException {
+        Path file = dir.resolve("journal.log");
+        var store = new LocalTreeStore(dir.resolve("store"));
+        var journal = new OperationJournal(file);
+        journal.insertRoot(pending(), "r");
+        journal.close();
+
+        var connection = new ConnectionDBAsync(store, new Maybe.Nothing<>(), new Maybe.Just<>(file));
+        connection.submit(db -> null).join();
+        assertEquals(1, connection.getJournal().fromJust().getReplayed());
+        assertEquals(1, store.getAllRoots().size());
+        connection.close();
+    }
+
+    @Test
+    void failedOperationsStayUnapplied() throws IOException {
+        Path file = dir.resolve("journal.log");
+        var disconnected = new ConnectionDB("localhost", "1", "", "", "treefx");
+        var connection = new ConnectionDBAsync(disconnected, new Maybe.Nothing<>(), new Maybe.Just<>(file));
+        var root = new NodeInfo(5, "", "", new Point2D(0, 0), new LinkedList<>());
+        connection.updateNodeInfo(root, new Point2D(1, 1));
+        connection.insertChild(new Point2D(2, 2), root, pending());
+        connection.updateNodeInfo(root, "raíz", "");
+        connection.close();
+        assertEquals(1, connection.getJournal().fromJust().getFailed());
+        assertEquals(0, connection.getJournal().fromJust().getApplied());
+
+        var reopened = new OperationJournal(file);
+        assertEquals(3, reopened.getRecovered());
+        reopened.close();
+    }
+
+    @Test
+    void replayStopsAtFirstFailure() throws IOException {
+        Path file = dir.resolve("journal.log");
+        var store = new LocalTreeStore(dir.resolve("store"));
+        var root = new NodeInfo(store.insertRoot("r"), "", "", new Point2D(0, 0), new LinkedList<>());
+
+        var journal = new OperationJournal(file);
+        // Una raíz no puede quitarse como subárbol, así que la primera operación falla.
+        journal.removeSubtree(root);
+        journal.setPos(root, new Point2D(3, 3));
+        journal.close();
+
+        var reopened = new OperationJournal(file);
+        assertEquals(1, reopened.replay(store));
+        assertEquals(1, reopened.getFailed());
+        assertEquals(0, reopened.getApplied());
+        reopened.close();
+        assertEquals(new Point2D(3, 3), store.getNodeInfo(root.getId()).getPos());
+
+        var again = new OperationJournal(file);
+        assertEquals(2, again.getRecovered());
+        again.close();
+        store.close();
+    }
+}
@@ -0,0 +1,64 @@
+package org.treefx.model;
+
+import javafx.geometry.Point2D;
+
+import java.util.Random;
+
+/**
+ * Compara la conversión de posiciones en texto ({@code AsText}/{@code GeomFromText} y
+ * {@link ConnectionDB#toPoint2D(String)}) con la conversión en WKB ({@code ST_AsBinary}/{@code ST_GeomFromWKB}
+ * y {@link ConnectionDB#toPoint2D(byte[])}), en tiempo por punto.
+ * <p>
+ * No necesita la base de datos: las cadenas y los bytes se preparan en memoria con {@code n} puntos
+ * aleatorios (por defecto 1000000).
+ * </p>
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.treefx.model.PointCodecBenchmark -Dexec.args=1000000
+ * </pre>
+ */
+public class PointCodecBenchmark {
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        var connection = new ConnectionDB("localhost", "1", "", "", "treefx");
+
+        var random = new Random(42);
+        var points = new Point2D[n];
+        var texts = new String[n];
+        var wkbs = new byte[n][];
+        for (int i = 0; i < n; i++) {
+            points[i] = new Point2D(random.nextInt(2000) + random.nextDouble(), random.nextInt(2000) + random.nextDouble());
+            texts[i] = "POINT(" + points[i].getX() + " " + points[i].getY() + ")";
+            wkbs[i] = ConnectionDB.toWKB(points[i]);
+        }
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            double sink = 0;
+
+            long start = System.nanoTime();
+            for (String text : texts) sink += connection.toPoint2D(text).getX();
+            double textReadNs = (System.nanoTime() - start) / (double) n;
+
+            start = System.nanoTime();
+            for (byte[] wkb : wkbs) sink += ConnectionDB.toPoint2D(wkb).getX();
+            double wkbReadNs = (System.nanoTime() - start) / (double) n;
+
+            start = System.nanoTime();
+            for (Point2D p : points) sink += ("Point("+ p.getX() + " " + p.getY() +")").length();
+            double textWriteNs = (System.nanoTime() - start) / (double) n;
+
+            start = System.nanoTime();
+            for (Point2D p : points) sink += ConnectionDB.toWKB(p).length;
+            double wkbWriteNs = (System.nanoTime() - start) / (double) n;
+
+            System.out.printf("round %d: read text %.1f ns | read wkb %.1f ns | write text %.1f ns | write wkb %.1f ns | (%.0f)%n",
+                    round, textReadNs, wkbReadNs, textWriteNs, wkbWriteNs, sink);
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (!ConnectionDB.toPoint2D(wkbs[i]).equals(connection.toPoint2D(texts[i])))
+                throw new AssertionError("Punto distinto en " + i + ": " + texts[i]);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.treefx.model;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryMetricsTest {
+    private EmbeddedDatabase database;
+
+    @BeforeEach
+    void open() throws Exception {
+        this.database = new EmbeddedDatabase();
+    }
+
+    @AfterEach
+    void close() throws Exception {
+        this.database.close();
+    }
+
+    private ConnectionPool pool(QueryMetrics metrics) throws Exception {
+        return new ConnectionPool(this.database.getUrl(), "sa", "", 1, metrics);
+    }
+
+    @Test
+    void measuresStatementsAndOperations() throws Exception {
+        var metrics = new QueryMetrics();
+        var pool = pool(metrics);
+        try (var lease = pool.acquire()) {
+            var pstmt = lease.prepareStatement("SELECT CAST(? AS INT) UNION ALL SELECT CAST(? AS INT)");
+            for (int i = 0; i < 3; i++) {
+                pstmt.setInt(1, i);
+                pstmt.setInt(2, i + 1);
+                try (var rs = pstmt.executeQuery()) {
+                    while (rs.next()) rs.getInt(1);
+                }
+            }
+            try (var statement = lease.getConnection().createStatement()) {
+                assertEquals(0, statement.executeUpdate("SET @x = 1"));
+            }
+        }
+        pool.close();
+
+        var select = metrics.getStatements().get("SELECT CAST(? AS INT) UNION ALL SELECT CAST(? AS INT)");
+        assertEquals(3, select.getCount());
+        assertEquals(6, select.getRows());
+        assertTrue(select.getPercentileMillis(50) <= select.getPercentileMillis(99));
+        assertTrue(select.getPercentileMillis(99) <= select.getMaxMillis());
+        assertEquals(1, metrics.getStatements().get("SET @x = 1").getCount());
+
+        var operation = metrics.getOperations().get("QueryMetricsTest.measuresStatementsAndOperations");
+        assertEquals(1, operation.getCount());
+        assertEquals(4, operation.getStatements());
+        assertEquals(6, operation.getRows());
+        assertTrue(metrics.getSlowQueries().isEmpty());
+    }
+
+    @Test
+    void logsSlowAndFailedQueries(@TempDir Path dir) throws Exception {
+        var metrics = new QueryMetrics();
+        metrics.setSlowQueryMillis(0);
+        var pool = pool(metrics);
+
+        try (var recording = new Recording()) {
+            recording.enable("org.treefx.Query");
+            recording.start();
+            try (var lease = pool.acquire()) {
+                var pstmt = lease.prepareStatement("SELECT ?, ?");
+                pstmt.setString(1, "hola");
+                pstmt.setBytes(2, new byte[]{1, 2});
+                try (var rs = pstmt.executeQuery()) {
+                    assertTrue(rs.next());
+                }
+                var failing = lease.prepareStatement("SELECT CAST(? AS INT)");
+                failing.setString(1, "no es un número");
+                assertThrows(SQLException.class, failing::executeQuery);
+            }
+            recording.stop();
+            recording.dump(dir.resolve("queries.jfr"));
+        }
+        pool.close();
+
+        var slow = metrics.getSlowQueries();
+        assertEquals(2, slow.size());
+        assertTrue(slow.getFirst().startsWith("Consulta lenta"));
+        assertTrue(slow.getFirst().endsWith("SELECT ?, ? ['hola', 0x0102]"));
+        assertTrue(slow.getLast().startsWith("Consulta fallida"));
+        assertEquals(1, metrics.getStatements().get("SELECT CAST(? AS INT)").getErrors());
+
+        var events = RecordingFile.readAllEvents(dir.resolve("queries.jfr")).stream()
+                .filter(e -> e.getEventType().getName().equals("org.treefx.Query"))
+                .toList();
+        assertEquals(2, events.size());
+        assertEquals("SELECT ?, ?", events.getFirst().getString("sql"));
+        assertEquals("QueryMetricsTest.logsSlowAndFailedQueries", events.getFirst().getString("operation"));
+        assertTrue(events.getLast().getBoolean("failed"));
+    }
+}
@@ -0,0 +1,49 @@
+package org.treefx.model;
+
+import javafx.geometry.Point2D;
+import org.treefx.model.ziptree.ZipTreeStrict;
+import org.treefx.utils.adt.Movement;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Nodos y árboles de ejemplo compartidos por las pruebas del modelo.
+ */
+final class TestTrees {
+    private TestTrees() {}
+
+    /**
+     * Crea un nodo sin movimientos, en la posición {@code (id, -id)} y con una de dos imágenes según
+     * la paridad del ID, para que haya URLs repetidas.
+     *
+     * @param id   el ID del nodo.
+     * @param name el nombre del nodo.
+     * @return el nodo.
+     */
+    static NodeInfo node(int id, String name) {
+        return new NodeInfo(id, name, "img/" + (id % 2) + ".png", new Point2D(id, -id), new LinkedList<>());
+    }
+
+    /**
+     * Crea el árbol de ejemplo: raíz 1 con los hijos 2 y 3; el 2 tiene un hijo 4, con un movimiento
+     * espacial hacia el 3. El foco queda en la raíz.
+     *
+     * @param root       el nombre de la raíz.
+     * @param first      el nombre del nodo 2.
+     * @param second     el nombre del nodo 3.
+     * @param grandchild el nombre del nodo 4.
+     * @return el árbol.
+     */
+    static ZipTreeStrict<NodeInfo> sample(String root, String first, String second, String grandchild) {
+        var zipTree = new ZipTreeStrict<>(node(1, root));
+        zipTree.insertChild(node(2, first));
+        zipTree.insertChild(node(3, second));
+        zipTree.toChild(1);
+        zipTree.insertChild(node(4, grandchild));
+        zipTree.toChild(1);
+        zipTree.extract().addPos(new MovementInSpace(new Point2D(0.5, 0.25), new LinkedList<>(List.of(Movement.UP, Movement.UP, Movement.DOWN(2)))));
+        zipTree.toRoot();
+        return zipTree;
+    }
+}
@@ -0,0 +1,57 @@
+package org.treefx.model;
+
+import org.treefx.utils.ReadCredentials;
+
+import java.io.OutputStream;
+
+/**
+ * Mide el rendimiento de la exportación, en nodos por segundo, con el cursor de
+ * {@link ConnectionDB#exportTree(int, TreeExport)} y con un árbol ya en memoria
+ * ({@link TreeExport#tree(org.treefx.model.ziptree.ZipTreeStrict)}), sobre la base de datos local.
+ * <p>
+ * Crea un árbol temporal de {@code n} nodos (por defecto 5000) con {@link ZipTreeLoaderBenchmark},
+ * escribe las exportaciones en un flujo que descarta los bytes, muestra también la memoria en uso
+ * después de cada una y elimina el árbol al terminar.
+ * </p>
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.treefx.model.TreeExportBenchmark -Dexec.args=5000
+ * </pre>
+ */
+public class TreeExportBenchmark {
+    private static final int ROUNDS = 5;
+
+    private static long usedMiB() {
+        var runtime = Runtime.getRuntime();
+        System.gc();
+        return (runtime.totalMemory() - runtime.freeMemory()) >> 20;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        var userPass = ReadCredentials.read();
+        var connection = new ConnectionDB("localhost", "3306", userPass.fst(), userPass.snd(), "treefx");
+        if (!connection.success()) return;
+
+        int rootId = ZipTreeLoaderBenchmark.createTree(connection, n);
+        try {
+            for (int round = 1; round <= ROUNDS; round++) {
+                var cursor = new TreeExport(OutputStream.nullOutputStream());
+                try (cursor) { connection.exportTree(rootId, cursor); }
+                long cursorMiB = usedMiB();
+
+                var zipTree = connection.getZipTreeBulk(rootId);
+                var memory = new TreeExport(OutputStream.nullOutputStream());
+                try (memory) { memory.tree(zipTree); }
+                long memoryMiB = usedMiB();
+
+                System.out.printf("round %d: cursor %d nodes, %.0f nodes/s, %d MiB used | in memory %d nodes, %.0f nodes/s, %d MiB used%n",
+                        round,
+                        cursor.getNodes(), cursor.getNodesPerSecond(), cursorMiB,
+                        memory.getNodes(), memory.getNodesPerSecond(), memoryMiB);
+            }
+        } finally {
+            connection.removeRoot(rootId);
+            connection.close();
+        }
+    }
+}
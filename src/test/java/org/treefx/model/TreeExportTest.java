@@ -0,0 +1,75 @@
+package org.treefx.model;
+
+import javafx.geometry.Point2D;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.treefx.utils.adt.Movement;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.treefx.model.TestTrees.node;
+
+class TreeExportTest {
+    @Test
+    void writesTreeInPreorder() throws IOException {
+        var zipTree = TestTrees.sample("raíz", "dice \"hola\"\n", "tres", null);
+
+        var bytes = new ByteArrayOutputStream();
+        var export = new TreeExport(bytes);
+        export.tree(zipTree);
+        export.close();
+        assertEquals(4, export.getNodes());
+
+        assertEquals("""
+                {"format":"treefx","version":1,"nodes":[
+                {"id":1,"parent":null,"name":"raíz","imgURL":"img/1.png","x":1.0,"y":-1.0,"movements":[]},
+                {"id":2,"parent":1,"name":"dice \\"hola\\"\\n","imgURL":"img/0.png","x":2.0,"y":-2.0,"movements":[]},
+                {"id":4,"parent":2,"name":null,"imgURL":"img/0.png","x":4.0,"y":-4.0,"movements":[{"x":0.5,"y":0.25,"path":["Up","Up","Down(2)"]}]},
+                {"id":3,"parent":1,"name":"tres","imgURL":"img/1.png","x":3.0,"y":-3.0,"movements":[]}
+                ]}
+                """, bytes.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void exportsFromStore(@TempDir Path dir) throws IOException {
+        var store = new LocalTreeStore(dir);
+        int root = store.insertRoot("r");
+        int child = store.insertChild(new Point2D(1, 2), root);
+        store.insertChild(new Point2D(3, 4), child);
+
+        var bytes = new ByteArrayOutputStream();
+        try (var export = new TreeExport(bytes)) {
+            assertEquals(3, store.exportTree(root, export));
+            assertEquals(-1, store.exportTree(root + 100, export));
+        }
+        String json = bytes.toString(StandardCharsets.UTF_8);
+        assertTrue(json.contains("{\"id\":" + child + ",\"parent\":" + root + ","));
+        assertTrue(json.endsWith("\n]}\n"));
+        store.close();
+    }
+
+    @Test
+    void rejectsNonFiniteCoordinates(@TempDir Path dir) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        try (var export = new TreeExport(bytes)) {
+            assertThrows(IllegalArgumentException.class, () -> export.node(-1, new NodeInfo(1, "", "", new Point2D(Double.NaN, 0), new LinkedList<>())));
+            var infinite = node(2, "");
+            infinite.addPos(new MovementInSpace(new Point2D(0, Double.POSITIVE_INFINITY), new LinkedList<>(List.of(Movement.UP))));
+            assertThrows(IllegalArgumentException.class, () -> export.node(-1, infinite));
+        }
+
+        var store = new LocalTreeStore(dir);
+        int root = store.insertRoot("r");
+        store.insertChild(new Point2D(Double.NEGATIVE_INFINITY, 0), root);
+        try (var export = new TreeExport(new ByteArrayOutputStream())) {
+            assertEquals(-1, store.exportTree(root, export));
+        }
+        store.close();
+    }
+}
@@ -0,0 +1,97 @@
+package org.treefx.model;
+
+import javafx.geometry.Point2D;
+import org.treefx.model.ziptree.ZipTreeStrict;
+import org.treefx.utils.ReadCredentials;
+import org.treefx.utils.adt.Movement;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.Random;
+
+/**
+ * Compara la importación por lotes ({@link ConnectionDB#importTree(String, java.util.Iterator)}) con la
+ * inserción nodo a nodo mediante {@code InsertChildNode}, en nodos por segundo, sobre la base de datos local.
+ * <p>
+ * Construye en memoria un árbol aleatorio (con semilla fija) de {@code n} nodos (por defecto 50000) con un
+ * movimiento por nodo, lo exporta a un documento de {@link TreeExport} y lo importa; la inserción nodo a
+ * nodo se mide con un árbol de {@code min(n, 2000)} nodos creado por {@link ZipTreeLoaderBenchmark}.
+ * Comprueba que el árbol importado tiene el mismo contenido y elimina los árboles al terminar.
+ * </p>
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.treefx.model.TreeImportBenchmark -Dexec.args=50000
+ * </pre>
+ */
+public class TreeImportBenchmark {
+    /**
+     * Crea en memoria un árbol aleatorio (con semilla fija) de {@code n} nodos con un movimiento por nodo.
+     */
+    static ZipTreeStrict<NodeInfo> randomTree(int n) {
+        var random = new Random(7);
+        var zipTree = new ZipTreeStrict<>(new NodeInfo(0, "raíz", "", new Point2D(0, 0), new LinkedList<>()));
+        var ctxs = new ArrayList<>(java.util.List.of(zipTree.getCtx()));
+        for (int i = 1; i < n; i++) {
+            var moves = new LinkedList<Movement>();
+            moves.add(Movement.UP);
+            var movements = new LinkedList<MovementInSpace>();
+            movements.add(new MovementInSpace(new Point2D(random.nextDouble(), random.nextDouble()), moves));
+
+            zipTree.setCtx(ctxs.get(random.nextInt(ctxs.size())));
+            zipTree.insertChild(new NodeInfo(i, "nodo " + i, "img/" + i, new Point2D(random.nextInt(1000), random.nextInt(1000)), movements));
+            ctxs.add(zipTree.getCtx().getChildren().getLast().getCurrent().snd());
+        }
+        zipTree.toRoot();
+        return zipTree;
+    }
+
+    private static ArrayList<String> contents(ZipTreeStrict<NodeInfo> zipTree) {
+        var contents = new ArrayList<String>();
+        var nodes = TreeImport.preorder(zipTree);
+        while (nodes.hasNext()) {
+            var nodeInfo = nodes.next().nodeInfo();
+            contents.add(nodeInfo.getName() + "|" + nodeInfo.getPos() + "|" + nodeInfo.getChildren().size());
+        }
+        return contents;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        var userPass = ReadCredentials.read();
+        var connection = new ConnectionDB("localhost", "3306", userPass.fst(), userPass.snd(), "treefx");
+        if (!connection.success()) return;
+
+        var zipTree = randomTree(n);
+        var bytes = new ByteArrayOutputStream();
+        try (var export = new TreeExport(bytes)) { export.tree(zipTree); }
+
+        int perNode = Math.min(n, 2000);
+        long trips = connection.getRoundTrips();
+        long start = System.nanoTime();
+        int slowRootId = ZipTreeLoaderBenchmark.createTree(connection, perNode);
+        long slowNanos = System.nanoTime() - start;
+        long slowTrips = connection.getRoundTrips() - trips;
+
+        int rootId = -1;
+        try {
+            trips = connection.getRoundTrips();
+            start = System.nanoTime();
+            try (var source = new TreeImport(new ByteArrayInputStream(bytes.toByteArray()))) {
+                rootId = connection.importTree("benchmark-import-" + n, source);
+            }
+            long importNanos = System.nanoTime() - start;
+            long importTrips = connection.getRoundTrips() - trips;
+            if (rootId < 0) return;
+
+            System.out.printf("per node: %d nodes, %d round trips, %.1f ms, %.0f nodes/s | batched import: %d nodes, %d round trips, %.1f ms, %.0f nodes/s | same tree: %b%n",
+                    perNode, slowTrips, slowNanos / 1e6, perNode * 1e9 / slowNanos,
+                    n, importTrips, importNanos / 1e6, n * 1e9 / importNanos,
+                    contents(zipTree).equals(contents(connection.getZipTreeBulk(rootId))));
+        } finally {
+            connection.removeRoot(slowRootId);
+            if (rootId >= 0) connection.removeRoot(rootId);
+            connection.close();
+        }
+    }
+}
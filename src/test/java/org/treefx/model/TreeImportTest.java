@@ -0,0 +1,92 @@
+package org.treefx.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.treefx.model.ziptree.ZipTreeStrict;
+import org.treefx.utils.adt.Movement;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.treefx.model.TestTrees.node;
+
+class TreeImportTest {
+    /**
+     * Nombre, imagen, posición y movimientos de cada nodo en preorden, sin los IDs.
+     */
+    private static List<String> contents(Iterator<TreeImport.Node> nodes) {
+        var contents = new ArrayList<String>();
+        while (nodes.hasNext()) {
+            var nodeInfo = nodes.next().nodeInfo();
+            var moves = nodeInfo.getChildren().stream().map(m -> m.getPos() + "" + m.getMovements()).toList();
+            contents.add(nodeInfo.getName() + "|" + nodeInfo.getImgURL() + "|" + nodeInfo.getPos() + "|" + moves);
+        }
+        return contents;
+    }
+
+    private static ZipTreeStrict<NodeInfo> tree() {
+        return TestTrees.sample("raíz", "dice \"hola\"\n", "tres", "cuatro");
+    }
+
+    private static byte[] export(ZipTreeStrict<NodeInfo> zipTree) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        try (var export = new TreeExport(bytes)) { export.tree(zipTree); }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void readsExport() throws IOException {
+        var zipTree = tree();
+        try (var source = new TreeImport(new ByteArrayInputStream(export(zipTree)))) {
+            var first = source.next();
+            assertEquals(1, first.id());
+            assertEquals(-1, first.parentId());
+            var second = source.next();
+            assertEquals(2, second.id());
+            assertEquals(1, second.parentId());
+            assertEquals("dice \"hola\"\n", second.nodeInfo().getName());
+            var third = source.next();
+            assertEquals(4, third.id());
+            assertEquals(List.of(Movement.UP, Movement.UP, Movement.DOWN(2)), third.nodeInfo().getChildren().getFirst().getMovements());
+            assertEquals(1, contents(source).size());
+            assertEquals(4, source.getNodes());
+        }
+    }
+
+    @Test
+    void importsIntoStore(@TempDir Path dir) throws IOException {
+        var zipTree = tree();
+        var store = new LocalTreeStore(dir);
+        int rootId;
+        try (var source = new TreeImport(new ByteArrayInputStream(export(zipTree)))) {
+            rootId = store.importTree("copia", source);
+        }
+        assertTrue(rootId >= 0);
+        assertEquals("copia", store.getAllRoots().getFirst().snd());
+        assertEquals(contents(TreeImport.preorder(zipTree)), contents(TreeImport.preorder(store.getZipTree(rootId))));
+        store.close();
+    }
+
+    @Test
+    void rejectsOrphansAndBadDocuments(@TempDir Path dir) {
+        var store = new LocalTreeStore(dir);
+        var orphan = List.of(
+                new TreeImport.Node(1, -1, node(1, "r")),
+                new TreeImport.Node(2, 7, node(2, "huérfano")));
+        assertEquals(-1, store.importTree("r", orphan.iterator()));
+        assertTrue(store.getAllRoots().isEmpty());
+        store.close();
+
+        byte[] other = "{\"format\":\"otro\",\"nodes\":[]}".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IllegalArgumentException.class, () -> new TreeImport(new ByteArrayInputStream(other)));
+        byte[] newer = "{\"format\":\"treefx\",\"version\":99,\"nodes\":[]}".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IllegalArgumentException.class, () -> new TreeImport(new ByteArrayInputStream(newer)));
+    }
+}
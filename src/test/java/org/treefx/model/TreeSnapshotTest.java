@@ -0,0 +1,105 @@
+package org.treefx.model;
+
+import javafx.geometry.Point2D;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.treefx.model.ziptree.ZipTreePersistent;
+import org.treefx.model.ziptree.ZipTreeStrict;
+import org.treefx.utils.adt.Movement;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.treefx.model.TestTrees.node;
+
+class TreeSnapshotTest {
+    @TempDir
+    Path dir;
+
+    private static ZipTreeStrict<NodeInfo> sample() {
+        return TestTrees.sample("raíz", "dos", "tres ñ", "");
+    }
+
+    @Test
+    void roundTrip() throws IOException {
+        var zipTree = sample();
+        var before = zipTree.extract();
+        Path file = TreeSnapshot.path(dir, 1);
+        TreeSnapshot.write(file, zipTree, 7);
+        assertSame(before, zipTree.extract());
+
+        var read = TreeSnapshot.read(file, 1, 7);
+        assertTrue(read.isJust());
+        var copy = read.fromJust();
+        assertEquals("raíz", copy.extract().getName());
+        assertTrue(copy.down());
+        assertEquals(2, copy.extract().getId());
+        assertEquals(new Point2D(2, -2), copy.extract().getPos());
+        var imgURL = copy.extract().getImgURL();
+        assertTrue(copy.down());
+        var leaf = copy.extract();
+        assertEquals(4, leaf.getId());
+        // La tabla de cadenas guarda una sola vez la URL repetida, y se lee como una sola instancia.
+        assertSame(imgURL, leaf.getImgURL());
+        assertEquals(1, leaf.getChildren().size());
+        assertEquals(new Point2D(0.5, 0.25), leaf.getChildren().getFirst().getPos());
+        assertEquals(List.of(Movement.UP, Movement.UP, Movement.DOWN(2)), leaf.getChildren().getFirst().getMovements());
+        assertTrue(copy.moveTo(leaf.getChildren().getFirst().getMovements()));
+        assertEquals("tres ñ", copy.extract().getName());
+    }
+
+    @Test
+    void writesFrozenVersion() throws IOException {
+        var zipTree = sample();
+        var pending = node(-1, "nuevo");
+        zipTree.toRoot();
+        zipTree.insertChild(pending);
+        var frozen = ZipTreePersistent.of(zipTree, NodeInfo::copy).getTree();
+
+        // Cambios posteriores a la congelación: solo el ID, asignado al guardar el nodo, llega a la copia.
+        zipTree.extract().setName("otra");
+        zipTree.down();
+        zipTree.extract().setPos(new Point2D(-1, -1));
+        zipTree.insertChild(node(9, ""));
+        pending.setId(5);
+
+        Path file = TreeSnapshot.path(dir, 1);
+        TreeSnapshot.write(file, frozen, 7);
+        var copy = TreeSnapshot.read(file, 1, 7).fromJust();
+        assertEquals("raíz", copy.extract().getName());
+        assertEquals(3, copy.toChild(3));
+        assertEquals(5, copy.extract().getId());
+        assertEquals("nuevo", copy.extract().getName());
+        copy.toRoot();
+        assertEquals(1, copy.toChild(1));
+        assertEquals(new Point2D(2, -2), copy.extract().getPos());
+        assertEquals(1, copy.getCtx().getChildren().size());
+    }
+
+    @Test
+    void ignoresOtherVersionOrRoot() throws IOException {
+        Path file = TreeSnapshot.path(dir, 1);
+        TreeSnapshot.write(file, sample(), 7);
+
+        assertTrue(TreeSnapshot.read(file, 1, 8).isNothing());
+        assertTrue(TreeSnapshot.read(file, 2, 7).isNothing());
+        assertTrue(TreeSnapshot.read(file, 1, -1).isNothing());
+        assertTrue(TreeSnapshot.read(TreeSnapshot.path(dir, 5), 5, 0).isNothing());
+    }
+
+    @Test
+    void ignoresCorruptedSnapshot() throws IOException {
+        Path file = TreeSnapshot.path(dir, 1);
+        TreeSnapshot.write(file, sample(), 7);
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{ 42 }), TreeSnapshot.HEADER_SIZE + 30);
+        }
+
+        assertTrue(TreeSnapshot.read(file, 1, 7).isNothing());
+    }
+}
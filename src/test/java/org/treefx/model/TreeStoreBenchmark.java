@@ -0,0 +1,95 @@
+package org.treefx.model;
+
+import javafx.geometry.Point2D;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.treefx.model.ziptree.ZipTreeStrict;
+
+import java.sql.SQLException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide con JMH la carga de un árbol ({@link ConnectionDB#getZipTree(int)}), la inserción de un nodo y la
+ * actualización de su posición sobre árboles de 1000, 10000 y 100000 nodos, en una {@link EmbeddedDatabase},
+ * de modo que no hace falta un servidor.
+ * <p>
+ * Cada prueba importa un árbol aleatorio de {@link TreeImportBenchmark#randomTree(int)}; las inserciones y
+ * actualizaciones se hacen sobre nodos del árbol elegidos al azar (con semilla fija). Los argumentos se pasan
+ * a JMH, por ejemplo {@code -p nodes=10000}.
+ * </p>
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java -Dexec.args="-cp %classpath org.treefx.model.TreeStoreBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TreeStoreBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int nodes;
+
+    private EmbeddedDatabase database;
+    private ConnectionDB db;
+    private int root;
+    private int[] ids;
+    private final SplittableRandom random = new SplittableRandom(7);
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        database = new EmbeddedDatabase();
+        db = database.getConnection();
+        root = db.importTree("benchmark", TreeImport.preorder(TreeImportBenchmark.randomTree(nodes)));
+        if (root == -1) throw new IllegalStateException("No se pudo importar el árbol");
+
+        ids = new int[nodes];
+        var nodeInfos = TreeImport.preorder(db.getZipTree(root));
+        for (int i = 0; nodeInfos.hasNext(); i++) ids[i] = nodeInfos.next().nodeInfo().getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        database.close();
+    }
+
+    private int randomNode() {
+        return ids[random.nextInt(ids.length)];
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public ZipTreeStrict<NodeInfo> getZipTree() {
+        return db.getZipTree(root);
+    }
+
+    @Benchmark
+    public int insertChild() {
+        return db.insertChild(new Point2D(random.nextInt(1000), random.nextInt(1000)), randomNode());
+    }
+
+    @Benchmark
+    public void updatePosition() {
+        db.updateNodeInfo(randomNode(), new Point2D(random.nextInt(1000), random.nextInt(1000)));
+    }
+
+    public static void main(String[] args) throws Exception {
+        var jmhArgs = new String[args.length + 1];
+        jmhArgs[0] = TreeStoreBenchmark.class.getName();
+        System.arraycopy(args, 0, jmhArgs, 1, args.length);
+        org.openjdk.jmh.Main.main(jmhArgs);
+    }
+}
@@ -0,0 +1,42 @@
+package org.treefx.model;
+
+import org.junit.jupiter.api.Test;
+import org.treefx.utils.adt.Maybe;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UndoHistoryTest {
+    @Test
+    void undoesAndRedoesInOrder() {
+        var history = new UndoHistory<Integer>(10);
+        for (int i = 1; i <= 3; i++) history.record(i);
+
+        assertEquals(new Maybe.Just<>(3), history.undo());
+        assertEquals(new Maybe.Just<>(2), history.undo());
+        assertEquals(new Maybe.Just<>(2), history.redo());
+        assertEquals(1, history.getRedoCount());
+
+        // Una operación nueva descarta lo que se podía rehacer.
+        history.record(4);
+        assertEquals(0, history.getRedoCount());
+        assertTrue(history.redo().isNothing());
+        assertEquals(new Maybe.Just<>(4), history.undo());
+        assertEquals(new Maybe.Just<>(2), history.undo());
+        assertEquals(new Maybe.Just<>(1), history.undo());
+        assertTrue(history.undo().isNothing());
+    }
+
+    @Test
+    void forgetsOldestWhenFull() {
+        var history = new UndoHistory<Integer>(3);
+        for (int i = 1; i <= 5; i++) history.record(i);
+
+        assertEquals(3, history.getUndoCount());
+        assertEquals(new Maybe.Just<>(5), history.undo());
+        assertEquals(new Maybe.Just<>(4), history.undo());
+        assertEquals(new Maybe.Just<>(3), history.undo());
+        assertTrue(history.undo().isNothing());
+        assertEquals(3, history.getRedoCount());
+        assertThrows(IllegalArgumentException.class, () -> new UndoHistory<Integer>(0));
+    }
+}
@@ -0,0 +1,93 @@
+package org.treefx.model;
+
+import javafx.geometry.Point2D;
+import org.junit.jupiter.api.Test;
+import org.treefx.utils.adt.Maybe;
+import org.treefx.utils.adt.T;
+
+import java.util.LinkedList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindQueueTest {
+    private NodeInfo node(int id) {
+        return new NodeInfo(id, "", "", new Point2D(0, 0), new LinkedList<>());
+    }
+
+    private WriteBehindQueue.Edit moveTo(NodeInfo nodeInfo, double x) {
+        return new WriteBehindQueue.Edit(nodeInfo, new Maybe.Just<>(new Point2D(x, x)), new Maybe.Nothing<>());
+    }
+
+    @Test
+    void coalescesByNode() {
+        var queue = new WriteBehindQueue(() -> {}, 60_000, 60_000);
+        var a = node(1);
+        var b = node(2);
+
+        for (int i = 0; i < 100; i++) queue.add(moveTo(a, i));
+        queue.add(new WriteBehindQueue.Edit(a, new Maybe.Nothing<>(), new Maybe.Just<>(new T.MkT<>("a", "url"))));
+        queue.add(moveTo(b, 5));
+
+        assertEquals(2, queue.getDepth());
+        assertEquals(102, queue.getEnqueued());
+
+        var edits = queue.drain();
+        assertEquals(0, queue.getDepth());
+        var updateA = edits.stream().filter(e -> e.nodeInfo() == a).findFirst().orElseThrow().toUpdate();
+        assertEquals(new Maybe.Just<>(new Point2D(99, 99)), updateA.position());
+        assertEquals(new Maybe.Just<>(new T.MkT<>("a", "url")), updateA.nameAndImage());
+        queue.close();
+    }
+
+    @Test
+    void readsIdWhenFlushing() {
+        var queue = new WriteBehindQueue(() -> {}, 60_000, 60_000);
+        var a = node(-1);
+        queue.add(moveTo(a, 1));
+        a.setId(42);
+
+        assertEquals(42, queue.drain().getFirst().toUpdate().id());
+        queue.close();
+    }
+
+    @Test
+    void flushesWhenIdle() throws InterruptedException {
+        var due = new CountDownLatch(1);
+        var queue = new WriteBehindQueue(due::countDown, 20, 60_000);
+        queue.add(moveTo(node(1), 1));
+
+        assertTrue(due.await(5, TimeUnit.SECONDS));
+        queue.close();
+    }
+
+    @Test
+    void flushesAfterMaxDelay() throws InterruptedException {
+        var due = new CountDownLatch(1);
+        var queue = new WriteBehindQueue(due::countDown, 60_000, 50);
+        var a = node(1);
+        long start = System.nanoTime();
+        while (due.getCount() > 0 && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5)) {
+            queue.add(moveTo(a, 1));
+            Thread.sleep(5);
+        }
+
+        assertEquals(0, due.getCount());
+        queue.close();
+    }
+
+    @Test
+    void recordsFlushes() {
+        var queue = new WriteBehindQueue(() -> {}, 60_000, 60_000);
+        queue.recordFlush(3, 2_000_000);
+        queue.recordFlush(1, 4_000_000);
+
+        assertEquals(2, queue.getFlushes());
+        assertEquals(4, queue.getWritten());
+        assertEquals(4.0, queue.getLastFlushMs());
+        assertEquals(4.0, queue.getMaxFlushMs());
+        assertEquals(3.0, queue.getMeanFlushMs());
+        queue.close();
+    }
+}
@@ -0,0 +1,90 @@
+package org.treefx.model;
+
+import javafx.geometry.Point2D;
+import org.treefx.model.ziptree.ZipTreeStrict;
+import org.treefx.utils.ReadCredentials;
+import org.treefx.utils.adt.Movement;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.Random;
+
+/**
+ * Compara la carga de un árbol nodo a nodo ({@link ConnectionDB#getZipTreeRecursive(int)}) con la
+ * carga en bloque ({@link ConnectionDB#getZipTreeBulk(int)}) sobre la base de datos local.
+ * <p>
+ * Crea un árbol temporal de {@code n} nodos (por defecto 2000), mide viajes al servidor y tiempo
+ * de cada cargador, y elimina el árbol al terminar.
+ * </p>
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.treefx.model.ZipTreeLoaderBenchmark -Dexec.args=2000
+ * </pre>
+ */
+public class ZipTreeLoaderBenchmark {
+    private static final int ROUNDS = 5;
+
+    /**
+     * Recorre el árbol en preorden y devuelve los IDs junto al número de movimientos de cada nodo.
+     */
+    private static ArrayList<String> preorder(ZipTreeStrict<NodeInfo> zipTree) {
+        var nodes = new ArrayList<String>();
+        zipTree.mapM(nodeInfo -> { nodes.add(nodeInfo.getId() + ":" + nodeInfo.getChildren().size()); return null; });
+        return nodes;
+    }
+
+    /**
+     * Crea un árbol aleatorio (con semilla fija) de {@code n} nodos con un movimiento por nodo.
+     */
+    static int createTree(ConnectionDB connection, int n) {
+        int rootId = connection.insertRoot("benchmark-" + n);
+        var ids = new ArrayList<Integer>();
+        ids.add(rootId);
+
+        var random = new Random(42);
+        for (int i = 1; i < n; i++) {
+            int fatherId = ids.get(random.nextInt(ids.size()));
+            ids.add(connection.insertChild(new Point2D(random.nextInt(1000), random.nextInt(1000)), fatherId));
+        }
+        for (int id : ids) {
+            var moves = new LinkedList<Movement>();
+            moves.add(Movement.UP);
+            connection.insertMovementInSpace(id, new MovementInSpace(new Point2D(random.nextDouble(), random.nextDouble()), moves));
+        }
+        return rootId;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        var userPass = ReadCredentials.read();
+        var connection = new ConnectionDB("localhost", "3306", userPass.fst(), userPass.snd(), "treefx");
+        if (!connection.success()) return;
+
+        int rootId = createTree(connection, n);
+        try {
+            for (int round = 1; round <= ROUNDS; round++) {
+                long trips = connection.getRoundTrips();
+                long start = System.nanoTime();
+                var recursive = connection.getZipTreeRecursive(rootId);
+                long recursiveNanos = System.nanoTime() - start;
+                long recursiveTrips = connection.getRoundTrips() - trips;
+
+                trips = connection.getRoundTrips();
+                start = System.nanoTime();
+                var bulk = connection.getZipTreeBulk(rootId);
+                long bulkNanos = System.nanoTime() - start;
+                long bulkTrips = connection.getRoundTrips() - trips;
+
+                var recursiveNodes = preorder(recursive);
+                var bulkNodes = preorder(bulk);
+                System.out.printf("round %d: recursive %d nodes, %d round trips, %.1f ms | bulk %d nodes, %d round trips, %.1f ms | same tree: %b%n",
+                        round,
+                        recursiveNodes.size(), recursiveTrips, recursiveNanos / 1e6,
+                        bulkNodes.size(), bulkTrips, bulkNanos / 1e6,
+                        recursiveNodes.equals(bulkNodes));
+            }
+        } finally {
+            connection.removeRoot(rootId);
+            connection.close();
+        }
+    }
+}
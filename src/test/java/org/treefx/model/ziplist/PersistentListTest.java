@@ -0,0 +1,62 @@
+package org.treefx.model.ziplist;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentListTest {
+    private static <a> List<a> toList(PersistentList<a> list) {
+        var values = new ArrayList<a>();
+        for (a value : list) values.add(value);
+        return values;
+    }
+
+    @Test
+    void behavesLikeArrayList() {
+        PersistentList<Integer> list = PersistentList.empty();
+        var values = new ArrayList<Integer>();
+        var random = new Random(11);
+
+        for (int step = 0; step < 5000; step++) {
+            int op = random.nextInt(10);
+            if (op < 5 || values.isEmpty()) {
+                int i = 1 + random.nextInt(values.size() + 1);
+                list = list.insert(i, step);
+                values.add(i - 1, step);
+            } else if (op < 8) {
+                int i = 1 + random.nextInt(values.size());
+                list = list.remove(i);
+                values.remove(i - 1);
+            } else {
+                int i = 1 + random.nextInt(values.size());
+                list = list.set(i, -step);
+                values.set(i - 1, -step);
+            }
+
+            assertEquals(values.size(), list.size());
+            if (!values.isEmpty()) {
+                int i = 1 + random.nextInt(values.size());
+                assertEquals(values.get(i - 1), list.get(i));
+            }
+        }
+        assertEquals(values, toList(list));
+        assertEquals(values, toList(PersistentList.of(values)));
+    }
+
+    @Test
+    void oldVersionsDoNotChange() {
+        var first = PersistentList.of(List.of(1, 2, 3));
+        var second = first.set(2, 20).append(4);
+        var third = second.remove(1);
+
+        assertEquals(List.of(1, 2, 3), toList(first));
+        assertEquals(List.of(1, 20, 3, 4), toList(second));
+        assertEquals(List.of(20, 3, 4), toList(third));
+        assertThrows(IndexOutOfBoundsException.class, () -> first.get(4));
+        assertSame(PersistentList.empty(), PersistentList.of(List.of(1)).remove(1));
+    }
+}
@@ -0,0 +1,88 @@
+package org.treefx.model.ziplist;
+
+import org.junit.jupiter.api.Test;
+import org.treefx.model.ziptree.Tree;
+import org.treefx.model.ziptree.ZipTreeStrict;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZipListAllocationTest {
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final int ROUNDS = 1000;
+
+    /**
+     * Bytes reservados por el hilo actual al ejecutar {@code ROUNDS} veces la acción, después de haberla
+     * ejecutado otras tantas para que esté inicializada.
+     */
+    private static long allocatedBytes(Runnable action) {
+        for (int i = 0; i < ROUNDS; i++) action.run();
+        long before = THREADS.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < ROUNDS; i++) action.run();
+        return THREADS.getCurrentThreadAllocatedBytes() - before;
+    }
+
+    private static void navigate(ZipListStrict<Integer> zipList, int[] sink) {
+        zipList.to(zipList.size() / 2);
+        while (zipList.next()) sink[0] += zipList.extract().fromJust();
+        while (zipList.prev()) sink[0] += zipList.extract().fromJust();
+        zipList.to(zipList.size());
+        sink[0] += zipList.getMNode().fromJust().getCurrent();
+        zipList.mapM(x -> {});
+    }
+
+    @Test
+    void zipListNavigationDoesNotAllocate() {
+        int[] sink = {0};
+        ZipListStrict<Integer> strict = new ZipListStrict<>();
+        ZipListGap<Integer> gap = new ZipListGap<>();
+        for (int i = 0; i < 100; i++) {
+            strict.insert(i);
+            gap.insert(i);
+        }
+
+        assertEquals(0, allocatedBytes(() -> navigate(strict, sink)));
+        assertEquals(0, allocatedBytes(() -> navigate(gap, sink)));
+        assertEquals(0, allocatedBytes(() -> sink[0] += strict.getIndex(strict.getHead()) + gap.getIndex(gap.getLast())));
+    }
+
+    @Test
+    void zipTreeNavigationDoesNotAllocate() {
+        int[] sink = {0};
+        var zipTree = new ZipTreeStrict<>(0);
+        for (int i = 1; i <= 100; i++) {
+            zipTree.insertChild(i);
+            zipTree.toChild(i);
+            for (int j = 1; j <= 3; j++) zipTree.insertChild(i * 10 + j);
+            zipTree.toFather();
+        }
+        Function<Integer, Void> k = x -> {
+            sink[0] += x;
+            return null;
+        };
+
+        assertEquals(0, allocatedBytes(() -> {
+            zipTree.toRoot();
+            zipTree.down();
+            while (zipTree.next()) {
+                zipTree.down();
+                zipTree.next();
+                sink[0] += zipTree.extract();
+                zipTree.toFather();
+            }
+            while (zipTree.prev()) sink[0] += zipTree.extract();
+            zipTree.toFather();
+            zipTree.toChild(70);
+            zipTree.mapM(k);
+        }));
+
+        var tree = new Tree<>(0);
+        for (int i = 1; i <= 10; i++) tree.insertD(i);
+        assertEquals(0, allocatedBytes(() -> {
+            while (tree.top()) sink[0] += tree.extract();
+            while (tree.down()) sink[0] += tree.extract();
+        }));
+    }
+}
@@ -0,0 +1,78 @@
+package org.treefx.model.ziplist;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara con JMH {@link ZipListStrict} y {@link ZipListGap}: mover el cursor a una posición al azar
+ * ({@code to}), insertar y borrar en el cursor después de moverlo, y recorrer la lista entera
+ * ({@code mapM}), con listas de {@code size} elementos.
+ * <p>
+ * Los argumentos se pasan a JMH, por ejemplo {@code -p size=1000000}.
+ * </p>
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java -Dexec.args="-cp %classpath org.treefx.model.ziplist.ZipListBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ZipListBenchmark {
+    @Param({"strict", "gap"})
+    public String list;
+
+    @Param({"100", "10000"})
+    public int size;
+
+    private ZipListStrict<Integer> zipList;
+    private final SplittableRandom random = new SplittableRandom(7);
+
+    @Setup
+    public void setup() {
+        zipList = list.equals("gap") ? new ZipListGap<>() : new ZipListStrict<>();
+        for (int i = 0; i < size; i++) zipList.insertR(i);
+    }
+
+    @Benchmark
+    public Integer to() {
+        zipList.to(1 + random.nextInt(size));
+        return zipList.extract().fromJust();
+    }
+
+    @Benchmark
+    public int insertAndDelete() {
+        zipList.to(1 + random.nextInt(size));
+        zipList.insertR(-1);
+        zipList.deleteCurrent();
+        return zipList.getIx();
+    }
+
+    @Benchmark
+    public long mapM() {
+        long[] sum = {0};
+        zipList.mapM(x -> sum[0] += x);
+        return sum[0];
+    }
+
+    public static void main(String[] args) throws Exception {
+        var jmhArgs = new String[args.length + 1];
+        jmhArgs[0] = ZipListBenchmark.class.getName();
+        System.arraycopy(args, 0, jmhArgs, 1, args.length);
+        org.openjdk.jmh.Main.main(jmhArgs);
+    }
+}
@@ -0,0 +1,78 @@
+package org.treefx.model.ziplist;
+
+import org.junit.jupiter.api.Test;
+import org.treefx.model.ziptree.ZipTreeStrict;
+import org.treefx.utils.adt.Movement;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZipListGapTest {
+    @Test
+    void behavesLikeZipListStrict() {
+        ZipListGap<Integer> zipList = new ZipListGap<>();
+        var values = new ArrayList<Integer>();
+        var random = new Random(5);
+
+        for (int step = 0; step < 5000; step++) {
+            int op = random.nextInt(10);
+            if (op < 4 || values.isEmpty()) {
+                zipList.insertR(step);
+                values.add(zipList.getIx() - 1, step);
+            } else if (op < 5) {
+                zipList.insert(step);
+                values.add(step);
+            } else if (op < 7) {
+                values.remove(zipList.getIx() - 1);
+                zipList.deleteCurrent();
+            } else if (op < 8) {
+                zipList.next();
+            } else {
+                assertEquals(zipList.to(1 + random.nextInt(values.size())), zipList.getIx());
+            }
+
+            assertEquals(values.size(), zipList.size());
+            if (!values.isEmpty()) {
+                assertEquals(values.get(zipList.getIx() - 1), zipList.extract().fromJust());
+                int i = 1 + random.nextInt(values.size());
+                assertEquals(values.get(i - 1), zipList.get(i));
+                assertEquals(i, zipList.getIndex(zipList.getNode(i)));
+            }
+        }
+
+        var visited = new ArrayList<Integer>();
+        zipList.mapM(visited::add);
+        assertEquals(values, visited);
+        assertEquals(1, zipList.getIx());
+
+        // La lista enlazada sigue el mismo orden que el arreglo.
+        var linked = new ArrayList<Integer>();
+        for (var node = zipList.getHead(); node != null; node = node.getAfter().isJust() ? node.getAfter().fromJust() : null)
+            linked.add(node.getCurrent());
+        assertEquals(values, linked);
+    }
+
+    @Test
+    void widensWideChildrenLists() {
+        var zipTree = new ZipTreeStrict<>(0);
+        for (int i = 1; i <= 100; i++) zipTree.insertChild(i);
+        assertInstanceOf(ZipListGap.class, zipTree.getCtx().getChildren());
+
+        zipTree.toChild(70);
+        var seventieth = zipTree.getCtx();
+        assertSame(zipTree.getRoot().getChildren(), seventieth.getBrothers());
+        zipTree.insertChild(1000);
+        assertFalse(seventieth.getChildren() instanceof ZipListGap);
+
+        zipTree.toRoot();
+        assertEquals(List.of(Movement.DOWN(70), Movement.DOWN(1)), zipTree.getRelativePosition(seventieth.getChildren().getHead().getCurrent().snd()));
+        assertTrue(zipTree.moveTo(new LinkedList<>(List.of(Movement.DOWN(70)))));
+        assertEquals(70, zipTree.extract());
+        assertTrue(zipTree.next());
+        assertEquals(71, zipTree.extract());
+    }
+}
@@ -2,6 +2,9 @@ package org.treefx.model.ziplist;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class ZipListStrictTest {
@@ -109,4 +112,55 @@ class ZipListStrictTest {
 
         assertEquals("5,10,15,", result.toString());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getIndex() {
+        ZipListStrict<Integer> zipList = new ZipListStrict<>();
+        var nodes = new ArrayList<NodeLinkList<Integer>>();
+        var random = new Random(3);
+
+        for (int step = 0; step < 2000; step++) {
+            int op = random.nextInt(10);
+            if (op < 5 || nodes.isEmpty()) {
+                zipList.insertR(step);
+                nodes.add(zipList.getIx() - 1, zipList.getMNode().fromJust());
+            } else if (op < 7) {
+                var deleted = zipList.getMNode().fromJust();
+                zipList.deleteCurrent();
+                nodes.remove(deleted);
+                assertEquals(0, zipList.getIndex(deleted));
+            } else {
+                zipList.to(1 + random.nextInt(nodes.size()));
+            }
+
+            int ix = zipList.getIx();
+            for (int k = 0; k < 3 && !nodes.isEmpty(); k++) {
+                int i = random.nextInt(nodes.size());
+                assertEquals(i + 1, zipList.getIndex(nodes.get(i)));
+            }
+            assertEquals(ix, zipList.getIx());
+        }
+
+        // Los enlaces hacia atrás siguen el mismo orden que la lista.
+        zipList.to(nodes.size());
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            assertSame(nodes.get(i), zipList.getMNode().fromJust());
+            zipList.prev();
+        }
+    }
+
+    @Test
+    void toNode() {
+        ZipListStrict<Integer> zipList = new ZipListStrict<>();
+        for (int i = 1; i <= 5; i++) zipList.insert(i);
+        zipList.to(2);
+        var second = zipList.getMNode().fromJust();
+        zipList.to(5);
+
+        assertEquals(2, zipList.toNode(second));
+        assertEquals(2, zipList.getIx());
+        assertEquals(2, zipList.extract().fromJust());
+        assertTrue(zipList.next());
+        assertEquals(3, zipList.extract().fromJust());
+    }
+}
@@ -0,0 +1,100 @@
+package org.treefx.model.ziptree;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.treefx.model.ziplist.NodeLinkList;
+import org.treefx.model.ziplist.ZipListStrict;
+import org.treefx.utils.adt.Movement;
+import org.treefx.utils.adt.T;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide con JMH la búsqueda de la posición de un nodo entre sus hermanos en nodos con muchos hijos: enfocar un
+ * nodo ({@link ZipTreeStrict#toNodeCtx(TreeCtxStrict)}), calcular el camino entre dos nodos
+ * ({@link ZipTreeStrict#getRelativePosition(TreeCtxStrict)}) y, como referencia, el recorrido desde la cabeza
+ * de la lista que hacía antes {@link ZipListStrict#getIndex(NodeLinkList)}.
+ * <p>
+ * El árbol tiene una raíz con {@code children} hijos (por defecto 10000) y otros tantos bajo el hijo central;
+ * los nodos se eligen al azar (con semilla fija). Los argumentos se pasan a JMH, por ejemplo {@code -p children=100000}.
+ * </p>
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java -Dexec.args="-cp %classpath org.treefx.model.ziptree.ZipTreeIndexBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ZipTreeIndexBenchmark {
+    @Param({"10000"})
+    public int children;
+
+    private ZipTreeStrict<Integer> zipTree;
+    private final ArrayList<TreeCtxStrict<Integer>> first = new ArrayList<>();
+    private final ArrayList<TreeCtxStrict<Integer>> second = new ArrayList<>();
+    private final SplittableRandom random = new SplittableRandom(7);
+
+    @Setup
+    public void setup() {
+        zipTree = new ZipTreeStrict<>(0);
+        for (int i = 1; i <= children; i++) {
+            zipTree.insertChild(i);
+            first.add(zipTree.getCtx().getChildren().getLast().getCurrent().snd());
+        }
+        zipTree.setCtx(first.get(children / 2));
+        for (int i = 1; i <= children; i++) {
+            zipTree.insertChild(children + i);
+            second.add(zipTree.getCtx().getChildren().getLast().getCurrent().snd());
+        }
+        zipTree.toRoot();
+    }
+
+    private TreeCtxStrict<Integer> randomNode(ArrayList<TreeCtxStrict<Integer>> nodes) {
+        return nodes.get(random.nextInt(nodes.size()));
+    }
+
+    @Benchmark
+    public Integer toNodeCtx() {
+        zipTree.toNodeCtx(randomNode(first));
+        return zipTree.extract();
+    }
+
+    @Benchmark
+    public LinkedList<Movement> getRelativePosition() {
+        zipTree.setCtx(randomNode(first));
+        return zipTree.getRelativePosition(randomNode(second));
+    }
+
+    @Benchmark
+    public int linearIndex() {
+        var ctx = randomNode(first);
+        ZipListStrict<T<Integer, TreeCtxStrict<Integer>>> brothers = ctx.getBrothers();
+        var node = brothers.getHead();
+        for (int ix = 1; ; ix++) {
+            if (node == ctx.getCurrent()) return ix;
+            node = node.getAfter().fromJust();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        var jmhArgs = new String[args.length + 1];
+        jmhArgs[0] = ZipTreeIndexBenchmark.class.getName();
+        System.arraycopy(args, 0, jmhArgs, 1, args.length);
+        org.openjdk.jmh.Main.main(jmhArgs);
+    }
+}
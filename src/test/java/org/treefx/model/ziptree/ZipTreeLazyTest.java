@@ -0,0 +1,109 @@
+package org.treefx.model.ziptree;
+
+import org.junit.jupiter.api.Test;
+import org.treefx.model.ziplist.ZipList;
+import org.treefx.model.ziplist.ZipListLazy;
+import org.treefx.utils.adt.Maybe;
+import org.treefx.utils.adt.Movement;
+import org.treefx.utils.adt.T;
+
+import java.util.LinkedList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZipTreeLazyTest {
+    /**
+     * Árbol infinito en anchura fija: el nodo n tiene como hijos n*10+1, n*10+2 y n*10+3.
+     */
+    private ZipTreeLazy<Integer, Integer> tree() {
+        return new ZipTreeLazy<>(new ZipListLazy<>(), 1, n -> {
+            ZipList<Integer> children = new ZipListLazy<Integer, Integer>(1, k ->
+                    k > 3 ? new Maybe.Nothing<>() : new Maybe.Just<>(new T.MkT<>(n * 10 + k, k + 1)));
+            return new T.MkT<>(n, children);
+        });
+    }
+
+    @Test
+    void downAndNext() {
+        var zipTree = tree();
+
+        assertTrue(zipTree.down());
+        assertEquals(11, zipTree.extract());
+        assertTrue(zipTree.next());
+        assertEquals(12, zipTree.extract());
+        assertTrue(zipTree.next());
+        assertEquals(13, zipTree.extract());
+        assertFalse(zipTree.next());
+    }
+
+    @Test
+    void prevAfterGenerating() {
+        var zipTree = tree();
+        zipTree.down();
+        zipTree.next();
+        zipTree.next();
+
+        assertTrue(zipTree.prev());
+        assertEquals(12, zipTree.extract());
+        assertTrue(zipTree.next());
+        assertEquals(13, zipTree.extract());
+        assertTrue(zipTree.down());
+        assertEquals(131, zipTree.extract());
+    }
+
+    @Test
+    void topAndDownAgain() {
+        var zipTree = tree();
+        zipTree.down();
+        zipTree.next();
+        zipTree.down();
+        assertEquals(121, zipTree.extract());
+
+        assertTrue(zipTree.top());
+        assertEquals(12, zipTree.extract());
+        assertTrue(zipTree.top());
+        assertEquals(1, zipTree.extract());
+        assertFalse(zipTree.top());
+
+        assertTrue(zipTree.down());
+        assertEquals(11, zipTree.extract());
+        assertTrue(zipTree.next());
+        assertTrue(zipTree.down());
+        assertEquals(121, zipTree.extract());
+    }
+
+    @Test
+    void hasMovements() {
+        var zipTree = tree();
+        assertFalse(zipTree.hasTop());
+        assertFalse(zipTree.hasPrev());
+        assertFalse(zipTree.hasNext());
+        assertTrue(zipTree.hasDown());
+
+        zipTree.down();
+        assertTrue(zipTree.hasNext());
+        assertEquals(11, zipTree.extract());
+        zipTree.next();
+        zipTree.next();
+        assertFalse(zipTree.hasNext());
+        assertTrue(zipTree.hasPrev());
+        assertTrue(zipTree.hasTop());
+    }
+
+    @Test
+    void moveTo() {
+        var zipTree = tree();
+        var movements = new LinkedList<Movement>();
+        movements.add(Movement.DOWN(3));
+        movements.add(Movement.DOWN(2));
+        assertTrue(zipTree.moveTo(movements));
+        assertEquals(132, zipTree.extract());
+
+        var back = new LinkedList<Movement>();
+        back.add(Movement.UP);
+        back.add(Movement.UP);
+        back.add(Movement.DOWN(1));
+        assertTrue(zipTree.moveTo(back));
+        assertEquals(11, zipTree.extract());
+    }
+}
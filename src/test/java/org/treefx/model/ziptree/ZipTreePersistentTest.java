@@ -0,0 +1,100 @@
+package org.treefx.model.ziptree;
+
+import org.junit.jupiter.api.Test;
+import org.treefx.utils.adt.Movement;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZipTreePersistentTest {
+    /**
+     * Raíz 0 con hijos 1, 2 y 3, y cada hijo i con hijos i*10+1 e i*10+2.
+     */
+    private static ZipTreeStrict<Integer> strictTree() {
+        var zipTree = new ZipTreeStrict<>(0);
+        for (int i = 1; i <= 3; i++) {
+            zipTree.insertChild(i);
+            zipTree.toChild(i);
+            zipTree.insertChild(i * 10 + 1);
+            zipTree.insertChild(i * 10 + 2);
+            zipTree.toFather();
+        }
+        return zipTree;
+    }
+
+    @Test
+    void navigatesLikeZipTreeStrict() {
+        var strict = strictTree();
+        var persistent = ZipTreePersistent.of(strict);
+
+        // down() de ZipTreeStrict baja al hijo donde quedó el cursor de los hijos; aquí se baja al primero.
+        assertEquals(1, strict.toChild(1));
+        assertTrue(persistent.down());
+        assertEquals(strict.next(), persistent.next());
+        assertEquals(1, strict.toChild(1));
+        assertTrue(persistent.down());
+        assertEquals(strict.next(), persistent.next());
+        assertEquals(strict.next(), persistent.next());
+        assertEquals(strict.extract(), persistent.extract());
+        assertEquals(strict.hasNext(), persistent.hasNext());
+        assertEquals(strict.prev(), persistent.prev());
+        assertEquals(strict.top(), persistent.top());
+        assertEquals(strict.toChild(5), persistent.toChild(5));
+        assertEquals(strict.extract(), persistent.extract());
+        assertEquals(List.of(Movement.DOWN(2), Movement.DOWN(2)), persistent.getPosition());
+
+        strict.toRoot();
+        persistent.toRoot();
+        assertFalse(persistent.hasTop());
+        assertFalse(persistent.next());
+        var path = new LinkedList<>(List.of(Movement.DOWN(2), Movement.DOWN(2)));
+        assertEquals(strict.moveTo(path), persistent.moveTo(path));
+        assertEquals(22, persistent.extract());
+        assertEquals(strict.extract(), persistent.extract());
+
+        var strictValues = new ArrayList<Integer>();
+        strict.mapM(x -> { strictValues.add(x); return null; });
+        var persistentValues = new ArrayList<Integer>();
+        persistent.mapM(x -> { persistentValues.add(x); return null; });
+        assertEquals(strictValues, persistentValues);
+    }
+
+    @Test
+    void snapshotsDoNotSeeLaterEdits() {
+        var zipTree = ZipTreePersistent.of(strictTree());
+        zipTree.toChild(2);
+        var before = zipTree.snapshot();
+
+        zipTree.setValue(200);
+        zipTree.insertChild(23);
+        zipTree.toChild(1);
+        zipTree.setValue(210);
+
+        assertEquals(2, before.extract());
+        assertEquals(2, before.getFocus().children().size());
+        assertEquals(10, before.getTree().size());
+        assertEquals(2, before.getTree().children().get(2).value());
+        assertEquals(21, before.getTree().children().get(2).children().get(1).value());
+
+        assertEquals(210, zipTree.extract());
+        assertTrue(zipTree.toFather());
+        assertEquals(200, zipTree.extract());
+        assertEquals(11, zipTree.getTree().size());
+
+        // Lo que no está en el camino modificado se comparte.
+        assertSame(before.getTree().children().get(1), zipTree.getTree().children().get(1));
+        assertSame(before.getTree().children().get(3), zipTree.getTree().children().get(3));
+
+        // La instantánea también es un zipper editable que no afecta al original.
+        before.toRoot();
+        before.toChild(3);
+        assertEquals(3, before.deleteCurrent().value());
+        assertEquals(0, before.extract());
+        assertEquals(2, before.getTree().children().size());
+        assertEquals(3, zipTree.getTree().children().size());
+        assertNull(before.deleteCurrent());
+    }
+}
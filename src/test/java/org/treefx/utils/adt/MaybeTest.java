@@ -31,4 +31,12 @@ class MaybeTest {
         Maybe<Integer> nothing = new Maybe.Nothing<>();
         assertFalse(nothing.isJust());
     }
-}
\ No newline at end of file
+
+    @Test
+    void nothing() {
+        Maybe<Integer> nothing = Maybe.nothing();
+        assertTrue(nothing.isNothing());
+        assertSame(nothing, Maybe.<String>nothing());
+        assertEquals(new Maybe.Nothing<>(), nothing);
+    }
+}
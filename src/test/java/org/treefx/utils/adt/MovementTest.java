@@ -1,6 +1,11 @@
 package org.treefx.utils.adt;
 
 import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class MovementTest {
@@ -50,4 +55,37 @@ class MovementTest {
         Movement downMovement = Movement.DOWN(20);
         assertEquals(downMovement, Movement.read(Movement.show(downMovement)));
     }
-}
\ No newline at end of file
+
+    @Test
+    void encodeDecodeIsomorphism() {
+        // Test decode(encode(ms)) == ms, including indices that need several bytes
+        var movements = new LinkedList<>(List.of(Movement.UP, Movement.DOWN(1), Movement.DOWN(126), Movement.DOWN(127), Movement.DOWN(100_000), Movement.UP));
+        assertEquals(movements, Movement.decode(Movement.encode(movements)));
+
+        // Test the empty path and a null column
+        assertEquals(new LinkedList<Movement>(), Movement.decode(Movement.encode(new LinkedList<>())));
+        assertEquals(new LinkedList<Movement>(), Movement.decode((byte[]) null));
+    }
+
+    @Test
+    void encodeCompact() {
+        // Test one byte per movement for Up and the first 126 children
+        assertArrayEquals(new byte[]{0, 2, 127}, Movement.encode(List.of(Movement.UP, Movement.DOWN(1), Movement.DOWN(126))));
+
+        // Test a deep path that would not fit in the old varchar(255) text column
+        var deep = new LinkedList<Movement>();
+        for (int i = 0; i < 300; i++) deep.add(Movement.DOWN(i % 10 + 1));
+        assertEquals(300, Movement.encode(deep).length);
+        assertEquals(deep, Movement.decode(ByteBuffer.wrap(Movement.encode(deep))));
+
+        // Test invalid input
+        assertThrows(IllegalArgumentException.class, () -> Movement.encode(List.of(Movement.DOWN(-1))));
+        assertThrows(RuntimeException.class, () -> Movement.decode(new byte[]{(byte) 0x80}));
+        assertThrows(RuntimeException.class, () -> Movement.decode(new byte[]{(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 1}));
+        assertThrows(RuntimeException.class, () -> Movement.decode(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x10}));
+
+        // Test the largest index, whose code needs all 5 bytes
+        var widest = List.of(Movement.DOWN(Integer.MAX_VALUE - 1));
+        assertEquals(widest, Movement.decode(Movement.encode(widest)));
+    }
+}
@@ -71,8 +71,8 @@ CREATE TABLE `node_hierarchy` (
   PRIMARY KEY (`parent_node_id`,`child_node_id`),
   UNIQUE KEY `unique_relation` (`parent_node_id`,`child_node_id`),
   KEY `child_node_id` (`child_node_id`),
-  CONSTRAINT `node_hierarchy_ibfk_1` FOREIGN KEY (`parent_node_id`) REFERENCES `node` (`id`) ON UPDATE CASCADE,
-  CONSTRAINT `node_hierarchy_ibfk_2` FOREIGN KEY (`child_node_id`) REFERENCES `node` (`id`) ON UPDATE CASCADE
+  CONSTRAINT `node_hierarchy_ibfk_1` FOREIGN KEY (`parent_node_id`) REFERENCES `node` (`id`) ON DELETE CASCADE ON UPDATE CASCADE,
+  CONSTRAINT `node_hierarchy_ibfk_2` FOREIGN KEY (`child_node_id`) REFERENCES `node` (`id`) ON DELETE CASCADE ON UPDATE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=latin1 COLLATE=latin1_swedish_ci;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
@@ -97,6 +97,63 @@ INSERT INTO `node_hierarchy` VALUES
 /*!40000 ALTER TABLE `node_hierarchy` ENABLE KEYS */;
 UNLOCK TABLES;
 
+--
+-- Table structure for table `node_closure`
+--
+
+DROP TABLE IF EXISTS `node_closure`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8mb4 */;
+CREATE TABLE `node_closure` (
+  `ancestor_id` int(11) NOT NULL,
+  `descendant_id` int(11) NOT NULL,
+  `depth` int(11) NOT NULL,
+  PRIMARY KEY (`ancestor_id`,`depth`,`descendant_id`),
+  UNIQUE KEY `descendant_id` (`descendant_id`,`ancestor_id`),
+  CONSTRAINT `node_closure_ibfk_1` FOREIGN KEY (`ancestor_id`) REFERENCES `node` (`id`) ON DELETE CASCADE,
+  CONSTRAINT `node_closure_ibfk_2` FOREIGN KEY (`descendant_id`) REFERENCES `node` (`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=latin1 COLLATE=latin1_swedish_ci;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Dumping data for table `node_closure`
+--
+
+LOCK TABLES `node_closure` WRITE;
+/*!40000 ALTER TABLE `node_closure` DISABLE KEYS */;
+INSERT INTO `node_closure` VALUES
+(112,112,0),
+(112,113,1),
+(112,114,1),
+(112,115,2),
+(112,116,2),
+(113,113,0),
+(114,114,0),
+(114,115,1),
+(114,116,1),
+(115,115,0),
+(116,116,0),
+(153,153,0),
+(153,154,1),
+(153,155,1),
+(153,156,1),
+(153,157,1),
+(153,158,2),
+(153,159,2),
+(153,162,2),
+(154,154,0),
+(154,158,1),
+(155,155,0),
+(155,159,1),
+(156,156,0),
+(157,157,0),
+(157,162,1),
+(158,158,0),
+(159,159,0),
+(162,162,0);
+/*!40000 ALTER TABLE `node_closure` ENABLE KEYS */;
+UNLOCK TABLES;
+
 --
 -- Table structure for table `node_positions`
 --
@@ -105,11 +162,12 @@ DROP TABLE IF EXISTS `node_positions`;
 /*!40101 SET @saved_cs_client     = @@character_set_client */;
 /*!40101 SET character_set_client = utf8mb4 */;
 CREATE TABLE `node_positions` (
+  `id` int(11) NOT NULL AUTO_INCREMENT,
   `position` point NOT NULL,
   `node_id` int(11) NOT NULL,
-  `movements` varchar(255) DEFAULT NULL,
-  PRIMARY KEY (`position`(25)),
-  KEY `node_id` (`node_id`),
+  `movements` varbinary(4096) DEFAULT NULL,
+  PRIMARY KEY (`node_id`,`id`),
+  UNIQUE KEY `id` (`id`),
   CONSTRAINT `node_positions_ibfk_1` FOREIGN KEY (`node_id`) REFERENCES `node` (`id`) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=latin1 COLLATE=latin1_swedish_ci;
 /*!40101 SET character_set_client = @saved_cs_client */;
@@ -120,33 +178,33 @@ CREATE TABLE `node_positions` (
 
 LOCK TABLES `node_positions` WRITE;
 /*!40000 ALTER TABLE `node_positions` DISABLE KEYS */;
-INSERT INTO `node_positions` VALUES
-('\0\0\0\0\0\0\0=?`?',155,'Down(1) '),
-('\0\0\0\0\0\0\09?Hz?',114,'Up Down(1) '),
-('\0\0\0\0\0\0\09?ku8\0?',114,'Up '),
-('\0\0\0\0\0\0\0Y`?Q\"E?',112,'Down(2) '),
-('\0\0\0\0\0\0\0&?_)?',113,'Up Down(2) Down(2) '),
-('\0\0\0\0\0\0\0##?LJ8?',112,'Down(2) Down(1) '),
-('\0\0\0\0\0\0\09$.g?PgO)?',113,'Up '),
-('\0\0\0\0\0\0\09$.g?5Pw?',114,'Down(2) '),
-('\0\0\0\0\0\0\09$.g?_)?',113,'Up Down(2) Down(1) '),
-('\0\0\0\0\0\0\0=BtT?0?',113,'Up Down(2) '),
-('\0\0\0\0\0\0\0^r?Q\"E?',112,'Down(1) '),
-('\0\0\0\0\0\0\0sa&?[d?',114,'Down(1) '),
-('\0\0\0\0\0\0\0{\Z<?\0>?',112,'Down(2) Down(2) '),
-('\0\0\0\0\0\0\0*H+?Q@?',116,'Up Up Down(1) '),
-('\0\0\0\0\0\0\0*H+?O?',153,'Down(1) '),
-('\0\0\0\0\0\0\0*H+?w*?',115,'Up Up Down(1) '),
-('\0\0\0\0\0\0\0\nQ?Q\"E?',116,'Up Up '),
-('\0\0\0\0\0\0\0\nQ?n?',116,'Up Down(1) '),
-('\0\0\0\0\0\0\0;Dy?^`?',158,'Up '),
-('\0\0\0\0\0\0\0;Dy?LJ8?',112,'Down(2) Down(2) '),
-('\0\0\0\0\0\0\0d1I?n?',115,'Up Down(2) '),
-('\0\0\0\0\0\0\0/?Q\"E?',115,'Up Up '),
-('\0\0\0\0\0\0\0!,%?0\"?',154,'Down(1) '),
-('\0\0\0\0\0\0\05Lw?w*?',115,'Up '),
-('\0\0\0\0\0\0\05Lw??',116,'Up '),
-('\0\0\0\0\0\0\0#?KY?',159,'Up ');
+INSERT INTO `node_positions` (`position`, `node_id`, `movements`) VALUES
+('\0\0\0\0\0\0\0=?`?',155,0x02),
+('\0\0\0\0\0\0\09?Hz?',114,0x0002),
+('\0\0\0\0\0\0\09?ku8\0?',114,0x00),
+('\0\0\0\0\0\0\0Y`?Q\"E?',112,0x03),
+('\0\0\0\0\0\0\0&?_)?',113,0x000303),
+('\0\0\0\0\0\0\0##?LJ8?',112,0x0302),
+('\0\0\0\0\0\0\09$.g?PgO)?',113,0x00),
+('\0\0\0\0\0\0\09$.g?5Pw?',114,0x03),
+('\0\0\0\0\0\0\09$.g?_)?',113,0x000302),
+('\0\0\0\0\0\0\0=BtT?0?',113,0x0003),
+('\0\0\0\0\0\0\0^r?Q\"E?',112,0x02),
+('\0\0\0\0\0\0\0sa&?[d?',114,0x02),
+('\0\0\0\0\0\0\0{\Z<?\0>?',112,0x0303),
+('\0\0\0\0\0\0\0*H+?Q@?',116,0x000002),
+('\0\0\0\0\0\0\0*H+?O?',153,0x02),
+('\0\0\0\0\0\0\0*H+?w*?',115,0x000002),
+('\0\0\0\0\0\0\0\nQ?Q\"E?',116,0x0000),
+('\0\0\0\0\0\0\0\nQ?n?',116,0x0002),
+('\0\0\0\0\0\0\0;Dy?^`?',158,0x00),
+('\0\0\0\0\0\0\0;Dy?LJ8?',112,0x0303),
+('\0\0\0\0\0\0\0d1I?n?',115,0x0003),
+('\0\0\0\0\0\0\0/?Q\"E?',115,0x0000),
+('\0\0\0\0\0\0\0!,%?0\"?',154,0x02),
+('\0\0\0\0\0\0\05Lw?w*?',115,0x00),
+('\0\0\0\0\0\0\05Lw??',116,0x00),
+('\0\0\0\0\0\0\0#?KY?',159,0x00);
 /*!40000 ALTER TABLE `node_positions` ENABLE KEYS */;
 UNLOCK TABLES;
 
@@ -160,7 +218,9 @@ DROP TABLE IF EXISTS `roots`;
 CREATE TABLE `roots` (
   `node_id` int(11) NOT NULL,
   `name` varchar(100) NOT NULL,
+  `version` bigint(20) NOT NULL DEFAULT 0,
   PRIMARY KEY (`node_id`),
+  KEY `name` (`name`,`node_id`),
   CONSTRAINT `roots_ibfk_1` FOREIGN KEY (`node_id`) REFERENCES `node` (`id`) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=latin1 COLLATE=latin1_swedish_ci;
 /*!40101 SET character_set_client = @saved_cs_client */;
@@ -172,8 +232,8 @@ CREATE TABLE `roots` (
 LOCK TABLES `roots` WRITE;
 /*!40000 ALTER TABLE `roots` DISABLE KEYS */;
 INSERT INTO `roots` VALUES
-(112,'Tutorial TreeFX'),
-(153,'Presentacion');
+(112,'Tutorial TreeFX',0),
+(153,'Presentacion',0);
 /*!40000 ALTER TABLE `roots` ENABLE KEYS */;
 UNLOCK TABLES;
 /*!50003 SET @saved_cs_client      = @@character_set_client */ ;
@@ -212,29 +272,19 @@ DELIMITER ;
 DELIMITER ;;
 CREATE DEFINER=`root`@`localhost` PROCEDURE `DeleteRootAndChildren`(IN root_id int)
 BEGIN
-
-    CREATE TEMPORARY TABLE IF NOT EXISTS temp_nodes (node_id INT PRIMARY KEY);
-    DELETE FROM temp_nodes;
-
-
-    INSERT INTO temp_nodes
-    WITH RECURSIVE AllNodes AS (
-        SELECT root_id AS node_id
-        UNION ALL
-        SELECT nh.child_node_id
-        FROM node_hierarchy nh
-        INNER JOIN AllNodes an ON nh.parent_node_id = an.node_id
-    )
-    SELECT node_id FROM AllNodes;
-
-
-    DELETE FROM node_positions WHERE node_id IN (SELECT node_id FROM temp_nodes);
-    DELETE FROM node_hierarchy
-    WHERE parent_node_id IN (SELECT node_id FROM temp_nodes)
-       OR child_node_id IN (SELECT node_id FROM temp_nodes);
-    DELETE FROM node WHERE id IN (SELECT node_id FROM temp_nodes);
-
-    DROP TEMPORARY TABLE temp_nodes;
+    DECLARE level int;
+
+    -- De las hojas a la raz: borrar un nodo borra en cascada sus filas de node_closure,
+    -- y si se borrara antes un ancestro desapareceran las filas que recorre el borrado.
+    SELECT MAX(depth) INTO level FROM node_closure WHERE ancestor_id = root_id;
+
+    WHILE level >= 0 DO
+        DELETE node
+        FROM node
+        INNER JOIN node_closure AS subtree ON subtree.descendant_id = node.id
+        WHERE subtree.ancestor_id = root_id AND subtree.depth = level;
+        SET level = level - 1;
+    END WHILE;
 END ;;
 DELIMITER ;
 /*!50003 SET sql_mode              = @saved_sql_mode */ ;
@@ -285,6 +335,14 @@ BEGIN
     INSERT INTO node_hierarchy (`parent_node_id`, `child_node_id`)
     VALUES (parent_id, @new_node_id);
 
+
+    INSERT INTO node_closure (`ancestor_id`, `descendant_id`, `depth`)
+    SELECT ancestor_id, @new_node_id, depth + 1
+    FROM node_closure
+    WHERE descendant_id = parent_id
+    UNION ALL
+    SELECT @new_node_id, @new_node_id, 0;
+
     SET new_node_id = @new_node_id;
 
     COMMIT;
@@ -325,6 +383,10 @@ BEGIN
     SET @new_node_id = LAST_INSERT_ID();
 
 
+    INSERT INTO `node_closure` (`ancestor_id`, `descendant_id`, `depth`)
+    VALUES (@new_node_id, @new_node_id, 0);
+
+
     INSERT INTO `roots` (`node_id`, `name`)
     VALUES (@new_node_id, root_name);
 